@@ -18,13 +18,17 @@ package co.cask.cdap.api.dataset.lib;
 
 import co.cask.cdap.api.annotation.ReadOnly;
 import co.cask.cdap.api.annotation.ReadWrite;
-import co.cask.cdap.api.annotation.WriteOnly;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.TreeSet;
 
 /**
  * A Dataset for incrementing counts over time periods. This Dataset provides an extension to {@link TimeseriesTable}
@@ -33,6 +37,12 @@ import java.util.NoSuchElementException;
  * <p>For more information on choosing values for <code>rowPartitionIntervalSize</code> and tag usage, please see the
  * {@link TimeseriesTable} class description.</p>
  *
+ * <p>Optionally, the table can maintain rollups of the counters in coarser time buckets, for example per minute, hour
+ * and day, by setting the {@link #ATTR_ROLLUP_RESOLUTIONS} property. Rollups are updated with increments alongside
+ * every write, and {@link #aggregate(byte[], long, long, byte[][]) aggregate} sums a counter over a time range by
+ * reading the coarsest buckets covering the range, and reading individual entries only at the edges of the
+ * range. Timestamps must not be negative when rollups are enabled.</p>
+ *
  * @see TimeseriesTable
  */
 public class CounterTimeseriesTable extends TimeseriesDataset {
@@ -42,11 +52,57 @@ public class CounterTimeseriesTable extends TimeseriesDataset {
    */
   public static final String TYPE = "counterTimeseriesTable";
 
+  /**
+   * Property for the sizes of the rollup buckets, as a comma separated list of milliseconds. For example,
+   * "60000,3600000,86400000" maintains rollups per minute, hour and day. Rollups are disabled if not set.
+   * The rollup resolutions cannot be changed once the dataset is created.
+   */
+  public static final String ATTR_ROLLUP_RESOLUTIONS = "rollupResolutions";
+
+  // Number of rollup buckets stored per row
+  private static final long ROLLUP_BUCKETS_PER_ROW = 1024;
+
+  // Rollup resolutions in descending order. The position of a resolution is encoded into its row keys.
+  private final long[] rollupResolutions;
+
   /**
    * Creates an instance of the DataSet.
    */
   public CounterTimeseriesTable(DatasetSpecification spec, Table table) {
     super(spec, table);
+    this.rollupResolutions = getRollupResolutions(spec.getProperties());
+  }
+
+  /**
+   * Extract the rollup resolutions from the properties, in descending order.
+   */
+  // package-visible to be accessed by dataset definition's configure() and reconfigure()
+  static long[] getRollupResolutions(Map<String, String> properties) {
+    String value = properties.get(ATTR_ROLLUP_RESOLUTIONS);
+    if (value == null || value.trim().isEmpty()) {
+      return new long[0];
+    }
+    TreeSet<Long> resolutions = new TreeSet<>(Collections.reverseOrder());
+    for (String resolution : value.split(",")) {
+      long millis;
+      try {
+        millis = Long.parseLong(resolution.trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(String.format("Invalid rollup resolution '%s' in '%s'",
+                                                         resolution, ATTR_ROLLUP_RESOLUTIONS), e);
+      }
+      if (millis <= 0) {
+        throw new IllegalArgumentException(String.format("Rollup resolution must be positive, but is %d in '%s'",
+                                                         millis, ATTR_ROLLUP_RESOLUTIONS));
+      }
+      resolutions.add(millis);
+    }
+    long[] result = new long[resolutions.size()];
+    int i = 0;
+    for (long resolution : resolutions) {
+      result[i++] = resolution;
+    }
+    return result;
   }
 
   /**
@@ -61,11 +117,16 @@ public class CounterTimeseriesTable extends TimeseriesDataset {
    */
   @ReadWrite
   public long increment(byte[] counter, long amount, long timestamp, byte[]... tags) {
-    return internalIncrement(counter, amount, timestamp, tags);
+    validateTimestamp(timestamp);
+    long value = internalIncrement(counter, amount, timestamp, tags);
+    incrementRollups(counter, amount, timestamp, tags);
+    return value;
   }
 
   /**
-   * Set the value for a counter.
+   * Set the value for a counter. If rollups are enabled, the previous value of the entry is read, so that the rollups
+   * can be adjusted by the difference. Therefore this is a read-write operation, and it conflicts with concurrent
+   * changes of the same entry.
    *
    * @param counter the name of the counter to set
    * @param value the value to set
@@ -73,11 +134,140 @@ public class CounterTimeseriesTable extends TimeseriesDataset {
    * @param tags optional list of tags associated with the counter. See {@link TimeseriesTable} class description
    *             for more details.
    */
-  @WriteOnly
+  @ReadWrite
   public void set(byte[] counter, long value, long timestamp, byte[]... tags) {
+    if (rollupResolutions.length > 0) {
+      // rollups are maintained by increments, hence the difference to the previous value is needed
+      validateTimestamp(timestamp);
+      byte[][] sortedTags = tags.clone();
+      sortTags(sortedTags);
+      byte[] previous = table.get(createRow(counter, timestamp, rowPartitionIntervalSize),
+                                  createColumnName(timestamp, sortedTags));
+      incrementRollups(counter, value - (previous == null ? 0L : Bytes.toLong(previous)), timestamp, tags);
+    }
     write(counter, Bytes.toBytes(value), timestamp, tags);
   }
 
+  /**
+   * Sums the values of a counter over a given time range. If rollups are enabled, the coarsest rollup buckets
+   * that fit into the time range are read, and only the remainders of the range at its edges are read from finer
+   * buckets or from individual entries. Otherwise, all entries in the time range are read.
+   * NOTE: A limit is placed on the max number of time intervals to be scanned for the individual entries, as defined
+   * by {@link #MAX_ROWS_TO_SCAN_PER_READ}.
+   *
+   * @param counter name of the counter to aggregate
+   * @param startTime defines start of the time range to aggregate, inclusive
+   * @param endTime defines end of the time range to aggregate, inclusive
+   * @param tags a set of tags which entries aggregated must contain. Tags for entries are defined at write-time and
+   *             an entry is only aggregated if it contains all of these tags.
+   * @return the sum of the values of all entries that satisfy provided conditions
+   */
+  @ReadOnly
+  public long aggregate(byte[] counter, long startTime, long endTime, byte[]... tags) {
+    if (startTime > endTime) {
+      throw new IllegalArgumentException("Provided time range condition is incorrect: startTime > endTime");
+    }
+    if (rollupResolutions.length > 0) {
+      // there are no entries with negative timestamps when rollups are enabled
+      startTime = Math.max(startTime, 0L);
+      if (startTime > endTime) {
+        return 0L;
+      }
+    }
+    return aggregate(counter, startTime, endTime, 0, tags);
+  }
+
+  /**
+   * Sums the values of a counter over a given time range, using the rollups starting at the given resolution.
+   */
+  private long aggregate(byte[] counter, long startTime, long endTime, int resolutionIndex, byte[][] tags) {
+    if (startTime > endTime) {
+      return 0L;
+    }
+    for (int i = resolutionIndex; i < rollupResolutions.length; i++) {
+      long resolution = rollupResolutions[i];
+      // the buckets that are completely contained in the time range
+      long firstBucket = (startTime + resolution - 1) / resolution * resolution;
+      long bucketsEnd = endTime == Long.MAX_VALUE ? endTime / resolution * resolution
+        : (endTime + 1) / resolution * resolution;
+      if (firstBucket < bucketsEnd) {
+        return readRollups(counter, i, firstBucket, bucketsEnd, tags)
+          + aggregate(counter, startTime, firstBucket - 1, i + 1, tags)
+          + aggregate(counter, bucketsEnd, endTime, i + 1, tags);
+      }
+    }
+
+    long sum = 0L;
+    Iterator<Entry> entries = readInternal(counter, startTime, endTime, tags);
+    while (entries.hasNext()) {
+      sum += Bytes.toLong(entries.next().getValue());
+    }
+    return sum;
+  }
+
+  /**
+   * Sums the values of the rollup buckets of a resolution that start in the given time range.
+   *
+   * @param from start of the time range, inclusive
+   * @param to end of the time range, exclusive
+   */
+  private long readRollups(byte[] counter, int resolutionIndex, long from, long to, byte[][] tags) {
+    // rollup rows of a resolution are contiguous, so only the rows that exist are scanned
+    byte[] startRow = createRollupRow(counter, resolutionIndex, from);
+    byte[] stopRow = Bytes.add(createRollupRow(counter, resolutionIndex, to - 1), new byte[1]);
+    long sum = 0L;
+    try (Scanner scanner = table.scan(startRow, stopRow)) {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        // skip rows of other counters that share the prefix
+        if (row.getRow().length != startRow.length) {
+          continue;
+        }
+        for (Map.Entry<byte[], byte[]> column : row.getColumns().entrySet()) {
+          long timestamp = parseTimeStamp(column.getKey());
+          if (timestamp < from || timestamp >= to) {
+            continue;
+          }
+          Entry entry = createEntry(counter, column.getValue(), column.getKey(), tags);
+          if (entry != null) {
+            sum += Bytes.toLong(entry.getValue());
+          }
+        }
+      }
+    }
+    return sum;
+  }
+
+  private void incrementRollups(byte[] counter, long amount, long timestamp, byte[][] tags) {
+    if (rollupResolutions.length == 0 || amount == 0) {
+      return;
+    }
+    byte[][] sortedTags = tags.clone();
+    sortTags(sortedTags);
+    for (int i = 0; i < rollupResolutions.length; i++) {
+      long bucket = timestamp / rollupResolutions[i] * rollupResolutions[i];
+      // the increment does not need to read the current value, so it can be applied as a readless increment
+      table.increment(createRollupRow(counter, i, bucket), createColumnName(bucket, sortedTags), amount);
+    }
+  }
+
+  private void validateTimestamp(long timestamp) {
+    if (rollupResolutions.length > 0 && timestamp < 0) {
+      throw new IllegalArgumentException("Timestamp cannot be negative when rollups are enabled, but is " + timestamp);
+    }
+  }
+
+  /**
+   * Returns the row key of the rollup buckets of a resolution for a given time. It has the format
+   * {@code <counter><marker>}, where the marker is a negative 8-byte long encoding the position of the resolution and
+   * the index of the row. Since row keys of entries end with the non-negative 8-byte time interval, rollup rows never
+   * clash with the rows of entries.
+   */
+  private byte[] createRollupRow(byte[] counter, int resolutionIndex, long timestamp) {
+    long rowIndex = timestamp / (rollupResolutions[resolutionIndex] * ROLLUP_BUCKETS_PER_ROW);
+    return Bytes.add(counter, Bytes.toBytes(Long.MIN_VALUE | ((long) resolutionIndex << 48) | rowIndex));
+  }
+
   /**
    * Reads entries for a given time range and returns an <code>Iterator<Counter></code>.
    * NOTE: A limit is placed on the max number of time intervals to be scanned during a read, as defined by
@@ -25,6 +25,7 @@ import co.cask.cdap.api.dataset.IncompatibleUpdateException;
 import co.cask.cdap.api.dataset.table.Table;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -37,11 +38,19 @@ public class CounterTimeseriesTableDefinition extends CompositeDatasetDefinition
     super(name, "ts", tableDef);
   }
 
+  @Override
+  public DatasetSpecification configure(String instanceName, DatasetProperties properties) {
+    // validates the rollup resolutions
+    CounterTimeseriesTable.getRollupResolutions(properties.getProperties());
+    return super.configure(instanceName, properties);
+  }
+
   @Override
   public DatasetSpecification reconfigure(String instanceName,
                                           DatasetProperties newProperties,
                                           DatasetSpecification currentSpec) throws IncompatibleUpdateException {
     TimeseriesTableDefinition.validateNewIntervalSize(newProperties, currentSpec);
+    validateNewRollupResolutions(newProperties, currentSpec);
     return super.reconfigure(instanceName, newProperties, currentSpec);
   }
 
@@ -50,4 +59,28 @@ public class CounterTimeseriesTableDefinition extends CompositeDatasetDefinition
                                            Map<String, String> arguments, ClassLoader classLoader) throws IOException {
     return new CounterTimeseriesTable(spec, this.<Table>getDataset(datasetContext, "ts", spec, arguments, classLoader));
   }
+
+  /**
+   * Validates that a properties update does not change the rollup resolutions, since existing rollups would not
+   * match the entries written before the update.
+   * @param newProperties the new dataset properties
+   * @param currentSpec the existing dataset specification
+   * @throws IncompatibleUpdateException if the rollup resolutions are changed
+   */
+  private static void validateNewRollupResolutions(DatasetProperties newProperties,
+                                                   DatasetSpecification currentSpec)
+    throws IncompatibleUpdateException {
+    long[] oldResolutions = CounterTimeseriesTable.getRollupResolutions(currentSpec.getProperties());
+    long[] newResolutions;
+    try {
+      newResolutions = CounterTimeseriesTable.getRollupResolutions(newProperties.getProperties());
+    } catch (IllegalArgumentException e) {
+      throw new IncompatibleUpdateException(e.getMessage());
+    }
+    if (!Arrays.equals(oldResolutions, newResolutions)) {
+      throw new IncompatibleUpdateException(String.format(
+        "Attempt to change the rollup resolutions from %s to %s",
+        Arrays.toString(oldResolutions), Arrays.toString(newResolutions)));
+    }
+  }
 }
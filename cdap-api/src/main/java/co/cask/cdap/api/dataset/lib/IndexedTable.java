@@ -24,6 +24,8 @@ import co.cask.cdap.api.data.batch.RecordScanner;
 import co.cask.cdap.api.data.batch.Split;
 import co.cask.cdap.api.data.batch.SplitReader;
 import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.dataset.table.Aggregation;
+import co.cask.cdap.api.dataset.table.AsyncTable;
 import co.cask.cdap.api.dataset.table.Delete;
 import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Increment;
@@ -38,8 +40,12 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -47,6 +53,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import javax.annotation.Nullable;
 
 /**
@@ -94,7 +101,16 @@ import javax.annotation.Nullable;
  * as it would break parsing of the configuration property.
  * </p>
  *
+ * <p>Composite indexes over multiple columns can be configured with {@link #COMPOSITE_INDEXES_CONF_KEY}. A row is
+ * indexed by a composite index only if it has values for all of the index's columns, and it can be looked up by the
+ * values of any leading subset of these columns. Columns configured with {@link #COVERED_COLUMNS_CONF_KEY} are
+ * stored in every index row, so that reads by index that only request indexed and covered columns are served from
+ * the index table alone. Otherwise, the data rows of a read by index are fetched with batched gets.
+ * </p>
+ *
  * @see #INDEX_COLUMNS_CONF_KEY
+ * @see #COMPOSITE_INDEXES_CONF_KEY
+ * @see #COVERED_COLUMNS_CONF_KEY
  */
 public class IndexedTable extends AbstractDataset implements Table {
 
@@ -111,18 +127,49 @@ public class IndexedTable extends AbstractDataset implements Table {
    */
   public static final String INDEX_COLUMNS_CONF_KEY = "columnsToIndex";
 
+  /**
+   * Configuration key for defining composite indexes in the DatasetSpecification properties. Composite indexes are
+   * separated by semicolons, and the columns of each index are comma-separated, in the order in which they are
+   * indexed, e.g. "column1,column2;column3,column4".
+   */
+  public static final String COMPOSITE_INDEXES_CONF_KEY = "compositeIndexes";
+
+  /**
+   * Configuration key for defining the columns whose values are stored in every index row, in the
+   * DatasetSpecification properties. Multiple column names should be listed as a comma-separated string.
+   */
+  public static final String COVERED_COLUMNS_CONF_KEY = "coveredColumns";
+
   /**
    * Column key used to store the existence of a row in the secondary index.
    */
   private static final byte[] IDX_COL = {'r'};
   private static final byte DELIMITER_BYTE = 0;
   private static final byte[] KEY_DELIMITER = new byte[] { DELIMITER_BYTE };
+  private static final byte NAME_SEPARATOR = ',';
+  /**
+   * Prefix of the columns that store indexed and covered values in the index rows.
+   */
+  private static final byte[] VALUE_COL_PREFIX = {'v', '.'};
+  /**
+   * The number of data rows read with the first batched get of an index scanner. The batch size doubles with every
+   * get, up to {@link #MAX_INDEX_BATCH_SIZE}, so that reading only the first few rows remains cheap.
+   */
+  private static final int INITIAL_INDEX_BATCH_SIZE = 16;
+  private static final int MAX_INDEX_BATCH_SIZE = 1000;
 
   private final boolean hasColumnWithDelimiter;
   // the two underlying tables
   private Table table, index;
   // the secondary index column
   private SortedSet<byte[]> indexedColumns;
+  // all indexes, single-column and composite
+  private final List<Index> indexes;
+  // the single-column indexes by column
+  private final NavigableMap<byte[], Index> columnIndexes;
+  private final SortedSet<byte[]> coveredColumns;
+  // all columns whose values are part of an index row
+  private final SortedSet<byte[]> maintainedColumns;
 
   /**
    * Configuration time constructor.
@@ -133,11 +180,46 @@ public class IndexedTable extends AbstractDataset implements Table {
    * @param columnsToIndex the names of the data columns to index
    */
   public IndexedTable(String name, Table table, Table index, SortedSet<byte[]> columnsToIndex) {
+    this(name, table, index, columnsToIndex, Collections.<List<byte[]>>emptyList(),
+         new TreeSet<>(Bytes.BYTES_COMPARATOR));
+  }
+
+  /**
+   * Configuration time constructor.
+   *
+   * @param name the name of the table
+   * @param table table to use as the table
+   * @param index table to use as the index
+   * @param columnsToIndex the names of the data columns to index
+   * @param compositeIndexes the data columns of each composite index, in the order in which they are indexed
+   * @param coveredColumns the names of the data columns whose values are stored in the index rows
+   */
+  public IndexedTable(String name, Table table, Table index, SortedSet<byte[]> columnsToIndex,
+                      List<List<byte[]>> compositeIndexes, SortedSet<byte[]> coveredColumns) {
     super(name, table, index);
     this.table = table;
     this.index = index;
     this.indexedColumns = columnsToIndex;
+    this.coveredColumns = coveredColumns;
     this.hasColumnWithDelimiter = hasDelimiterByte(columnsToIndex);
+    this.indexes = new ArrayList<>();
+    this.columnIndexes = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    this.maintainedColumns = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+    for (byte[] column : columnsToIndex) {
+      // single-column index rows only store values if there are covered columns
+      Index idx = new Index(new byte[][] { column }, !coveredColumns.isEmpty());
+      indexes.add(idx);
+      columnIndexes.put(column, idx);
+    }
+    for (List<byte[]> columns : compositeIndexes) {
+      indexes.add(new Index(columns.toArray(new byte[columns.size()][]), true));
+    }
+    for (Index idx : indexes) {
+      maintainedColumns.addAll(Arrays.asList(idx.columns));
+    }
+    if (!indexes.isEmpty()) {
+      maintainedColumns.addAll(coveredColumns);
+    }
   }
 
   /**
@@ -218,11 +300,71 @@ public class IndexedTable extends AbstractDataset implements Table {
    */
   @ReadOnly
   public Scanner readByIndex(byte[] column, byte[] value) {
-    assertIndexedColumn(column);
+    return readByIndex(column, value, null);
+  }
+
+  /**
+   * Reads the given columns of the table rows by the given secondary index key. If all of the columns are indexed
+   * or covered by the index, the rows are read from the index table only.
+   *
+   * @param column the column to use for the index lookup
+   * @param value the value to look up
+   * @param columnsToRead the columns to read, {@code null} to read all columns of the data rows
+   * @return a Scanner returning rows from the data table, whose stored value for the given column matches the
+   *         given value.
+   * @throws java.lang.IllegalArgumentException if the given column is not configured for indexing.
+   */
+  @ReadOnly
+  public Scanner readByIndex(byte[] column, byte[] value, @Nullable byte[][] columnsToRead) {
+    Index idx = getColumnIndex(column);
     byte[] rowKeyPrefix = Bytes.concat(column, KEY_DELIMITER, value, KEY_DELIMITER);
     byte[] stopRow = Bytes.stopKeyForPrefix(rowKeyPrefix);
     Scanner indexScan = index.scan(rowKeyPrefix, stopRow);
-    return new IndexScanner(indexScan, column, value);
+    return new IndexScanner(indexScan, idx, value, columnsToRead);
+  }
+
+  /**
+   * Reads table rows by the values of the leading columns of a composite index. If no rows are indexed by the given
+   * values, then a {@link co.cask.cdap.api.dataset.table.Scanner} with no results will be returned.
+   *
+   * @param columns the columns to use for the index lookup. These must be the first columns of an index, in order
+   * @param values the values of the columns to look up
+   * @return a Scanner returning rows from the data table, whose stored values for the given columns match the
+   *         given values.
+   * @throws java.lang.IllegalArgumentException if the given columns are not the leading columns of an index.
+   */
+  @ReadOnly
+  public Scanner readByIndex(byte[][] columns, byte[][] values) {
+    return readByIndex(columns, values, null);
+  }
+
+  /**
+   * Reads the given columns of the table rows by the values of the leading columns of a composite index. If all of
+   * the columns to read are indexed or covered by the index, the rows are read from the index table only.
+   *
+   * @param columns the columns to use for the index lookup. These must be the first columns of an index, in order
+   * @param values the values of the columns to look up
+   * @param columnsToRead the columns to read, {@code null} to read all columns of the data rows
+   * @return a Scanner returning rows from the data table, whose stored values for the given columns match the
+   *         given values.
+   * @throws java.lang.IllegalArgumentException if the given columns are not the leading columns of an index.
+   */
+  @ReadOnly
+  public Scanner readByIndex(byte[][] columns, byte[][] values, @Nullable byte[][] columnsToRead) {
+    if (columns.length == 0 || columns.length != values.length) {
+      throw new IllegalArgumentException("The same, non-zero number of columns and values must be given");
+    }
+    Index idx = getIndex(columns);
+    byte[][] parts = new byte[2 * values.length + 2][];
+    parts[0] = idx.name;
+    for (int i = 0; i < values.length; i++) {
+      parts[2 * i + 1] = KEY_DELIMITER;
+      parts[2 * i + 2] = values[i];
+    }
+    parts[parts.length - 1] = KEY_DELIMITER;
+    byte[] rowKeyPrefix = Bytes.concat(parts);
+    Scanner indexScan = index.scan(rowKeyPrefix, Bytes.stopKeyForPrefix(rowKeyPrefix));
+    return new CompositeIndexScanner(indexScan, idx, values, columnsToRead);
   }
 
   /**
@@ -240,7 +382,25 @@ public class IndexedTable extends AbstractDataset implements Table {
    */
   @ReadOnly
   public Scanner scanByIndex(byte[] column, @Nullable byte[] startValue, @Nullable byte[] endValue) {
-    assertIndexedColumn(column);
+    return scanByIndex(column, startValue, endValue, null);
+  }
+
+  /**
+   * Reads the given columns of the table rows within the given secondary index key range. If all of the columns
+   * are indexed or covered by the index, the rows are read from the index table only.
+   *
+   * @param column the column to use for the index lookup
+   * @param startValue the inclusive start of the range, {@code null} means start from the smallest value
+   * @param endValue the exclusive end of the range, {@code null} means end with the greatest value
+   * @param columnsToRead the columns to read, {@code null} to read all columns of the data rows
+   * @return a Scanner returning rows from the data table, whose stored value for the given column is within the the
+   *         given range.
+   * @throws java.lang.IllegalArgumentException if the given column is not configured for indexing.
+   */
+  @ReadOnly
+  public Scanner scanByIndex(byte[] column, @Nullable byte[] startValue, @Nullable byte[] endValue,
+                             @Nullable byte[][] columnsToRead) {
+    Index idx = getColumnIndex(column);
     // KEY_DELIMITER is not used at the end of the rowKeys, because they are used for a range scan,
     // instead of a fixed-match lookup
     byte[] startRow = startValue == null ? Bytes.concat(column, KEY_DELIMITER) :
@@ -248,18 +408,101 @@ public class IndexedTable extends AbstractDataset implements Table {
     byte[] stopRow = endValue == null ? Bytes.stopKeyForPrefix(Bytes.concat(column, KEY_DELIMITER)) :
       Bytes.concat(column, KEY_DELIMITER, endValue);
     Scanner indexScan = index.scan(startRow, stopRow);
-    return new IndexRangeScanner(indexScan, column, startValue, endValue);
+    return new IndexRangeScanner(indexScan, idx, startValue, endValue, columnsToRead);
+  }
+
+  /**
+   * Reads the keys of the data rows indexed by the given value, without reading the data rows. This is cheaper
+   * than {@link #readByIndex(byte[], byte[])} if only some of the rows are needed, or if they are read in batches.
+   * Note that if the name of an indexed column contains the null byte, keys of rows that do not have the given value
+   * may be returned.
+   *
+   * @return an iterator over the keys of the rows whose stored value for the given column matches the given value,
+   *         in the order of the data row keys
+   * @throws java.lang.IllegalArgumentException if the given column is not configured for indexing.
+   */
+  @ReadOnly
+  public CloseableIterator<byte[]> readRowKeysByIndex(byte[] column, byte[] value) {
+    return readRowKeysByIndex(column, value, null);
+  }
+
+  /**
+   * Reads the keys of the data rows indexed by the given value, starting at the given data row key, without reading
+   * the data rows. Because the keys are returned in the order of the data row keys, this can be used to resume a
+   * previous read, or to skip ahead to a given row key.
+   *
+   * @param column the column to use for the index lookup
+   * @param value the value to look up
+   * @param startRowKey the inclusive data row key to start with, {@code null} to start with the first row
+   * @return an iterator over the keys of the rows whose stored value for the given column matches the given value,
+   *         in the order of the data row keys
+   * @throws java.lang.IllegalArgumentException if the given column is not configured for indexing.
+   */
+  @ReadOnly
+  public CloseableIterator<byte[]> readRowKeysByIndex(byte[] column, byte[] value, @Nullable byte[] startRowKey) {
+    byte[] rowKeyPrefix = Bytes.concat(column, KEY_DELIMITER, value, KEY_DELIMITER);
+    byte[] startRow = startRowKey == null ? rowKeyPrefix : Bytes.concat(rowKeyPrefix, startRowKey);
+    byte[] stopRow = Bytes.stopKeyForPrefix(rowKeyPrefix);
+    return new RowKeyIterator(new IndexScanner(index.scan(startRow, stopRow), getColumnIndex(column), value, null));
+  }
+
+  /**
+   * Reads the keys of the data rows within the given secondary index key range, without reading the data rows.
+   * This is cheaper than {@link #scanByIndex(byte[], byte[], byte[])} if only some of the rows are needed, or if
+   * they are read in batches. Note that if the name of an indexed column contains the null byte, keys of rows whose
+   * value is not within the range may be returned.
+   *
+   * @param column the column to use for the index lookup
+   * @param startValue the inclusive start of the range, {@code null} means start from the smallest value
+   * @param endValue the exclusive end of the range, {@code null} means end with the greatest value
+   * @return an iterator over the keys of the rows whose stored value for the given column is within the range,
+   *         in the order of the values
+   * @throws java.lang.IllegalArgumentException if the given column is not configured for indexing.
+   */
+  @ReadOnly
+  public CloseableIterator<byte[]> scanRowKeysByIndex(byte[] column, @Nullable byte[] startValue,
+                                                      @Nullable byte[] endValue) {
+    Index idx = getColumnIndex(column);
+    byte[] startRow = startValue == null ? Bytes.concat(column, KEY_DELIMITER) :
+      Bytes.concat(column, KEY_DELIMITER, startValue);
+    byte[] stopRow = endValue == null ? Bytes.stopKeyForPrefix(Bytes.concat(column, KEY_DELIMITER)) :
+      Bytes.concat(column, KEY_DELIMITER, endValue);
+    return new RowKeyIterator(new IndexRangeScanner(index.scan(startRow, stopRow), idx, startValue, endValue, null));
   }
 
-  private void assertIndexedColumn(byte[] column) {
-    if (!indexedColumns.contains(column)) {
+  private Index getColumnIndex(byte[] column) {
+    Index idx = columnIndexes.get(column);
+    if (idx == null) {
       throw new IllegalArgumentException("Column " + Bytes.toStringBinary(column) + " is not configured for indexing");
     }
+    return idx;
   }
 
   /**
-   * Writes a put to the data table. If any of the columns in the {@link Put} are configured to be indexed, the
-   * appropriate indexes will be updated with the indexed values referencing the data table row.
+   * Returns an index whose leading columns are the given columns, preferring the index with the fewest columns.
+   */
+  private Index getIndex(byte[][] columns) {
+    Index result = null;
+    for (Index idx : indexes) {
+      if (idx.columns.length >= columns.length
+        && (result == null || idx.columns.length < result.columns.length)
+        && Arrays.deepEquals(Arrays.copyOf(idx.columns, columns.length), columns)) {
+        result = idx;
+      }
+    }
+    if (result == null) {
+      StringBuilder names = new StringBuilder();
+      for (byte[] column : columns) {
+        names.append(names.length() == 0 ? "" : ",").append(Bytes.toStringBinary(column));
+      }
+      throw new IllegalArgumentException("Columns " + names + " are not the leading columns of an index");
+    }
+    return result;
+  }
+
+  /**
+   * Writes a put to the data table. If any of the columns in the {@link Put} are configured to be indexed or
+   * covered, the appropriate indexes will be updated with the indexed values referencing the data table row.
    * 
    * @param put The put operation to store
    */
@@ -269,41 +512,20 @@ public class IndexedTable extends AbstractDataset implements Table {
     // if different value exists, remove current index ref
     // add a new index ref unless same value already exists
     byte[] dataRow = put.getRow();
-    // find which values need to be indexed
     Map<byte[], byte[]> putColumns = put.getValues();
-    Set<byte[]> colsToIndex = new TreeSet<>(Bytes.BYTES_COMPARATOR);
-    for (Map.Entry<byte[], byte[]> putEntry : putColumns.entrySet()) {
-      if (indexedColumns.contains(putEntry.getKey())) {
-        colsToIndex.add(putEntry.getKey());
-      }
-    }
-
-    if (!colsToIndex.isEmpty()) {
+    List<Index> affected = getAffectedIndexes(putColumns.keySet());
+    if (!affected.isEmpty()) {
       // first read the existing indexed values to find which have changed and need to be updated
-      Row existingRow = table.get(dataRow, colsToIndex.toArray(new byte[colsToIndex.size()][]));
-      for (Map.Entry<byte[], byte[]> entry : existingRow.getColumns().entrySet()) {
-        if (!Arrays.equals(entry.getValue(), putColumns.get(entry.getKey()))) {
-          index.delete(createIndexKey(dataRow, entry.getKey(), entry.getValue()), IDX_COL);
-        } else {
-          // value already indexed
-          colsToIndex.remove(entry.getKey());
-        }
-      }
-
-      // add new index entries for all values that have changed or did not exist
-      for (byte[] col : colsToIndex) {
-        index.put(createIndexKey(dataRow, col, putColumns.get(col)), IDX_COL, dataRow);
-      }
+      NavigableMap<byte[], byte[]> existing = readIndexedValues(dataRow, affected);
+      NavigableMap<byte[], byte[]> updated = new TreeMap<>(existing);
+      updated.putAll(putColumns);
+      updateIndexes(dataRow, affected, existing, updated);
     }
 
     // store the data row
     table.put(put);
   }
 
-  private byte[] createIndexKey(byte[] row, byte[] column, byte[] value) {
-    return Bytes.concat(column, KEY_DELIMITER, value, KEY_DELIMITER, row);
-  }
-
   @WriteOnly
   @Override
   public void put(byte[] row, byte[] column, byte[] value) {
@@ -348,7 +570,9 @@ public class IndexedTable extends AbstractDataset implements Table {
     }
 
     // delete all index entries
-    deleteIndexEntries(existingRow);
+    NavigableMap<byte[], byte[]> existing = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    existing.putAll(existingRow.getColumns());
+    updateIndexes(row, indexes, existing, new TreeMap<byte[], byte[]>(Bytes.BYTES_COMPARATOR));
 
     // delete the row
     table.delete(row);
@@ -363,26 +587,144 @@ public class IndexedTable extends AbstractDataset implements Table {
   @WriteOnly
   @Override
   public void delete(byte[] row, byte[][] columns) {
-    Row existingRow = table.get(row, columns);
-    if (existingRow.isEmpty()) {
-      // no row to delete
-      return;
+    List<Index> affected = getAffectedIndexes(Arrays.asList(columns));
+    if (!affected.isEmpty()) {
+      // update the index entries of the affected indexes
+      NavigableMap<byte[], byte[]> existing = readIndexedValues(row, affected);
+      NavigableMap<byte[], byte[]> updated = new TreeMap<>(existing);
+      for (byte[] column : columns) {
+        updated.remove(column);
+      }
+      updateIndexes(row, affected, existing, updated);
     }
 
-    // delete all index entries
-    deleteIndexEntries(existingRow);
-
     // delete the row's columns
     table.delete(row, columns);
   }
 
-  private void deleteIndexEntries(Row existingRow) {
-    byte[] row = existingRow.getRow();
-    for (Map.Entry<byte[], byte[]> entry : existingRow.getColumns().entrySet()) {
-      if (indexedColumns.contains(entry.getKey())) {
-        index.delete(createIndexKey(row, entry.getKey(), entry.getValue()), IDX_COL);
+  /**
+   * Returns the indexes whose index rows depend on any of the given columns.
+   */
+  private List<Index> getAffectedIndexes(Collection<byte[]> columns) {
+    Set<byte[]> changed = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+    changed.addAll(columns);
+    boolean coveredChanged = false;
+    for (byte[] column : coveredColumns) {
+      coveredChanged |= changed.contains(column);
+    }
+    List<Index> affected = new ArrayList<>();
+    for (Index idx : indexes) {
+      boolean isAffected = coveredChanged && idx.storesValues;
+      for (int i = 0; i < idx.columns.length && !isAffected; i++) {
+        isAffected = changed.contains(idx.columns[i]);
+      }
+      if (isAffected) {
+        affected.add(idx);
+      }
+    }
+    return affected;
+  }
+
+  /**
+   * Reads the values of all data columns that are stored in the index rows of the given indexes.
+   */
+  private NavigableMap<byte[], byte[]> readIndexedValues(byte[] row, Collection<Index> toRead) {
+    Set<byte[]> columns = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+    for (Index idx : toRead) {
+      columns.addAll(Arrays.asList(idx.columns));
+      if (idx.storesValues) {
+        columns.addAll(coveredColumns);
+      }
+    }
+    NavigableMap<byte[], byte[]> values = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    values.putAll(table.get(row, columns.toArray(new byte[columns.size()][])).getColumns());
+    return values;
+  }
+
+  /**
+   * Updates the index rows of a data row for a change of its values.
+   *
+   * @param row the data row key
+   * @param toUpdate the indexes to update
+   * @param existing the values of the indexed and covered columns before the change
+   * @param updated the values of the indexed and covered columns after the change
+   */
+  private void updateIndexes(byte[] row, Collection<Index> toUpdate,
+                             Map<byte[], byte[]> existing, Map<byte[], byte[]> updated) {
+    for (Index idx : toUpdate) {
+      byte[] existingKey = createIndexKey(idx, row, existing);
+      byte[] updatedKey = createIndexKey(idx, row, updated);
+      boolean sameKey = existingKey != null && updatedKey != null && Bytes.equals(existingKey, updatedKey);
+      if (existingKey != null && !sameKey) {
+        index.delete(existingKey);
+      }
+      if (updatedKey == null) {
+        continue;
+      }
+      if (!sameKey) {
+        index.put(createIndexPut(idx, updatedKey, row, updated));
+      } else if (idx.storesValues) {
+        // the indexed values are the same, but the covered values may have changed
+        boolean changed = false;
+        List<byte[]> removed = new ArrayList<>();
+        for (byte[] column : coveredColumns) {
+          byte[] updatedValue = updated.get(column);
+          if (!Arrays.equals(existing.get(column), updatedValue)) {
+            changed = true;
+            if (updatedValue == null) {
+              removed.add(valueColumn(column));
+            }
+          }
+        }
+        if (changed) {
+          index.put(createIndexPut(idx, updatedKey, row, updated));
+        }
+        if (!removed.isEmpty()) {
+          index.delete(updatedKey, removed.toArray(new byte[removed.size()][]));
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates the key of the index row for the given data row, {@code null} if the data row does not have values
+   * for all columns of the index.
+   */
+  @Nullable
+  private byte[] createIndexKey(Index idx, byte[] row, Map<byte[], byte[]> values) {
+    byte[][] parts = new byte[2 * idx.columns.length + 3][];
+    parts[0] = idx.name;
+    for (int i = 0; i < idx.columns.length; i++) {
+      byte[] value = values.get(idx.columns[i]);
+      if (value == null) {
+        return null;
+      }
+      parts[2 * i + 1] = KEY_DELIMITER;
+      parts[2 * i + 2] = value;
+    }
+    parts[parts.length - 2] = KEY_DELIMITER;
+    parts[parts.length - 1] = row;
+    return Bytes.concat(parts);
+  }
+
+  private static byte[] valueColumn(byte[] column) {
+    return Bytes.concat(VALUE_COL_PREFIX, column);
+  }
+
+  private Put createIndexPut(Index idx, byte[] indexKey, byte[] row, Map<byte[], byte[]> values) {
+    Put put = new Put(indexKey, IDX_COL, row);
+    if (idx.storesValues) {
+      for (byte[] column : idx.columns) {
+        put.add(valueColumn(column), values.get(column));
+      }
+      for (byte[] column : coveredColumns) {
+        byte[] value = values.get(column);
+        if (value != null) {
+          put.add(valueColumn(column), value);
+        }
       }
     }
+    return put;
   }
 
   /**
@@ -395,29 +737,19 @@ public class IndexedTable extends AbstractDataset implements Table {
   @ReadWrite
   @Override
   public boolean compareAndSwap(byte[] row, byte[] column, byte[] expected, byte[] newValue) {
-    // if the swap is on a column other than the column key, then
+    // if the swap is on a column other than the indexed or covered columns, then
     // the index is not affected - just execute the swap.
-    // also, if the swap is on the index column, but the old value
+    // also, if the swap is on such a column, but the old value
     // is the same as the new value, then the index is not affected either.
-    if (!indexedColumns.contains(column) ||
+    if (!maintainedColumns.contains(column) ||
         Arrays.equals(expected, newValue)) {
       return table.compareAndSwap(row, column, expected, newValue);
     }
 
-    // the swap is on the index column. it will only succeed if the current
-    // value matches the expected value of the swap. if that value is not null,
-    // then we must remove the row key from the index for that value.
-    Delete idxDelete = null;
-    if (expected != null) {
-      idxDelete = new Delete(createIndexKey(row, column, expected), IDX_COL);
-    }
-
-    // if the new value is not null, then we must add the rowkey to the index
-    // for that value.
-    Put idxPut = null;
-    if (newValue != null) {
-      idxPut = new Put(createIndexKey(row, column, newValue), IDX_COL, row);
-    }
+    // the swap is on an indexed or covered column. it will only succeed if the current value matches
+    // the expected value of the swap, in which case the index rows must be updated for the new value.
+    List<Index> affected = getAffectedIndexes(Collections.singleton(column));
+    NavigableMap<byte[], byte[]> existing = readIndexedValues(row, affected);
 
     // apply all operations to both tables
     boolean success = table.compareAndSwap(row, column, expected, newValue);
@@ -425,13 +757,13 @@ public class IndexedTable extends AbstractDataset implements Table {
       // do nothing: no changes
       return false;
     }
-    if (idxDelete != null) {
-      index.delete(idxDelete);
+    NavigableMap<byte[], byte[]> updated = new TreeMap<>(existing);
+    if (newValue == null) {
+      updated.remove(column);
+    } else {
+      updated.put(column, newValue);
     }
-    if (idxPut != null) {
-      index.put(idxPut);
-    }
-
+    updateIndexes(row, affected, existing, updated);
     return true;
   }
 
@@ -465,6 +797,9 @@ public class IndexedTable extends AbstractDataset implements Table {
       throw new IllegalArgumentException("Size of columns and amounts arguments must match");
     }
 
+    List<Index> affected = getAffectedIndexes(Arrays.asList(columns));
+    NavigableMap<byte[], byte[]> existing = affected.isEmpty()
+      ? new TreeMap<byte[], byte[]>(Bytes.BYTES_COMPARATOR) : readIndexedValues(row, affected);
     Row existingRow = table.get(row, columns);
     byte[][] updatedValues = new byte[columns.length][];
     NavigableMap<byte[], byte[]> result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
@@ -479,17 +814,16 @@ public class IndexedTable extends AbstractDataset implements Table {
                                             " column: " + Bytes.toStringBinary(columns[i]));
         }
         existingValue = Bytes.toLong(existingBytes);
-        if (indexedColumns.contains(columns[i])) {
-          index.delete(createIndexKey(row, columns[i], existingBytes), IDX_COL);
-        }
       }
       updatedValues[i] = Bytes.toBytes(existingValue + amounts[i]);
       result.put(columns[i], updatedValues[i]);
-      if (indexedColumns.contains(columns[i])) {
-        index.put(createIndexKey(row, columns[i], updatedValues[i]), IDX_COL, row);
-      }
     }
 
+    if (!affected.isEmpty()) {
+      NavigableMap<byte[], byte[]> updated = new TreeMap<>(existing);
+      updated.putAll(result);
+      updateIndexes(row, affected, existing, updated);
+    }
     table.put(row, columns, updatedValues);
     return new Result(row, result);
   }
@@ -520,7 +854,8 @@ public class IndexedTable extends AbstractDataset implements Table {
 
   /**
    * Increments (atomically) the specified row and column by the specified amount, without returning the new value.
-   * Note that performing this operation on an indexed column throws {@link java.lang.IllegalArgumentException}.
+   * Note that performing this operation on an indexed or covered column throws
+   * {@link java.lang.IllegalArgumentException}.
    *
    * @see Table#increment(byte[], byte[], long)
    */
@@ -528,7 +863,7 @@ public class IndexedTable extends AbstractDataset implements Table {
   @Override
   public void increment(byte[] row, byte[] column, long amount) {
     // read-less increments should not be used on indexed columns
-    if (indexedColumns.contains(column)) {
+    if (maintainedColumns.contains(column)) {
       throw new IllegalArgumentException("Read-less increment is not supported on indexed column '"
                                            + Bytes.toStringBinary(column) + "'");
     }
@@ -537,7 +872,8 @@ public class IndexedTable extends AbstractDataset implements Table {
 
   /**
    * Increments (atomically) the specified row and columns by the specified amounts, without returning the new values.
-   * Note that performing this operation on an indexed column throws {@link java.lang.IllegalArgumentException}.
+   * Note that performing this operation on an indexed or covered column throws
+   * {@link java.lang.IllegalArgumentException}.
    *
    * @see Table#increment(byte[], byte[][], long[])
    */
@@ -546,7 +882,7 @@ public class IndexedTable extends AbstractDataset implements Table {
   public void increment(byte[] row, byte[][] columns, long[] amounts) {
     // read-less increments should not be used on indexed columns
     for (byte[] col : columns) {
-      if (indexedColumns.contains(col)) {
+      if (maintainedColumns.contains(col)) {
         throw new IllegalArgumentException("Read-less increment is not supported on indexed column '"
                                              + Bytes.toStringBinary(col) + "'");
       }
@@ -556,7 +892,8 @@ public class IndexedTable extends AbstractDataset implements Table {
 
   /**
    * Increments (atomically) the specified row and columns by the specified amounts, without returning the new values.
-   * Note that performing this operation on an indexed column throws {@link java.lang.IllegalArgumentException}.
+   * Note that performing this operation on an indexed or covered column throws
+   * {@link java.lang.IllegalArgumentException}.
    *
    * @see Table#increment(Increment)
    */
@@ -564,7 +901,7 @@ public class IndexedTable extends AbstractDataset implements Table {
   @Override
   public void increment(Increment increment) {
     for (byte[] col : increment.getValues().keySet()) {
-      if (indexedColumns.contains(col)) {
+      if (maintainedColumns.contains(col)) {
         throw new IllegalArgumentException("Read-less increment is not supported on indexed column '"
                                              + Bytes.toStringBinary(col) + "'");
       }
@@ -584,6 +921,67 @@ public class IndexedTable extends AbstractDataset implements Table {
     return table.scan(scan);
   }
 
+  @ReadOnly
+  @Override
+  public List<Long> aggregate(Scan scan, List<Aggregation> aggregations) {
+    return table.aggregate(scan, aggregations);
+  }
+
+  @ReadOnly
+  @Override
+  public NavigableMap<byte[], List<Long>> aggregate(Scan scan, int rowPrefixLength, List<Aggregation> aggregations) {
+    return table.aggregate(scan, rowPrefixLength, aggregations);
+  }
+
+  /**
+   * Returns a non-blocking view of this table. Reads are performed without blocking by the underlying table, while
+   * writes maintain the indexes, and are therefore performed before the returned futures are completed.
+   */
+  @Override
+  public AsyncTable async() {
+    final AsyncTable async = table.async();
+    return new AsyncTable() {
+      @Override
+      public CompletableFuture<Row> get(Get get) {
+        return async.get(get);
+      }
+
+      @Override
+      public CompletableFuture<List<Row>> get(List<Get> gets) {
+        return async.get(gets);
+      }
+
+      @Override
+      public CompletableFuture<List<Row>> scan(Scan scan, int limit) {
+        return async.scan(scan, limit);
+      }
+
+      @Override
+      public CompletableFuture<Void> put(Put put) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+          IndexedTable.this.put(put);
+          result.complete(null);
+        } catch (RuntimeException e) {
+          result.completeExceptionally(e);
+        }
+        return result;
+      }
+
+      @Override
+      public CompletableFuture<Void> delete(Delete delete) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+          IndexedTable.this.delete(delete);
+          result.complete(null);
+        } catch (RuntimeException e) {
+          result.completeExceptionally(e);
+        }
+        return result;
+      }
+    };
+  }
+
   /* BatchReadable implementation */
 
   @Override
@@ -627,73 +1025,226 @@ public class IndexedTable extends AbstractDataset implements Table {
     put(put);
   }
 
+  // an index over one or more columns. Its index rows are keyed by the index name, the indexed values and the
+  // data row key, each separated by the null byte. The name of a single-column index is the column name, the name
+  // of a composite index are its column names, comma-separated.
+  private static final class Index {
+    private final byte[] name;
+    private final byte[][] columns;
+    // whether the index rows store the values of the indexed and covered columns
+    private final boolean storesValues;
+
+    Index(byte[][] columns, boolean storesValues) {
+      byte[][] nameParts = new byte[2 * columns.length - 1][];
+      for (int i = 0; i < columns.length; i++) {
+        if (i > 0) {
+          nameParts[2 * i - 1] = new byte[] { NAME_SEPARATOR };
+        }
+        nameParts[2 * i] = columns[i];
+      }
+      this.name = Bytes.concat(nameParts);
+      this.columns = columns;
+      this.storesValues = storesValues;
+    }
+  }
+
   private abstract class AbstractIndexScanner implements Scanner {
     // scanner over index table
     private final Scanner baseScanner;
-    private final byte[] column;
-
-    AbstractIndexScanner(Scanner baseScanner, byte[] column) {
+    private final Index idx;
+    // the columns to read from the data rows, null for all columns
+    private final byte[][] columnsToRead;
+    // the columns to get from the data rows, which may include the indexed column for verification
+    private final byte[][] columnsToGet;
+    // whether the requested columns are all stored in the index rows
+    private final boolean covered;
+    // whether a match must be verified against the data row, see #hasDelimiterByte
+    private final boolean verifyDataRow;
+    private final Deque<Row> buffer = new ArrayDeque<>();
+    private int batchSize = INITIAL_INDEX_BATCH_SIZE;
+
+    AbstractIndexScanner(Scanner baseScanner, Index idx, @Nullable byte[][] columnsToRead) {
       this.baseScanner = baseScanner;
-      this.column = column;
+      this.idx = idx;
+      this.columnsToRead = columnsToRead;
+      this.verifyDataRow = hasColumnWithDelimiter && !idx.storesValues;
+      this.covered = columnsToRead != null && idx.storesValues && isCovered(idx, columnsToRead);
+      if (verifyDataRow && columnsToRead != null && !contains(columnsToRead, idx.columns[0])) {
+        this.columnsToGet = Arrays.copyOf(columnsToRead, columnsToRead.length + 1);
+        this.columnsToGet[columnsToRead.length] = idx.columns[0];
+      } else {
+        this.columnsToGet = columnsToRead;
+      }
     }
 
     /**
-     * checks if a particular column value matches a criteria defined by the implementing class
+     * checks if the indexed values of an index row match a criteria defined by the implementing class
      *
-     * @param columnValue the column to check for a match
+     * @param indexRow the index row to check for a match
+     * @param rowkey the data row key of the index row
      * @return false to indicate to skip the corresponding row
      */
-    protected abstract boolean matches(byte[] columnValue);
+    protected abstract boolean matches(Row indexRow, byte[] rowkey);
 
     @Nullable
     @Override
     public Row next() {
-      // TODO: retrieve results in batches to minimize RPC overhead (requires multi-get support in table)
-      // keep going until we hit a non-null, non-empty data row, or we exhaust the index
+      if (buffer.isEmpty()) {
+        fillBuffer();
+      }
+      // null at the end of the index
+      return buffer.poll();
+    }
+
+    // reads the data rows of the next batch of matching index rows
+    private void fillBuffer() {
+      List<Row> indexRows = new ArrayList<>();
+      for (Row indexRow = nextIndexRow(); indexRow != null; indexRow = nextIndexRow()) {
+        indexRows.add(indexRow);
+        if (indexRows.size() >= batchSize) {
+          break;
+        }
+      }
+      batchSize = Math.min(2 * batchSize, MAX_INDEX_BATCH_SIZE);
+      if (indexRows.isEmpty()) {
+        return;
+      }
+      if (covered) {
+        for (Row indexRow : indexRows) {
+          buffer.add(getCoveredRow(indexRow));
+        }
+        return;
+      }
+
+      List<Get> gets = new ArrayList<>(indexRows.size());
+      for (Row indexRow : indexRows) {
+        byte[] rowkey = indexRow.get(IDX_COL);
+        gets.add(columnsToGet == null ? new Get(rowkey) : new Get(rowkey, columnsToGet));
+      }
+      List<Row> rows = table.get(gets);
+      for (int i = 0; i < rows.size(); i++) {
+        Row row = rows.get(i);
+        // If a column has null byte (the key delimiter) in it, then we need to check against the data row's column
+        // to be sure this row isn't a false positive in the scan.
+        // For reference, take a look at IndexedTableTest#testIndexKeyDelimiterAmbiguity
+        if (verifyDataRow) {
+          Row indexRow = indexRows.get(i);
+          if (!Bytes.equals(row.get(idx.columns[0]), getIndexedValue(indexRow, indexRow.get(IDX_COL), 0))) {
+            continue;
+          }
+          if (columnsToGet != columnsToRead) {
+            // remove the column that was only read for the verification
+            Map<byte[], byte[]> columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+            columns.putAll(row.getColumns());
+            columns.remove(idx.columns[0]);
+            row = new Result(row.getRow(), columns);
+          }
+        }
+        buffer.add(row);
+      }
+    }
+
+    private Row getCoveredRow(Row indexRow) {
+      Map<byte[], byte[]> columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      for (byte[] column : columnsToRead) {
+        byte[] value = indexRow.get(valueColumn(column));
+        if (value != null) {
+          columns.put(column, value);
+        }
+      }
+      return new Result(indexRow.get(IDX_COL), columns);
+    }
+
+    /**
+     * Returns the next index row that has a data row key and whose indexed value matches, {@code null} if the index
+     * is exhausted.
+     */
+    @Nullable
+    Row nextIndexRow() {
       for (Row indexRow = baseScanner.next(); indexRow != null; indexRow = baseScanner.next()) {
         byte[] rowkey = indexRow.get(IDX_COL);
         if (rowkey == null) {
           LOG.warn("Row of Indexed table '{}' is missing index column. Row key: {}", getName(), indexRow.getRow());
           continue;
         }
-        byte[] columnValue = Arrays.copyOfRange(indexRow.getRow(),
-                                                column.length + 1,
-                                                indexRow.getRow().length - rowkey.length - 1);
         // Verify that datarow matches the expected row key to avoid issues with column name or value
         // containing the delimiter used. This is a sufficient check, as long as columns don't contain the null byte.
-        if (matches(columnValue)) {
-          Row row = table.get(rowkey);
-          // If a column has null byte (the key delimiter) in it, then we need to check against the data row's column
-          // to be sure this row isn't a false positive in the scan.
-          // For reference, take a look at IndexedTableTest#testIndexKeyDelimiterAmbiguity
-          if (hasColumnWithDelimiter && !Bytes.equals(row.get(column), columnValue)) {
-            continue;
-          }
-          return row;
+        if (matches(indexRow, rowkey)) {
+          return indexRow;
         }
       }
-      // end of index
       return null;
     }
 
+    /**
+     * Returns the value of the i-th indexed column of an index row.
+     */
+    @Nullable
+    byte[] getIndexedValue(Row indexRow, byte[] rowkey, int i) {
+      if (idx.storesValues) {
+        return indexRow.get(valueColumn(idx.columns[i]));
+      }
+      // a single-column index: the value is between the column name and the data row key
+      return Arrays.copyOfRange(indexRow.getRow(), idx.name.length + 1, indexRow.getRow().length - rowkey.length - 1);
+    }
+
     @Override
     public void close() {
       baseScanner.close();
     }
   }
 
+  // whether all of the given columns are stored in the rows of an index that stores values
+  private boolean isCovered(Index idx, byte[][] columns) {
+    for (byte[] column : columns) {
+      if (!coveredColumns.contains(column) && !contains(idx.columns, column)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean contains(byte[][] columns, byte[] column) {
+    for (byte[] c : columns) {
+      if (Bytes.equals(c, column)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // iterator over the data row keys of the matching index rows
+  private static final class RowKeyIterator extends AbstractCloseableIterator<byte[]> {
+    private final AbstractIndexScanner indexScanner;
+
+    RowKeyIterator(AbstractIndexScanner indexScanner) {
+      this.indexScanner = indexScanner;
+    }
+
+    @Override
+    protected byte[] computeNext() {
+      Row indexRow = indexScanner.nextIndexRow();
+      return indexRow == null ? endOfData() : indexRow.get(IDX_COL);
+    }
+
+    @Override
+    public void close() {
+      indexScanner.close();
+    }
+  }
+
   // scanner that matches column values based upon exact match
   private class IndexScanner extends AbstractIndexScanner {
     private final byte[] value;
 
-    IndexScanner(Scanner baseScanner, byte[] column, byte[] value) {
-      super(baseScanner, column);
+    IndexScanner(Scanner baseScanner, Index idx, byte[] value, @Nullable byte[][] columnsToRead) {
+      super(baseScanner, idx, columnsToRead);
       this.value = value;
     }
 
     @Override
-    protected boolean matches(byte[] columnValue) {
-      return Bytes.equals(columnValue, value);
+    protected boolean matches(Row indexRow, byte[] rowkey) {
+      return Bytes.equals(getIndexedValue(indexRow, rowkey, 0), value);
     }
   }
 
@@ -702,16 +1253,39 @@ public class IndexedTable extends AbstractDataset implements Table {
     private final byte[] start;
     private final byte[] end;
 
-    IndexRangeScanner(Scanner baseScanner, byte[] column, @Nullable byte[] start, @Nullable byte[] end) {
-      super(baseScanner, column);
+    IndexRangeScanner(Scanner baseScanner, Index idx, @Nullable byte[] start, @Nullable byte[] end,
+                      @Nullable byte[][] columnsToRead) {
+      super(baseScanner, idx, columnsToRead);
       this.start = start;
       this.end = end;
     }
 
     @Override
-    protected boolean matches(byte[] columnValue) {
-      return (start == null || Bytes.compareTo(columnValue, start) >= 0)
+    protected boolean matches(Row indexRow, byte[] rowkey) {
+      byte[] columnValue = getIndexedValue(indexRow, rowkey, 0);
+      return columnValue != null
+        && (start == null || Bytes.compareTo(columnValue, start) >= 0)
         && (end == null || Bytes.compareTo(columnValue, end) < 0);
     }
   }
+
+  // scanner that matches the values of the leading columns of an index based upon exact match
+  private class CompositeIndexScanner extends AbstractIndexScanner {
+    private final byte[][] values;
+
+    CompositeIndexScanner(Scanner baseScanner, Index idx, byte[][] values, @Nullable byte[][] columnsToRead) {
+      super(baseScanner, idx, columnsToRead);
+      this.values = values;
+    }
+
+    @Override
+    protected boolean matches(Row indexRow, byte[] rowkey) {
+      for (int i = 0; i < values.length; i++) {
+        if (!Bytes.equals(getIndexedValue(indexRow, rowkey, i), values[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
 }
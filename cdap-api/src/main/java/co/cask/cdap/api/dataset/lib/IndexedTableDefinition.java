@@ -26,10 +26,13 @@ import co.cask.cdap.api.dataset.IncompatibleUpdateException;
 import co.cask.cdap.api.dataset.table.Table;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import javax.annotation.Nullable;
 
 /**
  * DatasetDefinition for {@link IndexedTable}.
@@ -44,10 +47,7 @@ public class IndexedTableDefinition
 
   @Override
   public DatasetSpecification configure(String instanceName, DatasetProperties properties) {
-    String columnNamesToIndex = properties.getProperties().get(IndexedTable.INDEX_COLUMNS_CONF_KEY);
-    if (columnNamesToIndex == null) {
-      throw new IllegalArgumentException("columnsToIndex must be specified");
-    }
+    validate(properties.getProperties());
     return super.configure(instanceName, properties);
   }
 
@@ -56,19 +56,27 @@ public class IndexedTableDefinition
                                           DatasetProperties newProperties,
                                           DatasetSpecification currentSpec) throws IncompatibleUpdateException {
 
-    // validate that the columns to index property is not null and the same as before
-    String columnNamesToIndex = newProperties.getProperties().get(IndexedTable.INDEX_COLUMNS_CONF_KEY);
-    if (columnNamesToIndex == null) {
-      throw new IllegalArgumentException("columnsToIndex must be specified");
-    }
+    // validate that the indexes and covered columns are the same as before
+    Map<String, String> properties = newProperties.getProperties();
+    validate(properties);
+    String columnNamesToIndex = properties.get(IndexedTable.INDEX_COLUMNS_CONF_KEY);
     String oldColumnsToIndex = currentSpec.getProperty(IndexedTable.INDEX_COLUMNS_CONF_KEY);
-    if (!columnNamesToIndex.equals(oldColumnsToIndex)) {
-      Set<byte[]> newColumns = parseColumns(columnNamesToIndex);
-      Set<byte[]> oldColumns = parseColumns(oldColumnsToIndex);
-      if (!newColumns.equals(oldColumns)) {
-        throw new IncompatibleUpdateException(String.format("Attempt to change columns to index from '%s' to '%s'",
-                                                            oldColumnsToIndex, columnNamesToIndex));
-      }
+    if (!parseColumns(columnNamesToIndex).equals(parseColumns(oldColumnsToIndex))) {
+      throw new IncompatibleUpdateException(String.format("Attempt to change columns to index from '%s' to '%s'",
+                                                          oldColumnsToIndex, columnNamesToIndex));
+    }
+    String compositeIndexes = properties.get(IndexedTable.COMPOSITE_INDEXES_CONF_KEY);
+    String oldCompositeIndexes = currentSpec.getProperty(IndexedTable.COMPOSITE_INDEXES_CONF_KEY);
+    if (!toStrings(parseCompositeIndexes(compositeIndexes))
+      .equals(toStrings(parseCompositeIndexes(oldCompositeIndexes)))) {
+      throw new IncompatibleUpdateException(String.format("Attempt to change composite indexes from '%s' to '%s'",
+                                                          oldCompositeIndexes, compositeIndexes));
+    }
+    String coveredColumns = properties.get(IndexedTable.COVERED_COLUMNS_CONF_KEY);
+    String oldCoveredColumns = currentSpec.getProperty(IndexedTable.COVERED_COLUMNS_CONF_KEY);
+    if (!parseColumns(coveredColumns).equals(parseColumns(oldCoveredColumns))) {
+      throw new IncompatibleUpdateException(String.format("Attempt to change covered columns from '%s' to '%s'",
+                                                          oldCoveredColumns, coveredColumns));
     }
     return super.reconfigure(instanceName, newProperties, currentSpec);
   }
@@ -78,22 +86,73 @@ public class IndexedTableDefinition
                                  Map<String, String> arguments, ClassLoader classLoader) throws IOException {
 
     SortedSet<byte[]> columnsToIndex = parseColumns(spec.getProperty(IndexedTable.INDEX_COLUMNS_CONF_KEY));
+    List<List<byte[]>> compositeIndexes =
+      parseCompositeIndexes(spec.getProperty(IndexedTable.COMPOSITE_INDEXES_CONF_KEY));
+    SortedSet<byte[]> coveredColumns = parseColumns(spec.getProperty(IndexedTable.COVERED_COLUMNS_CONF_KEY));
 
     Table table = getDataset(datasetContext, "d", spec, arguments, classLoader);
     Table index = getDataset(datasetContext, "i", spec, arguments, classLoader);
 
-    return new IndexedTable(spec.getName(), table, index, columnsToIndex);
+    return new IndexedTable(spec.getName(), table, index, columnsToIndex, compositeIndexes, coveredColumns);
+  }
+
+  private void validate(Map<String, String> properties) {
+    // at least one index must be specified
+    if (properties.get(IndexedTable.INDEX_COLUMNS_CONF_KEY) == null
+      && properties.get(IndexedTable.COMPOSITE_INDEXES_CONF_KEY) == null) {
+      throw new IllegalArgumentException("columnsToIndex must be specified");
+    }
+    for (List<byte[]> compositeIndex : parseCompositeIndexes(properties.get(IndexedTable.COMPOSITE_INDEXES_CONF_KEY))) {
+      if (compositeIndex.size() < 2) {
+        throw new IllegalArgumentException("A composite index must have at least two columns: " +
+                                             properties.get(IndexedTable.COMPOSITE_INDEXES_CONF_KEY));
+      }
+    }
   }
 
   /**
    * Helper method to parse a list of column names, comma-separated.
    */
-  private SortedSet<byte[]> parseColumns(String value) {
+  private SortedSet<byte[]> parseColumns(@Nullable String value) {
     // TODO: add support for setting index key delimiter
     SortedSet<byte[]> columnsToIndex = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+    if (value == null) {
+      return columnsToIndex;
+    }
     for (String column : value.split(",")) {
       columnsToIndex.add(Bytes.toBytes(column));
     }
     return columnsToIndex;
   }
+
+  /**
+   * Helper method to parse a list of composite indexes, separated by semicolons, each a list of column names,
+   * comma-separated.
+   */
+  private List<List<byte[]>> parseCompositeIndexes(@Nullable String value) {
+    List<List<byte[]>> compositeIndexes = new ArrayList<>();
+    if (value == null || value.isEmpty()) {
+      return compositeIndexes;
+    }
+    for (String compositeIndex : value.split(";")) {
+      List<byte[]> columns = new ArrayList<>();
+      for (String column : compositeIndex.split(",")) {
+        columns.add(Bytes.toBytes(column));
+      }
+      compositeIndexes.add(columns);
+    }
+    return compositeIndexes;
+  }
+
+  private List<List<String>> toStrings(List<List<byte[]>> compositeIndexes) {
+    List<List<String>> result = new ArrayList<>();
+    for (List<byte[]> columns : compositeIndexes) {
+      List<String> names = new ArrayList<>();
+      for (byte[] column : columns) {
+        names.add(Bytes.toString(column));
+      }
+      result.add(names);
+    }
+    return result;
+  }
 }
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.api.dataset.lib;
 
+import co.cask.cdap.api.annotation.Beta;
 import co.cask.cdap.api.annotation.ReadOnly;
 import co.cask.cdap.api.annotation.ReadWrite;
 import co.cask.cdap.api.annotation.WriteOnly;
@@ -29,6 +30,7 @@ import co.cask.cdap.api.data.batch.Scannables;
 import co.cask.cdap.api.data.batch.Split;
 import co.cask.cdap.api.data.batch.SplitReader;
 import co.cask.cdap.api.dataset.table.Get;
+import co.cask.cdap.api.dataset.table.Put;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
@@ -40,6 +42,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -104,6 +107,36 @@ public class KeyValueTable extends AbstractDataset implements
                                 () -> new TreeMap<>(Bytes.BYTES_COMPARATOR)));
   }
 
+  /**
+   * Reads the value for a given key without blocking.
+   *
+   * @param key the key to read for
+   * @return a future of the value for that key, or of null if no value was found
+   * @see Table#async()
+   */
+  @Beta
+  @ReadOnly
+  public CompletableFuture<byte[]> readAsync(byte[] key) {
+    return table.async().get(new Get(key).add(KEY_COLUMN)).thenApply(row -> row.get(KEY_COLUMN));
+  }
+
+  /**
+   * Reads the values for an array of given keys without blocking.
+   *
+   * @param keys the keys to be read
+   * @return a future of the map of the stored values, keyed by key
+   * @see Table#async()
+   */
+  @Beta
+  @ReadOnly
+  public CompletableFuture<Map<byte[], byte[]>> readAllAsync(byte[][] keys) {
+    List<Get> gets = Arrays.stream(keys).map(key -> new Get(key).add(KEY_COLUMN)).collect(Collectors.toList());
+    return table.async().get(gets).thenApply(rows -> rows.stream()
+      .filter(row -> row.get(KEY_COLUMN) != null)
+      .collect(Collectors.toMap(Row::getRow, row -> row.get(KEY_COLUMN), (v1, v2) -> v2,
+                                () -> new TreeMap<>(Bytes.BYTES_COMPARATOR))));
+  }
+
   /**
    * Increment the value for a given key and return the resulting value.
    *
@@ -127,6 +160,20 @@ public class KeyValueTable extends AbstractDataset implements
     this.table.put(key, KEY_COLUMN, value);
   }
 
+  /**
+   * Write a value to a key without blocking.
+   *
+   * @param key the key
+   * @param value the new value
+   * @return a future that is completed once the write is part of the transaction
+   * @see Table#async()
+   */
+  @Beta
+  @WriteOnly
+  public CompletableFuture<Void> writeAsync(byte[] key, byte[] value) {
+    return table.async().put(new Put(key).add(KEY_COLUMN, value));
+  }
+
   /**
    * Write a value to a key.
    *
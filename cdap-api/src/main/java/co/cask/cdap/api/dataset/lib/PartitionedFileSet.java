@@ -71,6 +71,18 @@ public interface PartitionedFileSet extends Dataset, InputFormatProvider, Output
    */
   void addPartition(PartitionKey key, String path, Map<String, String> metadata);
 
+  /**
+   * Add multiple partitions, each stored at a given path (relative to the file set's base path), with the given
+   * metadata. This is more efficient than adding the partitions one by one, because the partitions are
+   * registered with Explore in a single operation.
+   *
+   * @param partitions map from partition key to the path of the partition
+   * @param metadata the metadata to be added to every partition
+   * @throws PartitionAlreadyExistsException if a partition for one of the keys already exists
+   * @throws IllegalArgumentException if a partition key does not match the partitioning of the dataset
+   */
+  void addPartitions(Map<PartitionKey, String> partitions, Map<String, String> metadata);
+
   /**
    * Adds a new metadata entry for a particular partition.
    * Note that existing entries cannot be updated.
@@ -136,6 +148,16 @@ public interface PartitionedFileSet extends Dataset, InputFormatProvider, Output
    */
   Future<Void> concatenatePartition(PartitionKey key);
 
+  /**
+   * Returns whether {@link #concatenatePartition(PartitionKey)} concatenates partitions, which requires Explore to be
+   * enabled both for this Dataset and in CDAP. Otherwise, concatenation is a no-op. The default implementation
+   * returns false.
+   */
+  @Beta
+  default boolean canConcatenatePartitions() {
+    return false;
+  }
+
   /**
    * Return the partition for a specific partition key, or null if key is not found.
    *
@@ -19,7 +19,9 @@ package co.cask.cdap.api.dataset.lib;
 import co.cask.cdap.api.annotation.Beta;
 import co.cask.cdap.api.dataset.table.TableProperties;
 
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -38,6 +40,30 @@ public class PartitionedFileSetProperties extends FileSetProperties {
    */
   public static final String PARTITIONING_FIELD_PREFIX = "partitioning.field.";
 
+  /**
+   * The property name for the list of partitioning field names that are indexed in the partitions table.
+   */
+  public static final String INDEXED_FIELDS = "partitioning.indexed.fields";
+
+  /**
+   * Read the partitioning fields that are indexed for a PartitionedFileSet from its properties.
+   *
+   * @param properties the dataset properties
+   * @return the names of the indexed fields, empty if the properties contain no indexed fields
+   */
+  public static Set<String> getIndexedFields(Map<String, String> properties) {
+    String fieldList = properties.get(INDEXED_FIELDS);
+    Set<String> fieldNames = new LinkedHashSet<>();
+    if (fieldList != null) {
+      for (String fieldName : fieldList.split(",")) {
+        if (!fieldName.trim().isEmpty()) {
+          fieldNames.add(fieldName.trim());
+        }
+      }
+    }
+    return fieldNames;
+  }
+
   /**
    * Read the partitioning for a PartitionedFileSet from its properties.
    *
@@ -105,6 +131,16 @@ public class PartitionedFileSetProperties extends FileSetProperties {
       return this;
     }
 
+    /**
+     * Sets the partitioning fields to index in the partitions table. Partition filters with conditions on these
+     * fields read the partitions through the indexes, instead of scanning all partitions that match the leading
+     * fields of the filter. The indexed fields can only be set when the dataset is created.
+     */
+    public Builder setIndexedFields(String... fieldNames) {
+      add(INDEXED_FIELDS, String.join(",", fieldNames));
+      return this;
+    }
+
     /**
      * Set the table permissions as a map from user name to a permission string.
      */
@@ -144,7 +144,7 @@ abstract class TimeseriesDataset extends AbstractDataset {
     return timestamp / rowPartitionIntervalSize;
   }
 
-  private static void sortTags(byte[][] tags) {
+  static void sortTags(byte[][] tags) {
     Arrays.sort(tags, Bytes.BYTES_COMPARATOR);
   }
 
@@ -237,7 +237,7 @@ abstract class TimeseriesDataset extends AbstractDataset {
    * @return an Entry by parsing tags from columnName, if the columnName contains sortedTags. Otherwise, return
    * <code>null</code>
    */
-  private Entry createEntry(final byte[] key, final byte[] value, final byte[] columnName, final byte[][] tags) {
+  Entry createEntry(final byte[] key, final byte[] value, final byte[] columnName, final byte[][] tags) {
     // columnName doesn't contain tags.
     if (!hasTags(columnName)) {
       if (tags == null || tags.length == 0) {
@@ -0,0 +1,458 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.api.dataset.lib.partitioned;
+
+import co.cask.cdap.api.Transactional;
+import co.cask.cdap.api.Transactionals;
+import co.cask.cdap.api.TxCallable;
+import co.cask.cdap.api.annotation.Beta;
+import co.cask.cdap.api.data.DatasetContext;
+import co.cask.cdap.api.dataset.lib.PartitionConsumerResult;
+import co.cask.cdap.api.dataset.lib.PartitionConsumerState;
+import co.cask.cdap.api.dataset.lib.PartitionDetail;
+import co.cask.cdap.api.dataset.lib.PartitionFilter;
+import co.cask.cdap.api.dataset.lib.PartitionKey;
+import co.cask.cdap.api.dataset.lib.PartitionMetadata;
+import co.cask.cdap.api.dataset.lib.PartitionedFileSet;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * Compacts the partitions of a {@link PartitionedFileSet} that consist of many (small) files, by concatenating them
+ * through {@link PartitionedFileSet#concatenatePartition(PartitionKey)}. It uses a {@link Transactional} to execute
+ * each of its steps in a new transaction, and can therefore be run by a program, for example by a Worker or by a
+ * custom action of a Workflow.
+ *
+ * A partition is selected for compaction if it has at least {@link Builder#setMinFileCount(int) minFileCount}
+ * files, or if it has more than one file and the ratio of files smaller than
+ * {@link Builder#setSmallFileSize(long) smallFileSize} is at least {@link Builder#setSmallFileRatio(double)
+ * smallFileRatio}. The selected partitions are concatenated in parallel, with at most
+ * {@link Builder#setMaxConcurrency(int) maxConcurrency} concatenations at a time. After a partition was
+ * concatenated, its metadata is updated in a single transaction with the time of the compaction and the number
+ * of files before the compaction. Partitions that were not appended to since their last compaction are not
+ * selected again, without listing their files.
+ *
+ * Because concatenation is performed by Explore, partitions of a dataset are never compacted if Explore is not
+ * enabled for the dataset or in CDAP.
+ */
+@Beta
+public final class PartitionCompactor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PartitionCompactor.class);
+
+  /**
+   * Partition metadata key for the time, in milliseconds, at which the last compaction of a partition started.
+   */
+  public static final String COMPACTION_TIME = "compaction.time";
+
+  /**
+   * Partition metadata key for the number of files of a partition before it was last compacted.
+   */
+  public static final String COMPACTION_FILE_COUNT = "compaction.file.count";
+
+  private final Transactional transactional;
+  private final String datasetName;
+  private final PartitionFilter filter;
+  private final int minFileCount;
+  private final long smallFileSize;
+  private final double smallFileRatio;
+  private final int maxConcurrency;
+  private final int partitionsPerTx;
+
+  private PartitionCompactor(Transactional transactional, String datasetName, @Nullable PartitionFilter filter,
+                             int minFileCount, long smallFileSize, double smallFileRatio,
+                             int maxConcurrency, int partitionsPerTx) {
+    this.transactional = transactional;
+    this.datasetName = datasetName;
+    this.filter = filter;
+    this.minFileCount = minFileCount;
+    this.smallFileSize = smallFileSize;
+    this.smallFileRatio = smallFileRatio;
+    this.maxConcurrency = maxConcurrency;
+    this.partitionsPerTx = partitionsPerTx;
+  }
+
+  /**
+   * Creates a builder for a compactor of the given dataset.
+   *
+   * @param transactional the Transactional for executing transactions
+   * @param datasetName the name of the partitioned file set to compact
+   */
+  public static Builder builder(Transactional transactional, String datasetName) {
+    return new Builder(transactional, datasetName);
+  }
+
+  /**
+   * Selects the partitions that need compaction, concatenates them and updates their metadata.
+   *
+   * @return the result of the compaction
+   * @throws InterruptedException if interrupted while waiting for the concatenations to complete
+   */
+  public Result compact() throws InterruptedException {
+    boolean canConcatenate = Transactionals.execute(transactional, new TxCallable<Boolean>() {
+      @Override
+      public Boolean call(DatasetContext context) throws Exception {
+        return context.<PartitionedFileSet>getDataset(datasetName).canConcatenatePartitions();
+      }
+    });
+    if (!canConcatenate) {
+      LOG.warn("Explore is not enabled for dataset {}. Its partitions cannot be compacted.", datasetName);
+    }
+    Map<PartitionKey, FileStats> selected = canConcatenate
+      ? selectPartitions() : Collections.<PartitionKey, FileStats>emptyMap();
+    if (selected.isEmpty()) {
+      return new Result(Collections.<PartitionKey, FileStats>emptyMap(),
+                        Collections.<PartitionKey, Throwable>emptyMap());
+    }
+    LOG.info("Compacting {} partitions of dataset {} with concurrency {}.",
+             selected.size(), datasetName, maxConcurrency);
+
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrency, selected.size()), runnable -> {
+      Thread thread = new Thread(runnable, "partition-compactor-" + threadCount.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    Map<PartitionKey, Future<?>> futures = new LinkedHashMap<>();
+    try {
+      for (final Map.Entry<PartitionKey, FileStats> entry : selected.entrySet()) {
+        futures.put(entry.getKey(), executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            compactPartition(entry.getKey(), entry.getValue());
+          }
+        }));
+      }
+      Map<PartitionKey, FileStats> compacted = new LinkedHashMap<>();
+      Map<PartitionKey, Throwable> failed = new LinkedHashMap<>();
+      for (Map.Entry<PartitionKey, Future<?>> entry : futures.entrySet()) {
+        try {
+          entry.getValue().get();
+          compacted.put(entry.getKey(), selected.get(entry.getKey()));
+        } catch (ExecutionException e) {
+          LOG.warn("Failed to compact partition {} of dataset {}.", entry.getKey(), datasetName, e.getCause());
+          failed.put(entry.getKey(), e.getCause());
+        }
+      }
+      LOG.info("Compacted {} partitions of dataset {}, failed to compact {} partitions.",
+               compacted.size(), datasetName, failed.size());
+      return new Result(compacted, failed);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Reads the partitions of the dataset in the order in which they were written, in batches of about
+   * {@code partitionsPerTx} partitions per transaction, and returns the file statistics of the partitions that need
+   * compaction. The files of each batch are listed after the transaction that read it, so that transactions are not
+   * kept open while listing the file system. Partitions that are written while the selection is in progress may not
+   * be selected.
+   */
+  Map<PartitionKey, FileStats> selectPartitions() {
+    Map<PartitionKey, FileStats> selected = new LinkedHashMap<>();
+    PartitionConsumerState state = PartitionConsumerState.FROM_BEGINNING;
+    while (true) {
+      final PartitionConsumerState startState = state;
+      // all partitions are accepted, so that the limit bounds the number of partitions read by the transaction
+      PartitionConsumerResult result = Transactionals.execute(transactional, new TxCallable<PartitionConsumerResult>() {
+        @Override
+        public PartitionConsumerResult call(DatasetContext context) throws Exception {
+          PartitionedFileSet pfs = context.getDataset(datasetName);
+          return pfs.consumePartitions(startState, partitionsPerTx, partition -> true);
+        }
+      });
+      for (PartitionDetail partition : result.getPartitions()) {
+        if ((filter != null && !filter.match(partition.getPartitionKey())) || isCompacted(partition.getMetadata())) {
+          continue;
+        }
+        try {
+          FileStats stats = getFileStats(partition.getLocation(), smallFileSize);
+          if (needsCompaction(stats)) {
+            selected.put(partition.getPartitionKey(), stats);
+          }
+        } catch (IOException e) {
+          LOG.warn("Unable to list the files of partition {} of dataset {}. Skipping it.",
+                   partition.getPartitionKey(), datasetName, e);
+        }
+      }
+      // fewer partitions than the limit are only returned if all partitions were read
+      if (result.getPartitions().size() < partitionsPerTx) {
+        return selected;
+      }
+      state = result.getPartitionConsumerState();
+    }
+  }
+
+  /**
+   * Returns whether a partition was compacted and has not been appended to since the compaction started.
+   */
+  static boolean isCompacted(PartitionMetadata metadata) {
+    String compactionTime = metadata.get(COMPACTION_TIME);
+    if (compactionTime == null) {
+      return false;
+    }
+    try {
+      return metadata.lastModificationTime() <= Long.parseLong(compactionTime);
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns whether a partition with the given file statistics needs compaction.
+   */
+  boolean needsCompaction(FileStats stats) {
+    if (stats.getFileCount() >= minFileCount) {
+      return true;
+    }
+    return stats.getFileCount() > 1 && stats.getSmallFileCount() >= smallFileRatio * stats.getFileCount();
+  }
+
+  private void compactPartition(final PartitionKey key, final FileStats stats) {
+    // files appended after this time are not known to be concatenated, hence the partition is selected again
+    long compactionTime = System.currentTimeMillis();
+    Future<Void> concatenation = Transactionals.execute(transactional, new TxCallable<Future<Void>>() {
+      @Override
+      public Future<Void> call(DatasetContext context) throws Exception {
+        PartitionedFileSet pfs = context.getDataset(datasetName);
+        if (!pfs.canConcatenatePartitions()) {
+          // concatenation would be a no-op, hence the partition must not be marked as compacted
+          throw new IllegalStateException("Explore is not enabled for dataset " + datasetName +
+                                            ", unable to concatenate partition " + key);
+        }
+        return pfs.concatenatePartition(key);
+      }
+    });
+    try {
+      concatenation.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while concatenating partition " + key, e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Failed to concatenate partition " + key, e.getCause());
+    }
+    final Map<String, String> metadata = new HashMap<>();
+    metadata.put(COMPACTION_TIME, Long.toString(compactionTime));
+    metadata.put(COMPACTION_FILE_COUNT, Integer.toString(stats.getFileCount()));
+    Transactionals.execute(transactional, new TxCallable<Void>() {
+      @Override
+      public Void call(DatasetContext context) throws Exception {
+        PartitionedFileSet pfs = context.getDataset(datasetName);
+        pfs.setMetadata(key, metadata);
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Computes the file statistics of a partition location. Hidden files, whose name starts with '_' or '.', such
+   * as _SUCCESS markers, are not counted.
+   */
+  static FileStats getFileStats(Location location, long smallFileSize) throws IOException {
+    int fileCount = 0;
+    int smallFileCount = 0;
+    long totalBytes = 0L;
+    List<Location> toList = new ArrayList<>();
+    toList.add(location);
+    while (!toList.isEmpty()) {
+      for (Location child : toList.remove(toList.size() - 1).list()) {
+        String name = child.getName();
+        if (name.startsWith("_") || name.startsWith(".")) {
+          continue;
+        }
+        if (child.isDirectory()) {
+          toList.add(child);
+          continue;
+        }
+        long length = child.length();
+        fileCount++;
+        totalBytes += length;
+        if (length < smallFileSize) {
+          smallFileCount++;
+        }
+      }
+    }
+    return new FileStats(fileCount, smallFileCount, totalBytes);
+  }
+
+  /**
+   * The file statistics of a partition.
+   */
+  public static final class FileStats {
+    private final int fileCount;
+    private final int smallFileCount;
+    private final long totalBytes;
+
+    FileStats(int fileCount, int smallFileCount, long totalBytes) {
+      this.fileCount = fileCount;
+      this.smallFileCount = smallFileCount;
+      this.totalBytes = totalBytes;
+    }
+
+    public int getFileCount() {
+      return fileCount;
+    }
+
+    public int getSmallFileCount() {
+      return smallFileCount;
+    }
+
+    public long getTotalBytes() {
+      return totalBytes;
+    }
+
+    @Override
+    public String toString() {
+      return "FileStats{" +
+        "fileCount=" + fileCount +
+        ", smallFileCount=" + smallFileCount +
+        ", totalBytes=" + totalBytes +
+        '}';
+    }
+  }
+
+  /**
+   * The result of a compaction.
+   */
+  public static final class Result {
+    private final Map<PartitionKey, FileStats> compacted;
+    private final Map<PartitionKey, Throwable> failed;
+
+    Result(Map<PartitionKey, FileStats> compacted, Map<PartitionKey, Throwable> failed) {
+      this.compacted = Collections.unmodifiableMap(compacted);
+      this.failed = Collections.unmodifiableMap(failed);
+    }
+
+    /**
+     * @return the partitions that were compacted, with their file statistics before the compaction
+     */
+    public Map<PartitionKey, FileStats> getCompacted() {
+      return compacted;
+    }
+
+    /**
+     * @return the partitions that were selected but could not be compacted, with the cause of the failure
+     */
+    public Map<PartitionKey, Throwable> getFailed() {
+      return failed;
+    }
+  }
+
+  /**
+   * Builder for a {@link PartitionCompactor}.
+   */
+  public static final class Builder {
+    private final Transactional transactional;
+    private final String datasetName;
+    private PartitionFilter filter;
+    private int minFileCount = 100;
+    private long smallFileSize = 64L * 1024 * 1024;
+    private double smallFileRatio = 0.5d;
+    private int maxConcurrency = 4;
+    private int partitionsPerTx = 1000;
+
+    private Builder(Transactional transactional, String datasetName) {
+      this.transactional = transactional;
+      this.datasetName = datasetName;
+    }
+
+    /**
+     * Only compact partitions that match the given filter. By default, all partitions are considered.
+     */
+    public Builder setPartitionFilter(@Nullable PartitionFilter filter) {
+      this.filter = filter;
+      return this;
+    }
+
+    /**
+     * Compact partitions with at least this many files, regardless of their size. Defaults to 100.
+     */
+    public Builder setMinFileCount(int minFileCount) {
+      if (minFileCount <= 1) {
+        throw new IllegalArgumentException("Minimum file count must be greater than 1.");
+      }
+      this.minFileCount = minFileCount;
+      return this;
+    }
+
+    /**
+     * Files smaller than this size, in bytes, are considered small. Defaults to 64 MB.
+     */
+    public Builder setSmallFileSize(long smallFileSize) {
+      if (smallFileSize < 0) {
+        throw new IllegalArgumentException("Small file size must not be negative.");
+      }
+      this.smallFileSize = smallFileSize;
+      return this;
+    }
+
+    /**
+     * Compact partitions with more than one file of which at least this ratio are small files. Defaults to 0.5.
+     */
+    public Builder setSmallFileRatio(double smallFileRatio) {
+      if (smallFileRatio <= 0d || smallFileRatio > 1d) {
+        throw new IllegalArgumentException("Small file ratio must be greater than 0 and at most 1.");
+      }
+      this.smallFileRatio = smallFileRatio;
+      return this;
+    }
+
+    /**
+     * The maximum number of partitions concatenated at the same time. Defaults to 4.
+     */
+    public Builder setMaxConcurrency(int maxConcurrency) {
+      if (maxConcurrency <= 0) {
+        throw new IllegalArgumentException("Max concurrency must be positive.");
+      }
+      this.maxConcurrency = maxConcurrency;
+      return this;
+    }
+
+    /**
+     * How many partitions to inspect per transaction when selecting partitions. Defaults to 1000.
+     */
+    public Builder setPartitionsPerTx(int partitionsPerTx) {
+      if (partitionsPerTx <= 0) {
+        throw new IllegalArgumentException("Partitions per transaction must be positive.");
+      }
+      this.partitionsPerTx = partitionsPerTx;
+      return this;
+    }
+
+    public PartitionCompactor build() {
+      return new PartitionCompactor(transactional, datasetName, filter, minFileCount, smallFileSize,
+                                    smallFileRatio, maxConcurrency, partitionsPerTx);
+    }
+  }
+}
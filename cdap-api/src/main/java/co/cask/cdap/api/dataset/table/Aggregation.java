@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.api.dataset.table;
+
+import co.cask.cdap.api.annotation.Beta;
+import co.cask.cdap.api.common.Bytes;
+
+import java.util.Arrays;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * An aggregation over the rows of a {@link Scan}, computed by {@link Table#aggregate(Scan, java.util.List)}.
+ * Sums, minimums and maximums are computed over column values that are 8-byte longs, as written by
+ * {@link Table#increment(byte[], byte[], long)} or {@link Bytes#toBytes(long)}.
+ */
+@Beta
+public final class Aggregation {
+
+  /**
+   * The aggregation function.
+   */
+  public enum Function {
+    /**
+     * The number of rows, or the number of rows that have a value for the column if a column is given.
+     */
+    COUNT,
+    /**
+     * The sum of the values of a column, 0 if no row has a value for it.
+     */
+    SUM,
+    /**
+     * The smallest value of a column, {@code null} if no row has a value for it.
+     */
+    MIN,
+    /**
+     * The largest value of a column, {@code null} if no row has a value for it.
+     */
+    MAX
+  }
+
+  private final Function function;
+  private final byte[] column;
+
+  private Aggregation(Function function, @Nullable byte[] column) {
+    this.function = function;
+    this.column = column == null ? null : Arrays.copyOf(column, column.length);
+  }
+
+  /**
+   * Counts the rows.
+   */
+  public static Aggregation count() {
+    return new Aggregation(Function.COUNT, null);
+  }
+
+  /**
+   * Counts the rows that have a value for the given column.
+   */
+  public static Aggregation count(byte[] column) {
+    return new Aggregation(Function.COUNT, checkColumn(column));
+  }
+
+  /**
+   * Sums the values of the given column.
+   */
+  public static Aggregation sum(byte[] column) {
+    return new Aggregation(Function.SUM, checkColumn(column));
+  }
+
+  /**
+   * Computes the smallest value of the given column.
+   */
+  public static Aggregation min(byte[] column) {
+    return new Aggregation(Function.MIN, checkColumn(column));
+  }
+
+  /**
+   * Computes the largest value of the given column.
+   */
+  public static Aggregation max(byte[] column) {
+    return new Aggregation(Function.MAX, checkColumn(column));
+  }
+
+  /**
+   * Creates an aggregation from its function and column. The column must only be {@code null} for
+   * {@link Function#COUNT}.
+   */
+  public static Aggregation of(Function function, @Nullable byte[] column) {
+    if (function != Function.COUNT) {
+      checkColumn(column);
+    }
+    return new Aggregation(function, column);
+  }
+
+  private static byte[] checkColumn(@Nullable byte[] column) {
+    if (column == null) {
+      throw new IllegalArgumentException("Column must not be null");
+    }
+    return column;
+  }
+
+  public Function getFunction() {
+    return function;
+  }
+
+  /**
+   * Returns the column that is aggregated, or {@code null} if the aggregation counts rows.
+   */
+  @Nullable
+  public byte[] getColumn() {
+    return column;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    Aggregation that = (Aggregation) o;
+    return function == that.function && Arrays.equals(column, that.column);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(function, Arrays.hashCode(column));
+  }
+
+  @Override
+  public String toString() {
+    return function + "(" + (column == null ? "*" : Bytes.toStringBinary(column)) + ")";
+  }
+}
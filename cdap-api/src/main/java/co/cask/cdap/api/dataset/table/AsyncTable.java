@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.api.dataset.table;
+
+import co.cask.cdap.api.annotation.Beta;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of the operations of a {@link Table}, which allows keeping many operations in flight from a
+ * single thread.
+ * <p>
+ * Operations are performed in the transaction of the {@link Table} at the time they are called: reads see the
+ * changes made in the transaction before the call, and writes are part of the transaction as soon as the call
+ * returns. The returned futures may be completed by threads of the table, hence dependent actions of the futures
+ * should not block.
+ * </p>
+ */
+@Beta
+public interface AsyncTable {
+
+  /**
+   * Reads values of columns as defined by {@link Get} parameter.
+   *
+   * @param get defines read selection
+   * @return a future of the instance of {@link Row}: never {@code null}; returns an empty Row if nothing is read
+   */
+  CompletableFuture<Row> get(Get get);
+
+  /**
+   * Reads values for the rows and columns defined by the {@link Get} parameters.
+   *
+   * @param gets defines the rows and columns to read
+   * @return a future of the list of {@link Row}s, one for each {@link Get} instance, in the same order
+   */
+  CompletableFuture<List<Row>> get(List<Get> gets);
+
+  /**
+   * Reads a batch of rows of a {@link Scan}. To read the next batch, call this method again with a scan that starts
+   * after the last row of the batch.
+   *
+   * @param scan the rows to read
+   * @param limit the maximum number of rows to read
+   * @return a future of the rows read, in row key order. The list has fewer than {@code limit} rows only if the scan
+   *         has no more rows.
+   */
+  CompletableFuture<List<Row>> scan(Scan scan, int limit);
+
+  /**
+   * Writes the values of the columns defined by the {@link Put} parameter.
+   *
+   * @param put the values to write
+   * @return a future that is completed once the write is part of the transaction
+   */
+  CompletableFuture<Void> put(Put put);
+
+  /**
+   * Deletes the columns defined by the {@link Delete} parameter.
+   *
+   * @param delete the columns to delete
+   * @return a future that is completed once the delete is part of the transaction
+   */
+  CompletableFuture<Void> delete(Delete delete);
+}
@@ -23,10 +23,14 @@ import co.cask.cdap.api.data.batch.RecordScannable;
 import co.cask.cdap.api.data.batch.RecordWritable;
 import co.cask.cdap.api.data.batch.Split;
 import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.dataset.DataSetException;
 import co.cask.cdap.api.dataset.Dataset;
 import co.cask.cdap.api.dataset.DatasetProperties;
+import co.cask.cdap.internal.dataset.SynchronousAsyncTable;
+import co.cask.cdap.internal.dataset.TableAggregator;
 
 import java.util.List;
+import java.util.NavigableMap;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -315,6 +319,59 @@ public interface Table extends BatchReadable<byte[], Row>, BatchWritable<byte[],
   @Beta
   Scanner scan(Scan scan);
 
+  /**
+   * Returns a non-blocking view of this table, whose operations are performed in the transaction of this table.
+   * The default implementation performs the operations synchronously in the calling thread, and returns completed
+   * futures.
+   */
+  @Beta
+  default AsyncTable async() {
+    return new SynchronousAsyncTable(this);
+  }
+
+  /**
+   * Computes aggregations over the rows of a {@link Scan}. Depending on the implementation, the aggregations may be
+   * computed where the data is stored, without returning the rows to the client. The default implementation
+   * scans the rows and aggregates them in the client.
+   *
+   * @param scan the rows to aggregate
+   * @param aggregations the aggregations to compute
+   * @return the aggregated values, in the order of the given aggregations. Minimums and maximums are {@code null}
+   *         if no scanned row has a value for their column
+   * @throws DataSetException if a summed, minimized or maximized value is not convertible to long
+   */
+  @Beta
+  default List<Long> aggregate(Scan scan, List<Aggregation> aggregations) {
+    TableAggregator aggregator = new TableAggregator(0, aggregations);
+    try (Scanner scanner = scan(scan)) {
+      aggregator.addAll(scanner);
+    }
+    return aggregator.getResult();
+  }
+
+  /**
+   * Computes aggregations over the rows of a {@link Scan}, grouped by the first bytes of their row keys.
+   * Depending on the implementation, the aggregations may be computed where the data is stored, without returning
+   * the rows to the client. The default implementation scans the rows and aggregates them in the client.
+   *
+   * @param scan the rows to aggregate
+   * @param rowPrefixLength the length of the row key prefix that rows are grouped by. Rows with shorter keys form
+   *                        a group of their own; 0 puts all rows into one group with an empty key
+   * @param aggregations the aggregations to compute
+   * @return for every group with at least one scanned row, its row key prefix mapped to the aggregated values, in the
+   *         order of the given aggregations. Minimums and maximums are {@code null} if no row of the group has a value
+   *         for their column
+   * @throws DataSetException if a summed, minimized or maximized value is not convertible to long
+   */
+  @Beta
+  default NavigableMap<byte[], List<Long>> aggregate(Scan scan, int rowPrefixLength, List<Aggregation> aggregations) {
+    TableAggregator aggregator = new TableAggregator(rowPrefixLength, aggregations);
+    try (Scanner scanner = scan(scan)) {
+      aggregator.addAll(scanner);
+    }
+    return aggregator.getResults();
+  }
+
   /**
    * Returns splits for a range of keys in the table.
    * 
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.dataset;
+
+import co.cask.cdap.api.dataset.table.AsyncTable;
+import co.cask.cdap.api.dataset.table.Delete;
+import co.cask.cdap.api.dataset.table.Get;
+import co.cask.cdap.api.dataset.table.Put;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scan;
+import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.api.dataset.table.Table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An {@link AsyncTable} that performs the operations synchronously on a {@link Table} in the calling thread, and
+ * returns futures that are already completed, or failed with the exception of the operation. This is the default
+ * for tables that do not support non-blocking operations.
+ */
+public final class SynchronousAsyncTable implements AsyncTable {
+
+  private final Table table;
+
+  public SynchronousAsyncTable(Table table) {
+    this.table = table;
+  }
+
+  @Override
+  public CompletableFuture<Row> get(Get get) {
+    return call(() -> table.get(get));
+  }
+
+  @Override
+  public CompletableFuture<List<Row>> get(List<Get> gets) {
+    return call(() -> table.get(gets));
+  }
+
+  @Override
+  public CompletableFuture<List<Row>> scan(Scan scan, int limit) {
+    return call(() -> {
+      List<Row> rows = new ArrayList<>();
+      try (Scanner scanner = table.scan(scan)) {
+        Row row;
+        while (rows.size() < limit && (row = scanner.next()) != null) {
+          rows.add(row);
+        }
+      }
+      return rows;
+    });
+  }
+
+  @Override
+  public CompletableFuture<Void> put(Put put) {
+    return call(() -> {
+      table.put(put);
+      return null;
+    });
+  }
+
+  @Override
+  public CompletableFuture<Void> delete(Delete delete) {
+    return call(() -> {
+      table.delete(delete);
+      return null;
+    });
+  }
+
+  private static <T> CompletableFuture<T> call(Callable<T> operation) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    try {
+      result.complete(operation.call());
+    } catch (Exception e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.internal.dataset;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.DataSetException;
+import co.cask.cdap.api.dataset.table.Aggregation;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Computes {@link Aggregation}s over table rows, grouped by row key prefix. The partial state of an aggregator can be
+ * serialized and merged into another aggregator, which allows storage-side computation of the aggregations with the
+ * partial results merged by the client. This class is used both by the default implementations of the aggregations
+ * of {@link co.cask.cdap.api.dataset.table.Table} and by the HBase coprocessors that compute aggregations, hence it
+ * must only depend on classes that are available to them.
+ */
+public final class TableAggregator {
+
+  private final int rowPrefixLength;
+  private final List<Aggregation> aggregations;
+  private final Aggregation.Function[] functions;
+  private final byte[][] columns;
+  // group -> for every aggregation, the number of values and the aggregated value
+  private final NavigableMap<byte[], long[]> groups = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+
+  public TableAggregator(int rowPrefixLength, List<Aggregation> aggregations) {
+    if (rowPrefixLength < 0) {
+      throw new IllegalArgumentException("Row prefix length must not be negative, but is " + rowPrefixLength);
+    }
+    if (aggregations.isEmpty()) {
+      throw new IllegalArgumentException("At least one aggregation must be given");
+    }
+    this.rowPrefixLength = rowPrefixLength;
+    this.aggregations = Collections.unmodifiableList(new ArrayList<>(aggregations));
+    this.functions = new Aggregation.Function[aggregations.size()];
+    this.columns = new byte[aggregations.size()][];
+    for (int i = 0; i < functions.length; i++) {
+      functions[i] = aggregations.get(i).getFunction();
+      columns[i] = aggregations.get(i).getColumn();
+    }
+  }
+
+  /**
+   * Creates an aggregator from its serialized specification, as returned by {@link #getSpecification()}.
+   */
+  public static TableAggregator fromSpecification(byte[] specification) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(specification));
+    int rowPrefixLength = input.readInt();
+    int size = input.readInt();
+    Aggregation.Function[] functions = Aggregation.Function.values();
+    List<Aggregation> aggregations = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      Aggregation.Function function = functions[input.readByte()];
+      int columnLength = input.readInt();
+      byte[] column = null;
+      if (columnLength >= 0) {
+        column = new byte[columnLength];
+        input.readFully(column);
+      }
+      aggregations.add(Aggregation.of(function, column));
+    }
+    return new TableAggregator(rowPrefixLength, aggregations);
+  }
+
+  /**
+   * Returns the serialized specification of this aggregator, that is, its grouping and aggregations.
+   */
+  public byte[] getSpecification() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeInt(rowPrefixLength);
+      output.writeInt(functions.length);
+      for (int i = 0; i < functions.length; i++) {
+        output.writeByte(functions[i].ordinal());
+        if (columns[i] == null) {
+          output.writeInt(-1);
+        } else {
+          output.writeInt(columns[i].length);
+          output.write(columns[i]);
+        }
+      }
+    } catch (IOException e) {
+      // cannot happen when writing to a byte array
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public List<Aggregation> getAggregations() {
+    return aggregations;
+  }
+
+  /**
+   * Adds a row to the aggregations.
+   *
+   * @param row the row key
+   * @param values the column values of the row; a column with {@code null} value is treated as absent,
+   *               and a row without any value is ignored
+   * @throws DataSetException if a value to sum, minimize or maximize is not convertible to long
+   */
+  public void add(byte[] row, Map<byte[], byte[]> values) {
+    if (!hasValue(values)) {
+      return;
+    }
+    long[] state = getState(row.length <= rowPrefixLength ? row : Arrays.copyOf(row, rowPrefixLength));
+    for (int i = 0; i < functions.length; i++) {
+      if (columns[i] == null) {
+        state[2 * i]++;
+        continue;
+      }
+      byte[] value = values.get(columns[i]);
+      if (value == null) {
+        continue;
+      }
+      if (functions[i] == Aggregation.Function.COUNT) {
+        state[2 * i]++;
+        continue;
+      }
+      if (value.length != Bytes.SIZEOF_LONG) {
+        throw new DataSetException("Attempted to aggregate a value that is not convertible to long," +
+                                     " row: " + Bytes.toStringBinary(row) +
+                                     " column: " + Bytes.toStringBinary(columns[i]));
+      }
+      accumulate(state, i, 1, Bytes.toLong(value));
+    }
+  }
+
+  /**
+   * Adds all remaining rows of a scanner to the aggregations.
+   *
+   * @throws DataSetException if a value to sum, minimize or maximize is not convertible to long
+   */
+  public void addAll(Scanner scanner) {
+    Row row;
+    while ((row = scanner.next()) != null) {
+      add(row.getRow(), row.getColumns());
+    }
+  }
+
+  private static boolean hasValue(Map<byte[], byte[]> values) {
+    for (byte[] value : values.values()) {
+      if (value != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private long[] getState(byte[] group) {
+    long[] state = groups.get(group);
+    if (state == null) {
+      state = new long[2 * functions.length];
+      groups.put(group, state);
+    }
+    return state;
+  }
+
+  private void accumulate(long[] state, int index, long count, long value) {
+    long existingCount = state[2 * index];
+    state[2 * index] = existingCount + count;
+    switch (functions[index]) {
+      case COUNT:
+        break;
+      case SUM:
+        state[2 * index + 1] += value;
+        break;
+      case MIN:
+        state[2 * index + 1] = existingCount == 0 ? value : Math.min(state[2 * index + 1], value);
+        break;
+      case MAX:
+        state[2 * index + 1] = existingCount == 0 ? value : Math.max(state[2 * index + 1], value);
+        break;
+      default:
+        throw new IllegalStateException("Unknown aggregation function " + functions[index]);
+    }
+  }
+
+  /**
+   * Returns {@code true} if no row was added since this aggregator was created or last drained.
+   */
+  public boolean isEmpty() {
+    return groups.isEmpty();
+  }
+
+  /**
+   * Returns the serialized partial state of all groups, and resets this aggregator to be empty.
+   */
+  public byte[] drainPartial() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeInt(groups.size());
+      for (Map.Entry<byte[], long[]> group : groups.entrySet()) {
+        output.writeInt(group.getKey().length);
+        output.write(group.getKey());
+        for (long value : group.getValue()) {
+          output.writeLong(value);
+        }
+      }
+    } catch (IOException e) {
+      // cannot happen when writing to a byte array
+      throw new IllegalStateException(e);
+    }
+    groups.clear();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Merges a serialized partial state, as returned by {@link #drainPartial()} of an aggregator with the same
+   * specification, into this aggregator.
+   */
+  public void mergePartial(byte[] partial) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(partial));
+    int size = input.readInt();
+    for (int i = 0; i < size; i++) {
+      byte[] group = new byte[input.readInt()];
+      input.readFully(group);
+      long[] state = getState(group);
+      for (int j = 0; j < functions.length; j++) {
+        long count = input.readLong();
+        long value = input.readLong();
+        if (count > 0) {
+          accumulate(state, j, count, value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the aggregated values of every group.
+   */
+  public NavigableMap<byte[], List<Long>> getResults() {
+    NavigableMap<byte[], List<Long>> results = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (Map.Entry<byte[], long[]> group : groups.entrySet()) {
+      results.put(group.getKey(), toResult(group.getValue()));
+    }
+    return results;
+  }
+
+  /**
+   * Returns the aggregated values over all rows, for an aggregator that does not group rows.
+   */
+  public List<Long> getResult() {
+    if (groups.size() > 1) {
+      throw new IllegalStateException("Aggregator has more than one group");
+    }
+    return toResult(groups.isEmpty() ? new long[2 * functions.length] : groups.firstEntry().getValue());
+  }
+
+  private List<Long> toResult(long[] state) {
+    List<Long> result = new ArrayList<>(functions.length);
+    for (int i = 0; i < functions.length; i++) {
+      switch (functions[i]) {
+        case COUNT:
+          result.add(state[2 * i]);
+          break;
+        case SUM:
+          result.add(state[2 * i + 1]);
+          break;
+        default:
+          result.add(state[2 * i] == 0 ? null : state[2 * i + 1]);
+      }
+    }
+    return result;
+  }
+}
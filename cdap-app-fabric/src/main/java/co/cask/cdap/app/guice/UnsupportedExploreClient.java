@@ -33,6 +33,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
@@ -88,6 +89,12 @@ final class UnsupportedExploreClient implements ExploreClient {
     throw new UnsupportedOperationException("Explore is not supported. This method should not be called.");
   }
 
+  @Override
+  public ListenableFuture<Void> addPartitions(DatasetId datasetInstance, DatasetSpecification spec,
+                                              Map<PartitionKey, String> partitions) {
+    throw new UnsupportedOperationException("Explore is not supported. This method should not be called.");
+  }
+
   @Override
   public ListenableFuture<Void> dropPartition(DatasetId datasetInstance, DatasetSpecification spec, PartitionKey key) {
     throw new UnsupportedOperationException("Explore is not supported. This method should not be called.");
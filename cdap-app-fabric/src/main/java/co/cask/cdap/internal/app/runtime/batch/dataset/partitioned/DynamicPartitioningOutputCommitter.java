@@ -48,6 +48,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -152,9 +153,11 @@ public class DynamicPartitioningOutputCommitter extends FileOutputCommitter {
 
     boolean allowAppend = partitionWriteOption == DynamicPartitioner.PartitionWriteOption.CREATE_OR_APPEND;
     // create all the necessary partitions
+    Map<PartitionKey, String> partitionPaths = new LinkedHashMap<>();
     for (Map.Entry<String, PartitionKey> entry : partitionsToAdd.entrySet()) {
-      outputDataset.addPartition(entry.getValue(), entry.getKey(), metadata, true, allowAppend);
+      partitionPaths.put(entry.getValue(), entry.getKey());
     }
+    outputDataset.addPartitions(partitionPaths, metadata, true, allowAppend);
 
     // delete the job-specific _temporary folder
     cleanupJob(context);
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.metadata;
 
+import co.cask.cdap.api.metadata.Metadata;
 import co.cask.cdap.api.metadata.MetadataEntity;
 import co.cask.cdap.api.metadata.MetadataScope;
 import co.cask.cdap.common.InvalidMetadataException;
@@ -25,6 +26,7 @@ import co.cask.cdap.common.metadata.MetadataRecordV2;
 import co.cask.cdap.data2.metadata.MetadataConstants;
 import co.cask.cdap.data2.metadata.dataset.SearchRequest;
 import co.cask.cdap.data2.metadata.store.MetadataStore;
+import co.cask.cdap.data2.metadata.writer.MetadataOperation;
 import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.metadata.MetadataSearchResponseV2;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecordV2;
@@ -35,6 +37,7 @@ import com.google.common.base.CharMatcher;
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -139,6 +142,23 @@ public class DefaultMetadataAdmin implements MetadataAdmin {
     metadataStore.removeTags(MetadataScope.USER, metadataEntity, tags);
   }
 
+  @Override
+  public void applyOperations(List<MetadataOperation> operations) throws InvalidMetadataException {
+    for (MetadataOperation operation : operations) {
+      Metadata metadata = operation.getMetadata();
+      if (operation.getType() != MetadataOperation.Type.PUT || metadata == null) {
+        continue;
+      }
+      if (metadata.getProperties() != null) {
+        validateProperties(operation.getEntity(), metadata.getProperties());
+      }
+      if (metadata.getTags() != null) {
+        validateTags(operation.getEntity(), metadata.getTags());
+      }
+    }
+    metadataStore.applyOperations(MetadataScope.USER, operations);
+  }
+
   @Override
   public MetadataSearchResponseV2 search(SearchRequest searchRequest) throws Exception {
     return filterAuthorizedSearchResult(metadataStore.search(searchRequest));
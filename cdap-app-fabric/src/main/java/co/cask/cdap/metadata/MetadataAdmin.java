@@ -22,10 +22,12 @@ import co.cask.cdap.common.InvalidMetadataException;
 import co.cask.cdap.common.metadata.MetadataRecordV2;
 import co.cask.cdap.data2.metadata.dataset.SearchRequest;
 import co.cask.cdap.data2.metadata.dataset.SortInfo;
+import co.cask.cdap.data2.metadata.writer.MetadataOperation;
 import co.cask.cdap.proto.EntityScope;
 import co.cask.cdap.proto.element.EntityTypeSimpleName;
 import co.cask.cdap.proto.metadata.MetadataSearchResponseV2;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -135,6 +137,17 @@ public interface MetadataAdmin {
    */
   void removeTags(MetadataEntity metadataEntity, Set<String> tags);
 
+  /**
+   * Applies a batch of {@link MetadataOperation}s in a single transaction. This is more efficient than performing
+   * the operations one by one, because only the resulting changes of each entity's metadata are written. This API
+   * only supports operations in {@link MetadataScope#USER}.
+   *
+   * @param operations the operations to apply, in order
+   * @throws InvalidMetadataException if some of the operations violate metadata validation rules. In this case, none
+   *                                  of the operations is applied
+   */
+  void applyOperations(List<MetadataOperation> operations) throws InvalidMetadataException;
+
   /**
    * Executes a search for CDAP entities in the specified namespace with the specified search query and
    * an optional set of {@link EntityTypeSimpleName entity types} in the specified {@link MetadataScope}.
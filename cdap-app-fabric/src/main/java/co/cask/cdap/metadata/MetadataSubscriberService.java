@@ -67,9 +67,11 @@ import org.apache.tephra.TxConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -195,6 +197,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
   protected void processMessages(DatasetContext datasetContext,
                                  Iterator<ImmutablePair<String, MetadataMessage>> messages) {
     Map<MetadataMessage.Type, MetadataMessageProcessor> processors = new HashMap<>();
+    MetadataOperationProcessor operationProcessor = new MetadataOperationProcessor();
 
     // Loop over all fetched messages and process them with corresponding MetadataMessageProcessor
     while (messages.hasNext()) {
@@ -212,7 +215,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
           case WORKFLOW_STATE:
             return new WorkflowProcessor(datasetContext);
           case METADATA_OPERATION:
-            return new MetadataOperationProcessor();
+            return operationProcessor;
           case DATASET_OPERATION:
             return new DatasetOperationMessageProcessor(datasetFramework);
           case PROFILE_ASSIGNMENT:
@@ -232,8 +235,14 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
         continue;
       }
 
+      // metadata operations are collected by the processor and applied together, hence the ones collected so far
+      // must be applied before any other message, so that all messages take effect in the order they were published
+      if (processor != operationProcessor) {
+        operationProcessor.applyOperations();
+      }
       processor.processMessage(message);
     }
+    operationProcessor.applyOperations();
   }
 
   /**
@@ -368,17 +377,47 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
 
   /**
    * The {@link MetadataMessageProcessor} for metadata operations.
-   * It receives operations and applies them to the metadata store.
+   * It collects the operations of the messages fetched together, and applies them to the metadata store as a batch.
    */
   private class MetadataOperationProcessor implements MetadataMessageProcessor {
 
+    private final List<MetadataMessage> messages = new ArrayList<>();
+
     @Override
     public void processMessage(MetadataMessage message) {
-      MetadataOperation operation = message.getPayload(GSON, MetadataOperation.class);
+      messages.add(message);
+    }
+
+    /**
+     * Applies the operations of all messages processed since the last call as one batch. If any of the operations is
+     * invalid, the operations are applied one by one, so that only the invalid operations are ignored.
+     */
+    void applyOperations() {
+      if (messages.isEmpty()) {
+        return;
+      }
+      List<MetadataOperation> operations = new ArrayList<>(messages.size());
+      for (MetadataMessage message : messages) {
+        MetadataOperation operation = message.getPayload(GSON, MetadataOperation.class);
+        LOG.trace("Received {} for entity {}: {}", operation, operation.getEntity(), operation.getMetadata());
+        operations.add(operation);
+      }
+      try {
+        // TODO: Authorize that the operations are allowed. Currently MetadataMessage does not carry user info
+        metadataAdmin.applyOperations(operations);
+      } catch (InvalidMetadataException e) {
+        LOG.debug("Batch of {} metadata operations contains invalid operations, applying them one by one",
+                  operations.size(), e);
+        for (int i = 0; i < operations.size(); i++) {
+          applyOperation(operations.get(i), messages.get(i));
+        }
+      }
+      messages.clear();
+    }
+
+    private void applyOperation(MetadataOperation operation, MetadataMessage message) {
       Metadata metadata = operation.getMetadata();
       MetadataEntity entity = operation.getEntity();
-      LOG.trace("Received {} for entity {}: {}", operation, entity, metadata);
-      // TODO: Authorize that the operation is allowed. Currently MetadataMessage does not carry user info
       switch (operation.getType()) {
         case PUT: {
           try {
@@ -774,6 +774,9 @@ public final class Constants {
         public static final String OP_COUNT = "dataset.store.ops";
         public static final String WRITE_COUNT = "dataset.store.writes";
         public static final String WRITE_BYTES = "dataset.store.bytes";
+        public static final String CACHE_HIT_COUNT = "dataset.store.cache.hits";
+        public static final String CACHE_MISS_COUNT = "dataset.store.cache.misses";
+        public static final String CACHE_EVICTION_COUNT = "dataset.store.cache.evictions";
       }
 
       /**
@@ -898,6 +901,7 @@ public final class Constants {
     public static final String PIPELINE_EVENT_DELAY_MS = "log.process.pipeline.event.delay.ms";
     public static final String PIPELINE_KAFKA_FETCH_SIZE = "log.process.pipeline.kafka.fetch.size";
     public static final String PIPELINE_CHECKPOINT_INTERVAL_MS = "log.process.pipeline.checkpoint.interval.ms";
+    public static final String PIPELINE_PARALLEL_DECODE = "log.process.pipeline.parallel.decode";
     public static final String PIPELINE_LOGGER_CACHE_SIZE = "log.process.pipeline.logger.cache.size";
     public static final String PIPELINE_LOGGER_CACHE_EXPIRATION_MS = "log.process.pipeline.logger.cache.expiration.ms";
 
@@ -156,4 +156,9 @@ class DelegatingHBaseTableUtil extends HBaseTableUtil {
   public Class<? extends Coprocessor> getPayloadTableRegionObserverClassForVersion() {
     return delegate.getPayloadTableRegionObserverClassForVersion();
   }
+
+  @Override
+  public Class<? extends Coprocessor> getAggregationRegionObserverClassForVersion() {
+    return delegate.getAggregationRegionObserverClassForVersion();
+  }
 }
@@ -33,6 +33,7 @@ import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.namespace.SimpleNamespaceQueryAdmin;
 import co.cask.cdap.data.hbase.HBaseTestBase;
 import co.cask.cdap.data.hbase.HBaseTestFactory;
+import co.cask.cdap.data2.aggregation.hbase98.AggregationRegionObserver;
 import co.cask.cdap.data2.dataset2.lib.table.BufferingTable;
 import co.cask.cdap.data2.dataset2.lib.table.BufferingTableTest;
 import co.cask.cdap.data2.increment.hbase.IncrementHandlerState;
@@ -249,6 +250,152 @@ public class HBaseTableTest extends BufferingTableTest<BufferingTable> {
     }
   }
 
+  @Test
+  public void testParallelClient() throws Exception {
+    byte[][] splits = new byte[][] {Bytes.toBytes("b"), Bytes.toBytes("c"), Bytes.toBytes("d")};
+    DatasetProperties props = DatasetProperties.builder().add("hbase.splits", new Gson().toJson(splits)).build();
+    String tableName = "parallel";
+    getTableAdmin(CONTEXT1, tableName, props).create();
+    // small batches, so that each region gets several batches in flight
+    Map<String, String> args = ImmutableMap.of(HBaseTable.CLIENT_THREADS, "4",
+                                               HBaseTable.CLIENT_BATCH_BYTES, "1024",
+                                               HBaseTable.CLIENT_MAX_INFLIGHT_BYTES, "4096");
+    List<byte[]> rows = Lists.newArrayList();
+    for (char prefix = 'a'; prefix <= 'e'; prefix++) {
+      for (int i = 0; i < 100; i++) {
+        rows.add(b(prefix + "row" + i));
+      }
+    }
+
+    DetachedTxSystemClient txSystemClient = new DetachedTxSystemClient();
+    try (BufferingTable table = getTable(CONTEXT1, tableName, props, args)) {
+      Transaction tx = txSystemClient.startShort();
+      table.startTx(tx);
+      for (byte[] row : rows) {
+        table.put(row, b("col"), row);
+      }
+      Assert.assertTrue(table.commitTx());
+      table.postTxCommit();
+
+      // rolled back changes must be undone in all regions
+      tx = txSystemClient.startShort();
+      table.startTx(tx);
+      for (byte[] row : rows) {
+        table.put(row, b("col"), b("rolledback"));
+      }
+      Assert.assertTrue(table.commitTx());
+      Assert.assertTrue(table.rollbackTx());
+
+      tx = txSystemClient.startShort();
+      table.startTx(tx);
+      List<Get> gets = Lists.newArrayList();
+      for (byte[] row : rows) {
+        gets.add(new Get(row));
+      }
+      // a missing row in between, to verify results are in the order of the gets
+      gets.add(250, new Get(b("cmissing")));
+      List<co.cask.cdap.api.dataset.table.Row> results = table.get(gets);
+      Assert.assertEquals(gets.size(), results.size());
+      for (int i = 0; i < gets.size(); i++) {
+        byte[] row = gets.get(i).getRow();
+        Assert.assertArrayEquals(row, results.get(i).getRow());
+        if (i == 250) {
+          Assert.assertTrue(results.get(i).isEmpty());
+        } else {
+          Assert.assertArrayEquals(row, results.get(i).get(b("col")));
+        }
+      }
+      table.commitTx();
+    } finally {
+      getTableAdmin(CONTEXT1, tableName, props).drop();
+    }
+  }
+
+  @Test
+  public void testAggregateWithCoprocessor() throws Exception {
+    String tableName = "aggregate";
+    byte[][] splits = {Bytes.toBytes("b")};
+    DatasetProperties props = TableProperties.builder()
+      .setReadlessIncrementSupport(true)
+      .setConflictDetection(ConflictDetection.ROW)
+      .add(HBaseTable.AGGREGATION_COPROCESSOR, "true")
+      .add(HBaseTableAdmin.PROPERTY_SPLITS, new Gson().toJson(splits))
+      .build();
+    // the table must be created with the coprocessor for the aggregations to be computed by the region servers
+    HBaseTableAdmin admin = getTableAdmin(CONTEXT1, tableName, props);
+    admin.create();
+    try {
+      TableId tableId = hBaseTableUtil.createHTableId(NAMESPACE1, tableName);
+      HTableDescriptor htd = hBaseTableUtil.getHTableDescriptor(TEST_HBASE.getHBaseAdmin(), tableId);
+      assertTrue(htd.getCoprocessors().contains(AggregationRegionObserver.class.getName()));
+      assertTrue(HBaseTableAdmin.supportsAggregation(htd));
+    } finally {
+      admin.drop();
+    }
+    testAggregate(tableName, props);
+  }
+
+  @Test
+  public void testAsyncWithThreads() throws Exception {
+    byte[][] splits = {Bytes.toBytes("a3")};
+    // the asynchronous reads are performed by a pool of threads, across regions
+    DatasetProperties props = TableProperties.builder()
+      .setConflictDetection(ConflictDetection.ROW)
+      .add(HBaseTable.ASYNC_CLIENT_THREADS, "2")
+      .add(HBaseTableAdmin.PROPERTY_SPLITS, new Gson().toJson(splits))
+      .build();
+    testAsync("async", props);
+  }
+
+  @Test
+  public void testScanPrefetch() throws Exception {
+    String tableName = "scanPrefetch";
+    byte[][] splits = {Bytes.toBytes("r050")};
+    DatasetProperties props = TableProperties.builder()
+      .add(HBaseTableAdmin.PROPERTY_SPLITS, new Gson().toJson(splits))
+      .build();
+    // small batches, whose number of rows changes with the width of the rows
+    Map<String, String> args = ImmutableMap.of(HBaseTable.SCAN_PREFETCH_BYTES, "500");
+    HBaseTableAdmin admin = getTableAdmin(CONTEXT1, tableName, props);
+    admin.create();
+    try (BufferingTable table = getTable(CONTEXT1, tableName, props, args)) {
+      Transaction tx = txClient.startShort();
+      table.startTx(tx);
+      for (int i = 0; i < 100; i++) {
+        byte[] value = new byte[i < 50 ? 1 : 100];
+        table.put(Bytes.toBytes(String.format("r%03d", i)), Bytes.toBytes("c"), value);
+      }
+      txClient.canCommitOrThrow(tx, table.getTxChanges());
+      Assert.assertTrue(table.commitTx());
+      txClient.commitOrThrow(tx);
+      table.postTxCommit();
+
+      tx = txClient.startShort();
+      table.startTx(tx);
+      try (Scanner scanner = table.scan(null, null)) {
+        for (int i = 0; i < 100; i++) {
+          co.cask.cdap.api.dataset.table.Row row = scanner.next();
+          Assert.assertNotNull(row);
+          Assert.assertEquals(String.format("r%03d", i), Bytes.toString(row.getRow()));
+          Assert.assertEquals(i < 50 ? 1 : 100, row.get(Bytes.toBytes("c")).length);
+        }
+        Assert.assertNull(scanner.next());
+        Assert.assertNull(scanner.next());
+      }
+      // the scan properties take precedence over the arguments, closing a scanner while it prefetches
+      Scan scan = new Scan(Bytes.toBytes("r010"), null);
+      scan.setProperty(HBaseTable.SCAN_PREFETCH_BYTES, "50");
+      try (Scanner scanner = table.scan(scan)) {
+        Assert.assertEquals("r010", Bytes.toString(scanner.next().getRow()));
+        Assert.assertEquals("r011", Bytes.toString(scanner.next().getRow()));
+      }
+      table.commitTx();
+      txClient.commitOrThrow(tx);
+    } finally {
+      admin.drop();
+    }
+  }
+
   @Test
   public void testEnableIncrements() throws Exception {
     // setup a table with increments disabled and with it enabled
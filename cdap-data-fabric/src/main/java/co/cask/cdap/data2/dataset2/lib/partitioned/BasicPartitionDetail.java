@@ -20,22 +20,32 @@ import co.cask.cdap.api.dataset.lib.PartitionDetail;
 import co.cask.cdap.api.dataset.lib.PartitionKey;
 import co.cask.cdap.api.dataset.lib.PartitionMetadata;
 import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 
 /**
  * Implementation of Partition, with associated metadata.
  */
 class BasicPartitionDetail extends BasicPartition implements PartitionDetail {
-  protected final PartitionMetadata metadata;
+  private final Supplier<PartitionMetadata> metadata;
 
   protected BasicPartitionDetail(PartitionedFileSetDataset partitionedFileSetDataset,
                                  String relativePath, PartitionKey key, PartitionMetadata metadata) {
+    this(partitionedFileSetDataset, relativePath, key, Suppliers.ofInstance(metadata));
+  }
+
+  /**
+   * Creates a partition whose metadata is only computed when it is first needed.
+   */
+  protected BasicPartitionDetail(PartitionedFileSetDataset partitionedFileSetDataset,
+                                 String relativePath, PartitionKey key, Supplier<PartitionMetadata> metadata) {
     super(partitionedFileSetDataset, relativePath, key);
-    this.metadata = metadata;
+    this.metadata = Suppliers.memoize(metadata);
   }
 
   @Override
   public PartitionMetadata getMetadata() {
-    return metadata;
+    return metadata.get();
   }
 
   @Override
@@ -49,13 +59,13 @@ class BasicPartitionDetail extends BasicPartition implements PartitionDetail {
 
     BasicPartitionDetail that = (BasicPartitionDetail) o;
 
-    return Objects.equal(this.metadata, that.metadata) &&
+    return Objects.equal(getMetadata(), that.getMetadata()) &&
       Objects.equal(this.relativePath, that.relativePath) &&
       Objects.equal(this.key, that.key);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(metadata, relativePath, key);
+    return Objects.hashCode(getMetadata(), relativePath, key);
   }
 }
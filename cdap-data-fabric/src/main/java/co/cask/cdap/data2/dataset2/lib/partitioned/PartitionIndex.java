@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.dataset2.lib.partitioned;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.api.dataset.lib.IndexedTable;
+import co.cask.cdap.api.dataset.lib.PartitionFilter;
+import co.cask.cdap.api.dataset.lib.PartitionKey;
+import co.cask.cdap.api.dataset.lib.Partitioning;
+import co.cask.cdap.api.dataset.lib.Partitioning.FieldType;
+import co.cask.cdap.api.dataset.table.Put;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+
+/**
+ * Secondary indexes over individual partitioning fields of a {@link PartitionedFileSetDataset}. The value of each
+ * indexed field is stored in a column of the partition's row, which is indexed by the partitions table.
+ * <p>
+ * Given a partition filter, the keys of the partition rows are looked up in the indexes of the fields that
+ * have a condition, unless the filter only has conditions on the leading fields, which are matched by a scan of
+ * the partitions table. The indexes are read in increasing rounds until one of them is exhausted, which is the most
+ * selective; the others are then intersected with it, unless they match more rows.
+ */
+final class PartitionIndex {
+
+  private static final byte[] FIELD_PREFIX = { 'f', '.' };
+  // number of row keys read from each index in the first round of finding the most selective index
+  private static final int INITIAL_PROBE_SIZE = 1000;
+
+  private final Partitioning partitioning;
+  private final Collection<String> indexedFields;
+  private final IndexedTable partitionsTable;
+
+  PartitionIndex(Partitioning partitioning, Collection<String> indexedFields, IndexedTable partitionsTable) {
+    this.partitioning = partitioning;
+    this.indexedFields = indexedFields;
+    this.partitionsTable = partitionsTable;
+  }
+
+  /**
+   * Returns the column of a partition row that holds the value of the given field, for indexing.
+   */
+  static byte[] getColumn(String fieldName) {
+    return Bytes.add(FIELD_PREFIX, Bytes.toBytes(fieldName));
+  }
+
+  /**
+   * Adds the values of the indexed fields of a partition key to the put of the partition's row.
+   */
+  void addToPut(PartitionKey key, Put put) {
+    for (String fieldName : indexedFields) {
+      FieldType fieldType = partitioning.getFieldType(fieldName);
+      put.add(getColumn(fieldName), FieldTypes.toBytes(key.getField(fieldName), fieldType));
+    }
+  }
+
+  /**
+   * Returns the keys of the partition rows that may match the given filter, using the indexes.
+   * Every matching row is returned, but not every returned row matches the filter.
+   *
+   * @return the row keys in ascending order, or {@code null} if a scan of the partitions table should be used
+   */
+  @Nullable
+  SortedSet<byte[]> getRowKeys(PartitionFilter filter) {
+    if (indexedFields.isEmpty() || isMatchedByRowKey(filter)) {
+      return null;
+    }
+
+    // single value conditions first, as they are usually more selective
+    List<PartitionFilter.Condition<? extends Comparable>> conditions = new ArrayList<>();
+    for (PartitionFilter.Condition<? extends Comparable> condition : filter.getConditions().values()) {
+      if (indexedFields.contains(condition.getFieldName()) && condition.isSingleValue()) {
+        conditions.add(condition);
+      }
+    }
+    for (PartitionFilter.Condition<? extends Comparable> condition : filter.getConditions().values()) {
+      if (indexedFields.contains(condition.getFieldName()) && !condition.isSingleValue()) {
+        conditions.add(condition);
+      }
+    }
+    if (conditions.isEmpty()) {
+      return null;
+    }
+
+    List<CloseableIterator<byte[]>> iterators = new ArrayList<>();
+    try {
+      List<SortedSet<byte[]>> rowKeys = new ArrayList<>();
+      for (PartitionFilter.Condition<? extends Comparable> condition : conditions) {
+        iterators.add(readRowKeys(condition));
+        rowKeys.add(new TreeSet<>(Bytes.BYTES_COMPARATOR));
+      }
+
+      // find the most selective index
+      int selective = -1;
+      long probeSize = INITIAL_PROBE_SIZE;
+      while (selective < 0) {
+        for (int i = 0; i < iterators.size() && selective < 0; i++) {
+          if (read(iterators.get(i), rowKeys.get(i), probeSize)) {
+            selective = i;
+          }
+        }
+        probeSize *= 2;
+      }
+
+      // intersect with the indexes that do not match more rows
+      SortedSet<byte[]> result = rowKeys.get(selective);
+      for (int i = 0; i < iterators.size() && !result.isEmpty(); i++) {
+        if (i != selective && read(iterators.get(i), rowKeys.get(i), result.size())) {
+          result.retainAll(rowKeys.get(i));
+        }
+      }
+      return result;
+    } finally {
+      for (CloseableIterator<byte[]> iterator : iterators) {
+        iterator.close();
+      }
+    }
+  }
+
+  /**
+   * Returns whether the rows matching the filter are all within the row key range derived from the filter,
+   * that is, if the filter only has conditions on leading fields, all single value except the last one.
+   */
+  private boolean isMatchedByRowKey(PartitionFilter filter) {
+    int matched = 0;
+    for (String fieldName : partitioning.getFields().keySet()) {
+      PartitionFilter.Condition<? extends Comparable> condition = filter.getCondition(fieldName);
+      if (condition == null) {
+        break;
+      }
+      matched++;
+      if (!condition.isSingleValue()) {
+        break;
+      }
+    }
+    return matched == filter.getConditions().size();
+  }
+
+  private CloseableIterator<byte[]> readRowKeys(PartitionFilter.Condition<? extends Comparable> condition) {
+    FieldType fieldType = partitioning.getFieldType(condition.getFieldName());
+    byte[] column = getColumn(condition.getFieldName());
+    if (condition.isSingleValue()) {
+      return partitionsTable.readRowKeysByIndex(column, FieldTypes.toBytes(condition.getValue(), fieldType));
+    }
+    return partitionsTable.scanRowKeysByIndex(
+      column,
+      condition.getLower() == null ? null : FieldTypes.toBytes(condition.getLower(), fieldType),
+      condition.getUpper() == null ? null : FieldTypes.toBytes(condition.getUpper(), fieldType));
+  }
+
+  /**
+   * Reads row keys from an iterator into a set, until the set has more than the given number of keys.
+   *
+   * @return whether the iterator is exhausted
+   */
+  private static boolean read(CloseableIterator<byte[]> iterator, SortedSet<byte[]> rowKeys, long maxSize) {
+    while (rowKeys.size() <= maxSize) {
+      if (!iterator.hasNext()) {
+        return true;
+      }
+      rowKeys.add(iterator.next());
+    }
+    return false;
+  }
+
+  /**
+   * Returns the names of the columns to index in the partitions table for the given indexed fields.
+   *
+   * @throws IllegalArgumentException if an indexed field is not a field of the partitioning
+   */
+  static List<String> getIndexedColumns(Partitioning partitioning, Collection<String> indexedFields) {
+    List<String> columns = new ArrayList<>();
+    Map<String, FieldType> fields = partitioning.getFields();
+    for (String fieldName : indexedFields) {
+      if (!fields.containsKey(fieldName)) {
+        throw new IllegalArgumentException(String.format(
+          "Indexed field '%s' is not a field of the partitioning %s", fieldName, fields.keySet()));
+      }
+      columns.add(Bytes.toString(getColumn(fieldName)));
+    }
+    return columns;
+  }
+}
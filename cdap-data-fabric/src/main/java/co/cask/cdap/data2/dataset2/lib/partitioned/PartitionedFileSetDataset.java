@@ -30,6 +30,7 @@ import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetSpecification;
 import co.cask.cdap.api.dataset.PartitionNotFoundException;
 import co.cask.cdap.api.dataset.lib.AbstractDataset;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
 import co.cask.cdap.api.dataset.lib.DynamicPartitioner;
 import co.cask.cdap.api.dataset.lib.FileSet;
 import co.cask.cdap.api.dataset.lib.FileSetArguments;
@@ -45,9 +46,11 @@ import co.cask.cdap.api.dataset.lib.PartitionMetadata;
 import co.cask.cdap.api.dataset.lib.PartitionOutput;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSet;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSetArguments;
+import co.cask.cdap.api.dataset.lib.PartitionedFileSetProperties;
 import co.cask.cdap.api.dataset.lib.Partitioning;
 import co.cask.cdap.api.dataset.lib.Partitioning.FieldType;
 import co.cask.cdap.api.dataset.lib.partitioned.PartitionKeyCodec;
+import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Put;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
@@ -86,10 +89,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -130,6 +135,13 @@ public class PartitionedFileSetDataset extends AbstractDataset
   private static final byte[] RELATIVE_PATH = { 'p' };
   private static final byte[] METADATA_PREFIX = { 'm', '.' };
 
+  // number of partitions read with one multi-get, when the partitions are looked up by an index
+  private static final int PARTITIONS_PER_GET = 1000;
+  // number of partitions added to Explore with one call. This does not exceed the number of partitions that Explore
+  // adds with a single statement, so that a failed call has not added any of its partitions, and the partitions of
+  // the preceding calls can be recorded as created, to be dropped again if the transaction is rolled back.
+  private static final int PARTITIONS_PER_EXPLORE_CALL = 200;
+
   protected final FileSet files;
   protected final DatasetSpecification spec;
   protected final boolean isExternal;
@@ -137,6 +149,7 @@ public class PartitionedFileSetDataset extends AbstractDataset
   protected final Map<String, String> runtimeArguments;
   protected final Partitioning partitioning;
   private final IndexedTable partitionsTable;
+  private final PartitionIndex partitionIndex;
   private final Provider<ExploreFacade> exploreFacadeProvider;
 
   private final DatasetId datasetInstanceId;
@@ -164,6 +177,9 @@ public class PartitionedFileSetDataset extends AbstractDataset
     this.exploreEnabled = FileSetProperties.isExploreEnabled(spec.getProperties());
     this.runtimeArguments = arguments;
     this.partitioning = partitioning;
+    this.partitionIndex = new PartitionIndex(partitioning,
+                                             PartitionedFileSetProperties.getIndexedFields(spec.getProperties()),
+                                             partitionTable);
     this.exploreFacadeProvider = exploreFacadeProvider;
     this.datasetInstanceId = new DatasetId(datasetContext.getNamespaceId(), name);
   }
@@ -333,6 +349,64 @@ public class PartitionedFileSetDataset extends AbstractDataset
                            boolean allowAppend) {
     byte[] rowKey = generateRowKey(key, partitioning);
     Row row = partitionsTable.get(rowKey);
+    AddPartitionOperation operation = addPartitionRow(key, path, row, metadata, filesCreated, allowAppend);
+    if (operation != null) {
+      addPartitionToExplore(key, path);
+      operation.setExplorePartitionCreated();
+    }
+  }
+
+  @WriteOnly
+  @Override
+  public void addPartitions(Map<PartitionKey, String> partitions, Map<String, String> metadata) {
+    addPartitions(partitions, metadata, false, false);
+  }
+
+  /**
+   * Adds multiple partitions, each with the same metadata. The existing rows of all partitions are read with
+   * batched gets, and the partitions that did not exist yet are added to Explore in batches.
+   *
+   * @param partitions map from partition key to the path of the partition, relative to the file set's base path
+   * @see #addPartition(PartitionKey, String, Map, boolean, boolean)
+   */
+  public void addPartitions(Map<PartitionKey, String> partitions, Map<String, String> metadata, boolean filesCreated,
+                            boolean allowAppend) {
+    List<AddPartitionOperation> createdOperations = new ArrayList<>();
+    for (List<Map.Entry<PartitionKey, String>> batch : Iterables.partition(partitions.entrySet(), PARTITIONS_PER_GET)) {
+      List<Get> gets = new ArrayList<>(batch.size());
+      for (Map.Entry<PartitionKey, String> entry : batch) {
+        gets.add(new Get(generateRowKey(entry.getKey(), partitioning)));
+      }
+      List<Row> rows = partitionsTable.get(gets);
+      for (int i = 0; i < batch.size(); i++) {
+        PartitionKey key = batch.get(i).getKey();
+        String path = batch.get(i).getValue();
+        AddPartitionOperation operation = addPartitionRow(key, path, rows.get(i), metadata, filesCreated, allowAppend);
+        if (operation != null) {
+          createdOperations.add(operation);
+        }
+      }
+    }
+    for (List<AddPartitionOperation> batch : Lists.partition(createdOperations, PARTITIONS_PER_EXPLORE_CALL)) {
+      Map<PartitionKey, String> createdPartitions = new LinkedHashMap<>();
+      for (AddPartitionOperation operation : batch) {
+        createdPartitions.put(operation.getPartitionKey(), operation.getRelativePath());
+      }
+      addPartitionsToExplore(createdPartitions);
+      for (AddPartitionOperation operation : batch) {
+        operation.setExplorePartitionCreated();
+      }
+    }
+  }
+
+  /**
+   * Writes the row of a partition, given the current row of the partition key.
+   *
+   * @return the operation if a new partition was created, or null if appending to an existing partition
+   */
+  @Nullable
+  private AddPartitionOperation addPartitionRow(PartitionKey key, String path, Row row, Map<String, String> metadata,
+                                                boolean filesCreated, boolean allowAppend) {
     boolean appending = !row.isEmpty();
     if (appending && !allowAppend) {
       throw new PartitionAlreadyExistsException(getName(), key);
@@ -351,11 +425,12 @@ public class PartitionedFileSetDataset extends AbstractDataset
     AddPartitionOperation operation = new AddPartitionOperation(key, path, filesCreated);
     operationsInThisTx.add(operation);
 
-    Put put = new Put(rowKey);
+    Put put = new Put(generateRowKey(key, partitioning));
     byte[] nowInMillis = Bytes.toBytes(System.currentTimeMillis());
     if (!appending) {
       put.add(RELATIVE_PATH, Bytes.toBytes(path));
       put.add(CREATION_TIME_COL, nowInMillis);
+      partitionIndex.addToPut(key, put);
     }
     put.add(LAST_MODIFICATION_TIME_COL, nowInMillis);
 
@@ -365,11 +440,7 @@ public class PartitionedFileSetDataset extends AbstractDataset
     put.add(WRITE_PTR_COL, tx.getWritePointer());
 
     partitionsTable.put(put);
-
-    if (!appending) {
-      addPartitionToExplore(key, path);
-      operation.setExplorePartitionCreated();
-    }
+    return appending ? null : operation;
   }
 
   @ReadWrite
@@ -384,12 +455,13 @@ public class PartitionedFileSetDataset extends AbstractDataset
   }
 
   /**
-   * While applying a partition filter and a limit, parse partitions from the rows of a scanner and add them to a list.
+   * While applying a partition filter and a limit, parse partitions from the rows of the given keys and add them to a
+   * list. The rows are read in batches, and the metadata of a partition is only decoded if it is needed.
    * Note that multiple partitions can have the same transaction write pointer. For each set of partitions with the same
    * write pointer, we either add the entire set or exclude the entire set. The limit is applied after adding each such
    * set of partitions to the list.
    *
-   * @param scanner the scanner on the partitions table from which to read partitions
+   * @param rowKeys the keys of the partition rows to read, in the order of their write pointers
    * @param partitions list to add the qualifying partitions to
    * @param limit limit, which once reached, partitions committed by other transactions will not be added.
    *              The limit is checked after adding consuming all partitions of a transaction, so
@@ -399,33 +471,44 @@ public class PartitionedFileSetDataset extends AbstractDataset
    *         can be useful in future scans.
    */
   @Nullable
-  private Long scannerToPartitions(Scanner scanner, List<PartitionDetail> partitions, int limit,
-                                   Predicate<PartitionDetail> predicate) {
+  private Long readPartitions(Iterator<byte[]> rowKeys, List<PartitionDetail> partitions, int limit,
+                              Predicate<PartitionDetail> predicate) {
     Long prevTxId = null;
-    Row row;
-    while ((row = scanner.next()) != null) {
-      PartitionKey key = parseRowKey(row.getRow(), partitioning);
-
-      String relativePath = Bytes.toString(row.get(RELATIVE_PATH));
-      Long txId = Bytes.toLong(row.get(WRITE_PTR_COL));
-
-      // if we are on a partition written by a different transaction, check if we are over the limit
-      // we don't want to do a check on every partition because we want to either add all partitions written
-      // by a transaction or none, since we keep our marker based upon transaction id.
-      if (prevTxId != null && !prevTxId.equals(txId)) {
-        if (partitions.size() >= limit) {
-          return txId;
-        }
+    while (rowKeys.hasNext()) {
+      // read a batch of rows, but not many more than needed to reach the limit
+      long batchSize = Math.max(1L, Math.min(PARTITIONS_PER_GET, (long) limit - partitions.size() + 1));
+      List<Get> gets = new ArrayList<>();
+      while (gets.size() < batchSize && rowKeys.hasNext()) {
+        gets.add(new Get(rowKeys.next()));
       }
-      prevTxId = txId;
 
-      BasicPartitionDetail partitionDetail =
-        new BasicPartitionDetail(PartitionedFileSetDataset.this, relativePath, key, metadataFromRow(row));
+      for (final Row row : partitionsTable.get(gets)) {
+        if (row.isEmpty()) {
+          continue;
+        }
+        PartitionKey key = parseRowKey(row.getRow(), partitioning);
+
+        String relativePath = Bytes.toString(row.get(RELATIVE_PATH));
+        Long txId = Bytes.toLong(row.get(WRITE_PTR_COL));
+
+        // if we are on a partition written by a different transaction, check if we are over the limit
+        // we don't want to do a check on every partition because we want to either add all partitions written
+        // by a transaction or none, since we keep our marker based upon transaction id.
+        if (prevTxId != null && !prevTxId.equals(txId)) {
+          if (partitions.size() >= limit) {
+            return txId;
+          }
+        }
+        prevTxId = txId;
+
+        BasicPartitionDetail partitionDetail =
+          new BasicPartitionDetail(PartitionedFileSetDataset.this, relativePath, key, () -> metadataFromRow(row));
 
-      if (!predicate.apply(partitionDetail)) {
-        continue;
+        if (!predicate.apply(partitionDetail)) {
+          continue;
+        }
+        partitions.add(partitionDetail);
       }
-      partitions.add(partitionDetail);
     }
     return null;
   }
@@ -452,8 +535,9 @@ public class PartitionedFileSetDataset extends AbstractDataset
       if (partitions.size() >= limit) {
         break;
       }
-      try (Scanner scanner = partitionsTable.readByIndex(WRITE_PTR_COL, Bytes.toBytes(txId))) {
-        scannerToPartitions(scanner, partitions, limit, predicate);
+      try (CloseableIterator<byte[]> rowKeys = partitionsTable.readRowKeysByIndex(WRITE_PTR_COL,
+                                                                                  Bytes.toBytes(txId))) {
+        readPartitions(rowKeys, partitions, limit, predicate);
       }
       // remove the txIds as they are added to the partitions list already
       // if they're not removed, they will be persisted in the state for the next scan
@@ -466,10 +550,9 @@ public class PartitionedFileSetDataset extends AbstractDataset
       // no read your own writes (partitions)
       scanUpTo = Math.min(tx.getWritePointer(), tx.getReadPointer() + 1);
       Long endTxId;
-      try (Scanner scanner = partitionsTable.scanByIndex(WRITE_PTR_COL,
-                                                         Bytes.toBytes(partitionConsumerState.getStartVersion()),
-                                                         Bytes.toBytes(scanUpTo))) {
-        endTxId = scannerToPartitions(scanner, partitions, limit, predicate);
+      try (CloseableIterator<byte[]> rowKeys = partitionsTable.scanRowKeysByIndex(
+        WRITE_PTR_COL, Bytes.toBytes(partitionConsumerState.getStartVersion()), Bytes.toBytes(scanUpTo))) {
+        endTxId = readPartitions(rowKeys, partitions, limit, predicate);
       }
       if (endTxId != null) {
         // nonnull means that the scanner was not exhausted
@@ -590,6 +673,24 @@ public class PartitionedFileSetDataset extends AbstractDataset
     }
   }
 
+  private void addPartitionsToExplore(Map<PartitionKey, String> partitions) {
+    if (exploreEnabled && !partitions.isEmpty()) {
+      ExploreFacade exploreFacade = exploreFacadeProvider.get();
+      if (exploreFacade != null) {
+        Map<PartitionKey, String> locations = new LinkedHashMap<>();
+        for (Map.Entry<PartitionKey, String> entry : partitions.entrySet()) {
+          locations.put(entry.getKey(), files.getLocation(entry.getValue()).toURI().getPath());
+        }
+        try {
+          exploreFacade.addPartitions(datasetInstanceId, spec, locations);
+        } catch (Exception e) {
+          throw new DataSetException(String.format(
+            "Unable to add %d partitions to explore table.", partitions.size()), e);
+        }
+      }
+    }
+  }
+
   @WriteOnly
   @Override
   public void dropPartition(PartitionKey key) {
@@ -647,8 +748,9 @@ public class PartitionedFileSetDataset extends AbstractDataset
       throw new PartitionNotFoundException(key, getName());
     }
     try {
-      if (exploreEnabled) {
-        return exploreFacadeProvider.get().concatenatePartition(datasetInstanceId, spec, key);
+      ExploreFacade exploreFacade = exploreEnabled ? exploreFacadeProvider.get() : null;
+      if (exploreFacade != null) {
+        return exploreFacade.concatenatePartition(datasetInstanceId, spec, key);
       } else {
         return Futures.immediateFuture(null);
       }
@@ -658,6 +760,15 @@ public class PartitionedFileSetDataset extends AbstractDataset
     }
   }
 
+  @Override
+  public boolean canConcatenatePartitions() {
+    if (!exploreEnabled) {
+      return false;
+    }
+    ExploreFacade exploreFacade = exploreFacadeProvider.get();
+    return exploreFacade != null && exploreFacade.isExploreEnabled();
+  }
+
   @ReadOnly
   @Override
   public PartitionOutput getPartitionOutput(PartitionKey key) {
@@ -759,7 +870,34 @@ public class PartitionedFileSetDataset extends AbstractDataset
   protected void getPartitions(@Nullable PartitionFilter filter, PartitionConsumer consumer, boolean decodeMetadata) {
     byte[] startKey = generateStartKey(filter);
     byte[] endKey = generateStopKey(filter);
-    getPartitions(filter, consumer, decodeMetadata, startKey, endKey, Long.MAX_VALUE);
+    SortedSet<byte[]> rowKeys = filter == null ? null : partitionIndex.getRowKeys(filter);
+    if (rowKeys == null) {
+      getPartitions(filter, consumer, decodeMetadata, startKey, endKey, Long.MAX_VALUE);
+      return;
+    }
+
+    // the partitions must also be within the row key range of the filter
+    if (startKey != null) {
+      rowKeys = rowKeys.tailSet(startKey);
+    }
+    if (endKey != null) {
+      rowKeys = rowKeys.headSet(endKey);
+    }
+    long count = 0L;
+    for (List<byte[]> batch : Iterables.partition(rowKeys, PARTITIONS_PER_GET)) {
+      List<Get> gets = new ArrayList<>(batch.size());
+      for (byte[] rowKey : batch) {
+        gets.add(new Get(rowKey));
+      }
+      for (Row row : partitionsTable.get(gets)) {
+        if (!row.isEmpty() && consumePartition(row, filter, consumer, decodeMetadata)) {
+          count++;
+        }
+      }
+    }
+    if (count == 0) {
+      warnIfInvalidPartitionFilter(filter, partitioning);
+    }
   }
 
   private void getPartitions(@Nullable PartitionFilter filter, PartitionConsumer consumer, boolean decodeMetadata,
@@ -771,22 +909,9 @@ public class PartitionedFileSetDataset extends AbstractDataset
         if (row == null) {
           break;
         }
-        PartitionKey key;
-        try {
-          key = parseRowKey(row.getRow(), partitioning);
-        } catch (IllegalArgumentException e) {
-          LOG.debug(String.format("Failed to parse row key for partitioned file set '%s': %s",
-                                  getName(), Bytes.toStringBinary(row.getRow())));
-          continue;
+        if (consumePartition(row, filter, consumer, decodeMetadata)) {
+          count++;
         }
-        if (filter != null && !filter.match(key)) {
-          continue;
-        }
-        byte[] pathBytes = row.get(RELATIVE_PATH);
-        if (pathBytes != null) {
-          consumer.consume(key, Bytes.toString(pathBytes), decodeMetadata ? metadataFromRow(row) : null);
-        }
-        count++;
       }
       if (count == 0) {
         warnIfInvalidPartitionFilter(filter, partitioning);
@@ -794,6 +919,31 @@ public class PartitionedFileSetDataset extends AbstractDataset
     }
   }
 
+  /**
+   * Passes the partition of a row to the consumer if the partition matches the filter.
+   *
+   * @return whether the partition of the row matches the filter
+   */
+  private boolean consumePartition(Row row, @Nullable PartitionFilter filter, PartitionConsumer consumer,
+                                   boolean decodeMetadata) {
+    PartitionKey key;
+    try {
+      key = parseRowKey(row.getRow(), partitioning);
+    } catch (IllegalArgumentException e) {
+      LOG.debug(String.format("Failed to parse row key for partitioned file set '%s': %s",
+                              getName(), Bytes.toStringBinary(row.getRow())));
+      return false;
+    }
+    if (filter != null && !filter.match(key)) {
+      return false;
+    }
+    byte[] pathBytes = row.get(RELATIVE_PATH);
+    if (pathBytes != null) {
+      consumer.consume(key, Bytes.toString(pathBytes), decodeMetadata ? metadataFromRow(row) : null);
+    }
+    return true;
+  }
+
   private PartitionMetadata metadataFromRow(Row row) {
     Map<String, String> metadata = new HashMap<>();
     for (Map.Entry<byte[], byte[]> entry : row.getColumns().entrySet()) {
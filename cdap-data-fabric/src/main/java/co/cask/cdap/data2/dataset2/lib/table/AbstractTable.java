@@ -26,12 +26,14 @@ import co.cask.cdap.api.data.batch.SplitReader;
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.dataset.DataSetException;
+import co.cask.cdap.api.dataset.table.Aggregation;
 import co.cask.cdap.api.dataset.table.Delete;
 import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Increment;
 import co.cask.cdap.api.dataset.table.Put;
 import co.cask.cdap.api.dataset.table.Result;
 import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.api.dataset.table.TableProperties;
@@ -191,6 +193,18 @@ public abstract class AbstractTable implements Table, TransactionAware {
     put(put);
   }
 
+  @ReadOnly
+  @Override
+  public List<Long> aggregate(Scan scan, List<Aggregation> aggregations) {
+    return Table.super.aggregate(scan, aggregations);
+  }
+
+  @ReadOnly
+  @Override
+  public NavigableMap<byte[], List<Long>> aggregate(Scan scan, int rowPrefixLength, List<Aggregation> aggregations) {
+    return Table.super.aggregate(scan, rowPrefixLength, aggregations);
+  }
+
   @Override
   public List<Split> getSplits() {
     return getSplits(-1, null, null);
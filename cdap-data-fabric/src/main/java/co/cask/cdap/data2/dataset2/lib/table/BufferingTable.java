@@ -23,9 +23,13 @@ import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.batch.Split;
 import co.cask.cdap.api.dataset.DataSetException;
 import co.cask.cdap.api.dataset.metrics.MeteredDataset;
+import co.cask.cdap.api.dataset.table.Aggregation;
+import co.cask.cdap.api.dataset.table.AsyncTable;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
+import co.cask.cdap.api.dataset.table.Delete;
 import co.cask.cdap.api.dataset.table.Filter;
 import co.cask.cdap.api.dataset.table.Get;
+import co.cask.cdap.api.dataset.table.Put;
 import co.cask.cdap.api.dataset.table.Result;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scan;
@@ -36,7 +40,9 @@ import co.cask.cdap.api.metrics.MetricsCollector;
 import co.cask.cdap.common.conf.Constants;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
 import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.tephra.Transaction;
@@ -53,7 +59,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.annotation.Nullable;
 
 /**
@@ -69,12 +77,14 @@ import javax.annotation.Nullable;
  * <p>
  * This implementation assumes that the table has name and conflicts are resolved on row level.
  * <p>
- * NOTE: this implementation doesn't cache any data in-memory besides changes. I.e. if you do get of same data that is
- *       not in in-memory buffer twice, two times it will try to fetch it from persistent store.
- *       Given the snapshot isolation tx model, this can be improved in future implementations.
+ * NOTE: by default, this implementation doesn't cache any data in-memory besides changes. I.e. if you do get of same
+ *       data that is not in in-memory buffer twice, two times it will try to fetch it from persistent store.
+ *       Set {@link TableReadCache#PROPERTY_SIZE} to cache the rows fetched by gets across transactions.
  * <p>
- * NOTE: current implementation persists changes only at the end of transaction. Beware of OOME. There should be better
- *       implementation for MapReduce case (YMMV though, for counters/aggregations this implementation looks sweet)
+ * NOTE: by default, changes are persisted only at the end of transaction. Beware of OOME. For long transactions, such
+ *       as MapReduce tasks, set {@link #PROPERTY_FLUSH_THRESHOLD} so that changes are persisted as soon as the buffer
+ *       reaches a certain size. Persisted changes are written with the transaction's write pointer, hence they stay
+ *       invisible to other transactions until commit, and are undone on rollback like changes persisted at commit.
  * <p>
  * NOTE: Using {@link #get(byte[], byte[], byte[], int)} is generally always not efficient since it always hits the
  *       persisted store even if all needed data is in-memory buffer. See more info at method javadoc
@@ -86,6 +96,22 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   protected static final byte[] DELETE_MARKER = new byte[0];
 
+  /**
+   * Dataset property for the type of the in-memory buffer of changes. Setting it to {@code compact} keeps the changes
+   * in a compact sorted array, which uses less memory and fewer allocations for transactions with many writes.
+   * By default the changes are kept in a sorted map.
+   */
+  public static final String PROPERTY_WRITE_BUFFER = "dataset.table.write.buffer";
+
+  /**
+   * Dataset property for the approximate size in bytes of the buffered changes at which they are persisted before the
+   * transaction commits. By default, or if the value is not positive, changes are only persisted at commit.
+   */
+  public static final String PROPERTY_FLUSH_THRESHOLD = "dataset.table.write.buffer.flush.bytes";
+
+  // Placeholder for put changes that were flushed, we only need to know the columns to undo them
+  private static final Update FLUSHED_PUT = new PutValue(null);
+
   // name of the table
   private final String name;
   // conflict detection level
@@ -94,17 +120,32 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   private final byte[] nameAsTxChangePrefix;
   // Whether read-less increments should be used when increment() is called
   private final boolean enableReadlessIncrements;
+  // Size of buffered changes at which they are persisted before commit, or zero to persist only at commit
+  private final long flushThreshold;
 
   // In-memory buffer that keeps not yet persisted data. It is row->(column->value) map. Value can be null which means
   // that the corresponded column was removed.
-  private NavigableMap<byte[], NavigableMap<byte[], Update>> buff;
+  private TableWriteBuffer buff;
 
-  // Keeps track of what was persisted so far
+  // Keeps track of what was persisted so far. When changes are flushed before commit, it only keeps the columns and
+  // the total amount of flushed increments, not the values.
   private NavigableMap<byte[], NavigableMap<byte[], Update>> toUndo;
 
+  // Approximate size of data written to the buffer since it was last flushed
+  private long bufferedBytes;
+
+  // Properties to look up the read cache, which is replaced when the table is dropped
+  private final Map<String, String> readCacheProperties;
+  // Cache of persisted rows shared by the instances of this table, or null if not enabled
+  private TableReadCache readCache;
+  // View of the read cache for the current transaction
+  private TableReadCache.View readCacheView;
+
   // Report data ops metrics to
   private MetricsCollector metricsCollector;
 
+  private final AsyncTable asyncTable = new BufferingAsyncTable();
+
   // the current transaction
   protected Transaction tx;
 
@@ -150,7 +191,22 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // we want it to be of format length+value to avoid conflicts like table="ab", row="cd" vs table="abc", row="d"
     // Default uses the above scheme. Subclasses can change it by overriding the #getNameAsTxChangePrefix method
     this.nameAsTxChangePrefix = Bytes.add(new byte[]{(byte) name.length()}, Bytes.toBytes(name));
-    this.buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+    this.buff = createWriteBuffer(properties);
+    this.flushThreshold = Math.max(0L, Long.parseLong(properties.containsKey(PROPERTY_FLUSH_THRESHOLD)
+                                                        ? properties.get(PROPERTY_FLUSH_THRESHOLD) : "0"));
+    this.readCacheProperties = properties;
+    this.readCache = TableReadCache.get(name, properties);
+  }
+
+  private static TableWriteBuffer createWriteBuffer(Map<String, String> properties) {
+    String type = properties.get(PROPERTY_WRITE_BUFFER);
+    if (type == null || "default".equalsIgnoreCase(type)) {
+      return new NavigableMapWriteBuffer();
+    }
+    if ("compact".equalsIgnoreCase(type)) {
+      return new CompactWriteBuffer();
+    }
+    throw new IllegalArgumentException("Unsupported value '" + type + "' for property " + PROPERTY_WRITE_BUFFER);
   }
 
   /**
@@ -233,6 +289,68 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
    */
   protected abstract Scanner scanPersisted(Scan scan) throws Exception;
 
+  /**
+   * Computes aggregations over the rows of a {@link Scan} in the persistent store, if the store supports computing
+   * them without returning all the rows to the client. Only called if no changes are buffered for the scanned rows.
+   * @param scan scan configuration
+   * @param rowPrefixLength the length of the row key prefix to group rows by
+   * @param aggregations the aggregations to compute
+   * @return the aggregated values by group, or {@code null} if the store cannot compute the aggregations
+   * @throws Exception
+   */
+  @Nullable
+  protected NavigableMap<byte[], List<Long>> aggregatePersisted(Scan scan, int rowPrefixLength,
+                                                                List<Aggregation> aggregations) throws Exception {
+    return null;
+  }
+
+  /**
+   * Fetches a list of rows from persistent store without blocking the calling thread. Implementations must capture
+   * the state of the current transaction before returning, as the transaction may change before the returned future
+   * is completed. The default implementation performs the reads in the calling thread.
+   * @param gets list of gets to perform
+   * @return future of the list of rows, one for each get
+   */
+  protected CompletableFuture<List<Map<byte[], byte[]>>> getPersistedAsync(List<Get> gets) {
+    return completed(() -> getPersisted(gets));
+  }
+
+  /**
+   * Scans a batch of rows from persistent store without blocking the calling thread. Implementations must capture
+   * the state of the current transaction before returning, as the transaction may change before the returned future
+   * is completed. The default implementation performs the scan in the calling thread.
+   * @param scan scan configuration
+   * @param limit maximum number of rows to return
+   * @return future of the rows that have at least one column, fewer than the limit only if the scan has no more rows
+   */
+  protected CompletableFuture<List<Row>> scanPersistedAsync(Scan scan, int limit) {
+    return completed(() -> {
+      List<Row> rows = new ArrayList<>();
+      try (Scanner scanner = scanPersisted(scan)) {
+        Row row;
+        while (rows.size() < limit && (row = scanner.next()) != null) {
+          if (!row.isEmpty()) {
+            rows.add(row);
+          }
+        }
+      }
+      return rows;
+    });
+  }
+
+  /**
+   * Returns a future completed with the result of the given callable, or failed with its exception.
+   */
+  protected static <T> CompletableFuture<T> completed(Callable<T> callable) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      future.complete(callable.call());
+    } catch (Throwable t) {
+      future.completeExceptionally(t);
+    }
+    return future;
+  }
+
   /**
    * Fetches a list of rows from persistent store. Subclasses should override this if they can batch multiple
    * gets into a single request, as the default implementation simply loops through the gets and calls
@@ -252,6 +370,73 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     return results;
   }
 
+  /**
+   * Fetches column->value pairs for set of columns from the read cache if possible, otherwise from persistent store.
+   * Must only be used for reads that can tolerate the staleness allowed by the read cache, not to read values that
+   * are then changed by the transaction.
+   */
+  private NavigableMap<byte[], byte[]> getPersistedCached(byte[] row, @Nullable byte[][] columns) throws Exception {
+    TableReadCache.View view = getReadCacheView();
+    if (view == null) {
+      return getPersisted(row, columns);
+    }
+    NavigableMap<byte[], byte[]> result = view.get(row, columns);
+    if (result != null) {
+      reportCacheAccess(1, 0);
+      return result;
+    }
+    result = getPersisted(row, columns);
+    view.put(row, columns, result);
+    reportCacheAccess(0, 1);
+    return result;
+  }
+
+  /**
+   * Fetches a list of rows from the read cache if possible, and the rows that are not cached from persistent store.
+   */
+  private List<Map<byte[], byte[]>> getPersistedCached(List<Get> gets) throws Exception {
+    TableReadCache.View view = getReadCacheView();
+    if (view == null) {
+      return getPersisted(gets);
+    }
+    List<Map<byte[], byte[]>> results = new ArrayList<>(gets.size());
+    List<Get> misses = new ArrayList<>();
+    List<Integer> missIndexes = new ArrayList<>();
+    for (Get get : gets) {
+      NavigableMap<byte[], byte[]> cached = view.get(get.getRow(), getColumns(get));
+      if (cached == null) {
+        misses.add(get);
+        missIndexes.add(results.size());
+      }
+      results.add(cached);
+    }
+    if (!misses.isEmpty()) {
+      List<Map<byte[], byte[]>> persisted = getPersisted(misses);
+      for (int i = 0; i < misses.size(); i++) {
+        Get get = misses.get(i);
+        view.put(get.getRow(), getColumns(get), persisted.get(i));
+        results.set(missIndexes.get(i), persisted.get(i));
+      }
+    }
+    reportCacheAccess(gets.size() - misses.size(), misses.size());
+    return results;
+  }
+
+  @Nullable
+  private static byte[][] getColumns(Get get) {
+    List<byte[]> columns = get.getColumns();
+    return columns == null ? null : columns.toArray(new byte[columns.size()][]);
+  }
+
+  /**
+   * Returns the view of the read cache for the current transaction, or {@code null} if it cannot be used.
+   */
+  @Nullable
+  private TableReadCache.View getReadCacheView() {
+    // changes persisted by the transaction are only visible to itself, hence rows read after that must not be cached
+    return toUndo == null ? readCacheView : null;
+  }
+
   @Override
   public void setMetricsCollector(MetricsCollector metricsCollector) {
     this.metricsCollector = metricsCollector;
@@ -273,8 +458,11 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     }
     // starting with fresh buffer when tx starts
     buff.clear();
+    bufferedBytes = 0L;
     toUndo = null;
     this.tx = tx;
+    readCache = readCache == null ? null : TableReadCache.get(name, readCacheProperties);
+    readCacheView = readCache == null ? null : readCache.getView(tx);
   }
 
   @Override
@@ -308,44 +496,84 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   private Collection<byte[]> getRowChanges() {
     // we resolve conflicts on row level of individual table
-    List<byte[]> changes = new ArrayList<>(buff.size());
-    for (byte[] changedRow : buff.keySet()) {
-      changes.add(Bytes.add(getNameAsTxChangePrefix(), changedRow));
+    List<byte[]> changes = new ArrayList<>();
+    // rows flushed before commit are no longer in the buffer
+    NavigableMap<byte[], NavigableMap<byte[], Update>> flushed = getFlushedChanges();
+    if (flushed != null) {
+      for (byte[] changedRow : flushed.keySet()) {
+        changes.add(Bytes.add(getNameAsTxChangePrefix(), changedRow));
+      }
+    }
+    Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows = buff.rows(null, null);
+    while (rows.hasNext()) {
+      byte[] changedRow = rows.next().getKey();
+      if (flushed == null || !flushed.containsKey(changedRow)) {
+        changes.add(Bytes.add(getNameAsTxChangePrefix(), changedRow));
+      }
     }
     return changes;
   }
 
   private Collection<byte[]> getColumnChanges() {
     // we resolve conflicts on row level of individual table
-    List<byte[]> changes = new ArrayList<>(buff.size());
-    for (Map.Entry<byte[], NavigableMap<byte[], Update>> rowChange : buff.entrySet()) {
+    List<byte[]> changes = new ArrayList<>();
+    // columns flushed before commit are no longer in the buffer
+    NavigableMap<byte[], NavigableMap<byte[], Update>> flushed = getFlushedChanges();
+    if (flushed != null) {
+      for (Map.Entry<byte[], NavigableMap<byte[], Update>> rowChange : flushed.entrySet()) {
+        addColumnChanges(changes, rowChange.getKey(), rowChange.getValue(), null);
+      }
+    }
+    Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows = buff.rows(null, null);
+    while (rows.hasNext()) {
+      Map.Entry<byte[], NavigableMap<byte[], Update>> rowChange = rows.next();
       if (rowChange.getValue() == null) {
         // NOTE: as of now we cannot detect conflict between delete whole row and row's column value change.
         //       this is not a big problem as of now, as row deletion is now act as deletion of every column, but this
         //       will change in future, so we will have to address the issue.
         continue;
       }
+      addColumnChanges(changes, rowChange.getKey(), rowChange.getValue(),
+                       flushed == null ? null : flushed.get(rowChange.getKey()));
+    }
+    return changes;
+  }
 
-      // using length + value format to prevent conflicts like row="ab", column="cd" vs row="abc", column="d"
-      byte[] rowTxChange = Bytes.add(Bytes.toBytes(rowChange.getKey().length), rowChange.getKey());
+  private void addColumnChanges(List<byte[]> changes, byte[] row, NavigableMap<byte[], Update> columns,
+                                @Nullable NavigableMap<byte[], Update> skipColumns) {
+    // using length + value format to prevent conflicts like row="ab", column="cd" vs row="abc", column="d"
+    byte[] rowTxChange = Bytes.add(Bytes.toBytes(row.length), row);
 
-      for (byte[] column : rowChange.getValue().keySet()) {
+    for (byte[] column : columns.keySet()) {
+      if (skipColumns == null || !skipColumns.containsKey(column)) {
         changes.add(Bytes.add(getNameAsTxChangePrefix(), rowTxChange, column));
       }
     }
-    return changes;
+  }
+
+  /**
+   * Returns the changes flushed before commit in the current transaction, or {@code null} if there are none.
+   */
+  @Nullable
+  private NavigableMap<byte[], NavigableMap<byte[], Update>> getFlushedChanges() {
+    // toUndo is only set before commit if changes were flushed
+    return flushThreshold > 0 ? toUndo : null;
   }
 
   @Override
   public boolean commitTx() throws Exception {
+    if (flushThreshold > 0) {
+      if (!buff.isEmpty()) {
+        flush();
+      }
+      return true;
+    }
     if (!buff.isEmpty()) {
+      validateCachedReads();
       // We first assume that all data will be persisted. So that if exception happen during persist we try to
       // rollback everything we had in in-memory buffer.
-      toUndo = buff;
-      // clearing up in-memory buffer by initializing new map.
-      // NOTE: we want to init map here so that if no changes are made we re-use same instance of the map in next tx
-      // NOTE: we could cache two maps and swap them to avoid creation of map instances, but code would be ugly
-      buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+      // draining also clears up in-memory buffer
+      toUndo = buff.drain();
       // TODO: tracking of persisted items can be optimized by returning a pair {succeededOrNot, persisted} which
       //       tells if persisting succeeded and what was persisted (i.e. what we will have to undo in case of rollback)
       persist(toUndo);
@@ -353,22 +581,121 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     return true;
   }
 
+  /**
+   * Persists the buffered changes before commit, and keeps track of the persisted columns to undo them on rollback.
+   */
+  private void flush() throws Exception {
+    if (toUndo == null) {
+      validateCachedReads();
+    }
+    NavigableMap<byte[], NavigableMap<byte[], Update>> changes = buff.drain();
+    bufferedBytes = 0L;
+    if (toUndo == null) {
+      toUndo = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    }
+
+    // Changes are persisted with the same version as the changes flushed earlier, hence they replace those. This is
+    // fine for puts, but readless increments have to be merged with the previous change of the same column.
+    // As for commit, we track what will be persisted first, so that a failed persist can be undone.
+    for (Map.Entry<byte[], NavigableMap<byte[], Update>> row : changes.entrySet()) {
+      NavigableMap<byte[], Update> flushedColumns = toUndo.get(row.getKey());
+      if (flushedColumns == null) {
+        flushedColumns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        toUndo.put(row.getKey(), flushedColumns);
+      }
+      for (Map.Entry<byte[], Update> column : row.getValue().entrySet()) {
+        Update update = column.getValue();
+        if (!(update instanceof IncrementValue)) {
+          flushedColumns.put(column.getKey(), FLUSHED_PUT);
+          continue;
+        }
+        Update flushed = flushedColumns.get(column.getKey());
+        long amount = ((IncrementValue) update).getValue();
+        if (flushed instanceof IncrementValue) {
+          update = new IncrementValue(((IncrementValue) flushed).getValue() + amount);
+          flushedColumns.put(column.getKey(), update);
+        } else if (flushed != null) {
+          // a flushed put is visible to this transaction, hence we can read it to apply the increment
+          byte[] value = getPersisted(row.getKey(), new byte[][] { column.getKey() }).get(column.getKey());
+          if (value != null && value.length != Bytes.SIZEOF_LONG) {
+            throw new NumberFormatException("Attempted to increment a value that is not convertible to long," +
+                                              " row: " + Bytes.toStringBinary(row.getKey()) +
+                                              " column: " + Bytes.toStringBinary(column.getKey()));
+          }
+          update = new PutValue(Bytes.toBytes((value == null ? 0L : Bytes.toLong(value)) + amount));
+        } else {
+          flushedColumns.put(column.getKey(), update);
+        }
+        column.setValue(update);
+      }
+    }
+    persist(changes);
+  }
+
+  /**
+   * Flushes the buffered changes if their size reached the flush threshold.
+   */
+  private void flushIfNeeded(long writtenBytes) {
+    if (flushThreshold <= 0) {
+      return;
+    }
+    bufferedBytes += writtenBytes;
+    if (bufferedBytes < flushThreshold) {
+      return;
+    }
+    try {
+      flush();
+    } catch (Exception e) {
+      LOG.debug("flush failed for table: " + getTransactionAwareName(), e);
+      throw new DataSetException("flush failed", e);
+    }
+  }
+
+  /**
+   * Verifies that the rows returned from the read cache to the transaction are still current, before the transaction
+   * persists changes to this table that may be derived from them. Must be called before any change of the transaction
+   * is persisted. Changes to other tables are not covered, see {@link TableReadCache}.
+   */
+  private void validateCachedReads() throws Exception {
+    if (readCacheView == null) {
+      return;
+    }
+    for (TableReadCache.CachedRead read : readCacheView.getCachedReads()) {
+      if (!read.matches(getPersisted(read.getRow(), read.getColumns()))) {
+        // a commit from another process changed the row after it was cached
+        readCache.invalidate(read.getRow());
+        throw new DataSetException("Row " + Bytes.toStringBinary(read.getRow()) + " of table " +
+                                     getTransactionAwareName() + " changed since it was read from the cache");
+      }
+    }
+  }
+
   @Override
   public void postTxCommit() {
+    if (readCacheView != null) {
+      readCacheView.publish(toUndo == null ? Collections.<byte[]>emptySet() : toUndo.navigableKeySet());
+      if (toUndo != null) {
+        readCache.committed(tx, toUndo.keySet());
+      }
+    }
     // don't need buffer anymore: tx has been committed
     buff.clear();
+    bufferedBytes = 0L;
     toUndo = null;
     tx = null;
+    readCacheView = null;
   }
 
   @Override
   public boolean rollbackTx() throws Exception {
     buff.clear();
+    bufferedBytes = 0L;
     if (toUndo != null) {
       undo(toUndo);
       toUndo = null;
     }
     tx = null;
+    readCacheView = null;
     return true;
   }
 
@@ -389,7 +716,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     ensureTransactionIsStarted();
     reportRead(1);
     try {
-      return new Result(row, getRowMap(row));
+      return new Result(row, getRowMap(row, true));
     } catch (Exception e) {
       LOG.debug("get failed for table: " + getTransactionAwareName() + ", row: " + Bytes.toStringBinary(row), e);
       throw new DataSetException("get failed", e);
@@ -402,7 +729,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     ensureTransactionIsStarted();
     reportRead(1);
     try {
-      return new Result(row, getRowMap(row, columns));
+      return new Result(row, getRowMap(row, columns, true));
     } catch (Exception e) {
       LOG.debug("get failed for table: " + getTransactionAwareName() + ", row: " + Bytes.toStringBinary(row), e);
       throw new DataSetException("get failed", e);
@@ -415,7 +742,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     ensureTransactionIsStarted();
     reportRead(1);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
+    NavigableMap<byte[], Update> buffCols = buff.getRow(row);
 
     // NOTE: since we cannot tell the exact column set, we always have to go to persisted store.
     //       potential improvement: do not fetch columns available in in-mem buffer (we know them at this point)
@@ -448,7 +775,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     ensureTransactionIsStarted();
     try {
       // get persisted, then overwrite with whats buffered
-      List<Map<byte[], byte[]>> persistedRows = getPersisted(gets);
+      List<Map<byte[], byte[]>> persistedRows = getPersistedCached(gets);
       // gets and rows lists are always of the same size
       Preconditions.checkArgument(gets.size() == persistedRows.size(),
         "Invalid number of rows fetched when performing multi-get. There must be one row for each get.");
@@ -467,7 +794,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
         rowColumns.putAll(persistedRow);
 
         byte[] row = get.getRow();
-        NavigableMap<byte[], Update> buffCols = buff.get(row);
+        NavigableMap<byte[], Update> buffCols = buff.getRow(row);
 
         // merge what was in the buffer and what was persisted
         if (buffCols != null) {
@@ -500,24 +827,14 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   }
 
   private void putInternal(byte[] row, byte[][] columns, byte[][] values) {
-    NavigableMap<byte[], Update> colVals = buff.get(row);
-    boolean newRow = false;
-    if (colVals == null) {
-      colVals = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      newRow = true;
-    }
     for (int i = 0; i < columns.length; i++) {
-      // NOTE: we copy passed column's and value's byte arrays to protect buffer against possible changes of these
-      // arrays on client
       if (values[i] != null && values[i].length == 0) {
         warnAboutEmptyValue(columns[i]);
       }
-      colVals.put(copy(columns[i]), new PutValue(copy(values[i])));
-    }
-    if (newRow) {
-      // NOTE: we copy passed row's byte arrays to protect buffer against possible changes of this array on client
-      buff.put(copy(row), colVals);
     }
+    // NOTE: the buffer copies passed byte arrays to protect itself against possible changes of these arrays on client
+    buff.put(row, columns, values);
+    flushIfNeeded(getSize(row) + getSize(columns) + getSize(values));
   }
 
   /**
@@ -530,7 +847,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     ensureTransactionIsStarted();
     // this is going to be expensive, but the only we can do as delete implementation act on per-column level
     try {
-      Map<byte[], byte[]> rowMap = getRowMap(row);
+      Map<byte[], byte[]> rowMap = getRowMap(row, false);
       delete(row, rowMap.keySet().toArray(new byte[rowMap.keySet().size()][]));
       // "0" because we don't know what gets deleted
       reportWrite(1, 0);
@@ -578,7 +895,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // NOTE: there is more efficient way to do it, but for now we want more simple implementation, not over-optimizing
     Map<byte[], byte[]> rowMap;
     try {
-      rowMap = getRowMap(row, columns);
+      rowMap = getRowMap(row, columns, false);
       reportRead(1);
     } catch (Exception e) {
       LOG.debug("incrementAndGet failed for table: " + getTransactionAwareName() +
@@ -620,14 +937,8 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   public void increment(byte[] row, byte[][] columns, long[] amounts) {
     ensureTransactionIsStarted();
     if (enableReadlessIncrements) {
-      NavigableMap<byte[], Update> colVals = buff.get(row);
-      if (colVals == null) {
-        colVals = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-        buff.put(row, colVals);
-      }
-      for (int i = 0; i < columns.length; i++) {
-        colVals.put(columns[i], Updates.mergeUpdates(colVals.get(columns[i]), new IncrementValue(amounts[i])));
-      }
+      buff.increment(row, columns, amounts);
+      flushIfNeeded(getSize(row) + getSize(columns) + getSize(amounts));
       reportWrite(1, getSize(row) + getSize(columns) + getSize(amounts));
     } else {
       internalIncrementAndGet(row, columns, amounts);
@@ -645,7 +956,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // NOTE: there is more efficient way to do it, but for now we want more simple implementation, not over-optimizing
     byte[][] columns = new byte[][]{column};
     try {
-      byte[] currentValue = getRowMap(row, columns).get(column);
+      byte[] currentValue = getRowMap(row, columns, false).get(column);
       reportRead(1);
       if (Arrays.equals(expectedValue, currentValue)) {
         putInternal(row, columns, new byte[][]{newValue});
@@ -695,9 +1006,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   @Override
   public Scanner scan(Scan scan) {
     ensureTransactionIsStarted();
-    NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap = scanBuffer(scan);
+    Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> bufferRows = scanBuffer(scan);
     try {
-      return new BufferingScanner(bufferMap, scanPersisted(scan));
+      return new BufferingScanner(bufferRows, scanPersisted(scan));
     } catch (Exception e) {
       LOG.debug("scan failed for table: " + getTransactionAwareName() +
           ", scan: " + scan.toString(), e);
@@ -705,55 +1016,62 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     }
   }
 
-  private NavigableMap<byte[], NavigableMap<byte[], Update>> scanBuffer(Scan scan) {
-    NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap;
-    byte[] startRow = scan.getStartRow();
-    byte[] stopRow = scan.getStopRow();
-    if (startRow == null && stopRow == null) {
-      bufferMap = buff;
-    } else if (startRow == null) {
-      bufferMap = buff.headMap(stopRow, false);
-    } else if (stopRow == null) {
-      bufferMap = buff.tailMap(startRow, true);
-    } else {
-      bufferMap = buff.subMap(startRow, true, stopRow, false);
+  @ReadOnly
+  @Override
+  public NavigableMap<byte[], List<Long>> aggregate(Scan scan, int rowPrefixLength, List<Aggregation> aggregations) {
+    ensureTransactionIsStarted();
+    // aggregations can only be delegated to the persistent store if they are not affected by buffered changes
+    if (!scanBuffer(scan).hasNext()) {
+      try {
+        NavigableMap<byte[], List<Long>> result = aggregatePersisted(scan, rowPrefixLength, aggregations);
+        if (result != null) {
+          return result;
+        }
+      } catch (Exception e) {
+        LOG.debug("aggregate failed for table: " + getTransactionAwareName() + ", scan: " + scan.toString(), e);
+        throw new DataSetException("aggregate failed", e);
+      }
     }
-    bufferMap = applyFilter(bufferMap, scan.getFilter());
-    return bufferMap;
+    return super.aggregate(scan, rowPrefixLength, aggregations);
+  }
+
+  @Override
+  public AsyncTable async() {
+    return asyncTable;
   }
 
-  private NavigableMap<byte[], NavigableMap<byte[], Update>> applyFilter(
-                                                        NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap,
-                                                        @Nullable Filter filter) {
+  private Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> scanBuffer(Scan scan) {
+    Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> bufferRows = buff.rows(scan.getStartRow(),
+                                                                                     scan.getStopRow());
+    return applyFilter(bufferRows, scan.getFilter());
+  }
+
+  private Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> applyFilter(
+                                                  Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> bufferRows,
+                                                  @Nullable Filter filter) {
     if (filter == null) {
-      return bufferMap;
+      return bufferRows;
     }
 
     // todo: currently we support only FuzzyRowFilter as an experimental feature
     if (filter instanceof FuzzyRowFilter) {
-      NavigableMap<byte[], NavigableMap<byte[], Update>> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      for (Map.Entry<byte[], NavigableMap<byte[], Update>> entry : bufferMap.entrySet()) {
-        if (FuzzyRowFilter.ReturnCode.INCLUDE == ((FuzzyRowFilter) filter).filterRow(entry.getKey())) {
-          result.put(entry.getKey(), entry.getValue());
+      final FuzzyRowFilter fuzzyRowFilter = (FuzzyRowFilter) filter;
+      return Iterators.filter(bufferRows, new Predicate<Map.Entry<byte[], NavigableMap<byte[], Update>>>() {
+        @Override
+        public boolean apply(Map.Entry<byte[], NavigableMap<byte[], Update>> entry) {
+          return FuzzyRowFilter.ReturnCode.INCLUDE == fuzzyRowFilter.filterRow(entry.getKey());
         }
-      }
-      return result;
+      });
     } else {
       throw new DataSetException("Unknown filter type: " + filter);
     }
   }
 
-  private Map<byte[], byte[]> getRowMap(byte[] row) throws Exception {
+  private Map<byte[], byte[]> getRowMap(byte[] row, boolean useReadCache) throws Exception {
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
-    boolean rowDeleted = buffCols == null && buff.containsKey(row);
-    if (rowDeleted) {
-      return Collections.emptyMap();
-    }
-
-    Map<byte[], byte[]> persisted = getPersisted(row, null);
-
+    NavigableMap<byte[], Update> buffCols = buff.getRow(row);
+    Map<byte[], byte[]> persisted = useReadCache ? getPersistedCached(row, null) : getPersisted(row, null);
 
     result.putAll(persisted);
     if (buffCols != null) {
@@ -764,14 +1082,14 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     return unwrapDeletes(result);
   }
 
-  private Map<byte[], byte[]> getRowMap(byte[] row, byte[][] columns) throws Exception {
+  private Map<byte[], byte[]> getRowMap(byte[] row, byte[][] columns, boolean useReadCache) throws Exception {
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
+    NavigableMap<byte[], Update> buffCols = buff.getRow(row);
 
     // if nothing locally, return all from server
     if (buffCols == null) {
-      return getPersisted(row, columns);
+      return useReadCache ? getPersistedCached(row, columns) : getPersisted(row, columns);
     }
 
     // otherwise try to fetch data from in-memory buffer. If not all present - fetch leftover from persisted
@@ -792,8 +1110,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
     // fetching from server those that were not found in in-mem buffer
     if (colsToFetchFromPersisted.size() > 0) {
-      Map<byte[], byte[]> persistedCols =
-        getPersisted(row, colsToFetchFromPersisted.toArray(new byte[colsToFetchFromPersisted.size()][]));
+      byte[][] persistedColumns = colsToFetchFromPersisted.toArray(new byte[colsToFetchFromPersisted.size()][]);
+      Map<byte[], byte[]> persistedCols = useReadCache
+        ? getPersistedCached(row, persistedColumns) : getPersisted(row, persistedColumns);
       if (persistedCols != null) {
         result.putAll(persistedCols);
       }
@@ -929,6 +1248,14 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     }
   }
 
+  private void reportCacheAccess(int hits, int misses) {
+    if (metricsCollector != null) {
+      metricsCollector.increment(Constants.Metrics.Name.Dataset.CACHE_HIT_COUNT, hits);
+      metricsCollector.increment(Constants.Metrics.Name.Dataset.CACHE_MISS_COUNT, misses);
+      metricsCollector.increment(Constants.Metrics.Name.Dataset.CACHE_EVICTION_COUNT, readCache.drainEvictions());
+    }
+  }
+
   private void reportRead(int numOps) {
     if (metricsCollector != null) {
       // todo: report amount of data being read
@@ -962,11 +1289,11 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   // they get annotated
 
   @ReadOnly
-  private Iterator<byte[]> getBufferKeyIterator(NavigableMap<byte[], NavigableMap<byte[], Update>> buffer) {
-    final Iterator<byte[]> iterator = buffer.keySet().iterator();
-    return new AbstractIterator<byte[]>() {
+  private Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> getBufferRowIterator(
+    final Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> iterator) {
+    return new AbstractIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>>() {
       @Override
-      protected byte[] computeNext() {
+      protected Map.Entry<byte[], NavigableMap<byte[], Update>> computeNext() {
         return BufferingTable.this.hasNext(iterator) ? BufferingTable.this.next(iterator) : endOfData();
       }
     };
@@ -982,28 +1309,159 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     return iterator.next();
   }
 
-  @ReadOnly
-  private NavigableMap<byte[], Update> getFromBuffer(NavigableMap<byte[], NavigableMap<byte[], Update>> buffer,
-                                                     byte[] key) {
-    return buffer.get(key);
+  /**
+   * {@link AsyncTable} that captures the buffered changes of the rows it reads when called, and overlays them on the
+   * rows read from persistent store once these are available.
+   */
+  private final class BufferingAsyncTable implements AsyncTable {
+
+    @Override
+    public CompletableFuture<Row> get(Get get) {
+      return get(Collections.singletonList(get)).thenApply(rows -> rows.get(0));
+    }
+
+    @Override
+    public CompletableFuture<List<Row>> get(List<Get> gets) {
+      ensureTransactionIsStarted();
+      reportRead(gets.size());
+      // the buffer may change before the persisted rows are read, hence the buffered changes must be copied now
+      List<NavigableMap<byte[], Update>> buffered = new ArrayList<>(gets.size());
+      for (Get get : gets) {
+        NavigableMap<byte[], Update> buffCols = buff.getRow(get.getRow());
+        buffered.add(buffCols == null ? null : copyRow(buffCols));
+      }
+      return getPersistedAsync(gets).handle((persistedRows, failure) -> {
+        if (failure != null) {
+          LOG.debug("async multi-get failed for table: " + getTransactionAwareName(), failure);
+          throw new DataSetException("multi-get failed", unwrap(failure));
+        }
+        Preconditions.checkArgument(gets.size() == persistedRows.size(),
+          "Invalid number of rows fetched when performing multi-get. There must be one row for each get.");
+        List<Row> result = new ArrayList<>(gets.size());
+        for (int i = 0; i < gets.size(); i++) {
+          NavigableMap<byte[], byte[]> rowColumns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+          rowColumns.putAll(persistedRows.get(i));
+          if (buffered.get(i) != null) {
+            mergeToPersisted(rowColumns, buffered.get(i), getColumns(gets.get(i)));
+          }
+          result.add(new Result(gets.get(i).getRow(), unwrapDeletes(rowColumns)));
+        }
+        return result;
+      });
+    }
+
+    @Override
+    public CompletableFuture<List<Row>> scan(Scan scan, int limit) {
+      Preconditions.checkArgument(limit > 0, "Limit must be positive, but is %s", limit);
+      ensureTransactionIsStarted();
+      // the buffer may change before the persisted rows are read, hence the buffered changes must be copied now
+      List<Map.Entry<byte[], NavigableMap<byte[], Update>>> bufferRows = new ArrayList<>();
+      Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> bufferIter = scanBuffer(scan);
+      while (bufferIter.hasNext()) {
+        Map.Entry<byte[], NavigableMap<byte[], Update>> entry = bufferIter.next();
+        bufferRows.add(Maps.immutableEntry(copy(entry.getKey()), copyRow(entry.getValue())));
+      }
+      // every buffered row hides at most one persisted row
+      int persistedLimit = (int) Math.min(Integer.MAX_VALUE, (long) limit + bufferRows.size());
+      return scanPersistedAsync(scan, persistedLimit).handle((persistedRows, failure) -> {
+        if (failure != null) {
+          LOG.debug("async scan failed for table: " + getTransactionAwareName() + ", scan: " + scan, failure);
+          throw new DataSetException("scan failed", unwrap(failure));
+        }
+        List<Row> result = mergeRows(bufferRows, persistedRows, persistedRows.size() >= persistedLimit, limit);
+        reportRead(result.size());
+        return result;
+      });
+    }
+
+    @Override
+    public CompletableFuture<Void> put(Put put) {
+      return completed(() -> {
+        BufferingTable.this.put(put);
+        return null;
+      });
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(Delete delete) {
+      return completed(() -> {
+        BufferingTable.this.delete(delete);
+        return null;
+      });
+    }
+  }
+
+  /**
+   * Overlays buffered rows on persisted rows, both in row key order, skipping the rows without columns.
+   *
+   * @param persistedCutOff whether there may be more persisted rows after the last given one. If so, the buffered rows
+   *                        after the last persisted row are not returned, since they cannot be ordered yet
+   */
+  private static List<Row> mergeRows(List<Map.Entry<byte[], NavigableMap<byte[], Update>>> bufferRows,
+                                     List<Row> persistedRows, boolean persistedCutOff, int limit) {
+    byte[] lastPersisted = persistedCutOff ? persistedRows.get(persistedRows.size() - 1).getRow() : null;
+    List<Row> result = new ArrayList<>();
+    int bufferIndex = 0;
+    int persistedIndex = 0;
+    while (result.size() < limit && (bufferIndex < bufferRows.size() || persistedIndex < persistedRows.size())) {
+      int order;
+      if (bufferIndex == bufferRows.size()) {
+        order = 1;
+      } else if (persistedIndex == persistedRows.size()) {
+        order = -1;
+      } else {
+        order = Bytes.compareTo(bufferRows.get(bufferIndex).getKey(), persistedRows.get(persistedIndex).getRow());
+      }
+
+      byte[] row;
+      NavigableMap<byte[], byte[]> columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      if (order > 0) {
+        Row persisted = persistedRows.get(persistedIndex++);
+        row = persisted.getRow();
+        columns.putAll(persisted.getColumns());
+      } else {
+        Map.Entry<byte[], NavigableMap<byte[], Update>> buffered = bufferRows.get(bufferIndex++);
+        row = buffered.getKey();
+        if (lastPersisted != null && Bytes.compareTo(row, lastPersisted) > 0) {
+          break;
+        }
+        if (order == 0) {
+          columns.putAll(persistedRows.get(persistedIndex++).getColumns());
+        }
+        mergeToPersisted(columns, buffered.getValue(), null);
+      }
+      columns = unwrapDeletes(columns);
+      if (!columns.isEmpty()) {
+        result.add(new Result(row, columns));
+      }
+    }
+    return result;
+  }
+
+  private static NavigableMap<byte[], Update> copyRow(NavigableMap<byte[], Update> row) {
+    NavigableMap<byte[], Update> copy = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    copy.putAll(row);
+    return copy;
+  }
+
+  private static Throwable unwrap(Throwable failure) {
+    return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
   }
 
   /**
    * Scanner implementation that overlays buffered data on top of already persisted data.
    */
   private class BufferingScanner implements Scanner {
-    private final NavigableMap<byte[], NavigableMap<byte[], Update>> buffer;
     private final Scanner persistedScanner;
-    private final Iterator<byte[]> keyIter;
+    private final Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> bufferIter;
     private byte[] currentKey;
+    private NavigableMap<byte[], Update> currentColumns;
     private Row currentRow;
 
-    private BufferingScanner(NavigableMap<byte[], NavigableMap<byte[], Update>> buffer, Scanner persistedScanner) {
-      this.buffer = buffer;
-      this.keyIter = getBufferKeyIterator(buffer);
-      if (this.keyIter.hasNext()) {
-        currentKey = keyIter.next();
-      }
+    private BufferingScanner(Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> bufferRows,
+                             Scanner persistedScanner) {
+      this.bufferIter = getBufferRowIterator(bufferRows);
+      advanceBuffer();
       this.persistedScanner = persistedScanner;
       this.currentRow = this.persistedScanner.next();
     }
@@ -1035,22 +1493,33 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       } else if (order < 0) {
         // buffer row comes first or persisted scanner is empty
         Map<byte[], byte[]> persistedRow = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-        mergeToPersisted(persistedRow, getFromBuffer(buffer, currentKey), null);
+        mergeToPersisted(persistedRow, currentColumns, null);
         result = new Result(copy(currentKey), persistedRow);
 
-        currentKey = keyIter.hasNext() ? keyIter.next() : null;
+        advanceBuffer();
       } else {
         // if currentKey and currentRow are equal, merge and advance both
         Map<byte[], byte[]> persisted = currentRow.getColumns();
-        mergeToPersisted(persisted, getFromBuffer(buffer, currentKey), null);
+        mergeToPersisted(persisted, currentColumns, null);
         result = new Result(currentRow.getRow(), persisted);
 
         currentRow = persistedScanner.next();
-        currentKey = keyIter.hasNext() ? keyIter.next() : null;
+        advanceBuffer();
       }
       return result;
     }
 
+    private void advanceBuffer() {
+      if (bufferIter.hasNext()) {
+        Map.Entry<byte[], NavigableMap<byte[], Update>> entry = bufferIter.next();
+        currentKey = entry.getKey();
+        currentColumns = entry.getValue();
+      } else {
+        currentKey = null;
+        currentColumns = null;
+      }
+    }
+
     @Override
     public void close() {
       this.persistedScanner.close();
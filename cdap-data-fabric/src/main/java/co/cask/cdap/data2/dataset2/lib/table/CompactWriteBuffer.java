@@ -0,0 +1,595 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import javax.annotation.Nullable;
+
+/**
+ * {@link TableWriteBuffer} that keeps changes in a compact append-only log, which is sorted lazily.
+ * <p>
+ * The bytes of rows, columns and values are copied into large chunks of an {@link Arena}, and each change is an entry
+ * in a set of primitive arrays that refer to the arena. This avoids allocating several objects for every change.
+ * Entries are appended to an unsorted tail, which is indexed by a hash of the row for point lookups. Once the tail
+ * grows large enough, or when a range of rows is read, the tail is sorted and merged into a sorted run of entries,
+ * keeping only the latest entry of each row and column.
+ * <p>
+ * Increments are merged with the latest change of the column when they are written, so that the latest entry of a
+ * column is always the complete change. Entries superseded by newer entries are reclaimed by copying the sorted run
+ * into a new arena when they take more space than the live entries.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class CompactWriteBuffer implements TableWriteBuffer {
+
+  private static final int INITIAL_CAPACITY = 64;
+  // the tail is merged into the sorted run when it is larger than both this and half of the sorted run
+  private static final int MIN_TAIL_SIZE = 1024;
+
+  private static final byte PUT = 0;
+  private static final byte DELETE = 1;
+  private static final byte INCREMENT = 2;
+
+  private Arena arena;
+
+  // Entries, in the order of writes. For PUT, the value refers to the arena. For INCREMENT, the value is the amount.
+  private int size;
+  private long[] rowRefs;
+  private int[] rowLengths;
+  private int[] rowHashes;
+  private long[] columnRefs;
+  private int[] columnLengths;
+  private long[] values;
+  private int[] valueLengths;
+  private byte[] kinds;
+
+  // Ids of the entries before tailStart, sorted by row and column, with only the latest entry of each row and column
+  private int[] sorted;
+  private int sortedCount;
+  private int tailStart;
+
+  // Hash index of the tail entries by row. Each bucket has the id of the latest entry, chained to older entries.
+  private int[] buckets;
+  private int[] chain;
+
+  CompactWriteBuffer() {
+    reset();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public void clear() {
+    if (size > 0 || rowRefs.length > INITIAL_CAPACITY) {
+      reset();
+    }
+  }
+
+  @Nullable
+  @Override
+  public NavigableMap<byte[], Update> getRow(byte[] row) {
+    int hash = Bytes.hashCode(row);
+    NavigableMap<byte[], Update> result = null;
+
+    // Tail entries, from newest to oldest, take precedence over the sorted run
+    for (int id = buckets[hash & (buckets.length - 1)]; id >= 0; id = chain[id - tailStart]) {
+      if (rowHashes[id] == hash && rowEquals(id, row)) {
+        if (result == null) {
+          result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        }
+        byte[] column = arena.copy(columnRefs[id], columnLengths[id]);
+        if (!result.containsKey(column)) {
+          result.put(column, toUpdate(id));
+        }
+      }
+    }
+    for (int i = lowerBound(row); i < sortedCount && rowEquals(sorted[i], row); i++) {
+      if (result == null) {
+        result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      }
+      int id = sorted[i];
+      byte[] column = arena.copy(columnRefs[id], columnLengths[id]);
+      if (!result.containsKey(column)) {
+        result.put(column, toUpdate(id));
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void put(byte[] row, byte[][] columns, byte[][] values) {
+    int hash = Bytes.hashCode(row);
+    for (int i = 0; i < columns.length; i++) {
+      int id = append(row, hash, columns[i]);
+      setValue(id, values[i]);
+    }
+    compactIfNeeded();
+  }
+
+  @Override
+  public void increment(byte[] row, byte[][] columns, long[] amounts) {
+    int hash = Bytes.hashCode(row);
+    for (int i = 0; i < columns.length; i++) {
+      int id = findLatest(row, hash, columns[i]);
+      if (id < 0) {
+        id = append(row, hash, columns[i]);
+        kinds[id] = INCREMENT;
+        values[id] = amounts[i];
+        continue;
+      }
+      // Merge with the latest change in place, following the same rules as Updates.mergeUpdates
+      switch (kinds[id]) {
+        case PUT:
+          if (valueLengths[id] != Bytes.SIZEOF_LONG) {
+            throw new NumberFormatException("Attempted to increment a value that is not convertible to long");
+          }
+          arena.putLong(values[id], arena.getLong(values[id]) + amounts[i]);
+          break;
+        case DELETE:
+          setValue(id, Bytes.toBytes(amounts[i]));
+          break;
+        default:
+          values[id] += amounts[i];
+      }
+    }
+    compactIfNeeded();
+  }
+
+  @Override
+  public Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows(@Nullable byte[] startRow,
+                                                                         @Nullable final byte[] stopRow) {
+    compact();
+    // The iterator reads from the current arrays and arena, which are replaced rather than modified when they grow or
+    // when the buffer is compacted. Hence it is not affected by later writes, except for in place increments.
+    final int[] sorted = this.sorted;
+    final int sortedCount = this.sortedCount;
+    final Arena arena = this.arena;
+    final long[] rowRefs = this.rowRefs;
+    final int[] rowLengths = this.rowLengths;
+    final long[] columnRefs = this.columnRefs;
+    final int[] columnLengths = this.columnLengths;
+    final byte[] kinds = this.kinds;
+    final long[] values = this.values;
+    final int[] valueLengths = this.valueLengths;
+    final int start = startRow == null ? 0 : lowerBound(startRow);
+
+    return new AbstractIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>>() {
+      private int next = start;
+
+      @Override
+      protected Map.Entry<byte[], NavigableMap<byte[], Update>> computeNext() {
+        if (next >= sortedCount) {
+          return endOfData();
+        }
+        int first = sorted[next];
+        long rowRef = rowRefs[first];
+        int rowLength = rowLengths[first];
+        if (stopRow != null && arena.compare(rowRef, rowLength, stopRow) >= 0) {
+          return endOfData();
+        }
+        NavigableMap<byte[], Update> columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        for (; next < sortedCount; next++) {
+          int id = sorted[next];
+          if (id != first && arena.compare(rowRefs[id], rowLengths[id], rowRef, rowLength) != 0) {
+            break;
+          }
+          columns.put(arena.copy(columnRefs[id], columnLengths[id]),
+                      toUpdate(arena, kinds[id], values[id], valueLengths[id]));
+        }
+        return Maps.immutableEntry(arena.copy(rowRef, rowLength), columns);
+      }
+    };
+  }
+
+  @Override
+  public NavigableMap<byte[], NavigableMap<byte[], Update>> drain() {
+    NavigableMap<byte[], NavigableMap<byte[], Update>> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> iterator = rows(null, null);
+    while (iterator.hasNext()) {
+      Map.Entry<byte[], NavigableMap<byte[], Update>> row = iterator.next();
+      result.put(row.getKey(), row.getValue());
+    }
+    reset();
+    return result;
+  }
+
+  private void reset() {
+    arena = new Arena();
+    size = 0;
+    allocate(INITIAL_CAPACITY);
+    sorted = new int[0];
+    sortedCount = 0;
+    tailStart = 0;
+    buckets = new int[INITIAL_CAPACITY];
+    Arrays.fill(buckets, -1);
+    chain = new int[INITIAL_CAPACITY];
+  }
+
+  private void allocate(int capacity) {
+    rowRefs = new long[capacity];
+    rowLengths = new int[capacity];
+    rowHashes = new int[capacity];
+    columnRefs = new long[capacity];
+    columnLengths = new int[capacity];
+    values = new long[capacity];
+    valueLengths = new int[capacity];
+    kinds = new byte[capacity];
+  }
+
+  /**
+   * Appends a new entry to the tail and returns its id. The value of the entry is not set.
+   */
+  private int append(byte[] row, int hash, byte[] column) {
+    if (size == rowRefs.length) {
+      int capacity = size + (size >> 1);
+      rowRefs = Arrays.copyOf(rowRefs, capacity);
+      rowLengths = Arrays.copyOf(rowLengths, capacity);
+      rowHashes = Arrays.copyOf(rowHashes, capacity);
+      columnRefs = Arrays.copyOf(columnRefs, capacity);
+      columnLengths = Arrays.copyOf(columnLengths, capacity);
+      values = Arrays.copyOf(values, capacity);
+      valueLengths = Arrays.copyOf(valueLengths, capacity);
+      kinds = Arrays.copyOf(kinds, capacity);
+    }
+    int id = size++;
+
+    // Consecutive writes are often to the same row, in which case the row bytes are shared
+    int last = id - 1;
+    if (last >= 0 && rowHashes[last] == hash && rowEquals(last, row)) {
+      rowRefs[id] = rowRefs[last];
+    } else {
+      rowRefs[id] = arena.append(row);
+    }
+    rowLengths[id] = row.length;
+    rowHashes[id] = hash;
+    columnRefs[id] = arena.append(column);
+    columnLengths[id] = column.length;
+
+    // Index the entry in the tail
+    int tailSize = size - tailStart;
+    if (tailSize > buckets.length) {
+      rehash(buckets.length << 1);
+    } else {
+      if (tailSize > chain.length) {
+        chain = Arrays.copyOf(chain, chain.length << 1);
+      }
+      int bucket = hash & (buckets.length - 1);
+      chain[id - tailStart] = buckets[bucket];
+      buckets[bucket] = id;
+    }
+    return id;
+  }
+
+  private void setValue(int id, @Nullable byte[] value) {
+    if (value == null) {
+      kinds[id] = DELETE;
+    } else {
+      kinds[id] = PUT;
+      values[id] = arena.append(value);
+      valueLengths[id] = value.length;
+    }
+  }
+
+  private void rehash(int bucketCount) {
+    buckets = new int[bucketCount];
+    Arrays.fill(buckets, -1);
+    if (chain.length < bucketCount) {
+      chain = new int[bucketCount];
+    }
+    // Entries are indexed from oldest to newest, so that newer entries are ahead in the chain
+    for (int id = tailStart; id < size; id++) {
+      int bucket = rowHashes[id] & (bucketCount - 1);
+      chain[id - tailStart] = buckets[bucket];
+      buckets[bucket] = id;
+    }
+  }
+
+  /**
+   * Returns the id of the latest entry of the given row and column, or {@code -1} if there is none.
+   */
+  private int findLatest(byte[] row, int hash, byte[] column) {
+    for (int id = buckets[hash & (buckets.length - 1)]; id >= 0; id = chain[id - tailStart]) {
+      if (rowHashes[id] == hash && rowEquals(id, row)
+        && arena.compare(columnRefs[id], columnLengths[id], column) == 0) {
+        return id;
+      }
+    }
+    int low = 0;
+    int high = sortedCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int id = sorted[mid];
+      int cmp = arena.compare(rowRefs[id], rowLengths[id], row);
+      if (cmp == 0) {
+        cmp = arena.compare(columnRefs[id], columnLengths[id], column);
+      }
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return id;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the position of the first entry in the sorted run with row greater than or equal to the given row.
+   */
+  private int lowerBound(byte[] row) {
+    int low = 0;
+    int high = sortedCount;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      int id = sorted[mid];
+      if (arena.compare(rowRefs[id], rowLengths[id], row) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private boolean rowEquals(int id, byte[] row) {
+    return rowLengths[id] == row.length && arena.compare(rowRefs[id], rowLengths[id], row) == 0;
+  }
+
+  private Update toUpdate(int id) {
+    return toUpdate(arena, kinds[id], values[id], valueLengths[id]);
+  }
+
+  private static Update toUpdate(Arena arena, byte kind, long value, int valueLength) {
+    switch (kind) {
+      case PUT:
+        return new PutValue(arena.copy(value, valueLength));
+      case DELETE:
+        return new PutValue(null);
+      default:
+        return new IncrementValue(value);
+    }
+  }
+
+  private void compactIfNeeded() {
+    if (size - tailStart > Math.max(MIN_TAIL_SIZE, sortedCount >> 1)) {
+      compact();
+    }
+  }
+
+  /**
+   * Sorts the tail and merges it into the sorted run.
+   */
+  private void compact() {
+    int tailSize = size - tailStart;
+    if (tailSize == 0) {
+      return;
+    }
+
+    // Sort the tail by row and column. The sort is stable, so that the latest entry of each column is the last one.
+    int[] tail = new int[tailSize];
+    for (int i = 0; i < tailSize; i++) {
+      tail[i] = tailStart + i;
+    }
+    sort(tail, new int[tailSize], 0, tailSize);
+
+    int[] merged = new int[sortedCount + tailSize];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < sortedCount || j < tailSize) {
+      if (j < tailSize) {
+        // Skip entries that are superseded by a later entry of the same column in the tail
+        if (j + 1 < tailSize && compare(tail[j], tail[j + 1]) == 0) {
+          j++;
+          continue;
+        }
+        int cmp = i < sortedCount ? compare(sorted[i], tail[j]) : 1;
+        if (cmp >= 0) {
+          merged[count++] = tail[j++];
+          // The tail entry supersedes the sorted entry of the same column
+          i += cmp == 0 ? 1 : 0;
+          continue;
+        }
+      }
+      merged[count++] = sorted[i++];
+    }
+
+    sorted = merged;
+    sortedCount = count;
+    tailStart = size;
+    Arrays.fill(buckets, -1);
+
+    if (size - sortedCount > Math.max(MIN_TAIL_SIZE, sortedCount)) {
+      reclaim();
+    }
+  }
+
+  /**
+   * Copies the entries of the sorted run into new arrays and a new arena, which drops all superseded entries.
+   */
+  private void reclaim() {
+    Arena oldArena = arena;
+    long[] oldRowRefs = rowRefs;
+    int[] oldRowLengths = rowLengths;
+    int[] oldRowHashes = rowHashes;
+    long[] oldColumnRefs = columnRefs;
+    int[] oldColumnLengths = columnLengths;
+    long[] oldValues = values;
+    int[] oldValueLengths = valueLengths;
+    byte[] oldKinds = kinds;
+
+    arena = new Arena();
+    allocate(Math.max(INITIAL_CAPACITY, sortedCount + (sortedCount >> 1)));
+    for (int i = 0; i < sortedCount; i++) {
+      int id = sorted[i];
+      // Entries of the same row are adjacent in the sorted run, hence the row bytes can be shared
+      if (i > 0 && oldArena.compare(oldRowRefs[id], oldRowLengths[id], oldRowRefs[sorted[i - 1]],
+                                    oldRowLengths[sorted[i - 1]]) == 0) {
+        rowRefs[i] = rowRefs[i - 1];
+      } else {
+        rowRefs[i] = arena.append(oldArena, oldRowRefs[id], oldRowLengths[id]);
+      }
+      rowLengths[i] = oldRowLengths[id];
+      rowHashes[i] = oldRowHashes[id];
+      columnRefs[i] = arena.append(oldArena, oldColumnRefs[id], oldColumnLengths[id]);
+      columnLengths[i] = oldColumnLengths[id];
+      kinds[i] = oldKinds[id];
+      values[i] = oldKinds[id] == PUT ? arena.append(oldArena, oldValues[id], oldValueLengths[id]) : oldValues[id];
+      valueLengths[i] = oldValueLengths[id];
+    }
+
+    int[] newSorted = new int[sortedCount];
+    for (int i = 0; i < sortedCount; i++) {
+      newSorted[i] = i;
+    }
+    sorted = newSorted;
+    size = sortedCount;
+    tailStart = size;
+  }
+
+  /**
+   * Compares two entries by row and then by column.
+   */
+  private int compare(int id1, int id2) {
+    if (rowRefs[id1] != rowRefs[id2] || rowLengths[id1] != rowLengths[id2]) {
+      int cmp = arena.compare(rowRefs[id1], rowLengths[id1], rowRefs[id2], rowLengths[id2]);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return arena.compare(columnRefs[id1], columnLengths[id1], columnRefs[id2], columnLengths[id2]);
+  }
+
+  /**
+   * Stable merge sort of the entry ids in the given range.
+   */
+  private void sort(int[] ids, int[] buffer, int from, int to) {
+    if (to - from <= 16) {
+      for (int i = from + 1; i < to; i++) {
+        int id = ids[i];
+        int j = i - 1;
+        while (j >= from && compare(ids[j], id) > 0) {
+          ids[j + 1] = ids[j];
+          j--;
+        }
+        ids[j + 1] = id;
+      }
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    sort(ids, buffer, from, mid);
+    sort(ids, buffer, mid, to);
+    if (compare(ids[mid - 1], ids[mid]) <= 0) {
+      return;
+    }
+    System.arraycopy(ids, from, buffer, from, to - from);
+    int i = from;
+    int j = mid;
+    for (int k = from; k < to; k++) {
+      if (j >= to || (i < mid && compare(buffer[i], buffer[j]) <= 0)) {
+        ids[k] = buffer[i++];
+      } else {
+        ids[k] = buffer[j++];
+      }
+    }
+  }
+
+  /**
+   * Append-only storage of byte arrays in large chunks. A byte array is referred by the index of the chunk in the
+   * upper 32 bits and the offset in the chunk in the lower 32 bits.
+   */
+  private static final class Arena {
+
+    private static final int MIN_CHUNK_SIZE = 1024;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024;
+
+    private final List<byte[]> chunks = new ArrayList<>();
+    private byte[] current;
+    private int currentIndex = -1;
+    private int offset;
+
+    long append(byte[] bytes) {
+      return append(bytes, 0, bytes.length);
+    }
+
+    long append(Arena from, long ref, int length) {
+      return append(from.chunk(ref), offset(ref), length);
+    }
+
+    long append(byte[] bytes, int from, int length) {
+      if (length > MAX_CHUNK_SIZE / 4) {
+        // Large arrays are stored in their own chunks
+        chunks.add(Arrays.copyOfRange(bytes, from, from + length));
+        return (long) (chunks.size() - 1) << 32;
+      }
+      if (current == null || offset + length > current.length) {
+        // Chunks grow with the total size, so that small buffers stay small
+        int chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, chunks.size() * MIN_CHUNK_SIZE));
+        current = new byte[Math.max(chunkSize, length)];
+        chunks.add(current);
+        currentIndex = chunks.size() - 1;
+        offset = 0;
+      }
+      System.arraycopy(bytes, from, current, offset, length);
+      long ref = ((long) currentIndex << 32) | offset;
+      offset += length;
+      return ref;
+    }
+
+    byte[] copy(long ref, int length) {
+      int offset = offset(ref);
+      return Arrays.copyOfRange(chunk(ref), offset, offset + length);
+    }
+
+    long getLong(long ref) {
+      return Bytes.toLong(chunk(ref), offset(ref));
+    }
+
+    void putLong(long ref, long value) {
+      Bytes.putLong(chunk(ref), offset(ref), value);
+    }
+
+    int compare(long ref, int length, byte[] bytes) {
+      return Bytes.compareTo(chunk(ref), offset(ref), length, bytes, 0, bytes.length);
+    }
+
+    int compare(long ref1, int length1, long ref2, int length2) {
+      return Bytes.compareTo(chunk(ref1), offset(ref1), length1, chunk(ref2), offset(ref2), length2);
+    }
+
+    private byte[] chunk(long ref) {
+      return chunks.get((int) (ref >>> 32));
+    }
+
+    private static int offset(long ref) {
+      return (int) ref;
+    }
+  }
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Maps;
+import org.apache.tephra.Transaction;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Cache of the persisted rows of a table, shared by all instances of the table in the same process.
+ * <p>
+ * A cached row is only returned to a transaction that sees the same committed changes as the transaction that read
+ * the row, which is determined from the snapshot of the two transactions:
+ * <ul>
+ *   <li>the transaction must see all transactions seen by the transaction that read the row;</li>
+ *   <li>none of the transactions in progress or invalid when the row was read may be visible to the transaction;</li>
+ * </ul>
+ * Rows are cached when the transaction that read them commits, unless the transaction changed them. Rows changed by a
+ * transaction that commits through this cache are removed from the cache at commit, and rows read by transactions that
+ * do not see such a commit are not cached.
+ * A transaction that started after the row was read and committed from another process cannot be detected, hence
+ * rows expire after {@link #PROPERTY_EXPIRY}, which bounds how long such changes may be missed by reads. A transaction
+ * that changes the table must verify the rows returned to it from the cache with {@link View#getCachedReads()} before
+ * it persists its changes, so that it never writes changes to this table derived from such stale rows.
+ * <p>
+ * Changes to other tables are not verified, because a table does not know whether the other participants of the
+ * transaction persist changes. A transaction that only changes other tables may therefore write values derived from a
+ * cached row that is stale for at most {@link #PROPERTY_EXPIRY}. Tables whose values are copied into other tables
+ * should not be cached, or should be cached with an expiry that such copies can tolerate.
+ */
+public final class TableReadCache {
+
+  /**
+   * Dataset property for the maximum number of rows in the cache. The cache is disabled by
+   * default, or if the value is not positive.
+   */
+  public static final String PROPERTY_SIZE = "dataset.table.read.cache.rows";
+
+  /**
+   * Dataset property for the time in milliseconds after which a cached row expires.
+   */
+  public static final String PROPERTY_EXPIRY = "dataset.table.read.cache.expiry.ms";
+
+  private static final long DEFAULT_EXPIRY_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  // Placeholder for columns that are known not to exist
+  private static final byte[] ABSENT = new byte[0];
+
+  // All caches of this process, by table name
+  private static final ConcurrentMap<String, TableReadCache> CACHES = new ConcurrentHashMap<>();
+
+  private final Cache<ByteBuffer, CachedRow> rows;
+  private final long maxRows;
+  private final long expiryMillis;
+  private final AtomicLong evictions;
+  // write pointer of the latest transaction that committed changes through this cache
+  private final AtomicLong lastCommitWritePointer;
+  // incremented when all rows are invalidated
+  private final AtomicLong generation;
+
+  /**
+   * Returns the cache of the given table, or {@code null} if caching is not enabled by the given properties.
+   * The cache is created by the first table instance that uses it, hence with the properties of that instance.
+   */
+  @Nullable
+  static TableReadCache get(String tableName, Map<String, String> properties) {
+    long size = properties.containsKey(PROPERTY_SIZE) ? Long.parseLong(properties.get(PROPERTY_SIZE)) : 0L;
+    if (size <= 0) {
+      return null;
+    }
+    TableReadCache cache = CACHES.get(tableName);
+    if (cache == null) {
+      long expiryMillis = properties.containsKey(PROPERTY_EXPIRY)
+        ? Long.parseLong(properties.get(PROPERTY_EXPIRY)) : DEFAULT_EXPIRY_MILLIS;
+      cache = new TableReadCache(size, expiryMillis);
+      TableReadCache existing = CACHES.putIfAbsent(tableName, cache);
+      cache = existing == null ? cache : existing;
+    }
+    return cache;
+  }
+
+  /**
+   * Removes all cached rows of the given table. Must be called when the table is truncated.
+   */
+  public static void invalidate(String tableName) {
+    TableReadCache cache = CACHES.get(tableName);
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+  }
+
+  /**
+   * Removes the cache of the given table. Must be called when the table is dropped.
+   */
+  public static void remove(String tableName) {
+    TableReadCache cache = CACHES.remove(tableName);
+    if (cache != null) {
+      // instances of the dropped table may still use the cache
+      cache.invalidateAll();
+    }
+  }
+
+  TableReadCache(long size, long expiryMillis) {
+    this.maxRows = size;
+    this.expiryMillis = expiryMillis;
+    this.evictions = new AtomicLong();
+    this.lastCommitWritePointer = new AtomicLong(-1L);
+    this.generation = new AtomicLong();
+    this.rows = CacheBuilder.newBuilder()
+      .maximumSize(size)
+      .expireAfterWrite(expiryMillis, TimeUnit.MILLISECONDS)
+      .removalListener(new RemovalListener<ByteBuffer, CachedRow>() {
+        @Override
+        public void onRemoval(RemovalNotification<ByteBuffer, CachedRow> notification) {
+          if (notification.wasEvicted()) {
+            evictions.incrementAndGet();
+          }
+        }
+      })
+      .build();
+  }
+
+  /**
+   * Returns a view of the cache for the given transaction. The view is not thread-safe.
+   */
+  View getView(Transaction tx) {
+    return new View(tx);
+  }
+
+  /**
+   * Must be called after a transaction that changed the given rows committed, so that rows read without the changes
+   * are not returned to transactions that see them.
+   */
+  void committed(Transaction tx, Iterable<byte[]> changedRows) {
+    long writePointer = tx.getWritePointer();
+    long last = lastCommitWritePointer.get();
+    while (writePointer > last && !lastCommitWritePointer.compareAndSet(last, writePointer)) {
+      last = lastCommitWritePointer.get();
+    }
+    for (byte[] row : changedRows) {
+      rows.invalidate(ByteBuffer.wrap(row));
+    }
+  }
+
+  /**
+   * Removes a row from the cache, for example because it was found to be stale.
+   */
+  void invalidate(byte[] row) {
+    rows.invalidate(ByteBuffer.wrap(row));
+  }
+
+  private void invalidateAll() {
+    generation.incrementAndGet();
+    rows.invalidateAll();
+  }
+
+  /**
+   * Returns the number of rows evicted since the last call of this method.
+   */
+  long drainEvictions() {
+    return evictions.getAndSet(0L);
+  }
+
+  /**
+   * Returns whether the given transaction sees the same changes as the transaction that cached a row, as far as it
+   * can be told from their snapshots.
+   */
+  private static boolean seesSameChanges(Transaction cached, Transaction current) {
+    if (current.getReadPointer() < cached.getReadPointer()) {
+      return false;
+    }
+    // transactions excluded from the cached snapshot that committed since then
+    if (!excludes(current, cached.getInProgress(), current.getReadPointer())
+      || !excludes(current, cached.getInvalids(), current.getReadPointer())) {
+      return false;
+    }
+    // transactions visible in the cached snapshot that are not visible to the current transaction
+    return excludes(cached, current.getInProgress(), cached.getReadPointer())
+      && excludes(cached, current.getInvalids(), cached.getReadPointer());
+  }
+
+  /**
+   * Returns whether the given transaction excludes all given write pointers that are not greater than the bound.
+   */
+  private static boolean excludes(Transaction tx, long[] writePointers, long bound) {
+    for (long writePointer : writePointers) {
+      if (writePointer > bound) {
+        // write pointers are sorted
+        break;
+      }
+      if (writePointer != tx.getWritePointer() && !tx.isExcluded(writePointer)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * View of the cache for a transaction. Rows read by the transaction are only added to the cache after the
+   * transaction committed, because the changes made by the transaction itself are not reflected in them.
+   */
+  final class View {
+
+    private final Transaction tx;
+    // whether the snapshot of a cached row is valid for this transaction, by snapshot
+    private final Map<Transaction, Boolean> validSnapshots = new IdentityHashMap<>();
+    // rows read by this transaction
+    private final Map<ByteBuffer, CachedRow> pending = new HashMap<>();
+    // reads of this transaction served by rows that other transactions cached
+    private final List<CachedRead> cachedReads = new ArrayList<>();
+    // generation of the cache when the pending rows were read
+    private long pendingGeneration;
+
+    private View(Transaction tx) {
+      this.tx = tx;
+      this.pendingGeneration = generation.get();
+    }
+
+    /**
+     * Returns the given columns of a row if they are all cached and valid for the transaction, otherwise
+     * {@code null}. The values are copies and can be modified by the caller.
+     *
+     * @param columns the columns to get, or {@code null} for all columns
+     */
+    @Nullable
+    NavigableMap<byte[], byte[]> get(byte[] row, @Nullable byte[][] columns) {
+      CachedRow cached = getValid(ByteBuffer.wrap(row));
+      if (cached == null || (columns == null && !cached.complete)) {
+        return null;
+      }
+      NavigableMap<byte[], byte[]> result = getColumns(cached, columns);
+      if (result != null && cached.snapshot != tx) {
+        // the result is returned to the caller, which may modify it
+        cachedReads.add(new CachedRead(copy(row), columns, getColumns(cached, columns)));
+      }
+      return result;
+    }
+
+    /**
+     * Returns the reads of the transaction that were served by rows cached by other transactions. These rows may miss
+     * changes committed from other processes, hence the transaction must verify them before persisting changes.
+     */
+    List<CachedRead> getCachedReads() {
+      return cachedReads;
+    }
+
+    @Nullable
+    private NavigableMap<byte[], byte[]> getColumns(CachedRow cached, @Nullable byte[][] columns) {
+      NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      if (columns == null) {
+        for (Map.Entry<byte[], byte[]> column : cached.columns.entrySet()) {
+          result.put(column.getKey(), copy(column.getValue()));
+        }
+        return result;
+      }
+      for (byte[] column : columns) {
+        byte[] value = cached.columns.get(column);
+        if (value == null && !cached.complete) {
+          return null;
+        }
+        if (value != null && value != ABSENT) {
+          result.put(column, copy(value));
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Keeps the given columns of a row, as read by the transaction, to be cached when the transaction commits.
+     *
+     * @param columns the columns that were read, or {@code null} if all columns were read
+     * @param values the values that were read
+     */
+    void put(byte[] row, @Nullable byte[][] columns, Map<byte[], byte[]> values) {
+      checkGeneration();
+      ByteBuffer key = ByteBuffer.wrap(row);
+      if (!pending.containsKey(key) && pending.size() >= maxRows) {
+        return;
+      }
+      NavigableMap<byte[], byte[]> cachedColumns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      long createTime = System.currentTimeMillis();
+      if (columns != null) {
+        // keep the columns cached earlier if they are still valid, but not longer than when they were cached
+        CachedRow existing = getValid(key);
+        if (existing != null && existing.complete) {
+          return;
+        }
+        if (existing != null) {
+          cachedColumns.putAll(existing.columns);
+          createTime = existing.createTime;
+        }
+        for (byte[] column : columns) {
+          cachedColumns.put(copy(column), ABSENT);
+        }
+      }
+      for (Map.Entry<byte[], byte[]> value : values.entrySet()) {
+        cachedColumns.put(copy(value.getKey()), copy(value.getValue()));
+      }
+      pending.put(ByteBuffer.wrap(copy(row)), new CachedRow(tx, createTime, cachedColumns, columns == null));
+    }
+
+    /**
+     * Adds the rows read by the transaction to the cache. Must be called after the transaction committed.
+     *
+     * @param changedRows the rows changed by the transaction, which are not cached
+     */
+    void publish(Set<byte[]> changedRows) {
+      checkGeneration();
+      // the rows may miss changes committed through this cache that the transaction does not see. The check is
+      // repeated after caching the rows, in case such a commit removed rows from the cache in between.
+      if (lastCommitWritePointer.get() > tx.getReadPointer()) {
+        return;
+      }
+      List<ByteBuffer> published = new ArrayList<>(pending.size());
+      for (Map.Entry<ByteBuffer, CachedRow> entry : pending.entrySet()) {
+        if (!changedRows.contains(entry.getKey().array())) {
+          rows.put(entry.getKey(), entry.getValue());
+          published.add(entry.getKey());
+        }
+      }
+      pending.clear();
+      if (lastCommitWritePointer.get() > tx.getReadPointer()) {
+        rows.invalidateAll(published);
+      }
+    }
+
+    @Nullable
+    private CachedRow getValid(ByteBuffer row) {
+      checkGeneration();
+      CachedRow cached = pending.get(row);
+      if (cached != null) {
+        return cached;
+      }
+      cached = rows.getIfPresent(row);
+      if (cached == null || System.currentTimeMillis() - cached.createTime >= expiryMillis) {
+        return null;
+      }
+      Boolean valid = validSnapshots.get(cached.snapshot);
+      if (valid == null) {
+        valid = seesSameChanges(cached.snapshot, tx);
+        validSnapshots.put(cached.snapshot, valid);
+      }
+      return valid ? cached : null;
+    }
+
+    /**
+     * Discards the pending rows if all rows were invalidated since they were read.
+     */
+    private void checkGeneration() {
+      long currentGeneration = generation.get();
+      if (currentGeneration != pendingGeneration) {
+        pending.clear();
+        pendingGeneration = currentGeneration;
+      }
+    }
+  }
+
+  private static byte[] copy(byte[] bytes) {
+    return bytes == ABSENT ? ABSENT : Arrays.copyOf(bytes, bytes.length);
+  }
+
+  /**
+   * Read of a row that was served from the cache.
+   */
+  static final class CachedRead {
+    private final byte[] row;
+    private final byte[][] columns;
+    private final NavigableMap<byte[], byte[]> values;
+
+    private CachedRead(byte[] row, @Nullable byte[][] columns, NavigableMap<byte[], byte[]> values) {
+      this.row = row;
+      this.columns = columns;
+      this.values = values;
+    }
+
+    byte[] getRow() {
+      return row;
+    }
+
+    /**
+     * Returns the columns that were read, or {@code null} if all columns were read.
+     */
+    @Nullable
+    byte[][] getColumns() {
+      return columns;
+    }
+
+    /**
+     * Returns whether the given values, as read from persistent store, are the same as the values read from the cache.
+     */
+    boolean matches(NavigableMap<byte[], byte[]> persisted) {
+      if (persisted.size() != values.size()) {
+        return false;
+      }
+      for (Map.Entry<byte[], byte[]> value : values.entrySet()) {
+        if (!Arrays.equals(value.getValue(), persisted.get(value.getKey()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Columns of a row, as seen by a transaction.
+   */
+  private static final class CachedRow {
+    private final Transaction snapshot;
+    private final long createTime;
+    private final NavigableMap<byte[], byte[]> columns;
+    // whether all columns of the row are cached
+    private final boolean complete;
+
+    private CachedRow(Transaction snapshot, long createTime, NavigableMap<byte[], byte[]> columns, boolean complete) {
+      this.snapshot = snapshot;
+      this.createTime = createTime;
+      this.columns = columns;
+      this.complete = complete;
+    }
+  }
+}
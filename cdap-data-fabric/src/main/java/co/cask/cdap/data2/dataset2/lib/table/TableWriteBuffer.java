@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import javax.annotation.Nullable;
+
+/**
+ * In-memory buffer of the changes made to a {@link BufferingTable} in a transaction.
+ * The buffer copies all byte arrays passed to it, and all byte arrays returned by it are not shared with the buffer.
+ * Implementations are not required to be thread-safe.
+ */
+interface TableWriteBuffer {
+
+  /**
+   * Returns {@code true} if nothing was written to this buffer since it was last cleared or drained.
+   */
+  boolean isEmpty();
+
+  /**
+   * Removes all changes from this buffer.
+   */
+  void clear();
+
+  /**
+   * Returns the buffered changes of the given row as a column->update map, or {@code null} if the row has no changes.
+   * A {@link PutValue} with {@code null} value means the column was deleted.
+   * The returned map must not be modified.
+   */
+  @Nullable
+  NavigableMap<byte[], Update> getRow(byte[] row);
+
+  /**
+   * Buffers puts of the given columns of a row. A {@code null} value means the column is deleted.
+   */
+  void put(byte[] row, byte[][] columns, byte[][] values);
+
+  /**
+   * Buffers increments of the given columns of a row. The increments are merged with the changes already buffered
+   * according to {@link Updates#mergeUpdates(Update, Update)}.
+   *
+   * @throws NumberFormatException if a buffered value of the columns is not convertible to long
+   */
+  void increment(byte[] row, byte[][] columns, long[] amounts);
+
+  /**
+   * Returns an iterator over the buffered changes of the rows in the given range, in row key order.
+   * Each entry is a row key with its column->update map, which must not be modified.
+   *
+   * @param startRow the first row of the range, inclusive; {@code null} to start from the first row
+   * @param stopRow the end of the range, exclusive; {@code null} to end after the last row
+   */
+  Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows(@Nullable byte[] startRow, @Nullable byte[] stopRow);
+
+  /**
+   * Returns all buffered changes as a row->(column->update) map and removes them from this buffer.
+   */
+  NavigableMap<byte[], NavigableMap<byte[], Update>> drain();
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.dataset2.lib.table.hbase;
+
+import co.cask.cdap.data2.util.TableId;
+import co.cask.cdap.data2.util.hbase.HBaseTableUtil;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.HTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Performs operations on an HBase table in the threads of an executor, so that the callers are not blocked.
+ * <p>
+ * {@link HTable} is not thread-safe, hence each thread uses its own {@link HTable} instance from a pool.
+ * Operations are queued while all threads are busy. The executor is shared with the other operations of the table,
+ * and it is shut down by the owner of this instance, which waits for the queued operations to complete, or cancels
+ * them. The futures of cancelled operations fail.
+ */
+final class AsyncHTable implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncHTable.class);
+
+  /**
+   * An operation on an {@link HTable}.
+   *
+   * @param <T> type of the result of the operation
+   */
+  interface Operation<T> {
+    T perform(HTable table) throws Exception;
+  }
+
+  private final TableId tableId;
+  private final Configuration hConf;
+  private final HBaseTableUtil tableUtil;
+  private final ExecutorService executor;
+  private final Queue<HTable> tables;
+  private volatile boolean closed;
+
+  AsyncHTable(TableId tableId, Configuration hConf, HBaseTableUtil tableUtil, ExecutorService executor) {
+    this.tableId = tableId;
+    this.hConf = hConf;
+    this.tableUtil = tableUtil;
+    this.executor = executor;
+    this.tables = new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * Performs the given operation in a thread of the executor.
+   *
+   * @return a future of the result of the operation, which fails if this instance is closed
+   */
+  <T> CompletableFuture<T> submit(Operation<T> operation) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    if (closed) {
+      result.completeExceptionally(new IOException("Table " + tableId + " is closed"));
+      return result;
+    }
+    try {
+      executor.execute(new Task(() -> perform(operation, result), result));
+    } catch (RejectedExecutionException e) {
+      // closed concurrently
+      result.completeExceptionally(new IOException("Table " + tableId + " is closed", e));
+    }
+    return result;
+  }
+
+  /**
+   * Closes the idle tables. Operations that are still performed close their tables when they complete.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    closeTables();
+  }
+
+  private <T> void perform(Operation<T> operation, CompletableFuture<T> result) {
+    try {
+      HTable table = borrowTable();
+      try {
+        result.complete(operation.perform(table));
+      } finally {
+        returnTable(table);
+      }
+    } catch (Throwable t) {
+      result.completeExceptionally(t);
+    }
+  }
+
+  private void returnTable(HTable table) {
+    tables.add(table);
+    if (closed) {
+      closeTables();
+    }
+  }
+
+  private void closeTables() {
+    HTable table = tables.poll();
+    while (table != null) {
+      try {
+        table.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close HTable for table {}", tableId, e);
+      }
+      table = tables.poll();
+    }
+  }
+
+  private HTable borrowTable() throws IOException {
+    HTable table = tables.poll();
+    return table == null ? tableUtil.createHTable(hConf, tableId) : table;
+  }
+
+  /**
+   * An operation queued in the executor. If it is cancelled before it is performed, the future of its result fails.
+   */
+  private final class Task extends FutureTask<Void> {
+
+    private final CompletableFuture<?> result;
+
+    Task(Runnable operation, CompletableFuture<?> result) {
+      super(operation, null);
+      this.result = result;
+    }
+
+    @Override
+    protected void done() {
+      if (isCancelled()) {
+        result.completeExceptionally(
+          new IOException("Table " + tableId + " was closed before the operation was performed"));
+      }
+    }
+  }
+}
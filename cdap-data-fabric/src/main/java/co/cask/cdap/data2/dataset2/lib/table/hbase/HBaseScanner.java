@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014-2017 Cask Data, Inc.
+ * Copyright © 2014-2018 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -19,18 +19,30 @@ package co.cask.cdap.data2.dataset2.lib.table.hbase;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.hbase.wd.AbstractRowKeyDistributor;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
 
 /**
  * Implements Scanner on top of HBase resultSetScanner.
+ * <p>
+ * If a prefetch byte budget is given, rows are read in batches, and the next batch is read by a thread of the given
+ * executor while the current one is consumed. The number of rows of a batch is adapted to the average size of the
+ * rows read so far, so that a batch holds about the byte budget.
  */
 public class HBaseScanner implements Scanner {
   private static final Logger LOG = LoggerFactory.getLogger(HBaseScanner.class);
@@ -38,12 +50,42 @@ public class HBaseScanner implements Scanner {
   private final ResultScanner scanner;
   private final byte[] columnFamily;
   private final AbstractRowKeyDistributor rowKeyDistributor;
+  // 0 if rows are read by the calling thread only
+  private final long prefetchBytes;
+  private final int maxBatchRows;
+  // null if rows are read by the calling thread only
+  private final ExecutorService prefetchExecutor;
+
+  private Iterator<Result> batch = Collections.emptyIterator();
+  private Future<Result[]> nextBatch;
+  private int nextBatchRows;
+  private boolean exhausted;
+  private long rowsRead;
+  private long bytesRead;
 
   public HBaseScanner(ResultScanner scanner, byte[] columnFamily,
                       @Nullable AbstractRowKeyDistributor rowKeyDistributor) {
+    this(scanner, columnFamily, rowKeyDistributor, 0, 1, null);
+  }
+
+  /**
+   * Creates a scanner that prefetches batches of rows.
+   *
+   * @param prefetchBytes the approximate size of a batch of rows, 0 to read the rows in the calling thread only
+   * @param maxBatchRows the maximum number of rows of a batch
+   * @param prefetchExecutor the executor that reads the next batch, required if prefetchBytes is positive
+   */
+  public HBaseScanner(ResultScanner scanner, byte[] columnFamily,
+                      @Nullable AbstractRowKeyDistributor rowKeyDistributor, long prefetchBytes, int maxBatchRows,
+                      @Nullable ExecutorService prefetchExecutor) {
+    Preconditions.checkArgument(prefetchBytes <= 0 || prefetchExecutor != null,
+                                "An executor is required to prefetch rows");
     this.scanner = scanner;
     this.columnFamily = columnFamily;
     this.rowKeyDistributor = rowKeyDistributor;
+    this.prefetchBytes = prefetchBytes;
+    this.maxBatchRows = Math.max(1, maxBatchRows);
+    this.prefetchExecutor = prefetchExecutor;
   }
 
   public HBaseScanner(ResultScanner scanner, byte[] columnFamily) {
@@ -59,7 +101,7 @@ public class HBaseScanner implements Scanner {
     try {
       //Loop until one row is read completely or until end is reached.
       while (true) {
-        final Result result = scanner.next();
+        final Result result = nextResult();
         if (result == null || result.isEmpty()) {
           break;
         }
@@ -87,6 +129,91 @@ public class HBaseScanner implements Scanner {
 
   @Override
   public void close() {
-    scanner.close();
+    try {
+      // the scanner must not be closed while the prefetch thread uses it
+      if (nextBatch != null) {
+        nextBatch.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      LOG.debug("Failed to prefetch rows of a scanner being closed", e.getCause());
+    } finally {
+      nextBatch = null;
+      scanner.close();
+    }
+  }
+
+  @Nullable
+  private Result nextResult() throws IOException {
+    if (prefetchBytes <= 0) {
+      return scanner.next();
+    }
+
+    while (!batch.hasNext()) {
+      if (exhausted) {
+        return null;
+      }
+      int batchRows;
+      Result[] results;
+      if (nextBatch == null) {
+        batchRows = getBatchRows();
+        results = scanner.next(batchRows);
+      } else {
+        batchRows = nextBatchRows;
+        results = awaitNextBatch();
+      }
+      // the scanner returns fewer rows than requested only if it has no more rows
+      exhausted = results.length < batchRows;
+      for (Result result : results) {
+        bytesRead += getSize(result);
+      }
+      rowsRead += results.length;
+      batch = Arrays.asList(results).iterator();
+
+      if (!exhausted) {
+        final int prefetchRows = getBatchRows();
+        nextBatchRows = prefetchRows;
+        nextBatch = prefetchExecutor.submit(() -> scanner.next(prefetchRows));
+      }
+    }
+    return batch.next();
+  }
+
+  private Result[] awaitNextBatch() throws IOException {
+    try {
+      return nextBatch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the next rows of the scanner", e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      nextBatch = null;
+    }
+  }
+
+  /**
+   * Returns the number of rows of the next batch, based on the average size of the rows read so far.
+   * The first batch has one row, as nothing is known about the size of the rows.
+   */
+  private int getBatchRows() {
+    if (rowsRead == 0 || bytesRead == 0) {
+      return 1;
+    }
+    long averageRowBytes = Math.max(1, bytesRead / rowsRead);
+    return (int) Math.max(1, Math.min(maxBatchRows, prefetchBytes / averageRowBytes));
+  }
+
+  private static long getSize(Result result) {
+    long size = 0;
+    Cell[] cells = result.rawCells();
+    if (cells != null) {
+      for (Cell cell : cells) {
+        size += cell.getRowLength() + cell.getFamilyLength() + cell.getQualifierLength() + cell.getValueLength();
+      }
+    }
+    return size;
   }
 }
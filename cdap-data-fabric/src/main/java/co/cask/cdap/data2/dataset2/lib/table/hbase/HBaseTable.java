@@ -22,7 +22,9 @@ import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DataSetException;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.table.Aggregation;
 import co.cask.cdap.api.dataset.table.Filter;
+import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.TableProperties;
 import co.cask.cdap.common.conf.CConfiguration;
@@ -40,6 +42,7 @@ import co.cask.cdap.data2.util.hbase.HBaseTableUtil;
 import co.cask.cdap.data2.util.hbase.IncrementBuilder;
 import co.cask.cdap.data2.util.hbase.PutBuilder;
 import co.cask.cdap.data2.util.hbase.ScanBuilder;
+import co.cask.cdap.internal.dataset.TableAggregator;
 import co.cask.cdap.proto.id.NamespaceId;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
@@ -58,35 +61,44 @@ import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.OperationWithAttributes;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.tephra.Transaction;
 import org.apache.tephra.TransactionCodec;
 import org.apache.tephra.TxConstants;
 import org.apache.tephra.util.TxUtils;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
  * Dataset client for HBase tables.
  */
-// todo: do periodic flush when certain threshold is reached
 // todo: extract separate "no delete inside tx" table?
-// todo: consider writing & reading using HTable to do in multi-threaded way
 public class HBaseTable extends BufferingTable {
   private static final Logger LOG = LoggerFactory.getLogger(HBaseTable.class);
 
   private static final String CONFIG_HBASE_CLIENT_SCANNER_CACHING = HConstants.HBASE_CLIENT_SCANNER_CACHING;
   private static final String CONFIG_HBASE_CLIENT_CACHE_BLOCKS = "hbase.client.cache.blocks";
+  // minimum number of threads of the executor of a table, which also prefetches the rows of its scanners
+  private static final int MIN_EXECUTOR_THREADS = 2;
+  // maximum time to wait in close for the operations in the executor to complete, before they are cancelled
+  private static final long CLOSE_TIMEOUT_SECONDS = 30L;
 
   public static final String DELTA_WRITE = "d";
   public static final String WRITE_POINTER = "wp";
@@ -95,6 +107,29 @@ public class HBaseTable extends BufferingTable {
 
   public static final String SAFE_INCREMENTS = "dataset.table.safe.readless.increments";
 
+  // number of threads used to persist changes and to perform multi-gets, one batch per region server.
+  // With 1 (the default), all operations are performed by the calling thread.
+  public static final String CLIENT_THREADS = "dataset.table.hbase.client.threads";
+  // size of the batch of mutations sent to one region server when using multiple threads
+  public static final String CLIENT_BATCH_BYTES = "dataset.table.hbase.client.batch.bytes";
+  // maximum size of the mutations being sent concurrently when using multiple threads
+  public static final String CLIENT_MAX_INFLIGHT_BYTES = "dataset.table.hbase.client.max.inflight.bytes";
+
+  // number of threads used to perform the reads of the asynchronous table API.
+  // With 0 (the default), the asynchronous reads are performed by the calling thread.
+  public static final String ASYNC_CLIENT_THREADS = "dataset.table.hbase.client.async.threads";
+
+  // approximate size in bytes of the batches of rows read by a scanner, which prefetches the next batch while the
+  // current one is consumed. Can be set in the scan properties, runtime arguments or table properties.
+  // With 0 (the default), the rows are read by the calling thread only.
+  public static final String SCAN_PREFETCH_BYTES = "dataset.table.hbase.scan.prefetch.bytes";
+
+  // table property that enables computing aggregations with a coprocessor in the region servers
+  public static final String AGGREGATION_COPROCESSOR = "dataset.table.hbase.aggregation.coprocessor";
+  // attribute of a scan that requests aggregating the scanned rows in the region servers,
+  // also the qualifier of the cells that hold the partial aggregations returned by such a scan
+  public static final String AGGREGATION = "cdap.aggregation";
+
   private final HBaseTableUtil tableUtil;
   private final HTable hTable;
   private final String hTableName;
@@ -110,8 +145,18 @@ public class HBaseTable extends BufferingTable {
 
   private final Map<String, String> arguments;
   private final Map<String, String> properties;
+  // null if operations are performed by the calling thread only
+  private final ParallelHTable parallelHTable;
+  // null if asynchronous reads are performed by the calling thread
+  private final AsyncHTable asyncHTable;
+  // performs the operations of the parallel and asynchronous clients, and prefetches the rows of scanners.
+  // Its threads are created by the callers of this table, hence they inherit the dataset runtime context that
+  // enforces the access to the rows.
+  private final ThreadPoolExecutor executor;
 
   private byte[] encodedTx;
+  // whether the HBase table has the aggregation coprocessor, determined on first use
+  private Boolean hasAggregationCoprocessor;
 
   public HBaseTable(DatasetContext datasetContext, DatasetSpecification spec, Map<String, String> args,
                     CConfiguration cConf, Configuration hConf, HBaseTableUtil tableUtil) throws IOException {
@@ -142,6 +187,30 @@ public class HBaseTable extends BufferingTable {
       cConf.getInt(TxConstants.Manager.CFG_TX_MAX_LIFETIME, TxConstants.Manager.DEFAULT_TX_MAX_LIFETIME)));
     this.arguments = args;
     this.properties = spec.getProperties();
+
+    int threads = getIntConfig(CLIENT_THREADS, 1);
+    int asyncThreads = getIntConfig(ASYNC_CLIENT_THREADS, 0);
+    int executorThreads = Math.max(MIN_EXECUTOR_THREADS, Math.max(threads, asyncThreads));
+    // Shrinks to 0 threads if left idle
+    this.executor = new ThreadPoolExecutor(executorThreads, executorThreads, 60L, TimeUnit.SECONDS,
+                                           new LinkedBlockingQueue<>(),
+                                           Threads.createDaemonThreadFactory("hbase-table-" + hTableName + "-%d"));
+    this.executor.allowCoreThreadTimeOut(true);
+    this.parallelHTable = threads <= 1 ? null : new ParallelHTable(
+      hTable, hBaseTableId, hConf, tableUtil, executor, threads,
+      getIntConfig(CLIENT_BATCH_BYTES, HBaseTableUtil.DEFAULT_WRITE_BUFFER_SIZE / 4),
+      getIntConfig(CLIENT_MAX_INFLIGHT_BYTES, HBaseTableUtil.DEFAULT_WRITE_BUFFER_SIZE * threads));
+    this.asyncHTable = asyncThreads <= 0 ? null : new AsyncHTable(hBaseTableId, hConf, tableUtil, executor);
+  }
+
+  private int getIntConfig(String key, int defaultValue) {
+    if (arguments.containsKey(key)) {
+      return Integer.parseInt(arguments.get(key));
+    }
+    if (properties.containsKey(key)) {
+      return Integer.parseInt(properties.get(key));
+    }
+    return defaultValue;
   }
 
   @Override
@@ -229,7 +298,7 @@ public class HBaseTable extends BufferingTable {
   @ReadOnly
   private Result[] hbaseGet(List<Get> gets) {
     try {
-      return hTable.get(gets);
+      return parallelHTable == null ? hTable.get(gets) : parallelHTable.get(gets);
     } catch (IOException ioe) {
       throw new DataSetException("Multi-get failed on table " + hTableName, ioe);
     }
@@ -245,7 +314,44 @@ public class HBaseTable extends BufferingTable {
     try {
       super.close();
     } finally {
-      hTable.close();
+      try {
+        shutdownExecutor();
+      } finally {
+        if (parallelHTable != null) {
+          parallelHTable.close();
+        }
+        if (asyncHTable != null) {
+          asyncHTable.close();
+        }
+        hTable.close();
+      }
+    }
+  }
+
+  /**
+   * Rejects further operations of the executor, and waits for the submitted ones to complete. If they do not complete
+   * in time, the running operations are interrupted, and the queued ones are cancelled.
+   */
+  private void shutdownExecutor() throws InterruptedIOException {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        LOG.warn("Operations on table {} did not complete within {} seconds after close, cancelling them",
+                 hTableName, CLOSE_TIMEOUT_SECONDS);
+        cancelExecutor();
+      }
+    } catch (InterruptedException e) {
+      cancelExecutor();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the operations on table " + hTableName);
+    }
+  }
+
+  private void cancelExecutor() {
+    for (Runnable task : executor.shutdownNow()) {
+      if (task instanceof Future) {
+        ((Future<?>) task).cancel(false);
+      }
     }
   }
 
@@ -315,12 +421,20 @@ public class HBaseTable extends BufferingTable {
   private boolean hbaseFlush(List<Mutation> mutations)
     throws IOException, InterruptedException {
 
-    if (!mutations.isEmpty()) {
+    if (mutations.isEmpty()) {
+      return false;
+    }
+    if (parallelHTable == null) {
       hTable.batch(mutations, new Object[mutations.size()]);
       hTable.flushCommits();
-      return true;
+    } else {
+      ParallelHTable.Mutator mutator = parallelHTable.createMutator();
+      for (Mutation mutation : mutations) {
+        mutator.mutate(mutation);
+      }
+      mutator.flush();
     }
-    return false;
+    return true;
   }
 
   private PutBuilder getPut(PutBuilder existing, byte[] row, @Nullable byte[] txId) {
@@ -437,6 +551,106 @@ public class HBaseTable extends BufferingTable {
   @ReadOnly
   @Override
   protected Scanner scanPersisted(co.cask.cdap.api.dataset.table.Scan scan) throws Exception {
+    ScanBuilder hScan = createScan(scan);
+    String prefetchBytes = getScanConfig(scan, SCAN_PREFETCH_BYTES);
+    if (prefetchBytes == null || Long.parseLong(prefetchBytes) <= 0) {
+      ResultScanner resultScanner = wrapResultScanner(hTable.getScanner(hScan.build()));
+      return new HBaseScanner(resultScanner, columnFamily);
+    }
+
+    // every RPC returns at most about one batch, whatever the width of the rows
+    hScan.setMaxResultSize(Long.parseLong(prefetchBytes));
+    ResultScanner resultScanner = wrapResultScanner(hTable.getScanner(hScan.build()));
+    return new HBaseScanner(resultScanner, columnFamily, null,
+                            Long.parseLong(prefetchBytes), hScanCaching(scan), executor);
+  }
+
+  @Nullable
+  private String getScanConfig(co.cask.cdap.api.dataset.table.Scan scan, String key) {
+    if (scan.getProperties().containsKey(key)) {
+      return scan.getProperties().get(key);
+    }
+    if (arguments.containsKey(key)) {
+      return arguments.get(key);
+    }
+    return properties.get(key);
+  }
+
+  @ReadOnly
+  @Override
+  protected CompletableFuture<List<Map<byte[], byte[]>>> getPersistedAsync(
+    List<co.cask.cdap.api.dataset.table.Get> gets) {
+    if (asyncHTable == null) {
+      return super.getPersistedAsync(gets);
+    }
+    // the HBase gets carry the current transaction, hence they are created in the calling thread
+    List<Get> hbaseGets = new ArrayList<>();
+    for (co.cask.cdap.api.dataset.table.Get get : gets) {
+      List<byte[]> cols = get.getColumns();
+      if (cols == null || !cols.isEmpty()) {
+        hbaseGets.add(createGet(get.getRow(), cols == null ? null : cols.toArray(new byte[cols.size()][])));
+      }
+    }
+    CompletableFuture<Result[]> future = hbaseGets.isEmpty()
+      ? CompletableFuture.completedFuture(new Result[0])
+      : asyncHTable.submit(table -> table.get(hbaseGets));
+
+    return future.thenApply(hbaseResults -> {
+      List<Map<byte[], byte[]>> results = new ArrayList<>(gets.size());
+      int hbaseResultsIndex = 0;
+      for (co.cask.cdap.api.dataset.table.Get get : gets) {
+        List<byte[]> cols = get.getColumns();
+        if (cols == null || !cols.isEmpty()) {
+          Map<byte[], byte[]> familyMap = hbaseResults[hbaseResultsIndex++].getFamilyMap(columnFamily);
+          results.add(familyMap != null ? familyMap : ImmutableMap.<byte[], byte[]>of());
+        } else {
+          results.add(ImmutableMap.<byte[], byte[]>of());
+        }
+      }
+      return results;
+    });
+  }
+
+  @ReadOnly
+  @Override
+  protected CompletableFuture<List<Row>> scanPersistedAsync(co.cask.cdap.api.dataset.table.Scan scan, int limit) {
+    if (asyncHTable == null) {
+      return super.scanPersistedAsync(scan, limit);
+    }
+    Scan hScan;
+    try {
+      // the scan carries the current transaction, hence it is created in the calling thread
+      ScanBuilder scanBuilder = createScan(scan);
+      scanBuilder.setCaching(Math.max(1, Math.min(limit, hScanCaching(scan))));
+      hScan = scanBuilder.build();
+    } catch (Exception e) {
+      CompletableFuture<List<Row>> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+
+    return asyncHTable.submit(table -> {
+      List<Row> rows = new ArrayList<>();
+      try (ResultScanner scanner = table.getScanner(hScan)) {
+        Result result;
+        while (rows.size() < limit && (result = scanner.next()) != null) {
+          NavigableMap<byte[], byte[]> rowMap = getRowMap(result, columnFamily);
+          if (!rowMap.isEmpty()) {
+            rows.add(new co.cask.cdap.api.dataset.table.Result(result.getRow(), rowMap));
+          }
+        }
+      }
+      return rows;
+    });
+  }
+
+  private int hScanCaching(co.cask.cdap.api.dataset.table.Scan scan) {
+    String caching = getScanConfig(scan, CONFIG_HBASE_CLIENT_SCANNER_CACHING);
+    // NOTE: by default we use this hard-coded value, for backwards-compatibility with CDAP<4.1.2|4.2.1|4.3
+    return caching == null ? 1000 : Integer.valueOf(caching);
+  }
+
+  private ScanBuilder createScan(co.cask.cdap.api.dataset.table.Scan scan) throws IOException {
     ScanBuilder hScan = tableUtil.buildScan();
     hScan.addFamily(columnFamily);
 
@@ -452,16 +666,7 @@ public class HBaseTable extends BufferingTable {
       hScan.setCacheBlocks(false);
     }
 
-    if (scan.getProperties().containsKey(CONFIG_HBASE_CLIENT_SCANNER_CACHING)) {
-      hScan.setCaching(Integer.valueOf(scan.getProperties().get(CONFIG_HBASE_CLIENT_SCANNER_CACHING)));
-    } else if (arguments.containsKey(CONFIG_HBASE_CLIENT_SCANNER_CACHING)) {
-      hScan.setCaching(Integer.valueOf(arguments.get(CONFIG_HBASE_CLIENT_SCANNER_CACHING)));
-    } else if (properties.containsKey(CONFIG_HBASE_CLIENT_SCANNER_CACHING)) {
-      hScan.setCaching(Integer.valueOf(properties.get(CONFIG_HBASE_CLIENT_SCANNER_CACHING)));
-    } else {
-      // NOTE: by default we use this hard-coded value, for backwards-compatibility with CDAP<4.1.2|4.2.1|4.3
-      hScan.setCaching(1000);
-    }
+    hScan.setCaching(hScanCaching(scan));
 
     byte[] startRow = scan.getStartRow();
     byte[] stopRow = scan.getStopRow();
@@ -474,9 +679,49 @@ public class HBaseTable extends BufferingTable {
 
     setFilterIfNeeded(hScan, scan.getFilter());
     hScan.setAttribute(TxConstants.TX_OPERATION_ATTRIBUTE_KEY, getEncodedTx());
+    return hScan;
+  }
 
-    ResultScanner resultScanner = wrapResultScanner(hTable.getScanner(hScan.build()));
-    return new HBaseScanner(resultScanner, columnFamily);
+  @Nullable
+  @Override
+  protected NavigableMap<byte[], List<Long>> aggregatePersisted(co.cask.cdap.api.dataset.table.Scan scan,
+                                                                int rowPrefixLength,
+                                                                List<Aggregation> aggregations) throws Exception {
+    if (hasAggregationCoprocessor == null) {
+      String className = tableUtil.getAggregationRegionObserverClassForVersion().getName();
+      hasAggregationCoprocessor = hTable.getTableDescriptor().hasCoprocessor(className);
+    }
+    if (!hasAggregationCoprocessor) {
+      return null;
+    }
+
+    TableAggregator aggregator = new TableAggregator(rowPrefixLength, aggregations);
+    ScanBuilder hScan = tableUtil.buildScan();
+    hScan.addFamily(columnFamily);
+    // every result holds the partial aggregations of many rows, and the rows are only read once
+    hScan.setCaching(1);
+    hScan.setCacheBlocks(false);
+    if (scan.getStartRow() != null) {
+      hScan.setStartRow(scan.getStartRow());
+    }
+    if (scan.getStopRow() != null) {
+      hScan.setStopRow(scan.getStopRow());
+    }
+    setFilterIfNeeded(hScan, scan.getFilter());
+    hScan.setAttribute(TxConstants.TX_OPERATION_ATTRIBUTE_KEY, getEncodedTx());
+    hScan.setAttribute(AGGREGATION, aggregator.getSpecification());
+
+    byte[] qualifier = Bytes.toBytes(AGGREGATION);
+    try (ResultScanner scanner = wrapResultScanner(hTable.getScanner(hScan.build()))) {
+      Result result;
+      while ((result = scanner.next()) != null) {
+        byte[] partial = result.getValue(columnFamily, qualifier);
+        if (partial != null) {
+          aggregator.mergePartial(partial);
+        }
+      }
+    }
+    return aggregator.getResults();
   }
 
   private void setFilterIfNeeded(ScanBuilder scan, @Nullable Filter filter) {
@@ -26,6 +26,8 @@ import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.data2.datafabric.dataset.DatasetsUtil;
 import co.cask.cdap.data2.dataset2.lib.hbase.AbstractHBaseDataSetAdmin;
+import co.cask.cdap.data2.dataset2.lib.table.TableReadCache;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.PrefixedNamespaces;
 import co.cask.cdap.data2.util.hbase.ColumnFamilyDescriptorBuilder;
 import co.cask.cdap.data2.util.hbase.CoprocessorManager;
 import co.cask.cdap.data2.util.hbase.HBaseTableUtil;
@@ -61,6 +63,8 @@ public class HBaseTableAdmin extends AbstractHBaseDataSetAdmin implements Updata
   private final DatasetSpecification spec;
   // todo: datasets should not depend on cdap configuration!
   private final CConfiguration conf;
+  // name of the table in the read cache
+  private final String name;
 
   public HBaseTableAdmin(DatasetContext datasetContext,
                          DatasetSpecification spec,
@@ -72,6 +76,7 @@ public class HBaseTableAdmin extends AbstractHBaseDataSetAdmin implements Updata
           hConf, conf, tableUtil, locationFactory);
     this.spec = spec;
     this.conf = conf;
+    this.name = PrefixedNamespaces.namespace(conf, datasetContext.getNamespaceId(), spec.getName());
   }
 
   @Override
@@ -105,6 +110,11 @@ public class HBaseTableAdmin extends AbstractHBaseDataSetAdmin implements Updata
       tdBuilder.addProperty(Table.PROPERTY_READLESS_INCREMENT, "true");
     }
 
+    // if the dataset is configured to aggregate in the region servers, then set the table property to support upgrades
+    if (isAggregationCoprocessorEnabled(spec.getProperties())) {
+      tdBuilder.addProperty(HBaseTable.AGGREGATION_COPROCESSOR, "true");
+    }
+
     // if the dataset is configured to be non-transactional, then set the table property to support upgrades
     if (!DatasetsUtil.isTransactional(spec.getProperties())) {
       tdBuilder.addProperty(Constants.Dataset.TABLE_TX_DISABLED, "true");
@@ -152,6 +162,18 @@ public class HBaseTableAdmin extends AbstractHBaseDataSetAdmin implements Updata
     }
   }
 
+  @Override
+  public void truncate() throws IOException {
+    super.truncate();
+    TableReadCache.invalidate(name);
+  }
+
+  @Override
+  public void drop() throws IOException {
+    super.drop();
+    TableReadCache.remove(name);
+  }
+
   @Override
   public void update(DatasetSpecification oldSpec) throws IOException {
     updateTable(false);
@@ -193,6 +215,18 @@ public class HBaseTableAdmin extends AbstractHBaseDataSetAdmin implements Updata
       needUpgrade = true;
     }
 
+    // check if the aggregation coprocessor setting has changed
+    boolean supportsAggregation = supportsAggregation(tableDescriptor);
+    boolean specifiedAggregation = isAggregationCoprocessorEnabled(spec.getProperties());
+    if (specifiedAggregation != supportsAggregation) {
+      if (specifiedAggregation) {
+        tableDescriptor.setValue(HBaseTable.AGGREGATION_COPROCESSOR, "true");
+      } else {
+        tableDescriptor.remove(HBaseTable.AGGREGATION_COPROCESSOR);
+      }
+      needUpgrade = true;
+    }
+
 
     String splitsPolicy = spec.getProperty(SPLIT_POLICY);
     // override using provided split policy
@@ -214,7 +248,9 @@ public class HBaseTableAdmin extends AbstractHBaseDataSetAdmin implements Updata
   protected CoprocessorJar createCoprocessorJar() throws IOException {
     boolean supportsIncrement = TableProperties.getReadlessIncrementSupport(spec.getProperties());
     boolean transactional = DatasetsUtil.isTransactional(spec.getProperties());
-    return createCoprocessorJarInternal(conf, coprocessorManager, tableUtil, transactional, supportsIncrement);
+    boolean supportsAggregation = isAggregationCoprocessorEnabled(spec.getProperties());
+    return createCoprocessorJarInternal(conf, coprocessorManager, tableUtil, transactional, supportsIncrement,
+                                        supportsAggregation);
   }
 
   public static CoprocessorJar createCoprocessorJarInternal(CConfiguration conf,
@@ -222,6 +258,16 @@ public class HBaseTableAdmin extends AbstractHBaseDataSetAdmin implements Updata
                                                             HBaseTableUtil tableUtil,
                                                             boolean transactional,
                                                             boolean supportsReadlessIncrement) throws IOException {
+    return createCoprocessorJarInternal(conf, coprocessorManager, tableUtil, transactional, supportsReadlessIncrement,
+                                        false);
+  }
+
+  public static CoprocessorJar createCoprocessorJarInternal(CConfiguration conf,
+                                                            CoprocessorManager coprocessorManager,
+                                                            HBaseTableUtil tableUtil,
+                                                            boolean transactional,
+                                                            boolean supportsReadlessIncrement,
+                                                            boolean supportsAggregation) throws IOException {
     Class<? extends Coprocessor> dataJanitorClass = tableUtil.getTransactionDataJanitorClassForVersion();
     Class<? extends Coprocessor> incrementClass = tableUtil.getIncrementHandlerClassForVersion();
 
@@ -240,6 +286,10 @@ public class HBaseTableAdmin extends AbstractHBaseDataSetAdmin implements Updata
     if (supportsReadlessIncrement) {
       coprocessors.add(incrementClass);
     }
+    // aggregations must come last, so that they are computed over the rows as seen by the client
+    if (supportsAggregation) {
+      coprocessors.add(tableUtil.getAggregationRegionObserverClassForVersion());
+    }
 
     ImmutableList<Class<? extends Coprocessor>> coprocessorList = coprocessors.build();
     if (coprocessorList.isEmpty()) {
@@ -249,6 +299,18 @@ public class HBaseTableAdmin extends AbstractHBaseDataSetAdmin implements Updata
     return new CoprocessorJar(coprocessorList, jarFile);
   }
 
+  /**
+   * Returns whether or not the table defined by the given descriptor computes aggregations in the region servers.
+   * Defaults to false.
+   */
+  public static boolean supportsAggregation(HTableDescriptor desc) {
+    return "true".equalsIgnoreCase(desc.getValue(HBaseTable.AGGREGATION_COPROCESSOR));
+  }
+
+  private static boolean isAggregationCoprocessorEnabled(Map<String, String> properties) {
+    return Boolean.parseBoolean(properties.get(HBaseTable.AGGREGATION_COPROCESSOR));
+  }
+
   /**
    * Returns whether or not the table defined by the given descriptor has read-less increments enabled.
    * Defaults to false.
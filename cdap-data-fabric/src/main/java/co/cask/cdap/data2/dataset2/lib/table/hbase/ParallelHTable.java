@@ -0,0 +1,324 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table.hbase;
+
+import co.cask.cdap.data2.util.TableId;
+import co.cask.cdap.data2.util.hbase.HBaseTableUtil;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Performs batches of operations on an HBase table in parallel, with one batch of operations per region server.
+ * <p>
+ * {@link HTable} is not thread-safe, hence each thread uses its own {@link HTable} instance from a pool.
+ * The {@link HTable} of the caller is only used to locate regions. The batches are performed by an executor that is
+ * shared with the other operations of the table, which is shut down by the owner of this instance.
+ */
+final class ParallelHTable implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelHTable.class);
+
+  private final HTable locator;
+  private final TableId tableId;
+  private final Configuration hConf;
+  private final HBaseTableUtil tableUtil;
+  private final int batchBytes;
+  private final int maxInflightBytes;
+  private final ExecutorService executor;
+  // limits the batches performed by the executor, further batches are performed by the calling thread
+  private final Semaphore threadPermits;
+  private final Queue<HTable> tables;
+  private volatile boolean closed;
+
+  ParallelHTable(HTable locator, TableId tableId, Configuration hConf, HBaseTableUtil tableUtil,
+                 ExecutorService executor, int threads, int batchBytes, int maxInflightBytes) {
+    this.locator = locator;
+    this.tableId = tableId;
+    this.hConf = hConf;
+    this.tableUtil = tableUtil;
+    this.batchBytes = batchBytes;
+    this.maxInflightBytes = Math.max(batchBytes, maxInflightBytes);
+    this.executor = executor;
+    this.threadPermits = new Semaphore(threads);
+    this.tables = new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * Creates a new {@link Mutator} for a set of mutations that should be persisted together.
+   */
+  Mutator createMutator() {
+    return new Mutator();
+  }
+
+  /**
+   * Performs the given gets, with the gets for each region server performed in parallel.
+   *
+   * @return the results of the gets, in the same order as the gets
+   */
+  Result[] get(List<Get> gets) throws IOException {
+    // group the gets by region server, keeping track of their positions
+    Map<String, List<Integer>> positions = new LinkedHashMap<>();
+    RegionServerLocator serverLocator = new RegionServerLocator();
+    for (int i = 0; i < gets.size(); i++) {
+      String server = serverLocator.locate(gets.get(i).getRow());
+      List<Integer> serverPositions = positions.get(server);
+      if (serverPositions == null) {
+        serverPositions = new ArrayList<>();
+        positions.put(server, serverPositions);
+      }
+      serverPositions.add(i);
+    }
+
+    final Result[] results = new Result[gets.size()];
+    List<Future<?>> futures = new ArrayList<>(positions.size());
+    for (final List<Integer> serverPositions : positions.values()) {
+      final List<Get> serverGets = new ArrayList<>(serverPositions.size());
+      for (int position : serverPositions) {
+        serverGets.add(gets.get(position));
+      }
+      futures.add(execute(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          HTable table = borrowTable();
+          try {
+            Result[] serverResults = table.get(serverGets);
+            for (int i = 0; i < serverResults.length; i++) {
+              results[serverPositions.get(i)] = serverResults[i];
+            }
+          } finally {
+            returnTable(table);
+          }
+          return null;
+        }
+      }));
+    }
+    waitFor(futures);
+    return results;
+  }
+
+  /**
+   * Closes the idle tables. Batches that are still performed close their tables when they complete.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    closeTables();
+  }
+
+  /**
+   * Performs an operation in the executor, or in the calling thread if the maximum number of threads is in use.
+   */
+  private Future<?> execute(Callable<Void> callable) {
+    if (!threadPermits.tryAcquire()) {
+      FutureTask<Void> task = new FutureTask<>(callable);
+      task.run();
+      return task;
+    }
+    try {
+      return executor.submit(() -> {
+        try {
+          return callable.call();
+        } finally {
+          threadPermits.release();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      threadPermits.release();
+      throw e;
+    }
+  }
+
+  private void returnTable(HTable table) {
+    tables.add(table);
+    if (closed) {
+      closeTables();
+    }
+  }
+
+  private void closeTables() {
+    HTable table = tables.poll();
+    while (table != null) {
+      try {
+        table.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close HTable for table {}", tableId, e);
+      }
+      table = tables.poll();
+    }
+  }
+
+  private HTable borrowTable() throws IOException {
+    HTable table = tables.poll();
+    if (table == null) {
+      table = tableUtil.createHTable(hConf, tableId);
+      table.setWriteBufferSize(HBaseTableUtil.DEFAULT_WRITE_BUFFER_SIZE);
+      table.setAutoFlushTo(false);
+    }
+    return table;
+  }
+
+  /**
+   * Waits for all given futures to complete, and throws the failure of the first failed one if any.
+   */
+  private static void waitFor(List<Future<?>> futures) throws IOException {
+    IOException failure = null;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        InterruptedIOException interrupted = new InterruptedIOException("Interrupted while waiting for HBase");
+        interrupted.initCause(e);
+        throw interrupted;
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } else {
+          failure.addSuppressed(e.getCause());
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Persists mutations in batches per region server. A batch is sent as soon as it is big enough, while more mutations
+   * are added, as long as the total size of the batches being sent stays within the in-flight limit.
+   */
+  final class Mutator {
+
+    private final RegionServerLocator serverLocator = new RegionServerLocator();
+    private final Map<String, Batch> batches = new HashMap<>();
+    private final Semaphore inflightBytes = new Semaphore(maxInflightBytes);
+    private final List<Future<?>> futures = new ArrayList<>();
+
+    /**
+     * Adds a mutation, which may be sent to HBase before {@link #flush()} is called.
+     */
+    void mutate(Mutation mutation) throws IOException {
+      String server = serverLocator.locate(mutation.getRow());
+      Batch batch = batches.get(server);
+      if (batch == null) {
+        batch = new Batch();
+        batches.put(server, batch);
+      }
+      batch.mutations.add(mutation);
+      batch.bytes += mutation.heapSize();
+      if (batch.bytes >= batchBytes) {
+        batches.remove(server);
+        submit(batch);
+      }
+    }
+
+    /**
+     * Sends all remaining mutations, and waits for all mutations to be persisted.
+     *
+     * @throws IOException if any of the mutations failed
+     */
+    void flush() throws IOException {
+      for (Batch batch : batches.values()) {
+        submit(batch);
+      }
+      batches.clear();
+      waitFor(futures);
+      futures.clear();
+    }
+
+    private void submit(final Batch batch) throws IOException {
+      final int permits = (int) Math.min(batch.bytes, maxInflightBytes);
+      try {
+        inflightBytes.acquire(permits);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        InterruptedIOException interrupted = new InterruptedIOException("Interrupted while waiting to write to HBase");
+        interrupted.initCause(e);
+        throw interrupted;
+      }
+      try {
+        futures.add(execute(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            try {
+              HTable table = borrowTable();
+              try {
+                table.batch(batch.mutations, new Object[batch.mutations.size()]);
+                table.flushCommits();
+              } finally {
+                returnTable(table);
+              }
+            } finally {
+              inflightBytes.release(permits);
+            }
+            return null;
+          }
+        }));
+      } catch (RuntimeException e) {
+        inflightBytes.release(permits);
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Mutations to be sent to one region server.
+   */
+  private static final class Batch {
+    private final List<Mutation> mutations = new ArrayList<>();
+    private long bytes;
+  }
+
+  /**
+   * Finds the region server of rows. Rows are often in order, hence the last region is checked first.
+   */
+  private final class RegionServerLocator {
+
+    private HRegionLocation lastLocation;
+
+    String locate(byte[] row) throws IOException {
+      if (lastLocation == null || !lastLocation.getRegionInfo().containsRow(row)) {
+        lastLocation = locator.getRegionLocation(row);
+      }
+      return lastLocation.getHostnamePort();
+    }
+  }
+}
@@ -19,6 +19,7 @@ package co.cask.cdap.data2.dataset2.lib.table.inmemory;
 import co.cask.cdap.api.dataset.DatasetAdmin;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.data2.dataset2.lib.table.TableReadCache;
 
 import java.io.IOException;
 
@@ -45,11 +46,13 @@ public class InMemoryTableAdmin implements DatasetAdmin {
   @Override
   public void truncate() {
     InMemoryTableService.truncate(name);
+    TableReadCache.invalidate(name);
   }
 
   @Override
   public void drop() {
     InMemoryTableService.drop(name);
+    TableReadCache.remove(name);
   }
 
   @Override
@@ -35,190 +35,93 @@ import java.util.Comparator;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import javax.annotation.Nullable;
 
 /**
  * Holds all in-memory tables for {@link InMemoryTable}.
+ * <p>
+ * Each table is kept in its own {@link TableData} instance, which stores rows, columns and versions in concurrent
+ * skip-list maps. Operations on different tables never contend, merges of transactional changes are lock-free, and
+ * only the non-transactional read-modify-write operations ({@link #increment}, {@link #swap}) and row removals
+ * synchronize, on the affected row.
  */
-// todo: use locks instead of synchronize
 // todo: consider using SortedMap instead of NavigableMap in APIs
 public class InMemoryTableService {
-  private static Map<String, ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>>> tables =
-    Maps.newHashMap();
+  private static final ConcurrentMap<String, TableData> tables = new ConcurrentHashMap<>();
 
-  public static synchronized boolean exists(String tableName) {
+  public static boolean exists(String tableName) {
     return tables.containsKey(tableName);
   }
 
-  public static synchronized void create(String tableName) {
-    if (!tables.containsKey(tableName)) {
-      tables.put(tableName, new ConcurrentSkipListMap<byte[],
-        NavigableMap<byte[], NavigableMap<Long, Update>>>(Bytes.BYTES_COMPARATOR));
-    }
+  public static void create(String tableName) {
+    tables.putIfAbsent(tableName, new TableData());
   }
 
-  public static synchronized void truncate(String tableName) {
-    tables.get(tableName).clear();
+  public static void truncate(String tableName) {
+    getTable(tableName).deleteRows(null, null);
   }
 
-  public static synchronized void drop(String tableName) {
+  public static void drop(String tableName) {
     tables.remove(tableName);
   }
 
-  public static synchronized void reset() {
+  public static void reset() {
     tables.clear();
   }
 
   // no nulls
-  public static synchronized void merge(String tableName,
-                                        SortedMap<byte[], ? extends SortedMap<byte[], ? extends Update>> changes,
-                                        long version) {
+  public static void merge(String tableName,
+                           SortedMap<byte[], ? extends SortedMap<byte[], ? extends Update>> changes,
+                           long version) {
     // todo: handle nulls
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
+    TableData table = getTable(tableName);
     SortedMap<byte[], ? extends SortedMap<byte[], Update>> changesCopy = deepCopyUpdates(changes);
     for (Map.Entry<byte[], ? extends SortedMap<byte[], Update>> change : changesCopy.entrySet()) {
-      merge(table, change.getKey(), change.getValue(), version);
-    }
-  }
-
-  private static void merge(ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table,
-                            byte[] row, Map<byte[], Update> changes, long version) {
-    // get the correct row from the table, create it if it doesn't exist
-    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-    if (rowMap == null) {
-      rowMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      table.put(row, rowMap);
-    }
-    // now merge the changes into the row, one by one
-    for (Map.Entry<byte[], Update> keyVal : changes.entrySet()) {
-      // create the column in the row if it does not exist
-      NavigableMap<Long, Update> colMap = rowMap.get(keyVal.getKey());
-      if (colMap == null) {
-        colMap = Maps.newTreeMap();
-        rowMap.put(keyVal.getKey(), colMap);
-      }
-      // put into the column with given version
-      Update merged = Updates.mergeUpdates(colMap.get(version), keyVal.getValue());
-      colMap.put(version, merged);
+      table.merge(change.getKey(), change.getValue(), version);
     }
   }
 
   // todo: remove it from here: only used by "system" metrics table, which should be revised
   @Deprecated
-  public static synchronized Map<byte[], Long> increment(String tableName, byte[] row, Map<byte[], Long> increments) {
-    Map<byte[], Long> resultMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    // get the correct row from the table, create it if it doesn't exist
-    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-    if (rowMap == null) {
-      rowMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      table.put(row, rowMap);
-    }
-    // now increment each column, one by one
-    long versionForWrite = System.currentTimeMillis();
-    for (Map.Entry<byte[], Long> inc : increments.entrySet()) {
-      IncrementValue increment = new IncrementValue(inc.getValue());
-      // create the column in the row if it does not exist
-      NavigableMap<Long, Update> colMap = rowMap.get(inc.getKey());
-      Update last = null;
-      if (colMap == null) {
-        colMap = Maps.newTreeMap();
-        rowMap.put(inc.getKey(), colMap);
-      } else {
-        last = colMap.lastEntry().getValue();
-      }
-      Update merged = Updates.mergeUpdates(last, increment);
-      // put into the column with given version
-      long newValue = Bytes.toLong(merged.getBytes());
-      resultMap.put(inc.getKey(), newValue);
-      colMap.put(versionForWrite, merged);
-    }
-    return resultMap;
+  public static Map<byte[], Long> increment(String tableName, byte[] row, Map<byte[], Long> increments) {
+    return getTable(tableName).increment(row, increments);
   }
 
-  public static synchronized boolean swap(String tableName, byte[] row, byte[] column,
-                                          byte[] oldValue, byte[] newValue) {
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    // get the correct row from the table, create it if it doesn't exist
-    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-    Update existingValue = null;
-    if (rowMap != null) {
-      NavigableMap<Long, Update> columnMap = rowMap.get(column);
-      if (columnMap != null) {
-        existingValue = columnMap.lastEntry().getValue();
-      }
-    }
-    // verify existing value matches
-    if (oldValue == null && existingValue != null) {
-      return false;
-    }
-    if (oldValue != null && (existingValue == null || !Bytes.equals(oldValue, existingValue.getBytes()))) {
-      return false;
-    }
-    // write new value
-    if (newValue == null) {
-      if (rowMap != null) {
-        rowMap.remove(column);
-      }
-    } else {
-      if (rowMap == null) {
-        rowMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-        table.put(row, rowMap);
-      }
-      NavigableMap<Long, Update> columnMap = rowMap.get(column);
-      if (columnMap == null) {
-        columnMap = Maps.newTreeMap();
-        rowMap.put(column, columnMap);
-      }
-      PutValue newPut = new PutValue(newValue);
-      columnMap.put(System.currentTimeMillis(), newPut);
-    }
-    return true;
+  public static boolean swap(String tableName, byte[] row, byte[] column, byte[] oldValue, byte[] newValue) {
+    return getTable(tableName).swap(row, column, oldValue, newValue);
   }
 
-  public static synchronized void undo(String tableName,
-                                       NavigableMap<byte[], NavigableMap<byte[], Update>> changes,
-                                       long version) {
+  public static void undo(String tableName,
+                          NavigableMap<byte[], NavigableMap<byte[], Update>> changes,
+                          long version) {
     // todo: handle nulls
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
+    TableData table = getTable(tableName);
     for (Map.Entry<byte[], NavigableMap<byte[], Update>> change : changes.entrySet()) {
-      byte[] row = change.getKey();
-      NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-      if (rowMap != null) {
-        for (byte[] column : change.getValue().keySet()) {
-          NavigableMap<Long, Update> values = rowMap.get(column);
-          values.remove(version);
-        }
-      }
+      table.undo(change.getKey(), change.getValue().keySet(), version);
     }
   }
 
-  public static synchronized void delete(String tableName, Iterable<byte[]> rows) {
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
+  public static void delete(String tableName, Iterable<byte[]> rows) {
+    TableData table = getTable(tableName);
     for (byte[] row : rows) {
-      table.remove(row);
+      table.deleteRow(row);
     }
   }
 
-  public static synchronized void deleteColumns(String tableName, byte[] row, byte[] column) {
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    NavigableMap<byte[], NavigableMap<Long, Update>> columnValues = table.get(row);
-    columnValues.remove(column);
+  public static void deleteColumns(String tableName, byte[] row, byte[] column) {
+    getTable(tableName).deleteColumn(row, column);
   }
 
-  public static synchronized void delete(String tableName, byte[] rowPrefix) {
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
+  public static void delete(String tableName, byte[] rowPrefix) {
+    TableData table = getTable(tableName);
     if (rowPrefix.length == 0) {
-      table.clear();
+      table.deleteRows(null, null);
     } else {
-      byte[] rowAfter = rowAfterPrefix(rowPrefix);
-      if (rowAfter == null) {
-        table.tailMap(rowPrefix).clear();
-      } else {
-        table.subMap(rowPrefix, rowAfter).clear();
-      }
+      table.deleteRows(rowPrefix, rowAfterPrefix(rowPrefix));
     }
   }
 
@@ -239,57 +142,56 @@ public class InMemoryTableService {
     return null;
   }
 
-  public static synchronized NavigableMap<byte[], NavigableMap<Long, byte[]>> get(String tableName,
-                                                                                  byte[] row,
-                                                                                  @Nullable Transaction tx) {
+  public static NavigableMap<byte[], NavigableMap<Long, byte[]>> get(String tableName,
+                                                                     byte[] row,
+                                                                     @Nullable Transaction tx) {
     // todo: handle nulls
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    Preconditions.checkArgument(table != null, "table not found: " + tableName);
-    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
+    NavigableMap<byte[], ? extends NavigableMap<Long, Update>> rowMap = getTable(tableName).rows.get(row);
     return deepCopy(Updates.rowToBytes(getVisible(rowMap, tx)));
   }
 
-  public static synchronized NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>>
-                             getRowRange(String tableName,
-                                         byte[] startRow,
-                                         byte[] stopRow,
-                                         @Nullable Transaction tx) {
+  public static NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> getRowRange(String tableName,
+                                                                                                  byte[] startRow,
+                                                                                                  byte[] stopRow,
+                                                                                                  @Nullable
+                                                                                                  Transaction tx) {
     // todo: handle nulls
-    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> tableData = tables.get(tableName);
-    NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> rows;
-    if (startRow == null && stopRow == null) {
-      rows = tableData;
-    } else if (startRow == null) {
-      rows = tableData.headMap(stopRow, false);
-    } else if (stopRow == null) {
-      rows = tableData.tailMap(startRow, true);
-    } else {
-      rows = tableData.subMap(startRow, true, stopRow, false);
-    }
+    NavigableMap<byte[], ? extends NavigableMap<byte[], ? extends NavigableMap<Long, Update>>> rows =
+      getTable(tableName).getRows(startRow, stopRow);
 
     NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> result =
       Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-    for (Map.Entry<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> rowMap : rows.entrySet()) {
-      NavigableMap<byte[], NavigableMap<Long, Update>> columns =
-        tx == null ? rowMap.getValue() : getVisible(rowMap.getValue(), tx);
+    for (Map.Entry<byte[], ? extends NavigableMap<byte[], ? extends NavigableMap<Long, Update>>> rowMap
+      : rows.entrySet()) {
+      NavigableMap<byte[], NavigableMap<Long, Update>> columns = getVisible(rowMap.getValue(), tx);
       result.put(copy(rowMap.getKey()), deepCopy(Updates.rowToBytes(columns)));
     }
 
     return result;
   }
 
-  public static synchronized Collection<String> list() {
+  public static Collection<String> list() {
     return ImmutableList.copyOf(tables.keySet());
   }
 
+  private static TableData getTable(String tableName) {
+    TableData table = tables.get(tableName);
+    Preconditions.checkArgument(table != null, "table not found: " + tableName);
+    return table;
+  }
+
+  /**
+   * Copies the versions of the given row that are visible to the transaction, or all versions if the transaction is
+   * {@code null}. The copy is taken so that callers never iterate the live row while it is being modified.
+   */
   private static NavigableMap<byte[], NavigableMap<Long, Update>> getVisible(
-    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap, final Transaction tx) {
+    @Nullable NavigableMap<byte[], ? extends NavigableMap<Long, Update>> rowMap, @Nullable final Transaction tx) {
 
     if (rowMap == null) {
       return null;
     }
     NavigableMap<byte[], NavigableMap<Long, Update>> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-    for (Map.Entry<byte[], NavigableMap<Long, Update>> column : rowMap.entrySet()) {
+    for (Map.Entry<byte[], ? extends NavigableMap<Long, Update>> column : rowMap.entrySet()) {
       SortedMap<Long, Update> visbleValues = column.getValue();
       if (tx != null) {
         visbleValues = Maps.filterKeys(visbleValues, new Predicate<Long>() {
@@ -299,8 +201,8 @@ public class InMemoryTableService {
           }
         });
       }
-      if (visbleValues.size() > 0) {
-        NavigableMap<Long, Update> colMap = createVersionedValuesMap(visbleValues);
+      NavigableMap<Long, Update> colMap = createVersionedValuesMap(visbleValues);
+      if (!colMap.isEmpty()) {
         result.put(column.getKey(), colMap);
       }
     }
@@ -356,6 +258,158 @@ public class InMemoryTableService {
     return src == null ? null : Arrays.copyOf(src, src.length);
   }
 
+  /**
+   * Rows of a single in-memory table. Row, column and version maps are all concurrent, so reads never block and
+   * {@link #merge} only relies on atomic per-cell updates. Row-level atomicity of increments and swaps is provided by
+   * synchronizing on the row map; removal of a row synchronizes on it as well, so that such an operation can never
+   * write into a row that was concurrently removed. Lock-free writers instead re-check after the write that their
+   * column is still attached to the table, and redo the write otherwise.
+   */
+  private static final class TableData {
+
+    private final ConcurrentNavigableMap<byte[], ConcurrentNavigableMap<byte[], ConcurrentNavigableMap<Long, Update>>>
+      rows = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+
+    NavigableMap<byte[], ConcurrentNavigableMap<byte[], ConcurrentNavigableMap<Long, Update>>> getRows(
+      @Nullable byte[] startRow, @Nullable byte[] stopRow) {
+      if (startRow == null && stopRow == null) {
+        return rows;
+      }
+      if (startRow == null) {
+        return rows.headMap(stopRow, false);
+      }
+      if (stopRow == null) {
+        return rows.tailMap(startRow, true);
+      }
+      return rows.subMap(startRow, true, stopRow, false);
+    }
+
+    void merge(byte[] row, Map<byte[], Update> changes, long version) {
+      for (Map.Entry<byte[], Update> change : changes.entrySet()) {
+        byte[] column = change.getKey();
+        ConcurrentNavigableMap<Long, Update> colMap;
+        do {
+          colMap = getOrCreateRow(row).computeIfAbsent(column, k -> new ConcurrentSkipListMap<>());
+          colMap.merge(version, change.getValue(), Updates::mergeUpdates);
+          // if the row or column was deleted meanwhile, the write went to a detached map and must be redone
+        } while (!isAttached(row, column, colMap));
+      }
+    }
+
+    Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) {
+      Map<byte[], Long> resultMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      while (true) {
+        ConcurrentNavigableMap<byte[], ConcurrentNavigableMap<Long, Update>> rowMap = getOrCreateRow(copy(row));
+        synchronized (rowMap) {
+          if (rows.get(row) != rowMap) {
+            // row was removed after we got it, retry with the new one
+            continue;
+          }
+          long versionForWrite = System.currentTimeMillis();
+          for (Map.Entry<byte[], Long> inc : increments.entrySet()) {
+            NavigableMap<Long, Update> colMap =
+              rowMap.computeIfAbsent(copy(inc.getKey()), k -> new ConcurrentSkipListMap<>());
+            Map.Entry<Long, Update> last = colMap.lastEntry();
+            Update merged = Updates.mergeUpdates(last == null ? null : last.getValue(),
+                                                 new IncrementValue(inc.getValue()));
+            resultMap.put(inc.getKey(), Bytes.toLong(merged.getBytes()));
+            // never write below the latest version, otherwise the increment would be hidden by it
+            colMap.put(last == null ? versionForWrite : Math.max(versionForWrite, last.getKey()), merged);
+          }
+          return resultMap;
+        }
+      }
+    }
+
+    boolean swap(byte[] row, byte[] column, @Nullable byte[] oldValue, @Nullable byte[] newValue) {
+      while (true) {
+        ConcurrentNavigableMap<byte[], ConcurrentNavigableMap<Long, Update>> rowMap = rows.get(row);
+        if (rowMap == null) {
+          if (oldValue != null) {
+            return false;
+          }
+          if (newValue == null) {
+            return true;
+          }
+          rowMap = getOrCreateRow(copy(row));
+        }
+        synchronized (rowMap) {
+          if (rows.get(row) != rowMap) {
+            continue;
+          }
+          NavigableMap<Long, Update> columnMap = rowMap.get(column);
+          Map.Entry<Long, Update> existing = columnMap == null ? null : columnMap.lastEntry();
+          Update existingValue = existing == null ? null : existing.getValue();
+          // verify existing value matches
+          if (oldValue == null && existingValue != null) {
+            return false;
+          }
+          if (oldValue != null && (existingValue == null || !Bytes.equals(oldValue, existingValue.getBytes()))) {
+            return false;
+          }
+          // write new value
+          if (newValue == null) {
+            rowMap.remove(column);
+          } else {
+            long version = System.currentTimeMillis();
+            rowMap.computeIfAbsent(copy(column), k -> new ConcurrentSkipListMap<>())
+              .put(existing == null ? version : Math.max(version, existing.getKey()), new PutValue(newValue));
+          }
+          return true;
+        }
+      }
+    }
+
+    void undo(byte[] row, Iterable<byte[]> columns, long version) {
+      NavigableMap<byte[], ConcurrentNavigableMap<Long, Update>> rowMap = rows.get(row);
+      if (rowMap == null) {
+        return;
+      }
+      for (byte[] column : columns) {
+        NavigableMap<Long, Update> values = rowMap.get(column);
+        if (values != null) {
+          values.remove(version);
+        }
+      }
+    }
+
+    void deleteRow(byte[] row) {
+      ConcurrentNavigableMap<byte[], ConcurrentNavigableMap<Long, Update>> rowMap = rows.get(row);
+      if (rowMap != null) {
+        synchronized (rowMap) {
+          rows.remove(row, rowMap);
+        }
+      }
+    }
+
+    void deleteRows(@Nullable byte[] startRow, @Nullable byte[] stopRow) {
+      for (Map.Entry<byte[], ConcurrentNavigableMap<byte[], ConcurrentNavigableMap<Long, Update>>> entry
+        : getRows(startRow, stopRow).entrySet()) {
+        synchronized (entry.getValue()) {
+          rows.remove(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+
+    void deleteColumn(byte[] row, byte[] column) {
+      ConcurrentNavigableMap<byte[], ConcurrentNavigableMap<Long, Update>> rowMap = rows.get(row);
+      if (rowMap != null) {
+        synchronized (rowMap) {
+          rowMap.remove(column);
+        }
+      }
+    }
+
+    private ConcurrentNavigableMap<byte[], ConcurrentNavigableMap<Long, Update>> getOrCreateRow(byte[] row) {
+      return rows.computeIfAbsent(row, k -> new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR));
+    }
+
+    private boolean isAttached(byte[] row, byte[] column, NavigableMap<Long, Update> colMap) {
+      NavigableMap<byte[], ConcurrentNavigableMap<Long, Update>> rowMap = rows.get(row);
+      return rowMap != null && rowMap.get(column) == colMap;
+    }
+  }
+
   // This is descending Longs comparator
   public static final Comparator<Long> VERSIONED_VALUE_MAP_COMPARATOR = new Ordering<Long>() {
     @Override
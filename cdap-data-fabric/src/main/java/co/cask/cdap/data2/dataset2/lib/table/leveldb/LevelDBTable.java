@@ -52,7 +52,8 @@ public class LevelDBTable extends BufferingTable {
                       DatasetSpecification spec) throws IOException {
     super(PrefixedNamespaces.namespace(cConf, datasetContext.getNamespaceId(), tableName),
           false, spec.getProperties());
-    this.core = new LevelDBTableCore(getTableName(), service);
+    this.core = new LevelDBTableCore(getTableName(), service,
+                                     LevelDBTableOptions.fromProperties(spec.getProperties()));
   }
 
   @WriteOnly
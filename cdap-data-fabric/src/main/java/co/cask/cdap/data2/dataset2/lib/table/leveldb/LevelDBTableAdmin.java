@@ -20,6 +20,7 @@ import co.cask.cdap.api.dataset.DatasetAdmin;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetSpecification;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.data2.dataset2.lib.table.TableReadCache;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.PrefixedNamespaces;
 
 import java.io.IOException;
@@ -31,17 +32,19 @@ public class LevelDBTableAdmin implements DatasetAdmin {
 
   private final LevelDBTableService service;
   private final String name;
+  private final LevelDBTableOptions tableOptions;
 
   public LevelDBTableAdmin(DatasetContext datasetContext, DatasetSpecification spec,
                            LevelDBTableService service, CConfiguration cConf) throws IOException {
     this.service = service;
     this.name = PrefixedNamespaces.namespace(cConf, datasetContext.getNamespaceId(), spec.getName());
+    this.tableOptions = LevelDBTableOptions.fromProperties(spec.getProperties());
   }
 
   @Override
   public boolean exists() throws IOException {
     try {
-      service.getTable(name);
+      service.getTable(name, tableOptions);
       return true;
     } catch (Exception e) {
       return false;
@@ -50,12 +53,13 @@ public class LevelDBTableAdmin implements DatasetAdmin {
 
   @Override
   public void create() throws IOException {
-    service.ensureTableExists(name);
+    service.ensureTableExists(name, tableOptions);
   }
 
   @Override
   public void drop() throws IOException {
     service.dropTable(name);
+    TableReadCache.remove(name);
   }
 
   @Override
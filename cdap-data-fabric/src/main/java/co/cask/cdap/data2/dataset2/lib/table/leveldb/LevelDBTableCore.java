@@ -23,28 +23,36 @@ import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
 import org.apache.tephra.Transaction;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
-import org.iq80.leveldb.ReadOptions;
-import org.iq80.leveldb.Snapshot;
 import org.iq80.leveldb.WriteBatch;
 import org.iq80.leveldb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
 import javax.annotation.Nullable;
 
 /**
  * Provides common operations for levelDB tables and queues.
+ * <p>
+ * Read-modify-write operations ({@link #swap}, {@link #increment}) lock the rows they change, using locks shared by
+ * all instances for the same table, hence operations on different rows run concurrently. The row bloom filter of the
+ * table is updated after the locks are released.
  */
 public class LevelDBTableCore {
 
@@ -70,14 +78,33 @@ public class LevelDBTableCore {
 
   private final String tableName;
   private final LevelDBTableService service;
+  private final Striped<Lock> rowLocks;
+  private final LevelDBTableOptions tableOptions;
 
   public LevelDBTableCore(String tableName, LevelDBTableService service) {
+    this(tableName, service, LevelDBTableOptions.DEFAULT);
+  }
+
+  public LevelDBTableCore(String tableName, LevelDBTableService service, LevelDBTableOptions tableOptions) {
     this.tableName = tableName;
     this.service = service;
+    this.rowLocks = service.getRowLocks(tableName);
+    this.tableOptions = tableOptions;
   }
 
   private DB getDB() throws IOException {
-    return service.getTable(tableName);
+    return service.getTable(tableName, tableOptions);
+  }
+
+  /**
+   * Adds written rows to the row bloom filter of the table, if it has one. Must be called after the write, and
+   * outside of any row locks.
+   */
+  private void addToRowFilter(Iterable<byte[]> rows) {
+    RowBloomFilter rowFilter = service.getRowFilter(tableName);
+    if (rowFilter != null) {
+      rowFilter.add(rows);
+    }
   }
 
   private WriteOptions getWriteOptions() {
@@ -85,7 +112,22 @@ public class LevelDBTableCore {
   }
 
 
-  public synchronized boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
+  public boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
+    Lock lock = rowLocks.get(ByteBuffer.wrap(row));
+    boolean swapped;
+    lock.lock();
+    try {
+      swapped = swapLocked(row, column, oldValue, newValue);
+    } finally {
+      lock.unlock();
+    }
+    if (swapped && newValue != null) {
+      addToRowFilter(Collections.singleton(row));
+    }
+    return swapped;
+  }
+
+  private boolean swapLocked(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
     byte[] existing = getRow(row, new byte[][] { column }, null, null, -1, null).get(column);
     // verify
     if (oldValue == null && existing != null) {
@@ -99,53 +141,70 @@ public class LevelDBTableCore {
       // to-do
       deleteColumn(row, column);
     } else {
-      persist(Collections.singletonMap(row, Collections.singletonMap(column, newValue)), Long.MAX_VALUE);
+      write(Collections.singletonMap(row, Collections.singletonMap(column, newValue)), Long.MAX_VALUE);
     }
     return true;
   }
 
-  public synchronized Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws IOException {
+  public Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws IOException {
     Map<byte[], Long> result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
 
     DB db = getDB();
     WriteBatch writeBatch = db.createWriteBatch();
-    try (Snapshot snapshot = db.getSnapshot()) {
-      ReadOptions readOptions = new ReadOptions().snapshot(snapshot);
-
+    Lock lock = rowLocks.get(ByteBuffer.wrap(row));
+    lock.lock();
+    try {
       for (Map.Entry<byte[], Long> entry : increments.entrySet()) {
         byte[] rowKey = createPutKey(row, entry.getKey(), Long.MAX_VALUE);
-        byte[] existingValue = db.get(rowKey, readOptions);
+        byte[] existingValue = db.get(rowKey);
         long newValue = incrementValue(entry.getValue(), existingValue, row, entry.getKey());
         result.put(entry.getKey(), newValue);
         writeBatch.put(rowKey, Bytes.toBytes(newValue));
       }
       db.write(writeBatch, service.getWriteOptions());
+    } finally {
+      lock.unlock();
     }
+    addToRowFilter(Collections.singleton(row));
 
     return result;
   }
 
 
-  public synchronized void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) throws IOException {
+  public void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) throws IOException {
     if (updates.isEmpty()) {
       return;
     }
 
     DB db = getDB();
     WriteBatch writeBatch = db.createWriteBatch();
-    try (Snapshot snapshot = db.getSnapshot()) {
-      ReadOptions readOptions = new ReadOptions().snapshot(snapshot);
-
+    // bulkGet returns the locks in a consistent order, which prevents deadlocks between batches of different rows
+    List<ByteBuffer> rows = new ArrayList<>(updates.size());
+    for (byte[] row : updates.keySet()) {
+      rows.add(ByteBuffer.wrap(row));
+    }
+    List<Lock> locks = Lists.newArrayList(rowLocks.bulkGet(rows));
+    int locked = 0;
+    try {
+      for (Lock lock : locks) {
+        lock.lock();
+        locked++;
+      }
       for (Map.Entry<byte[], NavigableMap<byte[], Long>> updateEntry : updates.entrySet()) {
         for (Map.Entry<byte[], Long> entry : updateEntry.getValue().entrySet()) {
           byte[] rowKey = createPutKey(updateEntry.getKey(), entry.getKey(), Long.MAX_VALUE);
-          byte[] existingValue = db.get(rowKey, readOptions);
+          byte[] existingValue = db.get(rowKey);
           long newValue = incrementValue(entry.getValue(), existingValue, updateEntry.getKey(), entry.getKey());
           writeBatch.put(rowKey, Bytes.toBytes(newValue));
         }
       }
       db.write(writeBatch, service.getWriteOptions());
+    } finally {
+      for (int i = locked - 1; i >= 0; i--) {
+        locks.get(i).unlock();
+      }
     }
+    addToRowFilter(updates.keySet());
   }
 
   private long incrementValue(long value, @Nullable byte[] existingValue, byte[] row, byte[] col) {
@@ -161,6 +220,11 @@ public class LevelDBTableCore {
   }
 
   public void persist(Map<byte[], ? extends Map<byte[], byte[]>> changes, long version) throws IOException {
+    write(changes, version);
+    addToRowFilter(changes.keySet());
+  }
+
+  private void write(Map<byte[], ? extends Map<byte[], byte[]>> changes, long version) throws IOException {
     DB db = getDB();
     // todo support writing null when no transaction
     WriteBatch batch = db.createWriteBatch();
@@ -175,6 +239,7 @@ public class LevelDBTableCore {
 
   public void put(byte[] row, byte[] column, byte[] value, long version) throws IOException {
     getDB().put(createPutKey(row, column, version), value);
+    addToRowFilter(Collections.singleton(row));
   }
 
   public void undo(Map<byte[], ? extends Map<byte[], ?>> persisted, long version) throws IOException {
@@ -224,14 +289,30 @@ public class LevelDBTableCore {
       limit = columns.length;
     }
 
+    DB db = getDB();
+    RowBloomFilter rowFilter = service.getRowFilter(tableName);
+    if (rowFilter != null && !rowFilter.mightContain(row)) {
+      return new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    }
+
     byte[] startKey = createStartKey(row, columns == null ? startCol : columns[0]);
     byte[] endKey = createEndKey(row, columns == null ? stopCol : upperBound(columns[columns.length - 1]));
-    try (DBIterator iterator = getDB().iterator()) {
+    try (DBIterator iterator = db.iterator()) {
       iterator.seek(startKey);
-      return getRow(iterator, endKey, tx, false, columns, limit).getSecond();
+      NavigableMap<byte[], byte[]> result = getRow(iterator, endKey, tx, false, columns, limit).getSecond();
+      // the row may exist with other columns or versions, which is not a false positive of the filter
+      if (rowFilter != null && result.isEmpty() && !rowExists(iterator, row)) {
+        rowFilter.falsePositive();
+      }
+      return result;
     }
   }
 
+  private static boolean rowExists(DBIterator iterator, byte[] row) {
+    iterator.seek(createStartKey(row));
+    return iterator.hasNext() && Bytes.equals(row, KeyValue.fromKey(iterator.peekNext().getKey()).getRow());
+  }
+
   private static Scanner createEmptyScanner() {
     return new Scanner() {
       @Override
@@ -0,0 +1,176 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.dataset2.lib.table.leveldb;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import org.iq80.leveldb.CompressionType;
+import org.iq80.leveldb.Options;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * Per-table options of a LevelDB table, configured through dataset properties. Options that are not set fall back
+ * to the defaults of the {@link LevelDBTableService}.
+ */
+public final class LevelDBTableOptions {
+
+  /**
+   * Whether to keep a bloom filter of the row keys of the table, used to answer lookups of missing rows without
+   * reading the table. Defaults to false.
+   */
+  public static final String PROPERTY_BLOOM_FILTER = "dataset.table.leveldb.bloom.filter";
+
+  /**
+   * Target false positive probability of the row bloom filter. Defaults to 0.01.
+   */
+  public static final String PROPERTY_BLOOM_FILTER_FPP = "dataset.table.leveldb.bloom.filter.fpp";
+
+  /**
+   * Compression of the table files: {@code snappy} or {@code none}. Defaults to snappy, if it is available.
+   */
+  public static final String PROPERTY_COMPRESSION = "dataset.table.leveldb.compression";
+
+  /**
+   * Size in bytes of the data blocks of the table files. Defaults to the block size of the LevelDB table service.
+   */
+  public static final String PROPERTY_BLOCK_SIZE = "dataset.table.leveldb.block.size";
+
+  /**
+   * Number of table files that are kept open, with their index blocks, in the table cache of LevelDB.
+   */
+  public static final String PROPERTY_MAX_OPEN_FILES = "dataset.table.leveldb.max.open.files";
+
+  static final double DEFAULT_BLOOM_FILTER_FPP = 0.01d;
+
+  public static final LevelDBTableOptions DEFAULT = fromProperties(Collections.<String, String>emptyMap());
+
+  private final boolean bloomFilter;
+  private final double bloomFilterFpp;
+  private final CompressionType compression;
+  private final Integer blockSize;
+  private final Integer maxOpenFiles;
+
+  private LevelDBTableOptions(boolean bloomFilter, double bloomFilterFpp, @Nullable CompressionType compression,
+                              @Nullable Integer blockSize, @Nullable Integer maxOpenFiles) {
+    this.bloomFilter = bloomFilter;
+    this.bloomFilterFpp = bloomFilterFpp;
+    this.compression = compression;
+    this.blockSize = blockSize;
+    this.maxOpenFiles = maxOpenFiles;
+  }
+
+  /**
+   * Creates the options from the given dataset properties.
+   *
+   * @throws IllegalArgumentException if a property has an invalid value
+   */
+  public static LevelDBTableOptions fromProperties(Map<String, String> properties) {
+    boolean bloomFilter = Boolean.parseBoolean(properties.get(PROPERTY_BLOOM_FILTER));
+    double fpp = DEFAULT_BLOOM_FILTER_FPP;
+    String fppValue = properties.get(PROPERTY_BLOOM_FILTER_FPP);
+    if (fppValue != null) {
+      fpp = Double.parseDouble(fppValue);
+      Preconditions.checkArgument(fpp > 0d && fpp < 1d, "Property %s must be between 0 and 1 exclusive, but is %s",
+                                  PROPERTY_BLOOM_FILTER_FPP, fppValue);
+    }
+    CompressionType compression = null;
+    String compressionValue = properties.get(PROPERTY_COMPRESSION);
+    if (compressionValue != null) {
+      try {
+        compression = CompressionType.valueOf(compressionValue.trim().toUpperCase());
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(String.format("Property %s must be one of 'snappy' or 'none', but is %s",
+                                                         PROPERTY_COMPRESSION, compressionValue), e);
+      }
+    }
+    return new LevelDBTableOptions(bloomFilter, fpp, compression,
+                                   getPositiveInt(properties, PROPERTY_BLOCK_SIZE),
+                                   getPositiveInt(properties, PROPERTY_MAX_OPEN_FILES));
+  }
+
+  @Nullable
+  private static Integer getPositiveInt(Map<String, String> properties, String key) {
+    String value = properties.get(key);
+    if (value == null) {
+      return null;
+    }
+    int result = Integer.parseInt(value.trim());
+    Preconditions.checkArgument(result > 0, "Property %s must be positive, but is %s", key, value);
+    return result;
+  }
+
+  public boolean isBloomFilter() {
+    return bloomFilter;
+  }
+
+  public double getBloomFilterFpp() {
+    return bloomFilterFpp;
+  }
+
+  /**
+   * Returns the dataset properties that define these options, as accepted by {@link #fromProperties(Map)}.
+   */
+  Map<String, String> toProperties() {
+    Map<String, String> properties = new TreeMap<>();
+    if (bloomFilter) {
+      properties.put(PROPERTY_BLOOM_FILTER, Boolean.TRUE.toString());
+      properties.put(PROPERTY_BLOOM_FILTER_FPP, Double.toString(bloomFilterFpp));
+    }
+    if (compression != null) {
+      properties.put(PROPERTY_COMPRESSION, compression.name().toLowerCase());
+    }
+    if (blockSize != null) {
+      properties.put(PROPERTY_BLOCK_SIZE, blockSize.toString());
+    }
+    if (maxOpenFiles != null) {
+      properties.put(PROPERTY_MAX_OPEN_FILES, maxOpenFiles.toString());
+    }
+    return properties;
+  }
+
+  /**
+   * Applies the options that are set to the given LevelDB options.
+   */
+  Options apply(Options options) {
+    if (compression != null) {
+      options.compressionType(compression);
+    }
+    if (blockSize != null) {
+      options.blockSize(blockSize);
+    }
+    if (maxOpenFiles != null) {
+      options.maxOpenFiles(maxOpenFiles);
+    }
+    return options;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+      .add("bloomFilter", bloomFilter)
+      .add("bloomFilterFpp", bloomFilterFpp)
+      .add("compression", compression)
+      .add("blockSize", blockSize)
+      .add("maxOpenFiles", maxOpenFiles)
+      .toString();
+  }
+}
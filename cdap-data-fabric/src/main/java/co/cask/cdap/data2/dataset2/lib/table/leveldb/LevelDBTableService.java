@@ -27,8 +27,11 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Striped;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.apache.twill.common.Threads;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBComparator;
 import org.iq80.leveldb.Options;
@@ -38,12 +41,20 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Properties;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import javax.annotation.Nullable;
 
 import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
 
@@ -55,6 +66,11 @@ public class LevelDBTableService implements AutoCloseable {
 
   private static final Logger LOG = LoggerFactory.getLogger(LevelDBTableService.class);
 
+  // number of locks used to serialize read-modify-write operations on the rows of a table
+  private static final int ROW_LOCK_STRIPES = 256;
+  // file in the directory of a table that stores the options the table was created with
+  private static final String OPTIONS_FILE = "cdap-table-options.properties";
+
   private int blockSize;
   private long cacheSize;
   private String basePath;
@@ -62,6 +78,11 @@ public class LevelDBTableService implements AutoCloseable {
   private boolean isClosed;
 
   private final ConcurrentMap<String, DB> tables = Maps.newConcurrentMap();
+  private final ConcurrentMap<String, Striped<Lock>> rowLocks = Maps.newConcurrentMap();
+  private final ConcurrentMap<String, RowBloomFilter> rowFilters = Maps.newConcurrentMap();
+  // rebuilds the row bloom filters of all tables, one at a time
+  private final ExecutorService rowFilterExecutor =
+    Executors.newSingleThreadExecutor(Threads.createDaemonThreadFactory("leveldb-row-filter-rebuild"));
 
   /**
    * To avoid database locking issues make sure that the single LevelDBTableService instance
@@ -101,6 +122,7 @@ public class LevelDBTableService implements AutoCloseable {
       Closeables.closeQuietly(entries);
     }
     tables.clear();
+    rowFilters.clear();
   }
 
   private void ensureOpen() {
@@ -109,6 +131,7 @@ public class LevelDBTableService implements AutoCloseable {
 
   public void close() {
     isClosed = true;
+    rowFilterExecutor.shutdownNow();
     clearTables();
   }
 
@@ -173,42 +196,99 @@ public class LevelDBTableService implements AutoCloseable {
   }
 
   public DB getTable(String tableName) throws IOException {
+    return getTable(tableName, LevelDBTableOptions.DEFAULT);
+  }
+
+  /**
+   * Returns the table with the given name. If the table is not open yet, it is opened with the options it was created
+   * with, or with the given options if it was created without options.
+   */
+  public DB getTable(String tableName, LevelDBTableOptions tableOptions) throws IOException {
     ensureOpen();
     DB db = tables.get(tableName);
     if (db == null) {
       synchronized (tables) {
         db = tables.get(tableName);
         if (db == null) {
-          db = openTable(tableName);
-          tables.put(tableName, db);
+          db = openTable(tableName, tableOptions);
         }
       }
     }
     return db;
   }
 
+  /**
+   * Returns the row bloom filter of a table, or {@code null} if the table is not open or has no filter.
+   */
+  @Nullable
+  RowBloomFilter getRowFilter(String tableName) {
+    return rowFilters.get(tableName);
+  }
+
+  /**
+   * Returns the lookup counters of the row bloom filters of all open tables that have one.
+   * @return map of table name -> row bloom filter stats
+   */
+  public Map<String, RowBloomFilter.Stats> getRowFilterStats() {
+    ImmutableMap.Builder<String, RowBloomFilter.Stats> builder = ImmutableMap.builder();
+    for (Map.Entry<String, RowBloomFilter> entry : rowFilters.entrySet()) {
+      builder.put(entry.getKey(), entry.getValue().getStats());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns the locks for read-modify-write operations on the rows of a table, shared by all users of the table.
+   */
+  Striped<Lock> getRowLocks(String tableName) {
+    Striped<Lock> locks = rowLocks.get(tableName);
+    if (locks == null) {
+      locks = Striped.lock(ROW_LOCK_STRIPES);
+      Striped<Lock> existing = rowLocks.putIfAbsent(tableName, locks);
+      locks = existing == null ? locks : existing;
+    }
+    return locks;
+  }
+
   public void ensureTableExists(String tableName) throws IOException {
+    ensureTableExists(tableName, LevelDBTableOptions.DEFAULT);
+  }
+
+  /**
+   * Creates the table if it does not exist, with the given options. The options are stored with the table, so that
+   * it is always opened with them. If the table exists, it keeps the options it was created with.
+   */
+  public void ensureTableExists(String tableName, LevelDBTableOptions tableOptions) throws IOException {
     ensureOpen();
     DB db = tables.get(tableName);
     if (db == null) {
       synchronized (tables) {
         db = tables.get(tableName);
         if (db == null) {
-          createTable(tableName);
+          createTable(tableName, tableOptions);
         }
       }
     }
   }
 
-  private DB openTable(String tableName) throws IOException {
-    String dbPath = getDBPath(basePath, tableName);
-
+  private Options createOptions(LevelDBTableOptions tableOptions) {
     Options options = new Options();
-    options.createIfMissing(false);
     options.errorIfExists(false);
     options.comparator(new KeyValueDBComparator());
     options.blockSize(blockSize);
     options.cacheSize(cacheSize);
+    return tableOptions.apply(options);
+  }
+
+  private DB openTable(String tableName, LevelDBTableOptions tableOptions) throws IOException {
+    String dbPath = getDBPath(basePath, tableName);
+    LevelDBTableOptions storedOptions = loadOptions(dbPath);
+    if (storedOptions != null) {
+      tableOptions = storedOptions;
+    }
+
+    Options options = createOptions(tableOptions);
+    options.createIfMissing(false);
 
     // unfortunately, with the java version of leveldb, with createIfMissing set to false, factory.open will
     // see that there is no table and throw an exception, but it wont clean up after itself and will leave a
@@ -219,31 +299,88 @@ public class LevelDBTableService implements AutoCloseable {
       throw new IOException("Database " + dbPath + " does not exist and the create if missing option is disabled");
     }
     DB db = factory.open(dbDir, options);
-    tables.put(tableName, db);
+    publish(tableName, db, tableOptions);
     return db;
   }
 
-  private void createTable(String name) throws IOException {
+  private void createTable(String name, LevelDBTableOptions tableOptions) throws IOException {
     String dbPath = getDBPath(basePath, name);
+    LevelDBTableOptions storedOptions = loadOptions(dbPath);
+    if (storedOptions != null) {
+      tableOptions = storedOptions;
+    }
 
-    Options options = new Options();
+    Options options = createOptions(tableOptions);
     options.createIfMissing(true);
-    options.errorIfExists(false);
-    options.comparator(new KeyValueDBComparator());
-    options.blockSize(blockSize);
-    options.cacheSize(cacheSize);
 
     DB db = factory.open(new File(dbPath), options);
+    if (storedOptions == null) {
+      try {
+        storeOptions(dbPath, tableOptions);
+      } catch (IOException e) {
+        Closeables.closeQuietly(db);
+        throw e;
+      }
+    }
+    publish(name, db, tableOptions);
+  }
+
+  /**
+   * Returns the options stored in the given table directory, or {@code null} if none are stored.
+   */
+  @Nullable
+  private static LevelDBTableOptions loadOptions(String dbPath) throws IOException {
+    File file = new File(dbPath, OPTIONS_FILE);
+    if (!file.exists()) {
+      return null;
+    }
+    Properties properties = new Properties();
+    try (Reader reader = Files.newReader(file, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    return LevelDBTableOptions.fromProperties(Maps.fromProperties(properties));
+  }
+
+  private static void storeOptions(String dbPath, LevelDBTableOptions tableOptions) throws IOException {
+    Properties properties = new Properties();
+    properties.putAll(tableOptions.toProperties());
+    // write to a temporary file first, so that a partially written file is never read
+    File tmpFile = new File(dbPath, OPTIONS_FILE + ".tmp");
+    try (Writer writer = Files.newWriter(tmpFile, StandardCharsets.UTF_8)) {
+      properties.store(writer, null);
+    }
+    Files.move(tmpFile, new File(dbPath, OPTIONS_FILE));
+  }
+
+  /**
+   * Makes an opened table available. The row bloom filter is built before that, so that no write can be missed by it.
+   */
+  private void publish(String name, DB db, LevelDBTableOptions tableOptions) throws IOException {
+    rowFilters.remove(name);
+    if (tableOptions.isBloomFilter()) {
+      try {
+        rowFilters.put(name, new RowBloomFilter(name, db, tableOptions.getBloomFilterFpp(), rowFilterExecutor));
+      } catch (IOException | RuntimeException e) {
+        Closeables.closeQuietly(db);
+        throw e;
+      }
+    }
     tables.put(name, db);
   }
 
   public void dropTable(String name) throws IOException {
     ensureOpen();
     DB db = tables.remove(name);
+    rowFilters.remove(name);
     if (db != null) {
       db.close();
     }
     String dbPath = getDBPath(basePath, name);
+    // LevelDB only removes its own files, hence the options must be deleted so that the directory is removed
+    File optionsFile = new File(dbPath, OPTIONS_FILE);
+    if (optionsFile.exists() && !optionsFile.delete()) {
+      throw new IOException("Failed to delete " + optionsFile);
+    }
     factory.destroy(new File(dbPath), new Options());
   }
 
@@ -0,0 +1,269 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.dataset2.lib.table.leveldb;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bloom filter of the row keys of a LevelDB table, used to answer lookups of rows that do not exist without reading
+ * the table. The filter is built by scanning the table when it is opened, and writers add the rows they write
+ * after writing them. Deleted rows are never removed, they only add to the false positives until the next rebuild.
+ * <p>
+ * Lookups are lock-free. Additions are serialized, and once more rows were added than the filter was sized for, it
+ * is rebuilt from the table with twice the capacity in the background. Until the rebuild completes, the current
+ * filter keeps answering lookups and taking additions.
+ */
+public final class RowBloomFilter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RowBloomFilter.class);
+
+  // minimum number of rows the filter is sized for, to avoid frequent rebuilds of small tables
+  static final int MIN_EXPECTED_ROWS = 1 << 16;
+
+  private final String tableName;
+  private final DB db;
+  private final double fpp;
+  private final Executor rebuildExecutor;
+
+  private final AtomicLong lookups = new AtomicLong();
+  private final AtomicLong negatives = new AtomicLong();
+  private final AtomicLong falsePositives = new AtomicLong();
+
+  // updates to the bits of the filter are published to readers through this volatile field
+  private volatile BloomFilter<byte[]> filter;
+  private volatile long additions;
+  private int expectedRows;
+  // rows added while the filter is rebuilt, null if no rebuild is in progress
+  private List<byte[]> addedDuringRebuild;
+
+  RowBloomFilter(String tableName, DB db, double fpp, Executor rebuildExecutor) throws IOException {
+    this.tableName = tableName;
+    this.db = db;
+    this.fpp = fpp;
+    this.rebuildExecutor = rebuildExecutor;
+    Built built = build(MIN_EXPECTED_ROWS);
+    this.expectedRows = built.expectedRows;
+    this.filter = built.filter;
+    this.additions = built.rows;
+  }
+
+  /**
+   * Returns {@code false} if the row is definitely not in the table, {@code true} if it might be.
+   */
+  boolean mightContain(byte[] row) {
+    lookups.incrementAndGet();
+    // read the volatile field first, to see all additions that completed before
+    if (additions >= 0 && filter.mightContain(row)) {
+      return true;
+    }
+    negatives.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Records that a lookup the filter could not rule out found that the row does not exist.
+   */
+  void falsePositive() {
+    falsePositives.incrementAndGet();
+  }
+
+  /**
+   * Adds rows that were written to the table. Must be called after the write completed, so that a concurrent rebuild
+   * of the filter cannot miss them. If the filter needs to be rebuilt, the rebuild is scheduled in the background, and
+   * the rows added meanwhile are added to the new filter before it replaces the current one.
+   */
+  void add(Iterable<byte[]> rows) {
+    int minExpectedRows;
+    synchronized (this) {
+      BloomFilter<byte[]> current = filter;
+      long added = 0;
+      for (byte[] row : rows) {
+        if (current.put(row)) {
+          added++;
+        }
+        if (addedDuringRebuild != null) {
+          addedDuringRebuild.add(row);
+        }
+      }
+      // only count rows that changed the filter, rewrites of known rows do not increase its false positive rate
+      additions += added;
+      if (additions <= expectedRows || addedDuringRebuild != null) {
+        return;
+      }
+      addedDuringRebuild = new ArrayList<>();
+      minExpectedRows = expectedRows * 2;
+    }
+
+    try {
+      rebuildExecutor.execute(() -> rebuild(minExpectedRows));
+    } catch (RejectedExecutionException e) {
+      // the service is closing, keep the current filter
+      LOG.debug("Skipped rebuilding the row bloom filter of LevelDB table {}", tableName, e);
+      synchronized (this) {
+        addedDuringRebuild = null;
+        notifyAll();
+      }
+    }
+  }
+
+  void add(byte[] row) {
+    add(Arrays.asList(row));
+  }
+
+  /**
+   * Waits until a rebuild of the filter that is in progress has completed.
+   */
+  @VisibleForTesting
+  synchronized void awaitRebuild() throws InterruptedException {
+    while (addedDuringRebuild != null) {
+      wait();
+    }
+  }
+
+  private void rebuild(int minExpectedRows) {
+    Built built = null;
+    try {
+      built = build(minExpectedRows);
+    } catch (IOException | RuntimeException e) {
+      // the current filter remains valid, it only has a higher false positive rate
+      LOG.warn("Failed to rebuild the row bloom filter of LevelDB table {}", tableName, e);
+    } finally {
+      synchronized (this) {
+        if (built != null) {
+          long rowCount = built.rows;
+          for (byte[] row : addedDuringRebuild) {
+            if (built.filter.put(row)) {
+              rowCount++;
+            }
+          }
+          expectedRows = built.expectedRows;
+          filter = built.filter;
+          additions = rowCount;
+        }
+        addedDuringRebuild = null;
+        notifyAll();
+      }
+    }
+  }
+
+  private Built build(int minExpectedRows) throws IOException {
+    long start = System.currentTimeMillis();
+    // count the rows first, so that the filter is sized for the actual table
+    int rows = 0;
+    try (DBIterator iterator = db.iterator()) {
+      iterator.seekToFirst();
+      byte[] previous = null;
+      while (iterator.hasNext()) {
+        byte[] row = KeyValue.fromKey(iterator.next().getKey()).getRow();
+        if (previous == null || !Arrays.equals(previous, row)) {
+          rows++;
+          previous = row;
+        }
+      }
+    }
+    int expected = (int) Math.min(Integer.MAX_VALUE, Math.max((long) minExpectedRows, 2L * rows));
+    BloomFilter<byte[]> newFilter = BloomFilter.create(Funnels.byteArrayFunnel(), expected, fpp);
+    try (DBIterator iterator = db.iterator()) {
+      iterator.seekToFirst();
+      while (iterator.hasNext()) {
+        Map.Entry<byte[], byte[]> entry = iterator.next();
+        newFilter.put(KeyValue.fromKey(entry.getKey()).getRow());
+      }
+    }
+    LOG.debug("Built row bloom filter for {} rows of LevelDB table {} with capacity {} in {} ms",
+              rows, tableName, expected, System.currentTimeMillis() - start);
+    return new Built(newFilter, expected, rows);
+  }
+
+  /**
+   * A filter built from the rows of the table.
+   */
+  private static final class Built {
+    private final BloomFilter<byte[]> filter;
+    private final int expectedRows;
+    private final long rows;
+
+    Built(BloomFilter<byte[]> filter, int expectedRows, long rows) {
+      this.filter = filter;
+      this.expectedRows = expectedRows;
+      this.rows = rows;
+    }
+  }
+
+  Stats getStats() {
+    return new Stats(lookups.get(), negatives.get(), falsePositives.get());
+  }
+
+  /**
+   * Counters of the lookups of a {@link RowBloomFilter}.
+   */
+  public static final class Stats {
+    private final long lookups;
+    private final long negatives;
+    private final long falsePositives;
+
+    Stats(long lookups, long negatives, long falsePositives) {
+      this.lookups = lookups;
+      this.negatives = negatives;
+      this.falsePositives = falsePositives;
+    }
+
+    /**
+     * Returns the number of row lookups that consulted the filter.
+     */
+    public long getLookups() {
+      return lookups;
+    }
+
+    /**
+     * Returns the number of lookups that the filter answered without reading the table.
+     */
+    public long getNegatives() {
+      return negatives;
+    }
+
+    /**
+     * Returns the number of lookups that read the table because of the filter, but found that the row does not exist.
+     */
+    public long getFalsePositives() {
+      return falsePositives;
+    }
+
+    /**
+     * Returns the fraction of lookups that the filter answered without reading the table.
+     */
+    public double getHitRatio() {
+      return lookups == 0 ? 0d : (double) negatives / lookups;
+    }
+  }
+}
@@ -18,6 +18,7 @@ package co.cask.cdap.data2.metadata.dataset;
 
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.lib.AbstractDataset;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
 import co.cask.cdap.api.dataset.lib.IndexedTable;
 import co.cask.cdap.api.dataset.table.Delete;
 import co.cask.cdap.api.dataset.table.Put;
@@ -62,18 +63,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -196,6 +203,12 @@ public class MetadataDataset extends AbstractDataset {
   private static final String HISTORY_COLUMN = "h"; // column for metadata history
   private static final String VALUE_COLUMN = "v";  // column for metadata value
   private static final String TAGS_SEPARATOR = ",";
+  // prefix of a search term that must be matched in a search ranked by relevance
+  private static final String REQUIRED_TERM_PREFIX = "+";
+  // maximum number of values a prefix term is expanded to, before falling back to a scan of the index rows
+  private static final int MAX_PREFIX_EXPANSIONS = 64;
+  // a cursor of a search ranked by relevance: the score of the first result, followed by its entity
+  private static final Pattern CURSOR_PATTERN = Pattern.compile("([0-9a-f]{2}){8,}");
 
   // Fuzzy key is of form <row key, key mask>. We want to compare row keys.
   private static final Comparator<ImmutablePair<byte[], byte[]>> FUZZY_KEY_COMPARATOR =
@@ -529,6 +542,61 @@ public class MetadataDataset extends AbstractDataset {
     return removeMetadata(metadataEntity, input -> true);
   }
 
+  /**
+   * Applies updates to the metadata of multiple entities. The existing metadata of all entities is read with a single
+   * scan, and only the values that differ from the existing metadata are written. For each changed value, only the
+   * index rows that differ from the existing ones are added or deleted, and one history snapshot is written for each
+   * entity whose metadata changed.
+   *
+   * @param updates for each entity, a function that returns the new metadata of the entity given its existing metadata
+   * @return the {@link MetadataChange} for each of the entities
+   */
+  public Map<MetadataEntity, MetadataChange> updateMetadata(
+    Map<MetadataEntity, ? extends Function<Metadata, Metadata>> updates) {
+    Map<MetadataEntity, Metadata> existingMetadata = new HashMap<>();
+    for (Metadata metadata : getMetadata(updates.keySet())) {
+      existingMetadata.put(metadata.getMetadataEntity(), metadata);
+    }
+    long time = System.currentTimeMillis();
+    Map<MetadataEntity, MetadataChange> changes = new HashMap<>();
+    for (Map.Entry<MetadataEntity, ? extends Function<Metadata, Metadata>> update : updates.entrySet()) {
+      MetadataEntity metadataEntity = update.getKey();
+      Metadata existing = existingMetadata.getOrDefault(metadataEntity, new Metadata(metadataEntity));
+      Metadata latest = update.getValue().apply(existing);
+      changes.put(metadataEntity, new MetadataChange(existing, latest));
+      if (existing.getProperties().equals(latest.getProperties()) && existing.getTags().equals(latest.getTags())) {
+        continue;
+      }
+      // see setMetadata() for when the entity type is indexed
+      boolean isNewEntity = existing.getProperties().isEmpty();
+      Map<String, String> existingValues = new HashMap<>(existing.getProperties());
+      Map<String, String> latestValues = new HashMap<>(latest.getProperties());
+      if (!existing.getTags().isEmpty()) {
+        existingValues.put(MetadataConstants.TAGS_KEY, Joiner.on(TAGS_SEPARATOR).join(existing.getTags()));
+      }
+      if (!latest.getTags().isEmpty()) {
+        latestValues.put(MetadataConstants.TAGS_KEY, existing.getTags().equals(latest.getTags()) ?
+          existingValues.get(MetadataConstants.TAGS_KEY) : Joiner.on(TAGS_SEPARATOR).join(latest.getTags()));
+      }
+      for (String key : existingValues.keySet()) {
+        if (!latestValues.containsKey(key)) {
+          indexedTable.delete(new Delete(MetadataKey.createValueRowKey(metadataEntity, key).getKey()));
+          deleteIndexes(metadataEntity, key);
+        }
+      }
+      for (Map.Entry<String, String> value : latestValues.entrySet()) {
+        if (value.getValue().equals(existingValues.get(value.getKey()))) {
+          continue;
+        }
+        MetadataEntry entry = new MetadataEntry(metadataEntity, value.getKey(), value.getValue());
+        writeValue(entry);
+        updateIndexes(entry, getIndexersForKey(value.getKey(), isNewEntity));
+      }
+      writeHistory(latest, time);
+    }
+    return changes;
+  }
+
   /**
    * Removes the specified keys from the metadata of the specified {@link MetadataEntity}.
    * @param metadataEntity the {@link MetadataEntity} for which the specified metadata keys are to be removed
@@ -674,6 +742,10 @@ public class MetadataDataset extends AbstractDataset {
    * In all cases, duplicate entries will be returned if multiple index values point to the same entry.
    * This is often the case when using a '*' query.
    *
+   * When ranking by {@link SortInfo#RELEVANCE}, any query is allowed, all matching entities are ranked by descending
+   * relevance, and the at most offset + limit * (numCursors + 1) best entities starting at the cursor are returned,
+   * in that order and with their scores. Every matching entry of an entity is returned once.
+   *
    * TODO: (CDAP-13637) clean this up and clearly define a consistent contract
    *
    * @param request the search request
@@ -685,10 +757,165 @@ public class MetadataDataset extends AbstractDataset {
     if (SortInfo.DEFAULT.equals(request.getSortInfo())) {
       return searchByDefaultIndex(request);
     }
+    if (SortInfo.RELEVANCE.equals(request.getSortInfo())) {
+      return searchByRelevance(Collections.singletonList(this), request);
+    }
 
     return searchByCustomIndex(request);
   }
 
+  /**
+   * Searches the default indexes of the given metadata datasets, ranking the matches by {@link SortInfo#RELEVANCE}.
+   * The posting lists of a term in the different datasets are merged, so that an entity with metadata in multiple
+   * scopes is scored once over all of its matches. See {@link RankedSearch}. All matches are scored, but only the
+   * best offset + limit * (numCursors + 1) entities that are not ranked before the cursor are kept.
+   *
+   * A cursor consists of the score and the entity of the first result of a page, so that a search can be resumed
+   * at the same position in the ranking. The total of the returned {@link SearchResults} is the number of matching
+   * entities, regardless of the cursor.
+   */
+  public static SearchResults searchByRelevance(List<MetadataDataset> datasets,
+                                                SearchRequest request) throws BadRequestException {
+    double cursorScore = 0;
+    byte[] cursorEntity = null;
+    String cursor = request.getCursor();
+    if (!Strings.isNullOrEmpty(cursor)) {
+      if (!CURSOR_PATTERN.matcher(cursor).matches()) {
+        throw new BadRequestException(String.format("Invalid cursor '%s'", cursor));
+      }
+      byte[] cursorBytes = Bytes.fromHexString(cursor);
+      cursorScore = Bytes.toDouble(cursorBytes);
+      cursorEntity = Arrays.copyOfRange(cursorBytes, Bytes.SIZEOF_LONG, cursorBytes.length);
+    }
+    String column = request.isNamespaced() ?
+      DEFAULT_INDEX_COLUMN.getColumn() : DEFAULT_INDEX_COLUMN.getCrossNamespaceColumn();
+
+    List<PostingList> termPostings = new ArrayList<>();
+    List<Boolean> requiredTerms = new ArrayList<>();
+    List<Integer> documentFrequencies = new ArrayList<>();
+    int maxDocumentFrequency = 1;
+    for (String rawTerm : Splitter.on(SPACE_SEPARATOR_PATTERN).omitEmptyStrings().trimResults()
+      .split(request.getQuery())) {
+      boolean required = rawTerm.length() > 1 && rawTerm.startsWith(REQUIRED_TERM_PREFIX);
+      if (required) {
+        rawTerm = rawTerm.substring(REQUIRED_TERM_PREFIX.length());
+      }
+      List<PostingList> postingLists = new ArrayList<>();
+      for (MetadataDataset dataset : datasets) {
+        for (SearchTerm searchTerm : dataset.getSearchTerms(request, rawTerm)) {
+          postingLists.add(dataset.getPostingList(column, searchTerm));
+        }
+      }
+      PostingList postings = postingLists.size() == 1 ? postingLists.get(0) : new UnionPostingList(postingLists);
+      int documentFrequency = Math.max(1, postings.countEntities());
+      maxDocumentFrequency = Math.max(maxDocumentFrequency, documentFrequency);
+      termPostings.add(postings);
+      requiredTerms.add(required);
+      documentFrequencies.add(documentFrequency);
+    }
+    List<RankedSearch.Clause> clauses = new ArrayList<>();
+    for (int i = 0; i < termPostings.size(); i++) {
+      // rare terms are more relevant than frequent ones
+      double weight = Math.log(1 + (double) maxDocumentFrequency / documentFrequencies.get(i));
+      clauses.add(new RankedSearch.Clause(termPostings.get(i), requiredTerms.get(i), weight));
+    }
+
+    int offset = request.getOffset();
+    int limit = request.getLimit();
+    int numCursors = limit == 0 ? 0 : request.getNumCursors();
+    // Note that there's a potential for overflow so we account by limiting it to Integer.MAX_VALUE
+    int fetchSize = (int) Math.min(offset + ((numCursors + 1) * (long) limit), Integer.MAX_VALUE);
+    // the best hits so far, with the worst of them at the head
+    PriorityQueue<RankedSearch.Hit> best =
+      new PriorityQueue<>(Math.max(1, Math.min(fetchSize, 1024)), RankedSearch.RANKING.reversed());
+    int total = 0;
+    try (RankedSearch search = new RankedSearch(clauses)) {
+      RankedSearch.Hit hit;
+      while ((hit = search.next()) != null) {
+        byte[] rowKey = hit.getRowKeys().get(0);
+        if (!isIncluded(rowKey, MetadataKey.extractMetadataEntityFromKey(rowKey),
+                        request.getTypes(), request.shouldShowHidden())) {
+          continue;
+        }
+        total++;
+        if (cursorEntity != null
+          && RankedSearch.compare(hit.getScore(), hit.getEntity(), cursorScore, cursorEntity) < 0) {
+          continue;
+        }
+        if (fetchSize > 0) {
+          best.add(hit);
+          if (best.size() > fetchSize) {
+            best.poll();
+          }
+        }
+      }
+    }
+    List<RankedSearch.Hit> hits = new ArrayList<>(best);
+    hits.sort(RankedSearch.RANKING);
+
+    // a cursor is the first entity of each page after the requested page
+    List<String> cursors = new ArrayList<>(numCursors);
+    for (int i = offset + limit; i < hits.size() && limit > 0; i += limit) {
+      RankedSearch.Hit hit = hits.get(i);
+      cursors.add(Bytes.toHexString(Bytes.concat(Bytes.toBytes(hit.getScore()), hit.getEntity())));
+    }
+
+    List<MetadataEntry> results = new ArrayList<>();
+    Map<MetadataEntity, Double> scores = new LinkedHashMap<>();
+    for (RankedSearch.Hit hit : hits) {
+      MetadataEntity metadataEntity = MetadataKey.extractMetadataEntityFromKey(hit.getRowKeys().get(0));
+      scores.put(metadataEntity, hit.getScore());
+      Set<String> keys = new LinkedHashSet<>();
+      for (byte[] rowKey : hit.getRowKeys()) {
+        keys.add(MetadataKey.extractMetadataKey(rowKey));
+      }
+      for (MetadataDataset dataset : datasets) {
+        for (String key : keys) {
+          MetadataEntry entry = dataset.getMetadata(metadataEntity, key);
+          if (entry != null) {
+            results.add(entry);
+          }
+        }
+      }
+    }
+    return new SearchResults(results, cursors, scores, total);
+  }
+
+  /**
+   * Returns the posting list for a search term. A prefix term is expanded into the
+   * distinct values that start with it, unless there are too many of them.
+   */
+  private PostingList getPostingList(String column, SearchTerm searchTerm) {
+    byte[] indexColumn = Bytes.toBytes(column);
+    byte[] term = Bytes.toBytes(searchTerm.getTerm());
+    if (!searchTerm.isPrefix()) {
+      return new TermPostingList(indexedTable, indexColumn, term);
+    }
+    // the indexed value is the last part of the index row key, prefixed with the namespace for namespaced search
+    String valuePrefix = searchTerm.getNamespaceId() == null ?
+      "" : searchTerm.getNamespaceId().getNamespace() + MetadataConstants.KEYVALUE_SEPARATOR;
+    byte[] stopValue = Bytes.stopKeyForPrefix(term);
+    byte[] startValue = term;
+    List<PostingList> expansions = new ArrayList<>();
+    while (true) {
+      byte[] rowKey;
+      try (CloseableIterator<byte[]> rowKeys = indexedTable.scanRowKeysByIndex(indexColumn, startValue, stopValue)) {
+        if (!rowKeys.hasNext()) {
+          break;
+        }
+        rowKey = rowKeys.next();
+      }
+      if (expansions.size() == MAX_PREFIX_EXPANSIONS) {
+        return new ScanPostingList(indexedTable, column, value -> value.startsWith(searchTerm.getTerm()));
+      }
+      byte[] value = Bytes.toBytes(valuePrefix + MetadataKey.extractIndexValue(rowKey));
+      expansions.add(new TermPostingList(indexedTable, indexColumn, value));
+      // skip all index entries of this value
+      startValue = Bytes.concat(value, new byte[] { 1 });
+    }
+    return new UnionPostingList(expansions);
+  }
+
   private SearchResults searchByDefaultIndex(SearchRequest request) {
     List<MetadataEntry> results = new LinkedList<>();
     String column = request.isNamespaced() ?
@@ -796,29 +1023,37 @@ public class MetadataDataset extends AbstractDataset {
     }
 
     final byte[] rowKey = rowToProcess.getRow();
+    MetadataEntity metadataEntity = MetadataKey.extractMetadataEntityFromKey(rowKey);
+    if (!isIncluded(rowKey, metadataEntity, entityFilter, showHidden)) {
+      return Optional.empty();
+    }
+
+    String key = MetadataKey.extractMetadataKey(rowKey);
+    MetadataEntry entry = getMetadata(metadataEntity, key);
+    return Optional.ofNullable(entry);
+  }
+
+  // whether the entity of an index row passes the type filter and is not hidden
+  private static boolean isIncluded(byte[] rowKey, MetadataEntity metadataEntity,
+                             Set<EntityTypeSimpleName> entityFilter, boolean showHidden) {
     String targetType = MetadataKey.extractTargetType(rowKey);
 
     // Filter on target type if not set to include all types
     boolean includeAllTypes = entityFilter.isEmpty() || entityFilter.contains(EntityTypeSimpleName.ALL);
     if (!includeAllTypes && !entityFilter.contains(EntityTypeSimpleName.valueOfSerializedForm(targetType))) {
-      return Optional.empty();
+      return false;
     }
 
-    MetadataEntity metadataEntity = MetadataKey.extractMetadataEntityFromKey(rowKey);
-
     try {
       NamespacedEntityId namespacedEntityId = EntityId.fromMetadataEntity(metadataEntity);
       // if the entity starts with _ then skip it unless the caller choose to showHidden.
       if (!showHidden && namespacedEntityId != null && namespacedEntityId.getEntityName().startsWith("_")) {
-        return Optional.empty();
+        return false;
       }
     } catch (IllegalArgumentException e) {
       // ignore. For custom entities we don't really want to hide them if they start with _
     }
-
-    String key = MetadataKey.extractMetadataKey(rowKey);
-    MetadataEntry entry = getMetadata(metadataEntity, key);
-    return Optional.ofNullable(entry);
+    return true;
   }
 
   /**
@@ -831,22 +1066,32 @@ public class MetadataDataset extends AbstractDataset {
    * @return formatted search query which is namespaced
    */
   private Iterable<SearchTerm> getSearchTerms(SearchRequest searchRequest) {
-    Optional<NamespaceId> namespace = searchRequest.getNamespaceId();
-    Set<EntityScope> entityScopes = searchRequest.getEntityScopes();
     String searchQuery = searchRequest.getQuery();
     List<SearchTerm> searchTerms = new LinkedList<>();
     for (String term : Splitter.on(SPACE_SEPARATOR_PATTERN).omitEmptyStrings().trimResults().split(searchQuery)) {
-      if (entityScopes.contains(EntityScope.USER)) {
-        SearchTerm cleanedTerm = namespace.map(namespaceId -> SearchTerm.from(namespaceId, term))
-          .orElseGet(() -> SearchTerm.from(term));
-        searchTerms.add(cleanedTerm);
-      }
-      // for non-system namespaces, also add the system namespace, so entities from system namespace are surfaced
-      // in the search results as well
-      if (namespace.isPresent() && !NamespaceId.SYSTEM.equals(namespace.get()) &&
-        entityScopes.contains(EntityScope.SYSTEM)) {
-        searchTerms.add(SearchTerm.from(NamespaceId.SYSTEM, term));
-      }
+      searchTerms.addAll(getSearchTerms(searchRequest, term));
+    }
+    return searchTerms;
+  }
+
+  /**
+   * Generate the search terms to use for one raw term of the query: one for the requested namespace, and one for the
+   * system namespace, depending on the entity scopes of the request.
+   */
+  private List<SearchTerm> getSearchTerms(SearchRequest searchRequest, String term) {
+    Optional<NamespaceId> namespace = searchRequest.getNamespaceId();
+    Set<EntityScope> entityScopes = searchRequest.getEntityScopes();
+    List<SearchTerm> searchTerms = new ArrayList<>(2);
+    if (entityScopes.contains(EntityScope.USER)) {
+      SearchTerm cleanedTerm = namespace.map(namespaceId -> SearchTerm.from(namespaceId, term))
+        .orElseGet(() -> SearchTerm.from(term));
+      searchTerms.add(cleanedTerm);
+    }
+    // for non-system namespaces, also add the system namespace, so entities from system namespace are surfaced
+    // in the search results as well
+    if (namespace.isPresent() && !NamespaceId.SYSTEM.equals(namespace.get()) &&
+      entityScopes.contains(EntityScope.SYSTEM)) {
+      searchTerms.add(SearchTerm.from(NamespaceId.SYSTEM, term));
     }
     return searchTerms;
   }
@@ -871,8 +1116,52 @@ public class MetadataDataset extends AbstractDataset {
     // Delete existing indexes for metadataEntity-key
     deleteIndexes(metadataEntry.getMetadataEntity(), metadataEntry.getKey());
 
+    for (Put put : getIndexPuts(metadataEntry, indexers).values()) {
+      indexedTable.put(put);
+    }
+  }
+
+  /**
+   * Updates the indexes of a {@link MetadataEntry} to the ones generated by the given indexers. Only the index rows
+   * that are not generated anymore are deleted, and only the ones that do not exist yet are written. An existing index
+   * for the type of the entity is retained, because it is only generated for the first write to an entity.
+   *
+   * @param metadataEntry {@link MetadataEntry} for which indexes are to be updated
+   * @param indexers {@link Set<String>} of {@link Indexer indexers} for this {@link MetadataEntry}
+   */
+  private void updateIndexes(MetadataEntry metadataEntry, Set<Indexer> indexers) {
+    MetadataEntity metadataEntity = metadataEntry.getMetadataEntity();
+    Map<byte[], Put> puts = getIndexPuts(metadataEntry, indexers);
+    String typeIndex = (metadataEntity.getType() + MetadataConstants.KEYVALUE_SEPARATOR +
+      metadataEntity.getValue(metadataEntity.getType())).toLowerCase();
+
+    byte[] startKey = MetadataKey.createIndexRowKey(metadataEntity, metadataEntry.getKey(), null).getKey();
+    try (Scanner scan = indexedTable.scan(startKey, Bytes.stopKeyForPrefix(startKey))) {
+      Row next;
+      while ((next = scan.next()) != null) {
+        Put put = puts.remove(next.getRow());
+        if (put == null) {
+          if (!typeIndex.equals(MetadataKey.extractIndexValue(next.getRow()))) {
+            deleteIndexRow(next);
+          }
+        } else if (!hasColumns(next, put.getValues())) {
+          deleteIndexRow(next);
+          indexedTable.put(put);
+        }
+      }
+    }
+    for (Put put : puts.values()) {
+      indexedTable.put(put);
+    }
+  }
+
+  /**
+   * Returns the index rows for a {@link MetadataEntry}, one {@link Put} per index row key.
+   */
+  private Map<byte[], Put> getIndexPuts(MetadataEntry metadataEntry, Set<Indexer> indexers) {
     String namespacePrefix = metadataEntry.getMetadataEntity().getValue(MetadataEntity.NAMESPACE)
       + MetadataConstants.KEYVALUE_SEPARATOR;
+    Map<byte[], Put> puts = new TreeMap<>(Bytes.BYTES_COMPARATOR);
     for (Indexer indexer : indexers) {
       Set<String> indexes = indexer.getIndexes(metadataEntry);
       IndexColumn indexColumn = getIndexColumn(metadataEntry.getKey(), indexer.getSortOrder());
@@ -880,17 +1169,30 @@ public class MetadataDataset extends AbstractDataset {
         if (index.isEmpty()) {
           continue;
         }
-        
+
         // store one value for within namespace search and one for cross namespace search
         String lowercaseIndex = index.toLowerCase();
         MDSKey mdsIndexKey = MetadataKey.createIndexRowKey(metadataEntry.getMetadataEntity(),
                                                            metadataEntry.getKey(), lowercaseIndex);
-        Put put = new Put(mdsIndexKey.getKey());
+        Put put = puts.computeIfAbsent(mdsIndexKey.getKey(), Put::new);
         put.add(Bytes.toBytes(indexColumn.getCrossNamespaceColumn()), Bytes.toBytes(lowercaseIndex));
         put.add(Bytes.toBytes(indexColumn.getColumn()), Bytes.toBytes(namespacePrefix + lowercaseIndex));
-        indexedTable.put(put);
       }
     }
+    return puts;
+  }
+
+  // whether a row has exactly the given columns and values
+  private static boolean hasColumns(Row row, Map<byte[], byte[]> columns) {
+    if (row.getColumns().size() != columns.size()) {
+      return false;
+    }
+    for (Map.Entry<byte[], byte[]> column : columns.entrySet()) {
+      if (!Bytes.equals(column.getValue(), row.get(column.getKey()))) {
+        return false;
+      }
+    }
+    return true;
   }
 
   private IndexColumn getIndexColumn(String key, SortInfo.SortOrder sortOrder) {
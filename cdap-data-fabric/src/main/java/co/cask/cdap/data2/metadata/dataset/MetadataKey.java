@@ -15,10 +15,12 @@
  */
 package co.cask.cdap.data2.metadata.dataset;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.metadata.MetadataEntity;
 import co.cask.cdap.data2.dataset2.lib.table.MDSKey;
 import co.cask.cdap.proto.id.EntityId;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -149,6 +151,45 @@ class MetadataKey {
     return metadataEntity;
   }
 
+  /**
+   * Returns the prefix of an index row key that identifies its metadata entity, that is, the row key without the
+   * trailing [key][index] parts. All index rows of an entity start with this prefix, and it can be recreated from
+   * the entity with {@link #createEntityIndexPrefix(MetadataEntity)}.
+   */
+  static byte[] extractEntityIndexPrefix(byte[] indexRowKey) {
+    // every part is encoded as <length><bytes>
+    int lastPart = 0;
+    int secondToLastPart = 0;
+    int offset = 0;
+    while (offset < indexRowKey.length) {
+      secondToLastPart = lastPart;
+      lastPart = offset;
+      offset += Bytes.SIZEOF_INT + Bytes.toInt(indexRowKey, offset);
+    }
+    return Arrays.copyOf(indexRowKey, secondToLastPart);
+  }
+
+  /**
+   * Returns the index value of an index row key, that is, its trailing [index] part.
+   */
+  static String extractIndexValue(byte[] indexRowKey) {
+    int lastPart = 0;
+    int offset = 0;
+    while (offset < indexRowKey.length) {
+      lastPart = offset;
+      offset += Bytes.SIZEOF_INT + Bytes.toInt(indexRowKey, offset);
+    }
+    return Bytes.toString(indexRowKey, lastPart + Bytes.SIZEOF_INT, offset - lastPart - Bytes.SIZEOF_INT);
+  }
+
+  /**
+   * Creates the prefix shared by all index rows of a metadata entity, in the format:
+   * [{@link #INDEX_ROW_PREFIX}][targetType][targetId]
+   */
+  static byte[] createEntityIndexPrefix(MetadataEntity metadataEntity) {
+    return getMDSKeyPrefix(metadataEntity, INDEX_ROW_PREFIX).build().getKey();
+  }
+
   static byte[] getValueRowPrefix() {
     return VALUE_ROW_PREFIX_KEY;
   }
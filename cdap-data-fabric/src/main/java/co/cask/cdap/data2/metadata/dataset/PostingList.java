@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.metadata.dataset;
+
+import co.cask.cdap.api.common.Bytes;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * An iterator over the metadata entities that match a search term, in the order of their index row keys. An entity
+ * is identified by the prefix that all of its index row keys share, see
+ * {@link MetadataKey#extractEntityIndexPrefix(byte[])}. Because postings are ordered by entity, posting lists can be
+ * merged and intersected while streaming, also across the metadata datasets of different scopes.
+ */
+abstract class PostingList implements Closeable {
+
+  // number of postings to iterate over in advance(), before seeking to the target instead
+  private static final int MAX_SKIP = 8;
+
+  /**
+   * Returns the next posting, or {@code null} if there are no more postings.
+   */
+  @Nullable
+  abstract Posting next();
+
+  /**
+   * Repositions this posting list such that the next posting is the first posting for the given entity or after it.
+   */
+  abstract void seek(byte[] entity);
+
+  /**
+   * Counts the entities in this posting list, which is used as the document frequency of the search term, and
+   * repositions it before its first posting.
+   */
+  int countEntities() {
+    int count = 0;
+    while (next() != null) {
+      count++;
+    }
+    seek(new byte[0]);
+    return count;
+  }
+
+  /**
+   * Returns the first posting after the last returned one whose entity is equal to or after the given entity, or
+   * {@code null} if there is no such posting. Targets close to the current position are found by iterating,
+   * others by seeking.
+   */
+  @Nullable
+  Posting advance(byte[] entity) {
+    for (int i = 0; i < MAX_SKIP; i++) {
+      Posting posting = next();
+      if (posting == null || Bytes.compareTo(posting.getEntity(), entity) >= 0) {
+        return posting;
+      }
+    }
+    seek(entity);
+    return next();
+  }
+
+  @Override
+  public abstract void close();
+
+  /**
+   * The index rows of one entity that match a search term.
+   */
+  static final class Posting {
+    private final byte[] entity;
+    private final List<byte[]> rowKeys;
+
+    Posting(byte[] entity, List<byte[]> rowKeys) {
+      this.entity = entity;
+      this.rowKeys = Collections.unmodifiableList(rowKeys);
+    }
+
+    /**
+     * @return the prefix of the index row keys of the entity
+     */
+    byte[] getEntity() {
+      return entity;
+    }
+
+    /**
+     * @return the keys of the matching index rows
+     */
+    List<byte[]> getRowKeys() {
+      return rowKeys;
+    }
+
+    /**
+     * @return the number of times the entity matches the term
+     */
+    int getFrequency() {
+      return rowKeys.size();
+    }
+  }
+}
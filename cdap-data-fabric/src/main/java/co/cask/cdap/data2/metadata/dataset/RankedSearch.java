@@ -0,0 +1,270 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.metadata.dataset;
+
+import co.cask.cdap.api.common.Bytes;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import javax.annotation.Nullable;
+
+/**
+ * Evaluates a search query over one {@link PostingList} per query term, and returns the matching entities in the
+ * order of their index row keys, together with a relevance score. If the query has required terms, the matching
+ * entities are the intersection of the posting lists of the required terms, and the other terms only contribute to
+ * the score. Otherwise, the matching entities are the union of all posting lists. The posting lists are read as a
+ * stream, so that the matches can be ranked while only the best of them are kept in memory, see {@link #RANKING}.
+ *
+ * The score of an entity is the sum over the matching terms of the term's weight, multiplied by a dampened count of
+ * the entity's index rows that match the term. The sum is always taken in the order of the terms, so that the score
+ * of an entity, and therefore a cursor that contains it, does not depend on the order in which postings are merged.
+ */
+final class RankedSearch implements Closeable {
+
+  /**
+   * The order of the results of a search: by descending score, and entities with the same score by their keys.
+   */
+  static final Comparator<Hit> RANKING = (o1, o2) -> compare(o1.getScore(), o1.entity, o2.getScore(), o2.entity);
+
+  private static final Comparator<Head> HEAD_COMPARATOR =
+    (o1, o2) -> Bytes.compareTo(o1.posting.getEntity(), o2.posting.getEntity());
+
+  private final List<Clause> clauses;
+  private final List<Clause> required;
+  private final List<Clause> optional;
+  // for a query without required terms: the current posting of each term
+  private final PriorityQueue<Head> heads;
+  // for a query with required terms: the current posting of each required and optional term
+  private final PostingList.Posting[] requiredPostings;
+  private final PostingList.Posting[] optionalPostings;
+  private final boolean[] optionalExhausted;
+  private boolean started;
+  private boolean exhausted;
+
+  RankedSearch(List<Clause> clauses) {
+    this.clauses = clauses;
+    this.required = new ArrayList<>();
+    this.optional = new ArrayList<>();
+    for (int i = 0; i < clauses.size(); i++) {
+      Clause clause = clauses.get(i);
+      clause.index = i;
+      (clause.required ? required : optional).add(clause);
+    }
+    this.heads = new PriorityQueue<>(Math.max(1, clauses.size()), HEAD_COMPARATOR);
+    this.requiredPostings = new PostingList.Posting[required.size()];
+    this.optionalPostings = new PostingList.Posting[optional.size()];
+    this.optionalExhausted = new boolean[optional.size()];
+  }
+
+  /**
+   * Returns the next matching entity, or {@code null} if there are no more matches.
+   */
+  @Nullable
+  Hit next() {
+    if (exhausted) {
+      return null;
+    }
+    Hit hit = required.isEmpty() ? nextUnion() : nextIntersection();
+    exhausted = hit == null;
+    return hit;
+  }
+
+  /**
+   * Compares two results of a search by their scores and entities, in the order of {@link #RANKING}.
+   */
+  static int compare(double score1, byte[] entity1, double score2, byte[] entity2) {
+    int cmp = Double.compare(score2, score1);
+    return cmp != 0 ? cmp : Bytes.compareTo(entity1, entity2);
+  }
+
+  @Override
+  public void close() {
+    for (Clause clause : clauses) {
+      clause.postings.close();
+    }
+  }
+
+  @Nullable
+  private Hit nextUnion() {
+    if (!started) {
+      for (Clause clause : optional) {
+        refill(clause, clause.postings.next());
+      }
+      started = true;
+    }
+    Head head = heads.poll();
+    if (head == null) {
+      return null;
+    }
+    Hit hit = new Hit(head.posting.getEntity(), clauses.size());
+    hit.add(head.clause, head.posting);
+    refill(head.clause, head.clause.postings.next());
+    while (!heads.isEmpty() && Bytes.equals(hit.entity, heads.peek().posting.getEntity())) {
+      head = heads.poll();
+      hit.add(head.clause, head.posting);
+      refill(head.clause, head.clause.postings.next());
+    }
+    return hit;
+  }
+
+  private void refill(Clause clause, @Nullable PostingList.Posting posting) {
+    if (posting != null) {
+      heads.add(new Head(clause, posting));
+    }
+  }
+
+  @Nullable
+  private Hit nextIntersection() {
+    // move all required terms past the previous match
+    for (int i = 0; i < requiredPostings.length; i++) {
+      requiredPostings[i] = required.get(i).postings.next();
+      if (requiredPostings[i] == null) {
+        return null;
+      }
+    }
+    while (true) {
+      byte[] target = requiredPostings[0].getEntity();
+      for (PostingList.Posting posting : requiredPostings) {
+        if (Bytes.compareTo(posting.getEntity(), target) > 0) {
+          target = posting.getEntity();
+        }
+      }
+      boolean aligned = true;
+      for (int i = 0; i < requiredPostings.length; i++) {
+        if (Bytes.compareTo(requiredPostings[i].getEntity(), target) < 0) {
+          requiredPostings[i] = required.get(i).postings.advance(target);
+          if (requiredPostings[i] == null) {
+            return null;
+          }
+          aligned &= Bytes.equals(requiredPostings[i].getEntity(), target);
+        }
+      }
+      if (aligned) {
+        break;
+      }
+    }
+
+    Hit hit = new Hit(requiredPostings[0].getEntity(), clauses.size());
+    for (int i = 0; i < requiredPostings.length; i++) {
+      hit.add(required.get(i), requiredPostings[i]);
+    }
+    // optional terms only contribute to the score of the match
+    for (int i = 0; i < optionalPostings.length; i++) {
+      if (optionalExhausted[i]) {
+        continue;
+      }
+      PostingList postings = optional.get(i).postings;
+      if (optionalPostings[i] == null) {
+        optionalPostings[i] = postings.next();
+      }
+      if (optionalPostings[i] != null && Bytes.compareTo(optionalPostings[i].getEntity(), hit.entity) < 0) {
+        optionalPostings[i] = postings.advance(hit.entity);
+      }
+      if (optionalPostings[i] == null) {
+        optionalExhausted[i] = true;
+      } else if (Bytes.equals(optionalPostings[i].getEntity(), hit.entity)) {
+        hit.add(optional.get(i), optionalPostings[i]);
+      }
+    }
+    return hit;
+  }
+
+  /**
+   * A term of a search query.
+   */
+  static final class Clause {
+    private final PostingList postings;
+    private final boolean required;
+    private final double weight;
+    // position of the clause in the query
+    private int index;
+
+    /**
+     * @param postings the posting list of the term
+     * @param required whether the term must match
+     * @param weight the weight of the term, usually derived from the number of entities that it matches
+     */
+    Clause(PostingList postings, boolean required, double weight) {
+      this.postings = postings;
+      this.required = required;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * An entity that matches a search query.
+   */
+  static final class Hit {
+    private final byte[] entity;
+    private final List<byte[]> rowKeys = new ArrayList<>();
+    // the contribution of each clause to the score
+    private final double[] contributions;
+    private double score = -1;
+
+    private Hit(byte[] entity, int numClauses) {
+      this.entity = entity;
+      this.contributions = new double[numClauses];
+    }
+
+    private void add(Clause clause, PostingList.Posting posting) {
+      rowKeys.addAll(posting.getRowKeys());
+      contributions[clause.index] = clause.weight * (1 + Math.log(posting.getFrequency()));
+    }
+
+    /**
+     * @return the prefix of the index row keys of the entity
+     */
+    byte[] getEntity() {
+      return entity;
+    }
+
+    /**
+     * @return the keys of the index rows of the entity that match any of the query terms
+     */
+    List<byte[]> getRowKeys() {
+      return Collections.unmodifiableList(rowKeys);
+    }
+
+    double getScore() {
+      if (score < 0) {
+        score = 0;
+        for (double contribution : contributions) {
+          score += contribution;
+        }
+      }
+      return score;
+    }
+  }
+
+  /**
+   * The current posting of one of the terms of a query without required terms.
+   */
+  private static final class Head {
+    private final Clause clause;
+    private final PostingList.Posting posting;
+
+    private Head(Clause clause, PostingList.Posting posting) {
+      this.clause = clause;
+      this.posting = posting;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.metadata.dataset;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.IndexedTable;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link PostingList} that scans the index rows of the metadata table in the order of their keys, and returns the
+ * rows whose value in an index column is accepted by a predicate. This is used for prefix terms that expand to too
+ * many values to merge their posting lists. Its cost is proportional to the number of index rows scanned, rather
+ * than to the number of matches.
+ */
+final class ScanPostingList extends PostingList {
+  private final IndexedTable table;
+  private final String column;
+  private final Predicate<String> matcher;
+  @Nullable
+  private byte[] start;
+  private Scanner scanner;
+  // row that was read ahead while collecting the rows of the previous entity
+  private Row pending;
+
+  ScanPostingList(IndexedTable table, String column, Predicate<String> matcher) {
+    this.table = table;
+    this.column = column;
+    this.matcher = matcher;
+  }
+
+  @Nullable
+  @Override
+  Posting next() {
+    if (scanner == null) {
+      byte[] prefix = MetadataKey.getIndexRowPrefix();
+      byte[] startRow = start == null || Bytes.compareTo(start, prefix) < 0 ? prefix : start;
+      scanner = table.scan(startRow, Bytes.stopKeyForPrefix(prefix));
+    }
+    Row row = pending;
+    pending = null;
+    if (row == null) {
+      row = nextMatch();
+      if (row == null) {
+        return null;
+      }
+    }
+    byte[] entity = MetadataKey.extractEntityIndexPrefix(row.getRow());
+    List<byte[]> rowKeys = new ArrayList<>();
+    rowKeys.add(row.getRow());
+    for (Row next = nextMatch(); next != null; next = nextMatch()) {
+      if (!Bytes.equals(entity, MetadataKey.extractEntityIndexPrefix(next.getRow()))) {
+        pending = next;
+        break;
+      }
+      rowKeys.add(next.getRow());
+    }
+    return new Posting(entity, rowKeys);
+  }
+
+  @Nullable
+  private Row nextMatch() {
+    for (Row row = scanner.next(); row != null; row = scanner.next()) {
+      String value = row.getString(column);
+      if (value != null && matcher.test(value)) {
+        return row;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  void seek(byte[] entity) {
+    close();
+    start = entity;
+  }
+
+  @Override
+  public void close() {
+    if (scanner != null) {
+      scanner.close();
+      scanner = null;
+    }
+    pending = null;
+  }
+}
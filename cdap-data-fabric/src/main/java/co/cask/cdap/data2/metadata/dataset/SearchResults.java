@@ -16,9 +16,12 @@
 
 package co.cask.cdap.data2.metadata.dataset;
 
+import co.cask.cdap.api.metadata.MetadataEntity;
 import co.cask.cdap.data2.metadata.store.MetadataStore;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a list of {@link MetadataEntry} that match a search query in the {@link MetadataStore}, along with a
@@ -27,11 +30,19 @@ import java.util.List;
 public class SearchResults {
   private final List<MetadataEntry> results;
   private final List<String> cursors;
+  private final Map<MetadataEntity, Double> scores;
+  private final int total;
 
 
   SearchResults(List<MetadataEntry> results, List<String> cursors) {
+    this(results, cursors, Collections.emptyMap(), results.size());
+  }
+
+  SearchResults(List<MetadataEntry> results, List<String> cursors, Map<MetadataEntity, Double> scores, int total) {
     this.results = results;
     this.cursors = cursors;
+    this.scores = scores;
+    this.total = total;
   }
 
   public List<MetadataEntry> getResults() {
@@ -41,4 +52,20 @@ public class SearchResults {
   public List<String> getCursors() {
     return cursors;
   }
+
+  /**
+   * @return the relevance score of each entity in the results, if the search was ranked by
+   *         {@link SortInfo#RELEVANCE}, otherwise an empty map. The map iterates in the order of the results.
+   */
+  public Map<MetadataEntity, Double> getScores() {
+    return scores;
+  }
+
+  /**
+   * @return the number of entities that match the query, if the search was ranked by {@link SortInfo#RELEVANCE},
+   *         otherwise the number of results
+   */
+  public int getTotal() {
+    return total;
+  }
 }
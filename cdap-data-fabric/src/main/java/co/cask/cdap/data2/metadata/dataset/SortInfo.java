@@ -40,13 +40,25 @@ public class SortInfo {
    */
   public static final SortInfo DEFAULT = new SortInfo(null, SortOrder.WEIGHTED);
 
+  /**
+   * Sort order for paginated search, when results should be ranked by relevance to the search query. In contrast to
+   * {@link #DEFAULT}, the search keeps only as many matches in memory as are needed for the requested page and
+   * cursors, and it supports cursors for any search query.
+   * <p>
+   * All matching entities are ranked by descending relevance, and entities with the same relevance by their keys.
+   * A cursor holds the relevance and the key of the first entity of a page, so a search resumes at the same position
+   * in the ranking.
+   */
+  public static final SortInfo RELEVANCE = new SortInfo(null, SortOrder.RELEVANCE);
+
   /**
    * Represents sorting order.
    */
   public enum SortOrder {
     ASC,
     DESC,
-    WEIGHTED
+    WEIGHTED,
+    RELEVANCE
   }
 
   private final String sortBy;
@@ -71,7 +83,7 @@ public class SortInfo {
 
   /**
    * Parses a {@link SortInfo} object from the specified string. The supported format is
-   * <pre>[sortBy][whitespace][sortOrder]</pre>.
+   * <pre>[sortBy][whitespace][sortOrder]</pre>, or 'relevance' for {@link #RELEVANCE}.
    *
    * @param sort the string to parse into a {@link SortInfo}. If {@code null}, {@link #DEFAULT} is returned
    * @return the parsed {@link SortInfo}
@@ -81,6 +93,9 @@ public class SortInfo {
     if (Strings.isNullOrEmpty(sort)) {
       return SortInfo.DEFAULT;
     }
+    if (SortOrder.RELEVANCE.name().equalsIgnoreCase(sort.trim())) {
+      return SortInfo.RELEVANCE;
+    }
     Iterable<String> sortSplit = Splitter.on(SPACE_SPLIT_PATTERN).trimResults().omitEmptyStrings().split(sort);
     if (Iterables.size(sortSplit) != 2) {
       throw new BadRequestException(
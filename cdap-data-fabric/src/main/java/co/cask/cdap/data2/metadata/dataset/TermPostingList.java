@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.metadata.dataset;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.api.dataset.lib.IndexedTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link PostingList} for an exact search term, read from the index of the {@link IndexedTable}. The index keys of
+ * a value are ordered by the data row keys, so the index rows of an entity are adjacent, and the entities are in
+ * the order of their index row keys.
+ */
+final class TermPostingList extends PostingList {
+  private final IndexedTable table;
+  private final byte[] column;
+  private final byte[] value;
+  @Nullable
+  private byte[] start;
+  private CloseableIterator<byte[]> rowKeys;
+  // row key that was read ahead while collecting the rows of the previous entity
+  private byte[] pending;
+
+  TermPostingList(IndexedTable table, byte[] column, byte[] value) {
+    this.table = table;
+    this.column = column;
+    this.value = value;
+  }
+
+  @Nullable
+  @Override
+  Posting next() {
+    if (rowKeys == null) {
+      // the index scan is opened lazily, because a prefix may expand to many terms
+      rowKeys = table.readRowKeysByIndex(column, value, start);
+    }
+    byte[] rowKey = pending;
+    pending = null;
+    if (rowKey == null) {
+      if (!rowKeys.hasNext()) {
+        return null;
+      }
+      rowKey = rowKeys.next();
+    }
+    byte[] entity = MetadataKey.extractEntityIndexPrefix(rowKey);
+    List<byte[]> entityRowKeys = new ArrayList<>();
+    entityRowKeys.add(rowKey);
+    while (rowKeys.hasNext()) {
+      byte[] next = rowKeys.next();
+      if (!Bytes.equals(entity, MetadataKey.extractEntityIndexPrefix(next))) {
+        pending = next;
+        break;
+      }
+      entityRowKeys.add(next);
+    }
+    return new Posting(entity, entityRowKeys);
+  }
+
+  @Override
+  void seek(byte[] entity) {
+    close();
+    start = entity;
+  }
+
+  @Override
+  public void close() {
+    if (rowKeys != null) {
+      rowKeys.close();
+      rowKeys = null;
+    }
+    pending = null;
+  }
+}
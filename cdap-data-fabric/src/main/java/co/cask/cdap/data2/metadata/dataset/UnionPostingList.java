@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.metadata.dataset;
+
+import co.cask.cdap.api.common.Bytes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link PostingList} that merges other posting lists. The postings of an entity that is contained in multiple of
+ * the posting lists are combined into one posting. This is used for the expansions of a prefix term, for the
+ * namespace variants of a term, and for the posting lists of a term in the metadata datasets of different scopes.
+ */
+final class UnionPostingList extends PostingList {
+  private static final Comparator<Head> HEAD_COMPARATOR =
+    (o1, o2) -> Bytes.compareTo(o1.posting.getEntity(), o2.posting.getEntity());
+
+  private final List<PostingList> postingLists;
+  private final PriorityQueue<Head> heads;
+  private boolean started;
+
+  UnionPostingList(List<PostingList> postingLists) {
+    this.postingLists = postingLists;
+    this.heads = new PriorityQueue<>(Math.max(1, postingLists.size()), HEAD_COMPARATOR);
+  }
+
+  @Nullable
+  @Override
+  Posting next() {
+    start();
+    Head head = heads.poll();
+    if (head == null) {
+      return null;
+    }
+    byte[] entity = head.posting.getEntity();
+    List<byte[]> rowKeys = new ArrayList<>(head.posting.getRowKeys());
+    refill(head.postingList, head.postingList.next());
+    while (!heads.isEmpty() && Bytes.equals(entity, heads.peek().posting.getEntity())) {
+      head = heads.poll();
+      rowKeys.addAll(head.posting.getRowKeys());
+      refill(head.postingList, head.postingList.next());
+    }
+    return new Posting(entity, rowKeys);
+  }
+
+  @Nullable
+  @Override
+  Posting advance(byte[] entity) {
+    start();
+    while (!heads.isEmpty() && Bytes.compareTo(heads.peek().posting.getEntity(), entity) < 0) {
+      Head head = heads.poll();
+      refill(head.postingList, head.postingList.advance(entity));
+    }
+    return next();
+  }
+
+  @Override
+  void seek(byte[] entity) {
+    heads.clear();
+    for (PostingList postingList : postingLists) {
+      postingList.seek(entity);
+    }
+    started = false;
+  }
+
+  @Override
+  public void close() {
+    for (PostingList postingList : postingLists) {
+      postingList.close();
+    }
+  }
+
+  private void start() {
+    if (!started) {
+      for (PostingList postingList : postingLists) {
+        refill(postingList, postingList.next());
+      }
+      started = true;
+    }
+  }
+
+  private void refill(PostingList postingList, @Nullable Posting posting) {
+    if (posting != null) {
+      heads.add(new Head(postingList, posting));
+    }
+  }
+
+  /**
+   * The current posting of one of the merged posting lists.
+   */
+  private static final class Head {
+    private final PostingList postingList;
+    private final Posting posting;
+
+    private Head(PostingList postingList, Posting posting) {
+      this.postingList = postingList;
+      this.posting = posting;
+    }
+  }
+}
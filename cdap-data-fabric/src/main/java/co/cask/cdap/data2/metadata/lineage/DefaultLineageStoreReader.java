@@ -18,6 +18,7 @@ package co.cask.cdap.data2.metadata.lineage;
 
 import co.cask.cdap.api.Transactional;
 import co.cask.cdap.api.Transactionals;
+import co.cask.cdap.common.app.RunIds;
 import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.data2.dataset2.MultiThreadDatasetCache;
@@ -30,21 +31,42 @@ import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.id.ProgramRunId;
 import co.cask.cdap.proto.id.StreamId;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
 import com.google.inject.Inject;
 import org.apache.tephra.TransactionExecutor;
 import org.apache.tephra.TransactionSystemClient;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
 /**
  * Implementation of {@link LineageStoreReader} for reading lineage information from {@link LineageDataset}.
  */
 public class DefaultLineageStoreReader implements LineageStoreReader {
+
+  // Only relations of runs that started this long ago are cached, since recent runs are still likely to add accesses
+  private static final long CACHE_HORIZON_MILLIS = TimeUnit.DAYS.toMillis(1);
+  // The cache horizon advances in steps of this size, so that consecutive queries can share cached relations
+  private static final long CACHE_HORIZON_STEP_MILLIS = TimeUnit.HOURS.toMillis(1);
+  // Upper bound of the number of relations held in the cache
+  private static final long CACHE_MAX_RELATIONS = 100000L;
+  // Long running programs can still add accesses to old runs, hence cached relations are refreshed periodically
+  @VisibleForTesting
+  static final long CACHE_EXPIRY_MINUTES = 10L;
+
   private final DatasetFramework datasetFramework;
   private final Transactional transactional;
   private final DatasetId lineageDatasetId;
+  private final Cache<NamespacedEntityId, CachedRelations> relationsCache;
 
   @Inject
   DefaultLineageStoreReader(DatasetFramework datasetFramework, TransactionSystemClient txClient) {
@@ -54,11 +76,23 @@ public class DefaultLineageStoreReader implements LineageStoreReader {
   @VisibleForTesting
   public DefaultLineageStoreReader(DatasetFramework datasetFramework, TransactionSystemClient txClient,
                                    DatasetId lineageDatasetId) {
+    this(datasetFramework, txClient, lineageDatasetId, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  DefaultLineageStoreReader(DatasetFramework datasetFramework, TransactionSystemClient txClient,
+                            DatasetId lineageDatasetId, Ticker ticker) {
     this.datasetFramework = datasetFramework;
     this.lineageDatasetId = lineageDatasetId;
     this.transactional = Transactions.createTransactional(new MultiThreadDatasetCache(
       new SystemDatasetInstantiator(datasetFramework), new TransactionSystemClientAdapter(txClient),
       NamespaceId.SYSTEM, ImmutableMap.of(), null, null));
+    this.relationsCache = CacheBuilder.newBuilder()
+      .maximumWeight(CACHE_MAX_RELATIONS)
+      .weigher((Weigher<NamespacedEntityId, CachedRelations>) (entity, cached) -> cached.relations.size() + 1)
+      .expireAfterWrite(CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+      .ticker(ticker)
+      .build();
   }
 
   /**
@@ -114,10 +148,91 @@ public class DefaultLineageStoreReader implements LineageStoreReader {
     return execute(input -> input.getRelations(program, start, end, filter));
   }
 
+  /**
+   * Fetch access information for a set of datasets, streams and programs for a given period. All entities are
+   * fetched in a single transaction. Access information of runs that started before the cache horizon is served
+   * from a cache of the relations of each entity, only entities missing from the cache are read for that period.
+   *
+   * @param entities datasets, streams or programs for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return access information of all given entities
+   */
+  @Override
+  public Set<Relation> getRelations(Set<? extends NamespacedEntityId> entities, long start, long end,
+                                    Predicate<Relation> filter) {
+    if (entities.isEmpty()) {
+      return Collections.emptySet();
+    }
+    // LineageDataset returns relations of runs that started in [start, end + 1]
+    long last = end == Long.MAX_VALUE ? end : end + 1;
+    long now = System.currentTimeMillis();
+    long horizon = now - CACHE_HORIZON_MILLIS - (now - CACHE_HORIZON_MILLIS) % CACHE_HORIZON_STEP_MILLIS;
+    long cachedEnd = Math.min(last, horizon - 1);
+
+    return execute(input -> {
+      Set<Relation> relations = new HashSet<>();
+      if (start <= cachedEnd) {
+        Set<NamespacedEntityId> missing = new HashSet<>();
+        for (NamespacedEntityId entity : entities) {
+          CachedRelations cached = relationsCache.getIfPresent(entity);
+          if (cached == null || !cached.covers(start, cachedEnd)) {
+            missing.add(entity);
+            continue;
+          }
+          cached.relations.stream()
+            .filter(relation -> isInRange(relation, start, cachedEnd) && filter.test(relation))
+            .forEach(relations::add);
+        }
+        if (!missing.isEmpty()) {
+          SetMultimap<NamespacedEntityId, Relation> loaded = input.getRelations(missing, start, cachedEnd - 1,
+                                                                                x -> true);
+          for (NamespacedEntityId entity : missing) {
+            Set<Relation> entityRelations = loaded.get(entity);
+            relationsCache.put(entity, new CachedRelations(start, cachedEnd, ImmutableSet.copyOf(entityRelations)));
+            entityRelations.stream().filter(filter).forEach(relations::add);
+          }
+        }
+      }
+
+      // Recent runs are always read from the dataset
+      long uncachedStart = Math.max(start, horizon);
+      if (uncachedStart <= last) {
+        relations.addAll(input.getRelations(entities, uncachedStart, last - 1, filter).values());
+      }
+      return relations;
+    });
+  }
+
+  private static boolean isInRange(Relation relation, long start, long end) {
+    long runStartTime = RunIds.getTime(relation.getRun(), TimeUnit.MILLISECONDS);
+    return runStartTime >= start && runStartTime <= end;
+  }
+
   private <T> T execute(TransactionExecutor.Function<LineageDataset, T> func) {
     return Transactionals.execute(transactional, context -> {
       LineageDataset lineageDataset = LineageDataset.getLineageDataset(context, datasetFramework, lineageDatasetId);
       return func.apply(lineageDataset);
     });
   }
+
+  /**
+   * Relations of an entity for runs that started in a period of time.
+   */
+  private static final class CachedRelations {
+    private final long start;
+    private final long end;
+    private final Set<Relation> relations;
+
+    private CachedRelations(long start, long end, Set<Relation> relations) {
+      this.start = start;
+      this.end = end;
+      this.relations = relations;
+    }
+
+    boolean covers(long start, long end) {
+      return this.start <= start && end <= this.end;
+    }
+  }
 }
@@ -68,4 +68,17 @@ public interface LineageStoreReader {
    * @return program-dataset access information
    */
   Set<Relation> getRelations(ProgramId program, long start, long end, Predicate<Relation> filter);
+
+  /**
+   * Fetch access information for a set of datasets, streams and programs for a given period.
+   * This is used to fetch a whole frontier of a lineage traversal in a single transaction.
+   *
+   * @param entities datasets, streams or programs for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return access information of all given entities
+   */
+  Set<Relation> getRelations(Set<? extends NamespacedEntityId> entities, long start, long end,
+                             Predicate<Relation> filter);
 }
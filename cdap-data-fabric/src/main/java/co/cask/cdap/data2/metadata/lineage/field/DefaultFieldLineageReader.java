@@ -30,6 +30,9 @@ import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.metadata.lineage.ProgramRunOperations;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import org.apache.tephra.TransactionSystemClient;
@@ -37,15 +40,24 @@ import org.apache.tephra.TransactionSystemClient;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation of {@link FieldLineageReader} for reading the field lineage information
  * from {@link FieldLineageDataset}.
  */
 public class DefaultFieldLineageReader implements FieldLineageReader {
+
+  // Upper bound of the number of operations of the FieldLineageInfo held in the cache
+  private static final long CACHE_MAX_OPERATIONS = 100000L;
+  private static final long CACHE_EXPIRY_MINUTES = 60L;
+
   private final DatasetFramework datasetFramework;
   private final Transactional transactional;
   private final DatasetId fieldLineageDatasetId;
+  // FieldLineageInfo keeps the index of the operations and the fields traversed so far, hence it is cached
+  // so that it is computed only once for the operations of a program run
+  private final Cache<Set<Operation>, FieldLineageInfo> fieldLineageInfoCache;
 
   @Inject
   DefaultFieldLineageReader(DatasetFramework datasetFramework, TransactionSystemClient txClient) {
@@ -60,6 +72,11 @@ public class DefaultFieldLineageReader implements FieldLineageReader {
     this.transactional = Transactions.createTransactional(new MultiThreadDatasetCache(
       new SystemDatasetInstantiator(datasetFramework), new TransactionSystemClientAdapter(txClient),
       NamespaceId.SYSTEM, ImmutableMap.of(), null, null));
+    this.fieldLineageInfoCache = CacheBuilder.newBuilder()
+      .maximumWeight(CACHE_MAX_OPERATIONS)
+      .weigher((Weigher<Set<Operation>, FieldLineageInfo>) (operations, info) -> operations.size())
+      .expireAfterAccess(CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+      .build();
   }
 
   @Override
@@ -116,7 +133,8 @@ public class DefaultFieldLineageReader implements FieldLineageReader {
     for (ProgramRunOperations programRunOperation : endPointOperations) {
       try {
         // No need to compute summaries here.
-        FieldLineageInfo info = new FieldLineageInfo(programRunOperation.getOperations(), false);
+        FieldLineageInfo info = fieldLineageInfoCache.get(
+          programRunOperation.getOperations(), () -> new FieldLineageInfo(programRunOperation.getOperations(), false));
         Set<Operation> fieldOperations = incoming ?
           info.getIncomingOperationsForField(endPointField) : info.getOutgoingOperationsForField(endPointField);
         ProgramRunOperations result = new ProgramRunOperations(programRunOperation.getProgramRunIds(), fieldOperations);
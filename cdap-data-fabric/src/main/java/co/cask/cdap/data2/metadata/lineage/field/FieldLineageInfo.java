@@ -33,6 +33,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -40,6 +41,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -86,6 +88,16 @@ public class FieldLineageInfo {
   // outgoing operation map. stores the operation name as key and set of operations which uses it as input
   private transient Map<String, Set<Operation>> operationOutgoingConnections;
 
+  // Map of destination EndPoint to the write operations writing to it
+  private transient Map<EndPoint, Set<WriteOperation>> destinationWriteOperations;
+
+  // Map of source EndPoint to the read operations reading from it
+  private transient Map<EndPoint, Set<ReadOperation>> sourceReadOperations;
+
+  // Memoized results of the backward and forward traversals for a field
+  private transient Map<EndPointField, Set<Operation>> incomingOperations;
+  private transient Map<EndPointField, Set<Operation>> outgoingOperations;
+
   private long checksum;
 
   /**
@@ -140,6 +152,10 @@ public class FieldLineageInfo {
     this.writeOperations = new HashSet<>();
     this.readOperations = new HashSet<>();
     this.operationOutgoingConnections = new HashMap<>();
+    this.destinationWriteOperations = new HashMap<>();
+    this.sourceReadOperations = new HashMap<>();
+    this.incomingOperations = new ConcurrentHashMap<>();
+    this.outgoingOperations = new ConcurrentHashMap<>();
 
     for (Operation operation : operations) {
       if (operationsMap.containsKey(operation.getName())) {
@@ -160,6 +176,7 @@ public class FieldLineageInfo {
                     "operation '%s'.", read.getName()));
           }
           readOperations.add(read);
+          sourceReadOperations.computeIfAbsent(source, k -> new HashSet<>()).add(read);
           break;
         case TRANSFORM:
           TransformOperation transform = (TransformOperation) operation;
@@ -187,6 +204,7 @@ public class FieldLineageInfo {
           }
           allOrigins.addAll(origins);
           writeOperations.add(write);
+          destinationWriteOperations.computeIfAbsent(destination, k -> new HashSet<>()).add(write);
           break;
         default:
           // no-op
@@ -311,65 +329,86 @@ public class FieldLineageInfo {
       computeAndValidateFieldLineageInfo(this.operations);
     }
 
+    // Source fields are computed once per operation, rather than once for every path through the operation
+    Map<String, Set<EndPointField>> transformSourceFields = new HashMap<>();
+    Map<String, Map<String, Set<EndPointField>>> readFields = new HashMap<>();
     Map<EndPointField, Set<EndPointField>> summary = new HashMap<>();
     for (WriteOperation write : writeOperations) {
       List<InputField> inputs = write.getInputs();
       for (InputField input : inputs) {
-        computeIncomingSummaryHelper(new EndPointField(write.getDestination(), input.getName()),
-                                     operationsMap.get(input.getOrigin()), write, summary);
+        Set<EndPointField> sourceFields = computeSourceFields(write, operationsMap.get(input.getOrigin()),
+                                                              transformSourceFields, readFields);
+        if (!sourceFields.isEmpty()) {
+          summary.computeIfAbsent(new EndPointField(write.getDestination(), input.getName()),
+                                  k -> new HashSet<>()).addAll(sourceFields);
+        }
       }
     }
     return summary;
   }
 
   /**
-   * Helper method to compute the incoming summary
+   * Helper method to compute the incoming summary. Computes the source fields reached by traversing the graph
+   * backward from an input of the given operation.
    *
-   * @param field the {@link EndPointField} whose summary needs to be calculated
-   * @param currentOperation the operation being processed. Since we are processing incoming this operation is on the
-   * left side if graph is imagined in horizontal orientation or this operation is the input to the to
-   * previousOperation
-   * @param previousOperation the previous operation which is processed and reside on right to the current operation if
-   * the graph is imagined to be in horizontal orientation.
-   * @param summary a {@link Map} of {@link EndPointField} to {@link Set} of {@link EndPointField} which represents all
-   * the fields which have incoming connection the key field
+   * @param operation the operation whose input is being traversed. This operation is on the right side of
+   * the origin if the graph is imagined in horizontal orientation
+   * @param origin the operation which is the origin of the input being traversed
+   * @param transformSourceFields a {@link Map} of transform operation name to the source fields reached from
+   * its inputs, to avoid traversing the same transform more than once
+   * @param readFields a {@link Map} of operation name to the fields of its inputs, keyed by the name of the
+   * read operation that is their origin
+   * @return the {@link Set} of source {@link EndPointField}s
    */
-  private void computeIncomingSummaryHelper(EndPointField field, Operation currentOperation,
-                                            Operation previousOperation,
-                                            Map<EndPointField, Set<EndPointField>> summary) {
-    if (currentOperation.getType() == OperationType.READ) {
-      // if current operation is of type READ, previous operation must be of type TRANSFORM or WRITE
-      // get only the input fields from the previous operations for which the origin is current READ operation
-      Set<InputField> inputFields = new HashSet<>();
-      if (OperationType.WRITE == previousOperation.getType()) {
-        WriteOperation previousWrite = (WriteOperation) previousOperation;
-        inputFields = new HashSet<>(previousWrite.getInputs());
-      } else if (OperationType.TRANSFORM == previousOperation.getType()) {
-        TransformOperation previousTransform = (TransformOperation) previousOperation;
-        inputFields = new HashSet<>(previousTransform.getInputs());
-      }
-      Set<EndPointField> sourceEndPointFields = summary.computeIfAbsent(field, k -> new HashSet<>());
-
-      // for all the input fields of the previous operation if the origin was current operation (remember we are
-      // traversing backward)
-      ReadOperation read = (ReadOperation) currentOperation;
-      EndPoint source = read.getSource();
-      for (InputField inputField : inputFields) {
-        if (inputField.getOrigin().equals(currentOperation.getName())) {
-          sourceEndPointFields.add(new EndPointField(source, inputField.getName()));
+  private Set<EndPointField> computeSourceFields(Operation operation, Operation origin,
+                                                 Map<String, Set<EndPointField>> transformSourceFields,
+                                                 Map<String, Map<String, Set<EndPointField>>> readFields) {
+    if (origin.getType() == OperationType.READ) {
+      // get only the input fields from the operation for which the origin is this READ operation
+      Map<String, Set<EndPointField>> fields = readFields.get(operation.getName());
+      if (fields == null) {
+        fields = new HashMap<>();
+        for (InputField inputField : getInputs(operation)) {
+          Operation inputOrigin = operationsMap.get(inputField.getOrigin());
+          if (inputOrigin.getType() == OperationType.READ) {
+            EndPoint source = ((ReadOperation) inputOrigin).getSource();
+            fields.computeIfAbsent(inputOrigin.getName(), k -> new HashSet<>())
+              .add(new EndPointField(source, inputField.getName()));
+          }
         }
+        readFields.put(operation.getName(), fields);
       }
-      // reached the end of graph unwind the recursive calls
-      return;
+      return fields.get(origin.getName());
     }
 
     // for transform we traverse backward in graph further through the inputs of the transform
-    if (currentOperation.getType() == OperationType.TRANSFORM) {
-      TransformOperation transform = (TransformOperation) currentOperation;
-      for (InputField inputField : transform.getInputs()) {
-        computeIncomingSummaryHelper(field, operationsMap.get(inputField.getOrigin()), currentOperation, summary);
+    if (origin.getType() == OperationType.TRANSFORM) {
+      Set<EndPointField> sourceFields = transformSourceFields.get(origin.getName());
+      if (sourceFields == null) {
+        sourceFields = new HashSet<>();
+        transformSourceFields.put(origin.getName(), sourceFields);
+        for (InputField inputField : getInputs(origin)) {
+          sourceFields.addAll(computeSourceFields(origin, operationsMap.get(inputField.getOrigin()),
+                                                  transformSourceFields, readFields));
+        }
       }
+      return sourceFields;
     }
+    return Collections.emptySet();
+  }
+
+  /**
+   * @return the inputs of a {@link TransformOperation} or a {@link WriteOperation}, or an empty list for other
+   * operations
+   */
+  private static List<InputField> getInputs(Operation operation) {
+    if (OperationType.WRITE == operation.getType()) {
+      return ((WriteOperation) operation).getInputs();
+    }
+    if (OperationType.TRANSFORM == operation.getType()) {
+      return ((TransformOperation) operation).getInputs();
+    }
+    return Collections.emptyList();
   }
 
   private Map<EndPointField, Set<EndPointField>> computeOutgoingSummary() {
@@ -412,13 +451,14 @@ public class FieldLineageInfo {
     if (writeOperations == null) {
       computeAndValidateFieldLineageInfo(this.operations);
     }
+    return incomingOperations.computeIfAbsent(destinationField, this::computeIncomingOperationsForField);
+  }
 
+  private Set<Operation> computeIncomingOperationsForField(EndPointField destinationField) {
     Set<Operation> visitedOperations = new HashSet<>();
-    for (WriteOperation write : writeOperations) {
-      // if the write operation destination was not the dataset to which the destinationField belongs to
-      if (!write.getDestination().equals(destinationField.getEndPoint())) {
-        continue;
-      }
+    // only the write operations to the dataset to which the destinationField belongs to
+    for (WriteOperation write : destinationWriteOperations.getOrDefault(destinationField.getEndPoint(),
+                                                                        Collections.emptySet())) {
 
       Set<InputField> filteredInputs =
         write.getInputs().stream().filter(input -> input.getName().equals(destinationField.getField()))
@@ -432,7 +472,7 @@ public class FieldLineageInfo {
         getIncomingOperationsForFieldHelper(operationsMap.get(input.getOrigin()), visitedOperations);
       }
     }
-    return visitedOperations;
+    return Collections.unmodifiableSet(visitedOperations);
   }
 
   /**
@@ -484,11 +524,15 @@ public class FieldLineageInfo {
     if (readOperations == null) {
       computeAndValidateFieldLineageInfo(this.operations);
     }
+    return outgoingOperations.computeIfAbsent(sourceField, this::computeOutgoingOperationsForField);
+  }
 
+  private Set<Operation> computeOutgoingOperationsForField(EndPointField sourceField) {
     Set<Operation> visitedOperations = new HashSet<>();
-    for (ReadOperation readOperation : readOperations) {
-      if (!(readOperation.getSource().equals(sourceField.getEndPoint()) &&
-        readOperation.getOutputs().contains(sourceField.getField()))) {
+    // only the read operations from the dataset to which the sourceField belongs to
+    for (ReadOperation readOperation : sourceReadOperations.getOrDefault(sourceField.getEndPoint(),
+                                                                         Collections.emptySet())) {
+      if (!readOperation.getOutputs().contains(sourceField.getField())) {
         continue;
       }
       // the read operation is for the dataset to which the sourceField belong and it did read the sourceField for
@@ -510,7 +554,7 @@ public class FieldLineageInfo {
         }
       }
     }
-    return visitedOperations;
+    return Collections.unmodifiableSet(visitedOperations);
   }
 
   /**
@@ -550,16 +594,8 @@ public class FieldLineageInfo {
    * @return true if the field is used in the nextOperation
    */
   private boolean containsInputField(Operation nextOperation, InputField inputField) {
-    Set<InputField> inputFields = new HashSet<>();
-    if (OperationType.WRITE == nextOperation.getType()) {
-      WriteOperation nextWrite = (WriteOperation) nextOperation;
-      inputFields = new HashSet<>(nextWrite.getInputs());
-    } else if (OperationType.TRANSFORM == nextOperation.getType()) {
-      TransformOperation nextTransform = (TransformOperation) nextOperation;
-      inputFields = new HashSet<>(nextTransform.getInputs());
-    }
     // if the next operation inputFields does contains the given fieldName return true
-    return inputFields.contains(inputField);
+    return getInputs(nextOperation).contains(inputField);
   }
 
   /**
@@ -41,6 +41,7 @@ import co.cask.cdap.data2.metadata.dataset.MetadataEntry;
 import co.cask.cdap.data2.metadata.dataset.SearchRequest;
 import co.cask.cdap.data2.metadata.dataset.SearchResults;
 import co.cask.cdap.data2.metadata.dataset.SortInfo;
+import co.cask.cdap.data2.metadata.writer.MetadataOperation;
 import co.cask.cdap.data2.transaction.TransactionSystemClientAdapter;
 import co.cask.cdap.data2.transaction.Transactions;
 import co.cask.cdap.proto.audit.AuditType;
@@ -68,12 +69,14 @@ import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 /**
  * Implementation of {@link MetadataStore}.
@@ -191,6 +194,72 @@ public class DefaultMetadataStore implements MetadataStore {
                  new MetadataRecordV2(metadataEntity, scope));
   }
 
+  @Override
+  public void applyOperations(MetadataScope scope, List<MetadataOperation> operations) {
+    // combine the operations of each entity, so that only the final metadata of each entity is written
+    Map<MetadataEntity, Function<Metadata, Metadata>> updates = new LinkedHashMap<>();
+    for (MetadataOperation operation : operations) {
+      updates.merge(operation.getEntity(), getUpdate(operation), Function::andThen);
+    }
+    if (updates.isEmpty()) {
+      return;
+    }
+    Map<MetadataEntity, MetadataChange> changes = execute(mds -> mds.updateMetadata(updates), scope);
+
+    for (Map.Entry<MetadataEntity, MetadataChange> entry : changes.entrySet()) {
+      MetadataEntity metadataEntity = entry.getKey();
+      Metadata existing = entry.getValue().getExisting();
+      Metadata latest = entry.getValue().getLatest();
+      // an updated property is recorded as one deletion and one addition, as in setProperties()
+      Map<String, String> propAdditions = new HashMap<>(latest.getProperties());
+      propAdditions.entrySet().removeAll(existing.getProperties().entrySet());
+      Map<String, String> propDeletions = new HashMap<>(existing.getProperties());
+      propDeletions.entrySet().removeAll(latest.getProperties().entrySet());
+      Set<String> tagAdditions = Sets.difference(latest.getTags(), existing.getTags());
+      Set<String> tagDeletions = Sets.difference(existing.getTags(), latest.getTags());
+      if (propAdditions.isEmpty() && propDeletions.isEmpty() && tagAdditions.isEmpty() && tagDeletions.isEmpty()) {
+        continue;
+      }
+      publishAudit(new MetadataRecordV2(metadataEntity, scope, existing.getProperties(), existing.getTags()),
+                   new MetadataRecordV2(metadataEntity, scope, propAdditions, new HashSet<>(tagAdditions)),
+                   new MetadataRecordV2(metadataEntity, scope, propDeletions, new HashSet<>(tagDeletions)));
+    }
+  }
+
+  /**
+   * Returns the function that applies a {@link MetadataOperation} to the existing metadata of its entity.
+   */
+  private static Function<Metadata, Metadata> getUpdate(MetadataOperation operation) {
+    co.cask.cdap.api.metadata.Metadata metadata = operation.getMetadata();
+    Map<String, String> properties = metadata == null || metadata.getProperties() == null ?
+      EMPTY_PROPERTIES : metadata.getProperties();
+    Set<String> tags = metadata == null || metadata.getTags() == null ? EMPTY_TAGS : metadata.getTags();
+    switch (operation.getType()) {
+      case PUT:
+        return existing -> {
+          Map<String, String> latestProperties = new HashMap<>(existing.getProperties());
+          latestProperties.putAll(properties);
+          return new Metadata(existing.getMetadataEntity(), latestProperties, Sets.union(existing.getTags(), tags));
+        };
+      case DELETE:
+        return existing -> {
+          Map<String, String> latestProperties = new HashMap<>(existing.getProperties());
+          latestProperties.keySet().removeAll(properties.keySet());
+          return new Metadata(existing.getMetadataEntity(), latestProperties,
+                              Sets.difference(existing.getTags(), tags));
+        };
+      case DELETE_ALL:
+        return existing -> new Metadata(existing.getMetadataEntity());
+      case DELETE_ALL_PROPERTIES:
+        return existing -> new Metadata(existing.getMetadataEntity(), EMPTY_PROPERTIES, existing.getTags());
+      case DELETE_ALL_TAGS:
+        return existing -> new Metadata(existing.getMetadataEntity(), existing.getProperties(), EMPTY_TAGS);
+      default:
+        throw new IllegalArgumentException(String.format("Unknown type %s of metadata operation for entity %s",
+                                                         operation.getType(), operation.getEntity()));
+    }
+  }
+
   @Override
   public Set<MetadataRecordV2> getMetadata(MetadataEntity metadataEntity) {
     return ImmutableSet.of(getMetadata(MetadataScope.USER, metadataEntity), getMetadata(MetadataScope.SYSTEM,
@@ -341,7 +410,7 @@ public class DefaultMetadataStore implements MetadataStore {
                    "not recommended for production use. It is only meant to be used for administrative purposes " +
                    "such as upgrade. To improve the performance of such queries, please specify sort parameters " +
                    "as well.");
-      } else {
+      } else if (!SortInfo.RELEVANCE.equals(request.getSortInfo())) {
         // when it is a known sort (stored sorted in the metadata dataset already), restrict it to system scope only
         searchScopes = EnumSet.of(MetadataScope.SYSTEM);
       }
@@ -350,6 +419,9 @@ public class DefaultMetadataStore implements MetadataStore {
   }
 
   private MetadataSearchResponseV2 search(Set<MetadataScope> scopes, SearchRequest request) {
+    if (SortInfo.RELEVANCE.equals(request.getSortInfo())) {
+      return searchByRelevance(scopes, request);
+    }
     List<MetadataEntry> results = new LinkedList<>();
     List<String> cursors = new LinkedList<>();
     for (MetadataScope scope : scopes) {
@@ -392,6 +464,37 @@ public class DefaultMetadataStore implements MetadataStore {
       request.getEntityScopes());
   }
 
+  /**
+   * Searches the metadata datasets of all given scopes in one transaction, ranked by relevance. The datasets are
+   * searched together, so that an entity with metadata in multiple scopes is ranked by all of its matches.
+   */
+  private MetadataSearchResponseV2 searchByRelevance(Set<MetadataScope> scopes, SearchRequest request) {
+    SearchResults searchResults = Transactionals.execute(transactional, context -> {
+      List<MetadataDataset> datasets = new ArrayList<>();
+      for (MetadataScope scope : scopes) {
+        datasets.add(getMetadataDataset(context, dsFramework, scope));
+      }
+      return MetadataDataset.searchByRelevance(datasets, request);
+    });
+
+    // the results are ranked, and start with the entities before the offset
+    int offset = request.getOffset();
+    int limit = request.getLimit();
+    List<MetadataEntity> ranked = new ArrayList<>(searchResults.getScores().keySet());
+    List<MetadataEntity> page = ranked.subList(Math.min(offset, ranked.size()),
+                                               (int) Math.min(ranked.size(), (long) offset + limit));
+    Set<MetadataEntity> sortedEntities = new LinkedHashSet<>(page);
+
+    Map<MetadataEntity, Metadata> systemMetadata = fetchMetadata(sortedEntities, MetadataScope.SYSTEM);
+    Map<MetadataEntity, Metadata> userMetadata = fetchMetadata(sortedEntities, MetadataScope.USER);
+
+    SortInfo sortInfo = request.getSortInfo();
+    return new MetadataSearchResponseV2(
+      sortInfo.getSortBy() + " " + sortInfo.getSortOrder(), offset, limit, request.getNumCursors(),
+      searchResults.getTotal(), addMetadataToEntities(sortedEntities, systemMetadata, userMetadata),
+      searchResults.getCursors(), request.shouldShowHidden(), request.getEntityScopes());
+  }
+
   private Set<MetadataEntity> getSortedEntities(List<MetadataEntry> results, SortInfo sortInfo) {
     // if sort order is not weighted, return entities in the order received.
     // in this case, the backing storage is expected to return results in the expected order.
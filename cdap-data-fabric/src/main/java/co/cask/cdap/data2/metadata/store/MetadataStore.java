@@ -20,8 +20,10 @@ import co.cask.cdap.api.metadata.MetadataEntity;
 import co.cask.cdap.api.metadata.MetadataScope;
 import co.cask.cdap.common.metadata.MetadataRecordV2;
 import co.cask.cdap.data2.metadata.dataset.SearchRequest;
+import co.cask.cdap.data2.metadata.writer.MetadataOperation;
 import co.cask.cdap.proto.metadata.MetadataSearchResponseV2;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -65,6 +67,16 @@ public interface MetadataStore {
    */
   void addTags(MetadataScope scope, MetadataEntity metadataEntity, Set<String> tagsToAdd);
 
+  /**
+   * Applies a batch of {@link MetadataOperation}s in the specified {@link MetadataScope}. The operations are applied
+   * in the given order within a single transaction, and only the resulting changes of each entity's metadata are
+   * written. This is more efficient than performing the operations one by one.
+   *
+   * @param scope the {@link MetadataScope} to apply the operations in
+   * @param operations the operations to apply
+   */
+  void applyOperations(MetadataScope scope, List<MetadataOperation> operations);
+
   /**
    * @return a set of {@link MetadataRecordV2} representing all the metadata (including properties and tags) for the
    * specified {@link MetadataEntity} in both {@link MetadataScope#USER} and {@link MetadataScope#SYSTEM}.
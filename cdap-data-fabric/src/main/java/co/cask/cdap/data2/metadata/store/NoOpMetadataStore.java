@@ -19,10 +19,12 @@ import co.cask.cdap.api.metadata.MetadataEntity;
 import co.cask.cdap.api.metadata.MetadataScope;
 import co.cask.cdap.common.metadata.MetadataRecordV2;
 import co.cask.cdap.data2.metadata.dataset.SearchRequest;
+import co.cask.cdap.data2.metadata.writer.MetadataOperation;
 import co.cask.cdap.proto.metadata.MetadataSearchResponseV2;
 import com.google.common.collect.ImmutableSet;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -47,6 +49,11 @@ public class NoOpMetadataStore implements MetadataStore {
     // NO-OP
   }
 
+  @Override
+  public void applyOperations(MetadataScope scope, List<MetadataOperation> operations) {
+    // NO-OP
+  }
+
   @Override
   public Set<MetadataRecordV2> getMetadata(MetadataEntity metadataEntity) {
     return ImmutableSet.of(new MetadataRecordV2(metadataEntity, MetadataScope.USER),
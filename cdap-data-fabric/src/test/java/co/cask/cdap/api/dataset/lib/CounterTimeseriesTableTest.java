@@ -27,10 +27,12 @@ import org.junit.ClassRule;
 import org.junit.Test;
 
 import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Tests covering the {@link co.cask.cdap.api.dataset.lib.CounterTimeseriesTable} class.
@@ -139,6 +141,120 @@ public class CounterTimeseriesTableTest {
     });
   }
 
+  @Test
+  public void testRollups() throws Exception {
+    DatasetId rollupTableId = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("rollupCounterTable");
+    long minute = TimeUnit.MINUTES.toMillis(1);
+    long hour = TimeUnit.HOURS.toMillis(1);
+    long day = TimeUnit.DAYS.toMillis(1);
+    dsFrameworkUtil.createInstance("counterTimeseriesTable", rollupTableId, DatasetProperties.builder()
+      .add(CounterTimeseriesTable.ATTR_ROLLUP_RESOLUTIONS, minute + "," + hour + "," + day)
+      .build());
+    try {
+      CounterTimeseriesTable rollupTable = dsFrameworkUtil.getInstance(rollupTableId);
+      TransactionExecutor tx = dsFrameworkUtil.newTransactionExecutor(rollupTable);
+      byte[] counter = Bytes.toBytes("counter");
+      byte[] otherCounter = Bytes.toBytes("other");
+      byte[] tag1 = Bytes.toBytes('t');
+      byte[] tag2 = Bytes.toBytes('u');
+      long start = 3 * day + 17;
+      long end = start + 3 * day;
+
+      tx.execute(() -> {
+        // one entry every 7 minutes plus some seconds, over three days
+        for (long ts = start, i = 0; ts < end; ts += 7 * minute + 1234, i++) {
+          rollupTable.increment(counter, i, ts);
+          rollupTable.increment(counter, 2 * i, ts, tag1);
+          rollupTable.increment(counter, 3 * i, ts, tag1, tag2);
+          rollupTable.increment(otherCounter, 100, ts);
+        }
+        // overwriting entries updates the rollups with the difference to the previous value
+        rollupTable.set(counter, 1000L, start + 5 * hour, tag2);
+        rollupTable.set(counter, 2000L, start + 5 * hour, tag2);
+        rollupTable.set(counter, 10L, start);
+      });
+
+      tx.execute(() -> {
+        long[][] ranges = {
+          { start, end }, { 0, 10 * day }, { start + 5 * minute, end - 13 * hour - 1 },
+          { start + day + 3, start + day + 4 * minute }, { start + 2 * hour + 1, start + 2 * hour + 1 },
+          { day, 2 * day }, { start + 5 * hour, start + 5 * hour }
+        };
+        for (long[] range : ranges) {
+          for (byte[][] tags : new byte[][][] { {}, { tag1 }, { tag2 }, { tag2, tag1 } }) {
+            long expected = 0L;
+            Iterator<CounterTimeseriesTable.Counter> counters = rollupTable.read(counter, range[0], range[1], tags);
+            while (counters.hasNext()) {
+              expected += counters.next().getValue();
+            }
+            assertEquals(expected, rollupTable.aggregate(counter, range[0], range[1], tags));
+          }
+        }
+        assertEquals(2000L, rollupTable.aggregate(counter, start + 5 * hour, start + 5 * hour, tag2));
+        assertEquals(100L * 616, rollupTable.aggregate(otherCounter, 0, Long.MAX_VALUE));
+        assertEquals(rollupTable.aggregate(counter, 0, 10 * day), rollupTable.aggregate(counter, 0, Long.MAX_VALUE));
+        assertEquals(0L, rollupTable.aggregate(counter, -day, -1));
+      });
+
+      tx.execute(() -> {
+        try {
+          rollupTable.increment(counter, 1L, -1L);
+          fail("Negative timestamps should be rejected when rollups are enabled");
+        } catch (IllegalArgumentException e) {
+          // expected
+        }
+      });
+    } finally {
+      dsFrameworkUtil.deleteInstance(rollupTableId);
+    }
+  }
+
+  @Test
+  public void testSetWithRollups() throws Exception {
+    DatasetId rollupTableId = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("setRollupCounterTable");
+    long minute = TimeUnit.MINUTES.toMillis(1);
+    long hour = TimeUnit.HOURS.toMillis(1);
+    dsFrameworkUtil.createInstance("counterTimeseriesTable", rollupTableId, DatasetProperties.builder()
+      .add(CounterTimeseriesTable.ATTR_ROLLUP_RESOLUTIONS, minute + "," + hour)
+      .build());
+    try {
+      CounterTimeseriesTable rollupTable = dsFrameworkUtil.getInstance(rollupTableId);
+      TransactionExecutor tx = dsFrameworkUtil.newTransactionExecutor(rollupTable);
+      byte[] counter = Bytes.toBytes("counter");
+      // entries on both sides of the edge between the first two hour buckets
+      long beforeEdge = hour - 1;
+      long afterEdge = hour;
+
+      tx.execute(() -> {
+        rollupTable.increment(counter, 5L, beforeEdge);
+        rollupTable.increment(counter, 3L, afterEdge);
+        rollupTable.increment(counter, 1L, 90 * minute);
+        rollupTable.increment(counter, 2L, 10 * minute);
+      });
+
+      // overwrite the committed values in another transaction, and set a new entry
+      tx.execute(() -> {
+        rollupTable.set(counter, 50L, beforeEdge);
+        rollupTable.set(counter, 30L, afterEdge);
+        rollupTable.set(counter, 7L, afterEdge + 1);
+      });
+
+      tx.execute(() -> {
+        // full hour buckets
+        assertEquals(52L, rollupTable.aggregate(counter, 0, hour - 1));
+        assertEquals(38L, rollupTable.aggregate(counter, hour, 2 * hour - 1));
+        // ranges crossing the edge, with full and partial minute buckets on both sides
+        assertEquals(90L, rollupTable.aggregate(counter, 0, 2 * hour - 1));
+        assertEquals(87L, rollupTable.aggregate(counter, hour - minute, hour + minute));
+        assertEquals(80L, rollupTable.aggregate(counter, beforeEdge, afterEdge));
+        assertEquals(87L, rollupTable.aggregate(counter, 30 * minute + 7, 90 * minute - 1));
+        assertEquals(88L, rollupTable.aggregate(counter, 30 * minute + 7, 90 * minute));
+      });
+    } finally {
+      dsFrameworkUtil.deleteInstance(rollupTableId);
+    }
+  }
+
   public static void assertCounterEquals(byte[] expectedCount, long expectedValue, long expectedTimestamp,
                                          CounterTimeseriesTable.Counter actual) {
     assertEquals(expectedCount.length, actual.getCounter().length);
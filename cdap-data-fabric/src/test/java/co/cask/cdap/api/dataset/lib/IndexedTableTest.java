@@ -333,11 +333,35 @@ public class IndexedTableTest {
           assertEmpty(scanner);
         }
       });
+
+      txnl.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          // the row keys can be read without reading the rows, in the order of the index values
+          assertRowKeys(iTable.scanRowKeysByIndex(idxCol, idx2, idx5), keyB, keyA, keyE);
+          assertRowKeys(iTable.scanRowKeysByIndex(idxCol, null, idx3), keyC, keyB);
+          assertRowKeys(iTable.scanRowKeysByIndex(idxCol, idx5, null), keyD);
+          assertRowKeys(iTable.readRowKeysByIndex(idxCol, idx4), keyE);
+          assertRowKeys(iTable.readRowKeysByIndex(idxCol, valA));
+        }
+      });
     } finally {
       dsFrameworkUtil.deleteInstance(indexRangedLookupDs);
     }
   }
 
+  private static void assertRowKeys(CloseableIterator<byte[]> iterator, byte[]... expected) {
+    try {
+      for (byte[] rowKey : expected) {
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertArrayEquals(rowKey, iterator.next());
+      }
+      Assert.assertFalse(iterator.hasNext());
+    } finally {
+      iterator.close();
+    }
+  }
+
   @Test
   public void testIndexKeyDelimiterAmbiguity() throws Exception {
     final byte[] a = { 'a' };
@@ -828,6 +852,243 @@ public class IndexedTableTest {
       dsFrameworkUtil.deleteInstance(incrTabInstance);
     }
   }
+  @Test
+  public void testCompositeIndex() throws Exception {
+    DatasetId compositeTabInstance = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("compositeIndex");
+    dsFrameworkUtil.createInstance("indexedTable", compositeTabInstance, DatasetProperties.builder()
+      .add(IndexedTable.COMPOSITE_INDEXES_CONF_KEY, "country,city")
+      .build());
+    final IndexedTable iTable = dsFrameworkUtil.getInstance(compositeTabInstance);
+    final byte[] countryCol = Bytes.toBytes("country");
+    final byte[] cityCol = Bytes.toBytes("city");
+    final byte[][] countryAndCity = { countryCol, cityCol };
+    final byte[][] country = { countryCol };
+    final byte[] us = Bytes.toBytes("us");
+    final byte[] sf = Bytes.toBytes("sf");
+    final byte[] ny = Bytes.toBytes("ny");
+    final byte[] la = Bytes.toBytes("la");
+    try {
+      TransactionExecutor tx = dsFrameworkUtil.newTransactionExecutor(iTable);
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          iTable.put(new Put(keyA).add(countryCol, us).add(cityCol, sf).add(valCol, valA));
+          iTable.put(new Put(keyB).add(countryCol, us).add(cityCol, ny).add(valCol, valB));
+          iTable.put(new Put(keyC).add(countryCol, Bytes.toBytes("de")).add(cityCol, Bytes.toBytes("berlin")));
+          // a row without a value for one of the columns is not indexed
+          iTable.put(new Put(keyD).add(countryCol, us));
+        }
+      });
+
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          // lookup by all columns of the index
+          assertRows(iTable.readByIndex(countryAndCity, new byte[][]{ us, sf }), keyA);
+          Row row = readFirst(iTable.readByIndex(countryAndCity, new byte[][]{ us, sf }));
+          TableAssert.assertColumns(row, new byte[][]{ cityCol, countryCol, valCol }, new byte[][]{ sf, us, valA });
+          // lookup by a prefix of the index, ordered by the remaining column
+          assertRows(iTable.readByIndex(country, new byte[][]{ us }), keyB, keyA);
+          assertEmpty(iTable.readByIndex(countryAndCity, new byte[][]{ us, la }));
+          // the index must be used with its leading columns
+          try {
+            iTable.readByIndex(new byte[][]{ cityCol }, new byte[][]{ sf });
+            fail("Expected IllegalArgumentException for a lookup that does not use the leading index column");
+          } catch (IllegalArgumentException e) {
+            // expected
+          }
+          try {
+            iTable.readByIndex(countryCol, us);
+            fail("Expected IllegalArgumentException for a column without a single-column index");
+          } catch (IllegalArgumentException e) {
+            // expected
+          }
+        }
+      });
+
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          // move a to another city, delete b, and complete d
+          iTable.put(keyA, cityCol, la);
+          iTable.delete(keyB);
+          iTable.put(keyD, cityCol, ny);
+        }
+      });
+
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          assertEmpty(iTable.readByIndex(countryAndCity, new byte[][]{ us, sf }));
+          assertRows(iTable.readByIndex(countryAndCity, new byte[][]{ us, la }), keyA);
+          assertRows(iTable.readByIndex(countryAndCity, new byte[][]{ us, ny }), keyD);
+          assertRows(iTable.readByIndex(country, new byte[][]{ us }), keyA, keyD);
+        }
+      });
+
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          // removing one of the indexed columns removes the row from the index
+          iTable.delete(keyD, cityCol);
+          Assert.assertTrue(iTable.compareAndSwap(keyA, cityCol, la, sf));
+        }
+      });
+
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          assertRows(iTable.readByIndex(country, new byte[][]{ us }), keyA);
+          assertRows(iTable.readByIndex(countryAndCity, new byte[][]{ us, sf }), keyA);
+        }
+      });
+    } finally {
+      dsFrameworkUtil.deleteInstance(compositeTabInstance);
+    }
+  }
+
+  @Test
+  public void testCoveredColumns() throws Exception {
+    DatasetId coveredTabInstance = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("coveredIndex");
+    dsFrameworkUtil.createInstance("indexedTable", coveredTabInstance, DatasetProperties.builder()
+      .add(IndexedTable.INDEX_COLUMNS_CONF_KEY, idxColString)
+      .add(IndexedTable.COVERED_COLUMNS_CONF_KEY, Bytes.toString(valCol))
+      .build());
+    final IndexedTable iTable = dsFrameworkUtil.getInstance(coveredTabInstance);
+    final byte[] otherCol = Bytes.toBytes("other");
+    try {
+      TransactionExecutor tx = dsFrameworkUtil.newTransactionExecutor(iTable);
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          iTable.put(new Put(keyA).add(idxCol, idx1).add(valCol, valA).add(otherCol, valE));
+          iTable.put(new Put(keyB).add(idxCol, idx1).add(valCol, valB));
+          iTable.put(new Put(keyC).add(idxCol, idx2).add(valCol, valC));
+        }
+      });
+
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          // covered columns are read from the index
+          Scanner scanner = iTable.readByIndex(idxCol, idx1, colIdxVal);
+          try {
+            TableAssert.assertColumns(scanner.next(), colIdxVal, new byte[][]{ idx1, valA });
+            TableAssert.assertColumns(scanner.next(), colIdxVal, new byte[][]{ idx1, valB });
+            assertEmpty(scanner);
+          } finally {
+            scanner.close();
+          }
+          // other columns are read from the data rows
+          Row row = readFirst(iTable.readByIndex(idxCol, idx1, new byte[][]{ otherCol }));
+          Assert.assertArrayEquals(keyA, row.getRow());
+          TableAssert.assertColumns(row, new byte[][]{ otherCol }, new byte[][]{ valE });
+          row = readFirst(iTable.scanByIndex(idxCol, idx2, null, new byte[][]{ valCol }));
+          Assert.assertArrayEquals(keyC, row.getRow());
+          TableAssert.assertColumns(row, new byte[][]{ valCol }, new byte[][]{ valC });
+        }
+      });
+
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          // changes of covered columns must be reflected in the index
+          iTable.put(keyA, valCol, valAA);
+          iTable.delete(keyB, valCol);
+          Assert.assertTrue(iTable.compareAndSwap(keyC, valCol, valC, valD));
+        }
+      });
+
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          Scanner scanner = iTable.readByIndex(idxCol, idx1, new byte[][]{ valCol });
+          try {
+            TableAssert.assertColumns(scanner.next(), new byte[][]{ valCol }, new byte[][]{ valAA });
+            Row row = scanner.next();
+            Assert.assertArrayEquals(keyB, row.getRow());
+            Assert.assertTrue(row.isEmpty());
+            assertEmpty(scanner);
+          } finally {
+            scanner.close();
+          }
+          Row row = readFirst(iTable.readByIndex(idxCol, idx2, new byte[][]{ valCol }));
+          TableAssert.assertColumns(row, new byte[][]{ valCol }, new byte[][]{ valD });
+        }
+      });
+    } finally {
+      dsFrameworkUtil.deleteInstance(coveredTabInstance);
+    }
+  }
+
+  @Test
+  public void testBatchedIndexReads() throws Exception {
+    DatasetId batchTabInstance = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("batchedIndex");
+    dsFrameworkUtil.createInstance("indexedTable", batchTabInstance, DatasetProperties.builder()
+      .add(IndexedTable.INDEX_COLUMNS_CONF_KEY, idxColString)
+      .build());
+    final IndexedTable iTable = dsFrameworkUtil.getInstance(batchTabInstance);
+    // enough rows to span multiple, growing batches
+    final int numRows = 100;
+    try {
+      TransactionExecutor tx = dsFrameworkUtil.newTransactionExecutor(iTable);
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          for (int i = 0; i < numRows; i++) {
+            iTable.put(new Put(Bytes.toBytes(i)).add(idxCol, i % 2 == 0 ? idx1 : idx2).add(valCol, Bytes.toBytes(i)));
+          }
+        }
+      });
+
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          Scanner scanner = iTable.readByIndex(idxCol, idx1);
+          try {
+            for (int i = 0; i < numRows; i += 2) {
+              Row row = scanner.next();
+              assertNotNull(row);
+              assertEquals(i, Bytes.toInt(row.getRow()));
+              assertEquals(i, Bytes.toInt(row.get(valCol)));
+            }
+            assertEmpty(scanner);
+          } finally {
+            scanner.close();
+          }
+          Scanner rangeScanner = iTable.scanByIndex(idxCol, null, null, new byte[][]{ valCol });
+          try {
+            int count = 0;
+            while (rangeScanner.next() != null) {
+              count++;
+            }
+            assertEquals(numRows, count);
+          } finally {
+            rangeScanner.close();
+          }
+        }
+      });
+    } finally {
+      dsFrameworkUtil.deleteInstance(batchTabInstance);
+    }
+  }
+
+  /**
+   * Asserts that the given scanner returns rows with exactly the given keys, in order.
+   */
+  private void assertRows(Scanner scanner, byte[]... expectedKeys) {
+    try {
+      for (byte[] expectedKey : expectedKeys) {
+        Row row = scanner.next();
+        assertNotNull(row);
+        assertArrayEquals(expectedKey, row.getRow());
+      }
+      assertEmpty(scanner);
+    } finally {
+      scanner.close();
+    }
+  }
+
   /**
    * Asserts that the given scanner contains no more rows.
    */
@@ -120,6 +120,35 @@ public class SystemDatasetDefinitionTest {
     }
   }
 
+  @Test
+  public void testCounterTimeSeriesRollupReconfigure() throws IncompatibleUpdateException {
+    DatasetDefinition def = registry.get(CounterTimeseriesTable.class.getName());
+    DatasetProperties props = DatasetProperties.builder()
+      .add(CounterTimeseriesTable.ATTR_ROLLUP_RESOLUTIONS, "60000,3600000")
+      .build();
+    DatasetProperties compatProps = TableProperties.builder()
+      .setTTL(TimeUnit.DAYS.toSeconds(1))
+      .add(CounterTimeseriesTable.ATTR_ROLLUP_RESOLUTIONS, "3600000, 60000")
+      .build();
+    DatasetSpecification spec = def.configure("tt", props);
+    ((Reconfigurable) def).reconfigure("tt", compatProps, spec);
+    for (String resolutions : new String[] { "60000,3600000,86400000", "", "x" }) {
+      try {
+        ((Reconfigurable) def).reconfigure("tt", DatasetProperties.builder()
+          .add(CounterTimeseriesTable.ATTR_ROLLUP_RESOLUTIONS, resolutions).build(), spec);
+        Assert.fail("reconfigure should have thrown exception");
+      } catch (IncompatibleUpdateException e) {
+        // expected
+      }
+    }
+    try {
+      def.configure("tt", DatasetProperties.builder().add(CounterTimeseriesTable.ATTR_ROLLUP_RESOLUTIONS, "0").build());
+      Assert.fail("configure should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
   @Test
   public void testFileSetReconfigure() throws IncompatibleUpdateException {
     testFileSetReconfigure(registry.get(FileSet.class.getName()));
@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.api.dataset.lib.partitioned;
+
+import co.cask.cdap.api.Transactional;
+import co.cask.cdap.api.Transactionals;
+import co.cask.cdap.api.TxRunnable;
+import co.cask.cdap.api.data.DatasetContext;
+import co.cask.cdap.api.dataset.lib.PartitionDetail;
+import co.cask.cdap.api.dataset.lib.PartitionFilter;
+import co.cask.cdap.api.dataset.lib.PartitionKey;
+import co.cask.cdap.api.dataset.lib.PartitionedFileSet;
+import co.cask.cdap.api.dataset.lib.PartitionedFileSetProperties;
+import co.cask.cdap.api.dataset.lib.Partitioning;
+import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
+import co.cask.cdap.data2.dataset2.DatasetFrameworkTestUtil;
+import co.cask.cdap.data2.dataset2.MultiThreadDatasetCache;
+import co.cask.cdap.data2.transaction.Transactions;
+import co.cask.cdap.proto.id.DatasetId;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.tephra.inmemory.InMemoryTxSystemClient;
+import org.apache.twill.filesystem.Location;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Tests for {@link PartitionCompactor}.
+ */
+public class PartitionCompactorTest {
+
+  @ClassRule
+  public static DatasetFrameworkTestUtil dsFrameworkUtil = new DatasetFrameworkTestUtil();
+
+  private static final Partitioning PARTITIONING = Partitioning.builder().addIntField("i").build();
+  private static final DatasetId EXPLORED = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("explored");
+  private static final DatasetId NOT_EXPLORED = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("notExplored");
+
+  private MultiThreadDatasetCache datasetCache;
+  private Transactional transactional;
+
+  @Before
+  public void before() throws Exception {
+    dsFrameworkUtil.createInstance("partitionedFileSet", EXPLORED, PartitionedFileSetProperties.builder()
+      .setPartitioning(PARTITIONING)
+      .setEnableExploreOnCreate(true)
+      .setExploreFormat("text")
+      .setExploreSchema("line string")
+      .build());
+    dsFrameworkUtil.createInstance("partitionedFileSet", NOT_EXPLORED, PartitionedFileSetProperties.builder()
+      .setPartitioning(PARTITIONING)
+      .build());
+    SystemDatasetInstantiator instantiator =
+      new SystemDatasetInstantiator(dsFrameworkUtil.getFramework(), getClass().getClassLoader(), null);
+    datasetCache = new MultiThreadDatasetCache(instantiator, new InMemoryTxSystemClient(dsFrameworkUtil.getTxManager()),
+                                               DatasetFrameworkTestUtil.NAMESPACE_ID,
+                                               Collections.<String, String>emptyMap(), null, null);
+    transactional = Transactions.createTransactional(datasetCache);
+  }
+
+  @After
+  public void after() throws Exception {
+    datasetCache.close();
+    dsFrameworkUtil.deleteInstance(EXPLORED);
+    dsFrameworkUtil.deleteInstance(NOT_EXPLORED);
+  }
+
+  @Test
+  public void testCompaction() throws Exception {
+    // files of 10 bytes are small, files of 100 bytes are not
+    // _SUCCESS markers must not be counted
+    createPartition(EXPLORED, 0, 10);
+    createPartition(EXPLORED, 1, 10, 10, 100);
+    createPartition(EXPLORED, 2, 100, 100);
+    createPartition(EXPLORED, 3, 100, 100, 100, 100, 100);
+    createPartition(EXPLORED, 4, 10, 100, 100);
+
+    PartitionCompactor compactor = PartitionCompactor.builder(transactional, EXPLORED.getDataset())
+      .setMinFileCount(5)
+      .setSmallFileSize(50)
+      .setSmallFileRatio(0.5)
+      .setMaxConcurrency(2)
+      .setPartitionsPerTx(2)
+      .build();
+    Map<PartitionKey, PartitionCompactor.FileStats> selected = compactor.selectPartitions();
+    Assert.assertEquals(ImmutableSet.of(key(1), key(3)), selected.keySet());
+    PartitionCompactor.FileStats stats = selected.get(key(1));
+    Assert.assertEquals(3, stats.getFileCount());
+    Assert.assertEquals(2, stats.getSmallFileCount());
+    Assert.assertEquals(120L, stats.getTotalBytes());
+    Assert.assertEquals(5, selected.get(key(3)).getFileCount());
+
+    // the selection is limited to the partitions that match the filter
+    Assert.assertEquals(ImmutableSet.of(key(3)), PartitionCompactor.builder(transactional, EXPLORED.getDataset())
+      .setPartitionFilter(PartitionFilter.builder().addRangeCondition("i", 2, 5).build())
+      .setMinFileCount(5)
+      .setSmallFileSize(50)
+      .setPartitionsPerTx(1)
+      .build()
+      .selectPartitions().keySet());
+  }
+
+  @Test
+  public void testSkipCompacted() throws Exception {
+    createPartition(EXPLORED, 0, 10, 10, 10);
+    createPartition(EXPLORED, 1, 10, 10, 10);
+    final PartitionCompactor compactor = PartitionCompactor.builder(transactional, EXPLORED.getDataset())
+      .setSmallFileSize(50)
+      .build();
+    Assert.assertEquals(ImmutableSet.of(key(0), key(1)), compactor.selectPartitions().keySet());
+
+    // a partition that was not modified since its compaction started is skipped
+    setCompactionTime(key(0), 0L);
+    Assert.assertEquals(ImmutableSet.of(key(1)), compactor.selectPartitions().keySet());
+
+    // a partition that was modified after its compaction started is selected again
+    setCompactionTime(key(0), -1L);
+    Assert.assertEquals(ImmutableSet.of(key(0), key(1)), compactor.selectPartitions().keySet());
+  }
+
+  @Test
+  public void testNotExplored() throws Exception {
+    createPartition(NOT_EXPLORED, 0, 10, 10, 10);
+    PartitionCompactor.Result result = PartitionCompactor.builder(transactional, NOT_EXPLORED.getDataset())
+      .setSmallFileSize(50)
+      .build()
+      .compact();
+    Assert.assertTrue(result.getCompacted().isEmpty());
+    Assert.assertTrue(result.getFailed().isEmpty());
+  }
+
+  @Test
+  public void testNoConcatenation() throws Exception {
+    // Explore is not available in this test, hence partitions cannot be concatenated
+    createPartition(EXPLORED, 0, 10, 10, 10);
+    PartitionCompactor.Result result = PartitionCompactor.builder(transactional, EXPLORED.getDataset())
+      .setSmallFileSize(50)
+      .build()
+      .compact();
+    Assert.assertTrue(result.getCompacted().isEmpty());
+    Assert.assertTrue(result.getFailed().isEmpty());
+
+    // the partition is not marked as compacted
+    Transactionals.execute(transactional, new TxRunnable() {
+      @Override
+      public void run(DatasetContext context) throws Exception {
+        PartitionedFileSet pfs = context.getDataset(EXPLORED.getDataset());
+        PartitionDetail partition = pfs.getPartition(key(0));
+        Assert.assertNotNull(partition);
+        Assert.assertNull(partition.getMetadata().get(PartitionCompactor.COMPACTION_TIME));
+      }
+    });
+  }
+
+  /**
+   * Sets the compaction time of a partition to its last modification time plus the given offset.
+   */
+  private void setCompactionTime(final PartitionKey key, final long offset) {
+    Transactionals.execute(transactional, new TxRunnable() {
+      @Override
+      public void run(DatasetContext context) throws Exception {
+        PartitionedFileSet pfs = context.getDataset(EXPLORED.getDataset());
+        PartitionDetail partition = pfs.getPartition(key);
+        Assert.assertNotNull(partition);
+        long compactionTime = partition.getMetadata().lastModificationTime() + offset;
+        pfs.setMetadata(key, ImmutableMap.of(PartitionCompactor.COMPACTION_TIME, Long.toString(compactionTime)));
+      }
+    });
+  }
+
+  private static PartitionKey key(int i) {
+    return PartitionKey.builder().addIntField("i", i).build();
+  }
+
+  private void createPartition(final DatasetId datasetId, final int i, final int... fileSizes) {
+    Transactionals.execute(transactional, new TxRunnable() {
+      @Override
+      public void run(DatasetContext context) throws Exception {
+        PartitionedFileSet pfs = context.getDataset(datasetId.getDataset());
+        String path = "p" + i;
+        Location location = pfs.getEmbeddedFileSet().getLocation(path);
+        for (int f = 0; f < fileSizes.length; f++) {
+          writeFile(location.append("part-" + f), fileSizes[f]);
+        }
+        writeFile(location.append("_SUCCESS"), 0);
+        pfs.addPartition(key(i), path, ImmutableMap.<String, String>of());
+      }
+    });
+  }
+
+  private static void writeFile(Location location, int size) throws IOException {
+    try (OutputStream out = location.getOutputStream()) {
+      out.write(new byte[size]);
+    }
+  }
+}
@@ -18,6 +18,9 @@ package co.cask.cdap.data2.dataset2.lib.partitioned;
 
 import co.cask.cdap.api.Predicate;
 import co.cask.cdap.api.dataset.DataSetException;
+import co.cask.cdap.api.dataset.DatasetProperties;
+import co.cask.cdap.api.dataset.IncompatibleUpdateException;
+import co.cask.cdap.api.dataset.InstanceConflictException;
 import co.cask.cdap.api.dataset.PartitionNotFoundException;
 import co.cask.cdap.api.dataset.lib.FileSet;
 import co.cask.cdap.api.dataset.lib.FileSetArguments;
@@ -27,6 +30,7 @@ import co.cask.cdap.api.dataset.lib.PartitionAlreadyExistsException;
 import co.cask.cdap.api.dataset.lib.PartitionDetail;
 import co.cask.cdap.api.dataset.lib.PartitionFilter;
 import co.cask.cdap.api.dataset.lib.PartitionKey;
+import co.cask.cdap.api.dataset.lib.PartitionMetadata;
 import co.cask.cdap.api.dataset.lib.PartitionOutput;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSet;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSetArguments;
@@ -48,6 +52,7 @@ import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.tephra.TransactionAware;
 import org.apache.tephra.TransactionContext;
 import org.apache.tephra.TransactionExecutor;
+import org.apache.tephra.TransactionFailureException;
 import org.apache.tephra.inmemory.InMemoryTxSystemClient;
 import org.apache.twill.filesystem.Location;
 import org.junit.After;
@@ -68,11 +73,13 @@ import java.io.OutputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -523,6 +530,123 @@ public class PartitionedFileSetTest {
     });
   }
 
+  @Test
+  public void testPartitionConsumingInBatches() throws Exception {
+    final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(pfsInstance);
+    final TransactionAware txAwareDataset = (TransactionAware) dataset;
+
+    // the first transaction adds more partitions than are read with one multi-get
+    int[] partitionsPerTx = { 1200, 300, 300, 300 };
+    final Map<PartitionKey, Integer> txOfPartition = new HashMap<>();
+    for (int tx = 0; tx < partitionsPerTx.length; tx++) {
+      final Map<PartitionKey, String> partitions = new LinkedHashMap<>();
+      for (int i = 0; i < partitionsPerTx[tx]; i++) {
+        PartitionKey key = generateUniqueKey();
+        partitions.put(key, "path" + key.getField("i"));
+        txOfPartition.put(key, tx);
+      }
+      final Map<String, String> metadata = ImmutableMap.of("tx", Integer.toString(tx));
+      dsFrameworkUtil.newInMemoryTransactionExecutor(txAwareDataset).execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          dataset.addPartitions(partitions, metadata);
+        }
+      });
+    }
+
+    final SimplePartitionConsumer partitionConsumer = new SimplePartitionConsumer(dataset);
+    final List<PartitionDetail> consumedPartitions = Lists.newArrayList();
+    dsFrameworkUtil.newInMemoryTransactionExecutor(txAwareDataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        // all partitions of a transaction are consumed together, even if they exceed the limit
+        List<PartitionDetail> partitions = partitionConsumer.consumePartitions(1000);
+        Assert.assertEquals(1200, partitions.size());
+        consumedPartitions.addAll(partitions);
+        // the limit is reached with the partitions of the third transaction
+        partitions = partitionConsumer.consumePartitions(500);
+        Assert.assertEquals(600, partitions.size());
+        consumedPartitions.addAll(partitions);
+        consumedPartitions.addAll(partitionConsumer.consumePartitions());
+        Assert.assertTrue(partitionConsumer.consumePartitions().isEmpty());
+      }
+    });
+
+    // every partition is consumed exactly once, in the order of the transactions that added them
+    Assert.assertEquals(txOfPartition.size(), consumedPartitions.size());
+    Set<PartitionKey> consumedKeys = new HashSet<>();
+    int previousTx = 0;
+    for (PartitionDetail partition : consumedPartitions) {
+      Assert.assertTrue(consumedKeys.add(partition.getPartitionKey()));
+      int tx = txOfPartition.get(partition.getPartitionKey());
+      Assert.assertTrue(tx >= previousTx);
+      previousTx = tx;
+      Assert.assertEquals("path" + partition.getPartitionKey().getField("i"), partition.getRelativePath());
+      Assert.assertEquals(ImmutableMap.of("tx", Integer.toString(tx)), partition.getMetadata().asMap());
+    }
+  }
+
+  @Test
+  public void testConsumedPartitionMetadata() throws Exception {
+    // the metadata of a partition is computed once, when it is first needed
+    final AtomicInteger computed = new AtomicInteger();
+    final PartitionMetadata metadata = new PartitionMetadata(ImmutableMap.of("key", "value"), 1L, 2L);
+    BasicPartitionDetail detail = new BasicPartitionDetail(null, "path", PARTITION_KEY,
+                                                           new com.google.common.base.Supplier<PartitionMetadata>() {
+      @Override
+      public PartitionMetadata get() {
+        computed.incrementAndGet();
+        return metadata;
+      }
+    });
+    Assert.assertEquals(0, computed.get());
+    Assert.assertEquals(metadata, detail.getMetadata());
+    Assert.assertEquals(metadata, detail.getMetadata());
+    Assert.assertEquals(1, computed.get());
+
+    final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(pfsInstance);
+    final TransactionAware txAwareDataset = (TransactionAware) dataset;
+    final Map<PartitionKey, Map<String, String>> partitionMetadata = new HashMap<>();
+    for (int i = 0; i < 5; i++) {
+      partitionMetadata.put(generateUniqueKey(), ImmutableMap.of("index", Integer.toString(i), "even",
+                                                                 Boolean.toString(i % 2 == 0)));
+    }
+    dsFrameworkUtil.newInMemoryTransactionExecutor(txAwareDataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (Map.Entry<PartitionKey, Map<String, String>> entry : partitionMetadata.entrySet()) {
+          dataset.addPartition(entry.getKey(), "path" + entry.getKey().getField("i"), entry.getValue());
+        }
+      }
+    });
+
+    dsFrameworkUtil.newInMemoryTransactionExecutor(txAwareDataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        // a predicate on the metadata sees the metadata of each partition
+        List<PartitionDetail> partitions = new SimplePartitionConsumer(dataset).consumePartitions(
+          Integer.MAX_VALUE, new Predicate<PartitionDetail>() {
+            @Override
+            public boolean apply(PartitionDetail partitionDetail) {
+              return Boolean.parseBoolean(partitionDetail.getMetadata().get("even"));
+            }
+          });
+        Assert.assertEquals(3, partitions.size());
+        for (PartitionDetail partition : partitions) {
+          Assert.assertEquals(partitionMetadata.get(partition.getPartitionKey()), partition.getMetadata().asMap());
+        }
+
+        // partitions whose metadata is not used by the predicate are decoded correctly when it is accessed later
+        partitions = new SimplePartitionConsumer(dataset).consumePartitions();
+        Assert.assertEquals(partitionMetadata.size(), partitions.size());
+        for (PartitionDetail partition : partitions) {
+          Assert.assertEquals(partitionMetadata.get(partition.getPartitionKey()), partition.getMetadata().asMap());
+          Assert.assertTrue(partition.getMetadata().getCreationTime() > 0);
+        }
+      }
+    });
+  }
+
   private int counter = 0;
   // generates unique partition keys, where the 'i' field is incrementing from 0 upwards on each returned key
   private PartitionKey generateUniqueKey() {
@@ -1038,6 +1162,132 @@ public class PartitionedFileSetTest {
 
   }
 
+  @Test
+  public void testAddPartitions() throws Exception {
+    final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(pfsInstance);
+    final Map<String, String> metadata = ImmutableMap.of("key", "value");
+    final Map<PartitionKey, String> partitions = new LinkedHashMap<>();
+    for (int i = 0; i < 5; i++) {
+      partitions.put(PartitionKey.builder().addField("s", "x").addField("i", i).addField("l", 17L).build(),
+                     "path" + i);
+    }
+    dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        dataset.addPartitions(partitions, metadata);
+      }
+    });
+    dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (Map.Entry<PartitionKey, String> entry : partitions.entrySet()) {
+          PartitionDetail partition = dataset.getPartition(entry.getKey());
+          Assert.assertNotNull(partition);
+          Assert.assertEquals(entry.getValue(), partition.getRelativePath());
+          Assert.assertEquals(metadata, partition.getMetadata().asMap());
+        }
+      }
+    });
+
+    // if one of the partitions already exists, none of the partitions are added
+    final PartitionKey newKey = PartitionKey.builder().addField("s", "y").addField("i", 1).addField("l", 17L).build();
+    try {
+      dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          Map<PartitionKey, String> toAdd = new LinkedHashMap<>();
+          toAdd.put(newKey, "newPath");
+          toAdd.put(partitions.keySet().iterator().next(), "otherPath");
+          dataset.addPartitions(toAdd, metadata);
+        }
+      });
+      Assert.fail("Expected PartitionAlreadyExistsException");
+    } catch (TransactionFailureException e) {
+      Assert.assertTrue(e.getCause() instanceof PartitionAlreadyExistsException);
+    }
+    dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        Assert.assertNull(dataset.getPartition(newKey));
+        Assert.assertEquals(partitions.size(), dataset.getPartitions(null).size());
+      }
+    });
+  }
+
+  @Test
+  public void testIndexedFields() throws Exception {
+    DatasetId indexedInstance = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("indexed");
+    DatasetProperties props = PartitionedFileSetProperties.builder()
+      .setPartitioning(PARTITIONING_1)
+      .setIndexedFields("i", "l")
+      .build();
+    dsFrameworkUtil.createInstance("partitionedFileSet", indexedInstance, props);
+    try {
+      final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(indexedInstance);
+      final Set<BasicPartition> allPartitionDetails = Sets.newHashSet();
+      dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          for (int s = 0; s < 4; s++) {
+            for (int i = 0; i < 4; i++) {
+              for (int l = 0; l < 4; l++) {
+                PartitionKey key = PartitionKey.builder()
+                  .addField("s", String.format("%c-%d", 'a' + s, s))
+                  .addField("i", i * 100)
+                  .addField("l", 15L - 10 * l)
+                  .build();
+                PartitionOutput output = dataset.getPartitionOutput(key);
+                output.addPartition();
+                allPartitionDetails.add(new BasicPartition((PartitionedFileSetDataset) dataset,
+                                                           output.getRelativePath(), key));
+              }
+            }
+          }
+        }
+      });
+
+      // filters on the indexed fields are answered through the indexes, with the same result as a scan
+      List<PartitionFilter> filters = generateFilters();
+      testAllFilters(dataset, allPartitionDetails, filters);
+
+      // dropped partitions are removed from the indexes
+      final PartitionKey toDrop = allPartitionDetails.iterator().next().getPartitionKey();
+      dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          dataset.dropPartition(toDrop);
+        }
+      });
+      allPartitionDetails.removeIf(partition -> toDrop.equals(partition.getPartitionKey()));
+      testAllFilters(dataset, allPartitionDetails, filters);
+
+      // the indexed fields cannot be changed, as the existing partitions would not be indexed
+      try {
+        dsFrameworkUtil.getFramework().updateInstance(indexedInstance, PartitionedFileSetProperties.builder()
+          .setPartitioning(PARTITIONING_1)
+          .setIndexedFields("i")
+          .build());
+        Assert.fail("Expected InstanceConflictException for changing the indexed fields");
+      } catch (InstanceConflictException e) {
+        Assert.assertTrue(e.getCause() instanceof IncompatibleUpdateException);
+      }
+      dsFrameworkUtil.getFramework().updateInstance(indexedInstance, props);
+    } finally {
+      dsFrameworkUtil.deleteInstance(indexedInstance);
+    }
+
+    // only partitioning fields can be indexed
+    try {
+      dsFrameworkUtil.createInstance("partitionedFileSet", indexedInstance, PartitionedFileSetProperties.builder()
+        .setPartitioning(PARTITIONING_1)
+        .setIndexedFields("x")
+        .build());
+      Assert.fail("Expected IllegalArgumentException for indexing a field that is not in the partitioning");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
   private void testAllFilters(PartitionedFileSet dataset,
                               Set<BasicPartition> allPartitionDetails,
                               List<PartitionFilter> filters) throws Exception {
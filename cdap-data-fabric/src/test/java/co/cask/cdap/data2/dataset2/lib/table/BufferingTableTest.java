@@ -19,6 +19,7 @@ package co.cask.cdap.data2.dataset2.lib.table;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DatasetAdmin;
 import co.cask.cdap.api.dataset.DatasetProperties;
+import co.cask.cdap.api.dataset.table.ConflictDetection;
 import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scan;
@@ -30,6 +31,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.tephra.Transaction;
 import org.apache.tephra.TransactionAware;
+import org.apache.tephra.TransactionConflictException;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -502,6 +504,87 @@ public abstract class BufferingTableTest<T extends BufferingTable> extends Table
     }
   }
 
+  @Test
+  public void testFlushBeforeCommit() throws Exception {
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE);
+    admin.create();
+    try {
+      // flush after every write
+      DatasetProperties props = TableProperties.builder()
+        .setConflictDetection(ConflictDetection.ROW)
+        .add(BufferingTable.PROPERTY_FLUSH_THRESHOLD, 1)
+        .build();
+      BufferingTable table1 = getTable(CONTEXT1, MY_TABLE, props);
+      BufferingTable table2 = getTable(CONTEXT1, MY_TABLE);
+
+      Transaction tx1 = txClient.startShort();
+      table1.startTx(tx1);
+      Transaction tx2 = txClient.startShort();
+      table2.startTx(tx2);
+
+      table1.put(R1, a(C1, C2), a(V1, V2));
+      table1.put(R2, a(C1), a(V1));
+      table1.delete(R1, a(C2));
+      table1.incrementAndGet(R3, a(C1), new long[] { 1L });
+      table1.incrementAndGet(R3, a(C1), new long[] { 2L });
+
+      // changes are visible to the transaction that wrote them, even though they are not in the buffer anymore
+      TableAssert.assertRow(a(C1, V1), table1.get(R1));
+      TableAssert.assertRow(a(C1, V1), table1.get(R2, a(C1)));
+      TableAssert.assertRow(a(C1, L3), table1.get(R3));
+      Scanner scanner = table1.scan(R1, null);
+      TableAssert.assertRow(scanner.next(), R1, a(C1), a(V1));
+      TableAssert.assertRow(scanner.next(), R2, a(C1), a(V1));
+      TableAssert.assertRow(scanner.next(), R3, a(C1), a(L3));
+      Assert.assertNull(scanner.next());
+      scanner.close();
+
+      // but not to other transactions
+      Assert.assertTrue(table2.get(R1).isEmpty());
+      Assert.assertTrue(table2.get(R3).isEmpty());
+
+      // flushed changes are still detected as conflicts
+      table2.put(R2, a(C2), a(V2));
+      txClient.canCommitOrThrow(tx2, table2.getTxChanges());
+      Assert.assertTrue(table2.commitTx());
+      txClient.commitOrThrow(tx2);
+      table2.postTxCommit();
+
+      Assert.assertEquals(3, table1.getTxChanges().size());
+      try {
+        txClient.canCommitOrThrow(tx1, table1.getTxChanges());
+        Assert.fail("Expected conflict on row " + Bytes.toString(R2));
+      } catch (TransactionConflictException e) {
+        // expected
+      }
+      Assert.assertTrue(table1.rollbackTx());
+      txClient.abort(tx1);
+
+      // flushed changes were undone
+      Transaction tx3 = txClient.startShort();
+      table1.startTx(tx3);
+      Assert.assertTrue(table1.get(R1).isEmpty());
+      TableAssert.assertRow(a(C2, V2), table1.get(R2));
+      Assert.assertTrue(table1.get(R3).isEmpty());
+
+      // write again, and commit this time
+      table1.put(R1, a(C1), a(V1));
+      table1.put(R1, a(C2), a(V2));
+      Assert.assertEquals(1, table1.getTxChanges().size());
+      txClient.canCommitOrThrow(tx3, table1.getTxChanges());
+      Assert.assertTrue(table1.commitTx());
+      txClient.commitOrThrow(tx3);
+      table1.postTxCommit();
+
+      Transaction tx4 = txClient.startShort();
+      table2.startTx(tx4);
+      TableAssert.assertRow(a(C1, V1, C2, V2), table2.get(R1));
+      txClient.abort(tx4);
+    } finally {
+      admin.drop();
+    }
+  }
+
   private void verify123(BufferingTable table) throws Exception {
     byte[] row = new byte[] {1};
     byte[] col = new byte[] {2};
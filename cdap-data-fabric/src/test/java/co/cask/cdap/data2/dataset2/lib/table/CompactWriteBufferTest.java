@@ -0,0 +1,185 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+
+/**
+ * Tests for {@link CompactWriteBuffer}, which compare it with the {@link NavigableMapWriteBuffer}.
+ */
+public class CompactWriteBufferTest {
+
+  @Test
+  public void testPutAndGet() {
+    CompactWriteBuffer buffer = new CompactWriteBuffer();
+    Assert.assertTrue(buffer.isEmpty());
+    Assert.assertNull(buffer.getRow(Bytes.toBytes("r1")));
+
+    byte[] row = Bytes.toBytes("r1");
+    byte[] value = Bytes.toBytes("v1");
+    buffer.put(row, new byte[][] { Bytes.toBytes("c1"), Bytes.toBytes("c2") }, new byte[][] { value, null });
+    // the buffer must not be affected by changes to the passed arrays
+    row[0] = 'x';
+    value[0] = 'x';
+
+    Assert.assertFalse(buffer.isEmpty());
+    Assert.assertNull(buffer.getRow(row));
+    NavigableMap<byte[], Update> columns = buffer.getRow(Bytes.toBytes("r1"));
+    Assert.assertNotNull(columns);
+    Assert.assertEquals(2, columns.size());
+    Assert.assertArrayEquals(Bytes.toBytes("v1"), ((PutValue) columns.get(Bytes.toBytes("c1"))).getValue());
+    Assert.assertNull(((PutValue) columns.get(Bytes.toBytes("c2"))).getValue());
+
+    buffer.clear();
+    Assert.assertTrue(buffer.isEmpty());
+    Assert.assertNull(buffer.getRow(Bytes.toBytes("r1")));
+  }
+
+  @Test
+  public void testIncrement() {
+    CompactWriteBuffer buffer = new CompactWriteBuffer();
+    byte[] row = Bytes.toBytes("r");
+    byte[][] columns = new byte[][] { Bytes.toBytes("put"), Bytes.toBytes("delete"), Bytes.toBytes("increment") };
+    buffer.put(row, new byte[][] { columns[0], columns[1] }, new byte[][] { Bytes.toBytes(10L), null });
+    buffer.increment(row, columns, new long[] { 1L, 2L, 3L });
+    buffer.increment(row, columns, new long[] { 1L, 2L, 3L });
+
+    NavigableMap<byte[], Update> result = buffer.getRow(row);
+    Assert.assertNotNull(result);
+    Assert.assertEquals(12L, Bytes.toLong(((PutValue) result.get(columns[0])).getValue()));
+    Assert.assertEquals(4L, Bytes.toLong(((PutValue) result.get(columns[1])).getValue()));
+    Assert.assertEquals(6L, ((IncrementValue) result.get(columns[2])).getValue().longValue());
+
+    buffer.put(row, new byte[][] { columns[0] }, new byte[][] { Bytes.toBytes("not a long") });
+    try {
+      buffer.increment(row, new byte[][] { columns[0] }, new long[] { 1L });
+      Assert.fail("Expected NumberFormatException");
+    } catch (NumberFormatException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testRandomOperations() {
+    long seed = System.nanoTime();
+    Random random = new Random(seed);
+    String message = "Random seed " + seed;
+
+    CompactWriteBuffer buffer = new CompactWriteBuffer();
+    NavigableMapWriteBuffer expected = new NavigableMapWriteBuffer();
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 10000; i++) {
+        byte[] row = Bytes.toBytes("row" + random.nextInt(500));
+        byte[][] columns = new byte[1 + random.nextInt(3)][];
+        for (int j = 0; j < columns.length; j++) {
+          columns[j] = Bytes.toBytes("col" + random.nextInt(20));
+        }
+        int op = random.nextInt(10);
+        if (op < 5) {
+          byte[][] values = new byte[columns.length][];
+          for (int j = 0; j < values.length; j++) {
+            // mostly longs, so that increments can apply on top of them, but also some deletes and large values
+            int kind = random.nextInt(10);
+            values[j] = kind == 0 ? null
+              : kind == 1 ? new byte[random.nextInt(5000)] : Bytes.toBytes(random.nextLong());
+          }
+          buffer.put(row, columns, values);
+          expected.put(row, columns, values);
+        } else if (op < 8) {
+          long[] amounts = new long[columns.length];
+          for (int j = 0; j < amounts.length; j++) {
+            amounts[j] = random.nextInt(100);
+          }
+          boolean failed = false;
+          try {
+            expected.increment(row, columns, amounts);
+          } catch (NumberFormatException e) {
+            failed = true;
+          }
+          try {
+            buffer.increment(row, columns, amounts);
+            Assert.assertFalse(message, failed);
+          } catch (NumberFormatException e) {
+            Assert.assertTrue(message, failed);
+          }
+          if (failed) {
+            // columns before the failed one may have been incremented, start over with the same content
+            buffer.clear();
+            expected.clear();
+          }
+        } else if (op < 9 || random.nextInt(10) > 0) {
+          assertRowEquals(message, expected.getRow(row), buffer.getRow(row));
+        } else {
+          byte[] startRow = random.nextBoolean() ? null : Bytes.toBytes("row" + random.nextInt(500));
+          byte[] stopRow = random.nextBoolean() ? null : Bytes.toBytes("row" + random.nextInt(500));
+          if (startRow != null && stopRow != null && Bytes.compareTo(startRow, stopRow) > 0) {
+            byte[] tmp = startRow;
+            startRow = stopRow;
+            stopRow = tmp;
+          }
+          assertRowsEquals(message, expected.rows(startRow, stopRow), buffer.rows(startRow, stopRow));
+        }
+      }
+      NavigableMap<byte[], NavigableMap<byte[], Update>> drained = buffer.drain();
+      Assert.assertTrue(message, buffer.isEmpty());
+      assertRowsEquals(message, expected.drain().entrySet().iterator(), drained.entrySet().iterator());
+    }
+  }
+
+  private void assertRowsEquals(String message, Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> expected,
+                                Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> actual) {
+    while (expected.hasNext()) {
+      Assert.assertTrue(message, actual.hasNext());
+      Map.Entry<byte[], NavigableMap<byte[], Update>> expectedRow = expected.next();
+      Map.Entry<byte[], NavigableMap<byte[], Update>> actualRow = actual.next();
+      Assert.assertArrayEquals(message, expectedRow.getKey(), actualRow.getKey());
+      assertRowEquals(message, expectedRow.getValue(), actualRow.getValue());
+    }
+    Assert.assertFalse(message, actual.hasNext());
+  }
+
+  private void assertRowEquals(String message, NavigableMap<byte[], Update> expected,
+                               NavigableMap<byte[], Update> actual) {
+    if (expected == null) {
+      Assert.assertNull(message, actual);
+      return;
+    }
+    Assert.assertNotNull(message, actual);
+    Assert.assertEquals(message, toComparable(expected), toComparable(actual));
+  }
+
+  private Map<String, String> toComparable(NavigableMap<byte[], Update> columns) {
+    Map<String, String> result = Maps.newTreeMap();
+    for (Map.Entry<byte[], Update> entry : columns.entrySet()) {
+      Update update = entry.getValue();
+      String value = update instanceof IncrementValue
+        ? "increment:" + ((IncrementValue) update).getValue()
+        : "put:" + Arrays.toString(((PutValue) update).getValue());
+      result.put(Bytes.toStringBinary(entry.getKey()), value);
+    }
+    return result;
+  }
+}
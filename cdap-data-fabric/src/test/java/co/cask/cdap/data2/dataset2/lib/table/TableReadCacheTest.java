@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+import org.apache.tephra.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Tests for {@link TableReadCache}.
+ */
+public class TableReadCacheTest {
+
+  private static final byte[] R1 = Bytes.toBytes("r1");
+  private static final byte[] R2 = Bytes.toBytes("r2");
+  private static final byte[] C1 = Bytes.toBytes("c1");
+  private static final byte[] C2 = Bytes.toBytes("c2");
+  private static final byte[] V1 = Bytes.toBytes("v1");
+  private static final byte[] V2 = Bytes.toBytes("v2");
+  private static final Set<byte[]> NO_CHANGES = Collections.emptySet();
+
+  @Test
+  public void testCachedAfterCommit() {
+    TableReadCache cache = new TableReadCache(100, 60000);
+    TableReadCache.View view = cache.getView(tx(10, 11));
+    view.put(R1, null, ImmutableMap.of(C1, V1));
+    // visible to the transaction that read it
+    assertRow(V1, view.get(R1, null));
+
+    // not visible to other transactions until the transaction commits
+    Assert.assertNull(cache.getView(tx(10, 12)).get(R1, null));
+    view.publish(NO_CHANGES);
+    TableReadCache.View view2 = cache.getView(tx(10, 12, 11));
+    assertRow(V1, view2.get(R1, null));
+    assertRow(V1, view2.get(R1, new byte[][] { C1 }));
+    // a column that is not in the row
+    Assert.assertTrue(view2.get(R1, new byte[][] { C2 }).isEmpty());
+
+    // values returned must not be shared with the cache
+    view2.get(R1, null).get(C1)[0] = 'x';
+    assertRow(V1, view2.get(R1, null));
+  }
+
+  @Test
+  public void testSnapshotValidation() {
+    TableReadCache cache = new TableReadCache(100, 60000);
+    // read while transaction 9 was in progress
+    TableReadCache.View view = cache.getView(tx(10, 11, 9));
+    view.put(R1, null, ImmutableMap.of(C1, V1));
+    view.publish(NO_CHANGES);
+
+    // transaction 9 still in progress
+    Assert.assertNotNull(cache.getView(tx(12, 13, 9)).get(R1, null));
+    // transaction 9 became invalid
+    Assert.assertNotNull(cache.getView(new Transaction(12, 13, new long[] { 9 }, new long[0], 13)).get(R1, null));
+    // transaction 9 committed
+    Assert.assertNull(cache.getView(tx(12, 13)).get(R1, null));
+    // older snapshot
+    Assert.assertNull(cache.getView(tx(8, 13, 9)).get(R1, null));
+    // transaction 7, visible when the row was read, is not visible
+    Assert.assertNull(cache.getView(tx(12, 13, 7, 9)).get(R1, null));
+  }
+
+  @Test
+  public void testCommittedChanges() {
+    TableReadCache cache = new TableReadCache(100, 60000);
+    TableReadCache.View view = cache.getView(tx(10, 11));
+    view.put(R1, null, ImmutableMap.of(C1, V1));
+    view.put(R2, null, ImmutableMap.of(C1, V1));
+    // rows changed by the transaction are not cached
+    view.publish(ImmutableSortedSet.orderedBy(Bytes.BYTES_COMPARATOR).add(R2).build());
+    Assert.assertNotNull(cache.getView(tx(12, 13)).get(R1, null));
+    Assert.assertNull(cache.getView(tx(12, 13)).get(R2, null));
+
+    // a transaction that does not see a commit of a change cannot cache rows
+    TableReadCache.View before = cache.getView(tx(12, 14));
+    before.put(R2, null, ImmutableMap.<byte[], byte[]>of());
+    cache.committed(tx(12, 15), Collections.singleton(R1));
+    before.publish(NO_CHANGES);
+    TableReadCache.View after = cache.getView(tx(15, 16));
+    Assert.assertNull(after.get(R1, null));
+    Assert.assertNull(after.get(R2, null));
+  }
+
+  @Test
+  public void testPartialRows() {
+    TableReadCache cache = new TableReadCache(100, 60000);
+    TableReadCache.View view = cache.getView(tx(10, 11));
+    view.put(R1, new byte[][] { C1, C2 }, ImmutableMap.of(C1, V1));
+    view.publish(NO_CHANGES);
+
+    TableReadCache.View view2 = cache.getView(tx(12, 13));
+    assertRow(V1, view2.get(R1, new byte[][] { C1 }));
+    Assert.assertTrue(view2.get(R1, new byte[][] { C2 }).isEmpty());
+    // other columns are unknown
+    Assert.assertNull(view2.get(R1, null));
+    Assert.assertNull(view2.get(R1, new byte[][] { C1, Bytes.toBytes("c3") }));
+  }
+
+  @Test
+  public void testExpiryAndInvalidation() throws InterruptedException {
+    TableReadCache cache = new TableReadCache(100, 1);
+    TableReadCache.View view = cache.getView(tx(10, 11));
+    view.put(R1, null, ImmutableMap.of(C1, V1));
+    view.publish(NO_CHANGES);
+    Thread.sleep(10);
+    Assert.assertNull(cache.getView(tx(12, 13)).get(R1, null));
+
+    Map<String, String> props = ImmutableMap.of(TableReadCache.PROPERTY_SIZE, "100");
+    Assert.assertNull(TableReadCache.get("disabled", ImmutableMap.<String, String>of()));
+    cache = TableReadCache.get("invalidated", props);
+    Assert.assertSame(cache, TableReadCache.get("invalidated", props));
+    view = cache.getView(tx(10, 11));
+    view.put(R1, null, ImmutableMap.of(C1, V1));
+    view.publish(NO_CHANGES);
+    TableReadCache.invalidate("invalidated");
+    Assert.assertNull(cache.getView(tx(12, 13)).get(R1, null));
+    TableReadCache.remove("invalidated");
+    Assert.assertNotSame(cache, TableReadCache.get("invalidated", props));
+  }
+
+  @Test
+  public void testCachedReads() {
+    TableReadCache cache = new TableReadCache(100, 60000);
+    TableReadCache.View view = cache.getView(tx(10, 11));
+    view.put(R1, null, ImmutableMap.of(C1, V1));
+    // rows read by the transaction itself need no verification
+    assertRow(V1, view.get(R1, null));
+    Assert.assertTrue(view.getCachedReads().isEmpty());
+    view.publish(NO_CHANGES);
+
+    TableReadCache.View view2 = cache.getView(tx(12, 13));
+    assertRow(V1, view2.get(R1, new byte[][] { C1 }));
+    Assert.assertEquals(1, view2.getCachedReads().size());
+    TableReadCache.CachedRead read = view2.getCachedReads().get(0);
+    Assert.assertArrayEquals(R1, read.getRow());
+    Assert.assertTrue(read.matches(row(V1)));
+    Assert.assertFalse(read.matches(row(V2)));
+    Assert.assertFalse(read.matches(new TreeMap<byte[], byte[]>(Bytes.BYTES_COMPARATOR)));
+  }
+
+  private static Transaction tx(long readPointer, long writePointer, long... inProgress) {
+    return new Transaction(readPointer, writePointer, new long[0], inProgress,
+                           inProgress.length == 0 ? Transaction.NO_TX_IN_PROGRESS : inProgress[0]);
+  }
+
+  private static NavigableMap<byte[], byte[]> row(byte[] value) {
+    NavigableMap<byte[], byte[]> row = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    row.put(C1, value);
+    return row;
+  }
+
+  private static void assertRow(byte[] expected, NavigableMap<byte[], byte[]> row) {
+    Assert.assertNotNull(row);
+    Assert.assertEquals(1, row.size());
+    Assert.assertArrayEquals(expected, row.get(C1));
+  }
+}
@@ -17,10 +17,13 @@
 package co.cask.cdap.data2.dataset2.lib.table;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.DataSetException;
 import co.cask.cdap.api.dataset.DatasetAdmin;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.metrics.MeteredDataset;
+import co.cask.cdap.api.dataset.table.Aggregation;
+import co.cask.cdap.api.dataset.table.AsyncTable;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
 import co.cask.cdap.api.dataset.table.Delete;
 import co.cask.cdap.api.dataset.table.Get;
@@ -37,6 +40,7 @@ import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data2.dataset2.TableAssert;
 import co.cask.cdap.data2.dataset2.lib.table.hbase.HBaseTable;
+import co.cask.cdap.internal.dataset.SynchronousAsyncTable;
 import co.cask.cdap.proto.id.NamespaceId;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -64,6 +68,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Base test for Table.
@@ -1364,6 +1369,196 @@ public abstract class TableTest<T extends Table> {
     return count;
   }
 
+  @Test
+  public void testAggregate() throws Exception {
+    testAggregate(MY_TABLE, PROPS_CONFLICT_LEVEL_ROW);
+  }
+
+  protected void testAggregate(String tableName, DatasetProperties props) throws Exception {
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, tableName, props);
+    admin.create();
+    try {
+      List<Aggregation> aggregations = ImmutableList.of(Aggregation.count(), Aggregation.count(C1),
+                                                        Aggregation.sum(C1), Aggregation.min(C1),
+                                                        Aggregation.max(C1), Aggregation.count(C2));
+      Transaction tx1 = txClient.startShort();
+      Table table = getTable(CONTEXT1, tableName, props);
+      ((TransactionAware) table).startTx(tx1);
+      table.put(new Put("a1").add(C1, 1L).add(C2, 10L));
+      table.put(new Put("a2").add(C1, 2L));
+      table.put(new Put("b1").add(C1, 5L).add(C2, V1));
+      table.increment(Bytes.toBytes("b2"), C1, 3L);
+      table.put(new Put("c1").add(C2, 20L));
+      // aggregate the changes buffered in the transaction
+      verifyAggregate(table, aggregations);
+
+      txClient.canCommitOrThrow(tx1, ((TransactionAware) table).getTxChanges());
+      Assert.assertTrue(((TransactionAware) table).commitTx());
+      txClient.commitOrThrow(tx1);
+      ((TransactionAware) table).postTxCommit();
+
+      // aggregate the persisted changes
+      Transaction tx2 = txClient.startShort();
+      ((TransactionAware) table).startTx(tx2);
+      verifyAggregate(table, aggregations);
+      // only the scanned rows are aggregated
+      Assert.assertEquals(Arrays.asList(2L, 2L, 8L, 3L, 5L, 1L),
+                          table.aggregate(new Scan(Bytes.toBytes("b"), Bytes.toBytes("c")), aggregations));
+      FuzzyRowFilter filter = new FuzzyRowFilter(
+        ImmutableList.of(ImmutablePair.of(new byte[]{'*', '1'}, new byte[]{0x01, 0x00})));
+      Assert.assertEquals(Arrays.asList(3L, 2L, 6L, 1L, 5L, 3L),
+                          table.aggregate(new Scan(null, null, filter), aggregations));
+      Assert.assertEquals(Arrays.asList(0L, 0L, 0L, null, null, 0L),
+                          table.aggregate(new Scan(Bytes.toBytes("x"), null), aggregations));
+      Assert.assertTrue(table.aggregate(new Scan(Bytes.toBytes("x"), null), 1, aggregations).isEmpty());
+      try {
+        table.aggregate(new Scan(null, null), ImmutableList.of(Aggregation.sum(C2)));
+        Assert.fail("Expected DataSetException for a value that is not a long");
+      } catch (DataSetException e) {
+        // expected
+      }
+
+      // deleted columns and rows are not aggregated, whether the deletes are buffered or persisted
+      table.delete(Bytes.toBytes("a1"), C1);
+      table.delete(Bytes.toBytes("a2"));
+      Map<byte[], List<Long>> expected = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      expected.put(Bytes.toBytes("a"), Arrays.asList(1L, 0L, 0L, null, null, 1L));
+      Assert.assertEquals(expected, table.aggregate(new Scan(null, Bytes.toBytes("b")), 1, aggregations));
+      txClient.canCommitOrThrow(tx2, ((TransactionAware) table).getTxChanges());
+      Assert.assertTrue(((TransactionAware) table).commitTx());
+      txClient.commitOrThrow(tx2);
+      ((TransactionAware) table).postTxCommit();
+
+      Transaction tx3 = txClient.startShort();
+      ((TransactionAware) table).startTx(tx3);
+      Assert.assertEquals(expected, table.aggregate(new Scan(null, Bytes.toBytes("b")), 1, aggregations));
+      ((TransactionAware) table).commitTx();
+      txClient.commitOrThrow(tx3);
+    } finally {
+      admin.drop();
+    }
+  }
+
+  private static void verifyAggregate(Table table, List<Aggregation> aggregations) {
+    Assert.assertEquals(Arrays.asList(5L, 4L, 11L, 1L, 5L, 3L),
+                        table.aggregate(new Scan(null, null), aggregations));
+    Map<byte[], List<Long>> expected = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    expected.put(Bytes.toBytes("a"), Arrays.asList(2L, 2L, 3L, 1L, 2L, 1L));
+    expected.put(Bytes.toBytes("b"), Arrays.asList(2L, 2L, 8L, 3L, 5L, 1L));
+    expected.put(Bytes.toBytes("c"), Arrays.asList(1L, 0L, 0L, null, null, 1L));
+    Assert.assertEquals(expected, table.aggregate(new Scan(null, null), 1, aggregations));
+  }
+
+  @Test
+  public void testAsync() throws Exception {
+    testAsync(MY_TABLE, PROPS_CONFLICT_LEVEL_ROW);
+  }
+
+  protected void testAsync(String tableName, DatasetProperties props) throws Exception {
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, tableName, props);
+    admin.create();
+    try {
+      Transaction tx1 = txClient.startShort();
+      Table table = getTable(CONTEXT1, tableName, props);
+      ((TransactionAware) table).startTx(tx1);
+      for (int i = 1; i <= 5; i++) {
+        table.put(new Put("a" + i).add(C1, V1));
+      }
+      txClient.canCommitOrThrow(tx1, ((TransactionAware) table).getTxChanges());
+      Assert.assertTrue(((TransactionAware) table).commitTx());
+      txClient.commitOrThrow(tx1);
+      ((TransactionAware) table).postTxCommit();
+
+      Transaction tx2 = txClient.startShort();
+      ((TransactionAware) table).startTx(tx2);
+      table.put(new Put("a2").add(C2, V2));
+      table.delete(Bytes.toBytes("a3"));
+      table.put(new Put("b1").add(C1, V1));
+      // the returned futures reflect the changes buffered when called, not the ones made later
+      CompletableFuture<Row> a2 = table.async().get(new Get("a2"));
+      CompletableFuture<List<Row>> scan = table.async().scan(new Scan(null, null), 3);
+      table.put(new Put("a2").add(C3, V3));
+      table.delete(Bytes.toBytes("a1"));
+
+      Assert.assertEquals(ImmutableMap.of("c1", "v1", "c2", "v2"), toStringMap(a2.get().getColumns()));
+      assertRows(scan.get(), "a1", "a2", "a4");
+      assertRows(table.async().scan(new Scan(null, null), 3).get(), "a2", "a4", "a5");
+      assertRows(table.async().scan(new Scan(Bytes.toBytes("a5"), null), 3).get(), "a5", "b1");
+      assertRows(table.async().scan(new Scan(Bytes.toBytes("x"), null), 3).get());
+      List<Row> rows = table.async().get(ImmutableList.of(new Get("a1"), new Get("a2", "c2", "c3"), new Get("a3"),
+                                                          new Get("a4", new String[0]), new Get("b1"))).get();
+      Assert.assertEquals(5, rows.size());
+      Assert.assertTrue(rows.get(0).isEmpty());
+      Assert.assertEquals(ImmutableMap.of("c2", "v2", "c3", "v3"), toStringMap(rows.get(1).getColumns()));
+      Assert.assertTrue(rows.get(2).isEmpty());
+      Assert.assertTrue(rows.get(3).isEmpty());
+      Assert.assertEquals(ImmutableMap.of("c1", "v1"), toStringMap(rows.get(4).getColumns()));
+
+      // writes are buffered in the transaction
+      table.async().put(new Put("c1").add(C1, V1)).get();
+      table.async().delete(new Delete("a4")).get();
+      Assert.assertArrayEquals(V1, table.get(new Get("c1")).get(C1));
+      Assert.assertTrue(table.get(new Get("a4")).isEmpty());
+      txClient.canCommitOrThrow(tx2, ((TransactionAware) table).getTxChanges());
+      Assert.assertTrue(((TransactionAware) table).commitTx());
+      txClient.commitOrThrow(tx2);
+      ((TransactionAware) table).postTxCommit();
+
+      Transaction tx3 = txClient.startShort();
+      ((TransactionAware) table).startTx(tx3);
+      assertRows(table.async().scan(new Scan(null, null), 10).get(), "a2", "a5", "b1", "c1");
+      Assert.assertEquals(ImmutableMap.of("c1", "v1", "c2", "v2", "c3", "v3"),
+                          toStringMap(table.async().get(new Get("a2")).get().getColumns()));
+      ((TransactionAware) table).commitTx();
+      txClient.commitOrThrow(tx3);
+    } finally {
+      admin.drop();
+    }
+  }
+
+  @Test
+  public void testSynchronousAsync() throws Exception {
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE);
+    admin.create();
+    try {
+      Transaction tx = txClient.startShort();
+      Table table = getTable(CONTEXT1, MY_TABLE);
+      ((TransactionAware) table).startTx(tx);
+      // the default implementation of Table.async(), for tables that do not support non-blocking operations
+      AsyncTable async = new SynchronousAsyncTable(table);
+      CompletableFuture<Void> put = async.put(new Put("a1").add(C1, V1));
+      Assert.assertTrue(put.isDone());
+      put.get();
+      async.put(new Put("a2").add(C1, V1)).get();
+      Assert.assertEquals(ImmutableMap.of("c1", "v1"), toStringMap(async.get(new Get("a1")).get().getColumns()));
+      assertRows(async.scan(new Scan(null, null), 10).get(), "a1", "a2");
+      assertRows(async.scan(new Scan(null, null), 1).get(), "a1");
+      Assert.assertEquals(2, async.get(ImmutableList.of(new Get("a1"), new Get("a2"))).get().size());
+      async.delete(new Delete("a2")).get();
+      Assert.assertTrue(async.get(new Get("a2")).get().isEmpty());
+      ((TransactionAware) table).commitTx();
+      txClient.commitOrThrow(tx);
+    } finally {
+      admin.drop();
+    }
+  }
+
+  private static void assertRows(List<Row> rows, String... expected) {
+    List<String> keys = new ArrayList<>();
+    for (Row row : rows) {
+      keys.add(Bytes.toString(row.getRow()));
+    }
+    Assert.assertEquals(Arrays.asList(expected), keys);
+  }
+
+  private static Map<String, String> toStringMap(Map<byte[], byte[]> columns) {
+    Map<String, String> result = new TreeMap<>();
+    for (Map.Entry<byte[], byte[]> column : columns.entrySet()) {
+      result.put(Bytes.toString(column.getKey()), Bytes.toString(column.getValue()));
+    }
+    return result;
+  }
+
 
   @Test
   public void testBasicColumnRangeWithTx() throws Exception {
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the {@link TableWriteBuffer} implementations used by {@link BufferingTable}.
+ * Each benchmark invocation is one transaction, which writes to a new buffer and drains it at the end.
+ * <p>
+ * It is not run as part of the unit tests. To run it from the IDE, run the {@link #main(String[])} method,
+ * or from the command line, for example:
+ * <pre>
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=co.cask.cdap.data2.dataset2.lib.table.TableWriteBufferBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class TableWriteBufferBenchmark {
+
+  @Param({ "map", "compact" })
+  private String buffer;
+
+  // number of cells written by each transaction
+  @Param({ "100000" })
+  private int cells;
+
+  private byte[][] rows;
+  private byte[][] columns;
+  private byte[][] values;
+  private TableWriteBuffer filled;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Random random = new Random(0);
+    rows = new byte[cells][];
+    columns = new byte[cells][];
+    values = new byte[cells][];
+    for (int i = 0; i < cells; i++) {
+      // roughly ten columns per row, written in random row order like a typical MapReduce task
+      rows[i] = Bytes.toBytes(String.format("row-%012d", random.nextInt(cells / 10)));
+      columns[i] = Bytes.toBytes("column-" + random.nextInt(10));
+      values[i] = new byte[16 + random.nextInt(48)];
+      random.nextBytes(values[i]);
+    }
+    filled = createBuffer();
+    for (int i = 0; i < cells; i++) {
+      filled.put(rows[i], new byte[][] { columns[i] }, new byte[][] { values[i] });
+    }
+  }
+
+  /**
+   * Writes all cells and drains the buffer as on transaction commit.
+   */
+  @Benchmark
+  public void putHeavy(Blackhole blackhole) {
+    TableWriteBuffer buff = createBuffer();
+    for (int i = 0; i < cells; i++) {
+      buff.put(rows[i], new byte[][] { columns[i] }, new byte[][] { values[i] });
+    }
+    blackhole.consume(buff.drain());
+  }
+
+  /**
+   * Mixes puts with increments and reads of recently written rows.
+   */
+  @Benchmark
+  public void mixed(Blackhole blackhole) {
+    TableWriteBuffer buff = createBuffer();
+    long[] amount = new long[] { 1L };
+    for (int i = 0; i < cells; i++) {
+      switch (i % 4) {
+        case 0:
+        case 1:
+          buff.put(rows[i], new byte[][] { columns[i] }, new byte[][] { values[i] });
+          break;
+        case 2:
+          buff.increment(rows[i], new byte[][] { Bytes.toBytes("count") }, amount);
+          break;
+        default:
+          blackhole.consume(buff.getRow(rows[i - 1]));
+      }
+    }
+    blackhole.consume(buff.drain());
+  }
+
+  /**
+   * Scans all buffered rows, and a range of one percent of the rows, of a buffer that is already filled.
+   */
+  @Benchmark
+  public void scan(Blackhole blackhole) {
+    consume(filled.rows(null, null), blackhole);
+    for (int i = 0; i < 100; i++) {
+      byte[] start = rows[i];
+      byte[] stop = Bytes.toBytes(Bytes.toString(start) + "~");
+      consume(filled.rows(start, stop), blackhole);
+    }
+  }
+
+  private void consume(Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> iterator, Blackhole blackhole) {
+    while (iterator.hasNext()) {
+      blackhole.consume(iterator.next());
+    }
+  }
+
+  private TableWriteBuffer createBuffer() {
+    return "compact".equals(buffer) ? new CompactWriteBuffer() : new NavigableMapWriteBuffer();
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(TableWriteBufferBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table.inmemory;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.DataSetException;
+import co.cask.cdap.api.dataset.DatasetAdmin;
+import co.cask.cdap.api.dataset.DatasetContext;
+import co.cask.cdap.api.dataset.DatasetProperties;
+import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.data2.dataset2.lib.table.TableReadCache;
+import org.apache.tephra.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link InMemoryTableTest} with the read cache enabled.
+ */
+public class InMemoryTableReadCacheTest extends InMemoryTableTest {
+
+  private static final CConfiguration cConf = CConfiguration.create();
+  private static final byte[] ROW = Bytes.toBytes("row");
+  private static final byte[] COL = Bytes.toBytes("col");
+
+  @Override
+  protected InMemoryTable getTable(DatasetContext datasetContext, String name,
+                                   DatasetProperties props, Map<String, String> runtimeArguments) throws Exception {
+    DatasetSpecification spec = DatasetSpecification.builder(name, "table")
+      .properties(props.getProperties())
+      .property(TableReadCache.PROPERTY_SIZE, "1000")
+      .build();
+    return new InMemoryTable(datasetContext, spec, cConf);
+  }
+
+  @Test
+  public void testStaleCachedReadsAreNotWritten() throws Exception {
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE);
+    admin.create();
+    try {
+      // a table without cache commits like a table in another process would
+      InMemoryTable uncached = new InMemoryTable(CONTEXT1, DatasetSpecification.builder(MY_TABLE, "table").build(),
+                                                 cConf);
+      InMemoryTable cached = getTable(CONTEXT1, MY_TABLE);
+
+      Transaction tx = txClient.startShort();
+      uncached.startTx(tx);
+      uncached.put(ROW, COL, Bytes.toBytes(1L));
+      uncached.commitTx();
+      txClient.commitOrThrow(tx);
+      uncached.postTxCommit();
+
+      // cache the row
+      tx = txClient.startShort();
+      cached.startTx(tx);
+      Assert.assertEquals(1L, (long) cached.get(ROW).getLong(COL));
+      cached.commitTx();
+      txClient.commitOrThrow(tx);
+      cached.postTxCommit();
+
+      tx = txClient.startShort();
+      uncached.startTx(tx);
+      uncached.put(ROW, COL, Bytes.toBytes(2L));
+      uncached.commitTx();
+      txClient.commitOrThrow(tx);
+      uncached.postTxCommit();
+
+      // the cached row may be read, but a change derived from it must not be persisted
+      tx = txClient.startShort();
+      cached.startTx(tx);
+      long value = cached.get(ROW).getLong(COL);
+      Assert.assertEquals(1L, value);
+      cached.put(ROW, COL, Bytes.toBytes(value + 1));
+      try {
+        cached.commitTx();
+        Assert.fail("Expected the stale cached read to fail the commit");
+      } catch (DataSetException e) {
+        // expected
+      }
+      cached.rollbackTx();
+      txClient.abort(tx);
+
+      // the stale row was removed from the cache
+      tx = txClient.startShort();
+      cached.startTx(tx);
+      Assert.assertEquals(2L, (long) cached.get(ROW).getLong(COL));
+      cached.put(ROW, COL, Bytes.toBytes(3L));
+      cached.commitTx();
+      txClient.commitOrThrow(tx);
+      cached.postTxCommit();
+    } finally {
+      admin.drop();
+    }
+  }
+
+  @Test
+  public void testStaleCachedReadsOfOtherTables() throws Exception {
+    String cachedName = "cachedTable";
+    String otherName = "otherTable";
+    long expiryMillis = 200L;
+    DatasetAdmin cachedAdmin = getTableAdmin(CONTEXT1, cachedName);
+    cachedAdmin.create();
+    DatasetAdmin otherAdmin = getTableAdmin(CONTEXT1, otherName);
+    otherAdmin.create();
+    try {
+      InMemoryTable uncached = new InMemoryTable(CONTEXT1, DatasetSpecification.builder(cachedName, "table").build(),
+                                                 cConf);
+      InMemoryTable cached = new InMemoryTable(CONTEXT1, DatasetSpecification.builder(cachedName, "table")
+        .property(TableReadCache.PROPERTY_SIZE, "1000")
+        .property(TableReadCache.PROPERTY_EXPIRY, Long.toString(expiryMillis))
+        .build(), cConf);
+      InMemoryTable other = new InMemoryTable(CONTEXT1, DatasetSpecification.builder(otherName, "table").build(),
+                                              cConf);
+
+      Transaction tx = txClient.startShort();
+      uncached.startTx(tx);
+      uncached.put(ROW, COL, Bytes.toBytes(1L));
+      uncached.commitTx();
+      txClient.commitOrThrow(tx);
+      uncached.postTxCommit();
+
+      // cache the row
+      tx = txClient.startShort();
+      cached.startTx(tx);
+      Assert.assertEquals(1L, (long) cached.get(ROW).getLong(COL));
+      cached.commitTx();
+      txClient.commitOrThrow(tx);
+      cached.postTxCommit();
+
+      tx = txClient.startShort();
+      uncached.startTx(tx);
+      uncached.put(ROW, COL, Bytes.toBytes(2L));
+      uncached.commitTx();
+      txClient.commitOrThrow(tx);
+      uncached.postTxCommit();
+
+      // only changes to the cached table are verified: a stale value can be copied into another table
+      tx = txClient.startShort();
+      cached.startTx(tx);
+      other.startTx(tx);
+      long value = cached.get(ROW).getLong(COL);
+      Assert.assertEquals(1L, value);
+      other.put(ROW, COL, Bytes.toBytes(value));
+      cached.commitTx();
+      other.commitTx();
+      txClient.commitOrThrow(tx);
+      cached.postTxCommit();
+      other.postTxCommit();
+
+      // but the staleness is bounded by the expiry of the cache
+      TimeUnit.MILLISECONDS.sleep(expiryMillis * 2);
+      tx = txClient.startShort();
+      cached.startTx(tx);
+      Assert.assertEquals(2L, (long) cached.get(ROW).getLong(COL));
+      cached.commitTx();
+      txClient.commitOrThrow(tx);
+      cached.postTxCommit();
+    } finally {
+      cachedAdmin.drop();
+      otherAdmin.drop();
+    }
+  }
+}
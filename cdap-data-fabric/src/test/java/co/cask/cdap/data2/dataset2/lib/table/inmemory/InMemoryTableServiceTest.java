@@ -17,14 +17,24 @@
 package co.cask.cdap.data2.dataset2.lib.table.inmemory;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.data2.dataset2.lib.table.IncrementValue;
 import co.cask.cdap.data2.dataset2.lib.table.PutValue;
 import co.cask.cdap.data2.dataset2.lib.table.Update;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import org.apache.tephra.Transaction;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.NavigableMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  *
@@ -97,6 +107,70 @@ public class InMemoryTableServiceTest {
     verify123();
   }
 
+  @Test
+  public void testConcurrentWrites() throws Exception {
+    final String tableName = "concurrentTable";
+    InMemoryTableService.create(tableName);
+    final byte[] counterRow = Bytes.toBytes("counter");
+    final byte[] column = Bytes.toBytes("c");
+    final int threads = 8;
+    final int iterations = 500;
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final CyclicBarrier barrier = new CyclicBarrier(threads);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        final int threadId = t;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            barrier.await();
+            for (int i = 0; i < iterations; i++) {
+              // non-transactional increments of the same row must not lose updates
+              InMemoryTableService.increment(tableName, counterRow, ImmutableMap.of(column, 1L));
+              // increments merged at the same version into a row shared by all threads
+              NavigableMap<byte[], NavigableMap<byte[], Update>> changes = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+              NavigableMap<byte[], Update> rowChanges = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+              rowChanges.put(column, new IncrementValue(1L));
+              changes.put(Bytes.toBytes("merged"), rowChanges);
+              // puts into a row per thread
+              NavigableMap<byte[], Update> ownRowChanges = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+              ownRowChanges.put(Bytes.toBytes(i), new PutValue(Bytes.toBytes(i)));
+              changes.put(Bytes.toBytes("row" + threadId), ownRowChanges);
+              InMemoryTableService.merge(tableName, changes, 1L);
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    long expected = threads * iterations;
+    NavigableMap<byte[], NavigableMap<Long, byte[]>> counter = InMemoryTableService.get(tableName, counterRow, null);
+    Assert.assertEquals(expected, Bytes.toLong(counter.get(column).firstEntry().getValue()));
+    Map<byte[], Long> result = InMemoryTableService.increment(tableName, counterRow, ImmutableMap.of(column, 0L));
+    Assert.assertEquals(expected, (long) result.get(column));
+
+    NavigableMap<byte[], NavigableMap<Long, byte[]>> merged =
+      InMemoryTableService.get(tableName, Bytes.toBytes("merged"), null);
+    Assert.assertEquals(expected, Bytes.toLong(merged.get(column).get(1L)));
+
+    NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> rows =
+      InMemoryTableService.getRowRange(tableName, Bytes.toBytes("row"), null, null);
+    Assert.assertEquals(threads, rows.size());
+    for (NavigableMap<byte[], NavigableMap<Long, byte[]>> row : rows.values()) {
+      Assert.assertEquals(iterations, row.size());
+    }
+
+    InMemoryTableService.drop(tableName);
+  }
+
   private void verify123() {
     NavigableMap<byte[], NavigableMap<Long, byte[]>> rowFromGet =
       InMemoryTableService.get("table", new byte[]{1}, new Transaction(1L, 2L, new long[0], new long[0], 1L));
@@ -19,8 +19,7 @@ package co.cask.cdap.data2.dataset2.lib.table.inmemory;
 import co.cask.cdap.api.dataset.DatasetAdmin;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetProperties;
-import co.cask.cdap.api.dataset.table.ConflictDetection;
-import co.cask.cdap.api.dataset.table.TableProperties;
+import co.cask.cdap.api.dataset.DatasetSpecification;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.data2.dataset2.lib.table.BufferingTableTest;
 
@@ -36,8 +35,8 @@ public class InMemoryTableTest extends BufferingTableTest<InMemoryTable> {
   @Override
   protected InMemoryTable getTable(DatasetContext datasetContext, String name,
                                    DatasetProperties props, Map<String, String> runtimeArguments) throws Exception {
-    ConflictDetection conflictLevel = TableProperties.getConflictDetection(props, ConflictDetection.ROW);
-    return new InMemoryTable(datasetContext, name, conflictLevel, cConf);
+    DatasetSpecification spec = DatasetSpecification.builder(name, "table").properties(props.getProperties()).build();
+    return new InMemoryTable(datasetContext, spec, cConf);
   }
 
   @Override
@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table.leveldb;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.utils.DirUtils;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of concurrent increments on a {@link LevelDBTableCore}, as done by the metrics and counter tables
+ * in standalone CDAP. All threads share the same table.
+ * <p>
+ * It is not run as part of the unit tests. The {@link #main(String[])} method runs it with 1, 2, 4 and 8 threads.
+ * To run it from the command line, for example:
+ * <pre>
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=co.cask.cdap.data2.dataset2.lib.table.leveldb.LevelDBIncrementBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LevelDBIncrementBenchmark {
+
+  // number of distinct rows incremented
+  private static final int ROWS = 1024;
+  private static final byte[] COLUMN = Bytes.toBytes("count");
+
+  private File dataDir;
+  private LevelDBTableService service;
+  private LevelDBTableCore table;
+  private byte[][] rows;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    dataDir = Files.createTempDir();
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_DATA_LEVELDB_DIR, dataDir.getAbsolutePath());
+    service = new LevelDBTableService();
+    service.setConfiguration(cConf);
+    service.ensureTableExists("increments");
+    table = new LevelDBTableCore("increments", service);
+    rows = new byte[ROWS][];
+    for (int i = 0; i < ROWS; i++) {
+      rows[i] = Bytes.toBytes("row" + i);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    service.close();
+    DirUtils.deleteDirectoryContents(dataDir);
+  }
+
+  /**
+   * State of each benchmark thread.
+   */
+  @State(Scope.Thread)
+  public static class ThreadState {
+    private final Random random = new Random();
+  }
+
+  /**
+   * Increments one column of a random row, like counters of different programs.
+   */
+  @Benchmark
+  public Map<byte[], Long> incrementRandomRow(ThreadState state) throws IOException {
+    return table.increment(rows[state.random.nextInt(ROWS)], ImmutableMap.of(COLUMN, 1L));
+  }
+
+  /**
+   * Increments the same column from all threads, the worst case for row locks.
+   */
+  @Benchmark
+  public Map<byte[], Long> incrementSameRow() throws IOException {
+    return table.increment(rows[0], ImmutableMap.of(COLUMN, 1L));
+  }
+
+  /**
+   * Increments ten random rows in one batch, like a metrics flush.
+   */
+  @Benchmark
+  public void incrementBatch(ThreadState state) throws IOException {
+    NavigableMap<byte[], NavigableMap<byte[], Long>> updates = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (int i = 0; i < 10; i++) {
+      NavigableMap<byte[], Long> columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      columns.put(COLUMN, 1L);
+      updates.put(rows[state.random.nextInt(ROWS)], columns);
+    }
+    table.increment(updates);
+  }
+
+  public static void main(String[] args) throws Exception {
+    for (int threads : new int[] { 1, 2, 4, 8 }) {
+      new Runner(new OptionsBuilder()
+                   .include(LevelDBIncrementBenchmark.class.getSimpleName())
+                   .threads(threads)
+                   .build()).run();
+    }
+  }
+}
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data2.dataset2.lib.table.leveldb;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
@@ -37,10 +38,21 @@ import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
 import co.cask.cdap.security.authorization.AuthorizationTestModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
+import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
  * metrics table test for levelDB.
  */
@@ -76,4 +88,58 @@ public class LevelDBMetricsTableTest extends MetricsTableTest {
     return DatasetsUtil.getOrCreateDataset(dsFramework, metricsDatasetInstanceId, MetricsTable.class.getName(),
                                            DatasetProperties.EMPTY, null);
   }
+
+  @Test
+  public void testConcurrentIncrementSeparateInstances() throws Exception {
+    String tableName = "testConcurrentIncrementSeparateInstances";
+    final int threads = 4;
+    final int rounds = 500;
+    final byte[][] rows = new byte[10][];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = Bytes.toBytes("row" + i);
+    }
+    final byte[] column = Bytes.toBytes("c");
+
+    // each thread uses its own table instance, and increments overlapping rows both in batches and one by one
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        final MetricsTable table = getTable(tableName);
+        final int offset = t;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            try {
+              for (int i = 0; i < rounds; i++) {
+                NavigableMap<byte[], NavigableMap<byte[], Long>> updates = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+                for (int r = 0; r < 3; r++) {
+                  NavigableMap<byte[], Long> columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+                  columns.put(column, 1L);
+                  updates.put(rows[(i + offset + r) % rows.length], columns);
+                }
+                table.increment(updates);
+                table.incrementAndGet(rows[(i + offset) % rows.length], column, 1L);
+              }
+            } finally {
+              table.close();
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    MetricsTable table = getTable(tableName);
+    long total = 0;
+    for (byte[] row : rows) {
+      total += table.incrementAndGet(row, column, 0L);
+    }
+    Assert.assertEquals(threads * rounds * 4L, total);
+  }
 }
@@ -29,8 +29,11 @@ import co.cask.cdap.data2.util.TableId;
 import co.cask.cdap.security.auth.context.AuthenticationContextModules;
 import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
 import co.cask.cdap.security.authorization.AuthorizationTestModule;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import org.iq80.leveldb.CompressionType;
+import org.iq80.leveldb.Options;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
@@ -38,7 +41,9 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Random;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -112,6 +117,131 @@ public class LevelDBTableServiceTest {
     Assert.assertEquals(table2Size, service.getTableStats().get(tableId2).getDiskSizeBytes());
   }
 
+  @Test
+  public void testRowBloomFilter() throws Exception {
+    String tableName = "cdap_default.bloomtable";
+    LevelDBTableOptions options = LevelDBTableOptions.fromProperties(
+      ImmutableMap.of(LevelDBTableOptions.PROPERTY_BLOOM_FILTER, "true",
+                      LevelDBTableOptions.PROPERTY_COMPRESSION, "none"));
+    service.ensureTableExists(tableName, options);
+    LevelDBTableCore table = new LevelDBTableCore(tableName, service, options);
+    byte[] column = Bytes.toBytes("c");
+
+    // more rows than the filter is initially sized for, in one batch, to force a rebuild
+    int rows = RowBloomFilter.MIN_EXPECTED_ROWS + 100;
+    Map<byte[], Map<byte[], byte[]>> changes = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (int i = 0; i < rows; i++) {
+      changes.put(Bytes.toBytes("row" + i), ImmutableMap.of(column, Bytes.toBytes(i)));
+    }
+    table.persist(changes, 1L);
+    table.put(Bytes.toBytes("single"), column, Bytes.toBytes(-1), 1L);
+    table.increment(Bytes.toBytes("counter"), ImmutableMap.of(column, 1L));
+    // the filter is rebuilt in the background
+    service.getRowFilter(tableName).awaitRebuild();
+
+    verifyRowBloomFilter(tableName, table, rows, column);
+
+    // reading a column that an existing row does not have is not a false positive of the filter
+    long falsePositives = service.getRowFilterStats().get(tableName).getFalsePositives();
+    Assert.assertTrue(table.getRow(Bytes.toBytes("single"), new byte[][] { Bytes.toBytes("other") },
+                                   null, null, -1, null).isEmpty());
+    Assert.assertEquals(falsePositives, service.getRowFilterStats().get(tableName).getFalsePositives());
+
+    // the filter is rebuilt from the table when it is opened again
+    service.clearTables();
+    Assert.assertNull(service.getRowFilterStats().get(tableName));
+    service.getTable(tableName, options);
+    LevelDBTableCore reopened = new LevelDBTableCore(tableName, service, options);
+    verifyRowBloomFilter(tableName, reopened, rows, column);
+
+    service.dropTable(tableName);
+    Assert.assertNull(service.getRowFilterStats().get(tableName));
+  }
+
+  @Test
+  public void testStoredTableOptions() throws Exception {
+    String tableName = "cdap_default.optionstable";
+    LevelDBTableOptions options = LevelDBTableOptions.fromProperties(
+      ImmutableMap.of(LevelDBTableOptions.PROPERTY_BLOOM_FILTER, "true",
+                      LevelDBTableOptions.PROPERTY_BLOOM_FILTER_FPP, "0.05",
+                      LevelDBTableOptions.PROPERTY_BLOCK_SIZE, "8192"));
+    Assert.assertEquals(options.toProperties(),
+                        LevelDBTableOptions.fromProperties(options.toProperties()).toProperties());
+    service.ensureTableExists(tableName, options);
+
+    // the table is opened with the options it was created with, regardless of the options of the caller
+    service.clearTables();
+    service.getTable(tableName);
+    Assert.assertNotNull(service.getRowFilterStats().get(tableName));
+
+    // creating an existing table keeps its options
+    service.clearTables();
+    service.ensureTableExists(tableName);
+    Assert.assertNotNull(service.getRowFilterStats().get(tableName));
+
+    // the options are dropped with the table
+    service.dropTable(tableName);
+    service.ensureTableExists(tableName);
+    Assert.assertNull(service.getRowFilterStats().get(tableName));
+    service.clearTables();
+    service.getTable(tableName, options);
+    Assert.assertNull(service.getRowFilterStats().get(tableName));
+    service.dropTable(tableName);
+  }
+
+  private void verifyRowBloomFilter(String tableName, LevelDBTableCore table,
+                                    int rows, byte[] column) throws IOException {
+    RowBloomFilter.Stats before = service.getRowFilterStats().get(tableName);
+    Assert.assertNotNull(before);
+    for (int i = 0; i < rows; i += 97) {
+      Assert.assertArrayEquals(Bytes.toBytes(i), table.getRow(Bytes.toBytes("row" + i), null, null, null, -1, null)
+        .get(column));
+    }
+    Assert.assertArrayEquals(Bytes.toBytes(-1),
+                             table.getRow(Bytes.toBytes("single"), null, null, null, -1, null).get(column));
+    Assert.assertArrayEquals(Bytes.toBytes(1L),
+                             table.getRow(Bytes.toBytes("counter"), null, null, null, -1, null).get(column));
+    int missing = 10000;
+    for (int i = 0; i < missing; i++) {
+      Assert.assertTrue(table.getRow(Bytes.toBytes("missing" + i), null, null, null, -1, null).isEmpty());
+    }
+    RowBloomFilter.Stats after = service.getRowFilterStats().get(tableName);
+    long lookups = after.getLookups() - before.getLookups();
+    long negatives = after.getNegatives() - before.getNegatives();
+    long falsePositives = after.getFalsePositives() - before.getFalsePositives();
+    Assert.assertEquals((rows + 96) / 97 + 2 + missing, lookups);
+    Assert.assertEquals(missing, negatives + falsePositives);
+    // the filter is sized for a false positive rate of 1%, allow for some variance
+    Assert.assertTrue("Too many false positives: " + falsePositives, falsePositives < missing / 20);
+  }
+
+  @Test
+  public void testTableOptions() {
+    LevelDBTableOptions options = LevelDBTableOptions.fromProperties(
+      ImmutableMap.of(LevelDBTableOptions.PROPERTY_COMPRESSION, "Snappy",
+                      LevelDBTableOptions.PROPERTY_BLOCK_SIZE, "8192",
+                      LevelDBTableOptions.PROPERTY_MAX_OPEN_FILES, "100",
+                      LevelDBTableOptions.PROPERTY_BLOOM_FILTER_FPP, "0.05"));
+    Assert.assertFalse(options.isBloomFilter());
+    Assert.assertEquals(0.05d, options.getBloomFilterFpp(), 0d);
+    Options applied = options.apply(new Options());
+    Assert.assertEquals(CompressionType.SNAPPY, applied.compressionType());
+    Assert.assertEquals(8192, applied.blockSize());
+    Assert.assertEquals(100, applied.maxOpenFiles());
+
+    for (Map.Entry<String, String> invalid : ImmutableMap.of(LevelDBTableOptions.PROPERTY_COMPRESSION, "zip",
+                                                             LevelDBTableOptions.PROPERTY_BLOCK_SIZE, "0",
+                                                             LevelDBTableOptions.PROPERTY_BLOOM_FILTER_FPP, "1")
+      .entrySet()) {
+      try {
+        LevelDBTableOptions.fromProperties(ImmutableMap.of(invalid.getKey(), invalid.getValue()));
+        Assert.fail("Expected IllegalArgumentException for " + invalid);
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
   private void writeSome(String tableName) throws IOException {
     LevelDBTableCore table = new LevelDBTableCore(tableName, service);
     Random r = new Random();
@@ -62,6 +62,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import javax.annotation.Nullable;
 
 /**
  * Test class for {@link MetadataDataset} class.
@@ -1223,6 +1225,146 @@ public class MetadataDatasetTest {
     });
   }
 
+  @Test
+  public void testUpdateMetadata() throws Exception {
+    txnl.execute(() -> {
+      dataset.setProperty(dataset1, "desc", "old words");
+      dataset.addTags(dataset1, "t1", "t2");
+    });
+    Map<MetadataEntity, Function<Metadata, Metadata>> updates = ImmutableMap.of(
+      dataset1, existing -> new Metadata(dataset1, ImmutableMap.of("desc", "new words", "owner", "someone"),
+                                         ImmutableSet.of("t2", "t3")),
+      app1, existing -> new Metadata(app1, ImmutableMap.of("key", "value"), Collections.emptySet()),
+      // no change
+      flow1, existing -> existing);
+    AtomicReference<Map<MetadataEntity, MetadataChange>> changes = new AtomicReference<>();
+    txnl.execute(() -> changes.set(dataset.updateMetadata(updates)));
+
+    Assert.assertEquals(new Metadata(dataset1, ImmutableMap.of("desc", "old words"), ImmutableSet.of("t1", "t2")),
+                        changes.get().get(dataset1).getExisting());
+    Assert.assertEquals(new Metadata(app1), changes.get().get(app1).getExisting());
+    Assert.assertEquals(new Metadata(flow1), changes.get().get(flow1).getLatest());
+    String namespaceId = dataset1.getValue(MetadataEntity.NAMESPACE);
+    String column = MetadataDataset.DEFAULT_INDEX_COLUMN.getColumn();
+    txnl.execute(() -> {
+      Assert.assertEquals(changes.get().get(dataset1).getLatest(), dataset.getMetadata(dataset1));
+      Assert.assertEquals(changes.get().get(app1).getLatest(), dataset.getMetadata(app1));
+      Assert.assertEquals(new Metadata(flow1), dataset.getMetadata(flow1));
+      assertNoIndexes(dataset, column, namespaceId, "old");
+      assertNoIndexes(dataset, column, namespaceId, "t1");
+      for (String value : ImmutableList.of("new", "words", "someone", "t2", "t3", "value")) {
+        assertSingleIndex(dataset, column, namespaceId, value);
+      }
+      // the index of the entity type is retained for existing entities, and added for new ones
+      assertSingleIndex(dataset, column, namespaceId, "dataset:ds1");
+      assertSingleIndex(dataset, column, namespaceId, "application:app1");
+      // one history snapshot per changed entity
+      Assert.assertEquals(ImmutableSet.of(changes.get().get(app1).getLatest()),
+                          dataset.getSnapshotBeforeTime(ImmutableSet.of(app1), System.currentTimeMillis()));
+    });
+  }
+
+  @Test
+  public void testRelevanceSearch() throws Exception {
+    MetadataDataset dataset =
+      getDataset(DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("testRelevanceSearch"), MetadataScope.USER);
+    TransactionExecutor txnl = dsFrameworkUtil.newInMemoryTransactionExecutor((TransactionAware) dataset);
+    txnl.execute(() -> {
+      dataset.setProperty(flow1, "desc", "sales daily");
+      dataset.setProperty(dataset1, "desc", "sales hourly");
+      dataset.setProperty(app1, "desc", "daily");
+      dataset.setProperty(stream1, "desc", "weekly");
+      // more distinct values than a prefix term is expanded to
+      for (int i = 0; i < 70; i++) {
+        dataset.setProperty(view1, "key" + i, "value" + i);
+      }
+    });
+    NamespaceId namespaceId = new NamespaceId("ns1");
+    txnl.execute(() -> {
+      // any term matches, and the entity that matches all terms is ranked first
+      SearchResults results = dataset.search(getRelevanceRequest(namespaceId, "sales daily", 10, 0, null));
+      Assert.assertEquals(ImmutableSet.of(flow1, dataset1, app1), results.getScores().keySet());
+      Assert.assertEquals(flow1, Iterables.getFirst(results.getScores().keySet(), null));
+      Assert.assertEquals(ImmutableSet.of(flow1, dataset1, app1), getEntities(results.getResults()));
+
+      // all required terms must match, other terms only contribute to the ranking
+      results = dataset.search(getRelevanceRequest(namespaceId, "+sales +daily", 10, 0, null));
+      Assert.assertEquals(ImmutableSet.of(flow1), results.getScores().keySet());
+      results = dataset.search(getRelevanceRequest(namespaceId, "+sales daily", 10, 0, null));
+      Assert.assertEquals(ImmutableSet.of(flow1, dataset1), results.getScores().keySet());
+      Assert.assertEquals(flow1, Iterables.getFirst(results.getScores().keySet(), null));
+      Assert.assertTrue(results.getScores().get(flow1) > results.getScores().get(dataset1));
+
+      // prefix terms
+      results = dataset.search(getRelevanceRequest(namespaceId, "sal*", 10, 0, null));
+      Assert.assertEquals(ImmutableSet.of(flow1, dataset1), results.getScores().keySet());
+      results = dataset.search(getRelevanceRequest(namespaceId, "value*", 10, 0, null));
+      Assert.assertEquals(ImmutableSet.of(view1), results.getScores().keySet());
+      Assert.assertEquals(70, results.getResults().size());
+
+      // page through all entities with cursors, every entity is returned exactly once. Like with a custom sort,
+      // the results also include the pages up to the last cursor.
+      Set<MetadataEntity> entities = new HashSet<>();
+      String cursor = null;
+      do {
+        results = dataset.search(getRelevanceRequest(namespaceId, "*", 2, 1, cursor));
+        Assert.assertTrue(results.getScores().size() <= 4);
+        for (MetadataEntity entity : Iterables.limit(results.getScores().keySet(), 2)) {
+          Assert.assertTrue(entities.add(entity));
+        }
+        cursor = results.getCursors().isEmpty() ? null : results.getCursors().get(0);
+      } while (cursor != null);
+      Assert.assertEquals(ImmutableSet.of(flow1, dataset1, app1, stream1, view1), entities);
+
+      // all matches are ranked, not only those of a page: page through them one at a time
+      List<MetadataEntity> ranked = new ArrayList<>();
+      List<Double> scores = new ArrayList<>();
+      cursor = null;
+      do {
+        results = dataset.search(getRelevanceRequest(namespaceId, "sales daily", 1, 1, cursor));
+        Assert.assertEquals(3, results.getTotal());
+        Map.Entry<MetadataEntity, Double> first = results.getScores().entrySet().iterator().next();
+        ranked.add(first.getKey());
+        scores.add(first.getValue());
+        cursor = results.getCursors().isEmpty() ? null : results.getCursors().get(0);
+      } while (cursor != null);
+      Assert.assertEquals(3, ranked.size());
+      Assert.assertEquals(ImmutableSet.of(flow1, dataset1, app1), new HashSet<>(ranked));
+      Assert.assertEquals(flow1, ranked.get(0));
+      for (int i = 1; i < scores.size(); i++) {
+        Assert.assertTrue(scores.get(i - 1) >= scores.get(i));
+      }
+
+      // the offset is applied starting at the cursor
+      results = dataset.search(getRelevanceRequest(namespaceId, "*", 2, 1, null));
+      SearchResults withOffset = dataset.search(
+        new SearchRequest(namespaceId, "*", EnumSet.allOf(EntityTypeSimpleName.class), SortInfo.RELEVANCE, 1, 1, 0,
+                          null, false, EnumSet.allOf(EntityScope.class)));
+      Assert.assertTrue(results.getScores().keySet().containsAll(withOffset.getScores().keySet()));
+
+      try {
+        dataset.search(getRelevanceRequest(namespaceId, "*", 2, 1, "not a cursor"));
+        Assert.fail("Expected a BadRequestException for an invalid cursor");
+      } catch (BadRequestException e) {
+        // expected
+      }
+    });
+  }
+
+  private SearchRequest getRelevanceRequest(NamespaceId namespaceId, String query, int limit, int numCursors,
+                                            @Nullable String cursor) {
+    return new SearchRequest(namespaceId, query, EnumSet.allOf(EntityTypeSimpleName.class), SortInfo.RELEVANCE,
+                             0, limit, numCursors, cursor, false, EnumSet.allOf(EntityScope.class));
+  }
+
+  private Set<MetadataEntity> getEntities(List<MetadataEntry> entries) {
+    Set<MetadataEntity> entities = new HashSet<>();
+    for (MetadataEntry entry : entries) {
+      entities.add(entry.getMetadataEntity());
+    }
+    return entities;
+  }
+
   private void assertSingleIndex(final MetadataDataset dataset, final String indexColumn, final String namespaceId,
                                  final String value) {
     final String searchQuery = namespaceId + MetadataConstants.KEYVALUE_SEPARATOR + value;
@@ -24,19 +24,26 @@ import co.cask.cdap.proto.ProgramType;
 import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.FlowletId;
 import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.NamespacedEntityId;
 import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.id.ProgramRunId;
 import co.cask.cdap.proto.id.StreamId;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
 import org.apache.tephra.TransactionAware;
 import org.apache.tephra.TransactionExecutor;
+import org.apache.tephra.TransactionSystemClient;
+import org.apache.tephra.inmemory.InMemoryTxSystemClient;
 import org.apache.twill.api.RunId;
 import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
 
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Tests storage and retrieval of Dataset accesses by Programs in {@link LineageDataset}.
@@ -177,6 +184,153 @@ public class LineageDatasetTest {
     });
   }
 
+  @Test
+  public void testFrontierRelations() throws Exception {
+    final LineageDataset lineageDataset = getLineageDataset("testFrontierRelations");
+    Assert.assertNotNull(lineageDataset);
+    TransactionExecutor txnl = dsFrameworkUtil.newInMemoryTransactionExecutor((TransactionAware) lineageDataset);
+
+    final RunId runId1 = RunIds.generate(10000);
+    final RunId runId2 = RunIds.generate(20000);
+
+    final DatasetId dataset1 = NamespaceId.DEFAULT.dataset("dataset1");
+    final DatasetId dataset2 = NamespaceId.DEFAULT.dataset("dataset2");
+    final StreamId stream1 = NamespaceId.DEFAULT.stream("stream1");
+
+    final ProgramId program1 = NamespaceId.DEFAULT.app("app1").worker("worker1");
+    final ProgramId program2 = NamespaceId.DEFAULT.app("app2").service("service2");
+
+    final ProgramRunId run1 = program1.run(runId1.getId());
+    final ProgramRunId run2 = program2.run(runId2.getId());
+
+    final long now = System.currentTimeMillis();
+    txnl.execute(() -> {
+      lineageDataset.addAccess(run1, stream1, AccessType.READ, now);
+      lineageDataset.addAccess(run1, dataset1, AccessType.WRITE, now);
+      lineageDataset.addAccess(run2, dataset1, AccessType.READ, now);
+      lineageDataset.addAccess(run2, dataset2, AccessType.WRITE, now);
+    });
+
+    txnl.execute(() -> {
+      // Relations of a frontier are grouped by the entity they were fetched for
+      SetMultimap<NamespacedEntityId, Relation> dataRelations =
+        lineageDataset.getRelations(ImmutableSet.of(stream1, dataset2), 0, 100000, x -> true);
+      Assert.assertEquals(ImmutableSet.of(new Relation(stream1, program1, AccessType.READ, runId1)),
+                          dataRelations.get(stream1));
+      Assert.assertEquals(ImmutableSet.of(new Relation(dataset2, program2, AccessType.WRITE, runId2)),
+                          dataRelations.get(dataset2));
+
+      SetMultimap<NamespacedEntityId, Relation> programRelations =
+        lineageDataset.getRelations(ImmutableSet.of(program1, program2), 0, 100000, x -> true);
+      Assert.assertEquals(ImmutableSet.of(new Relation(stream1, program1, AccessType.READ, runId1),
+                                          new Relation(dataset1, program1, AccessType.WRITE, runId1)),
+                          programRelations.get(program1));
+      Assert.assertEquals(ImmutableSet.of(new Relation(dataset1, program2, AccessType.READ, runId2),
+                                          new Relation(dataset2, program2, AccessType.WRITE, runId2)),
+                          programRelations.get(program2));
+
+      // Time range and filter apply to all entities of the frontier
+      Assert.assertEquals(ImmutableSet.of(new Relation(dataset1, program1, AccessType.WRITE, runId1)),
+                          ImmutableSet.copyOf(lineageDataset.getRelations(ImmutableSet.of(dataset1, dataset2),
+                                                                          0, 15000, x -> true).values()));
+      Assert.assertEquals(ImmutableSet.of(new Relation(dataset1, program2, AccessType.READ, runId2)),
+                          ImmutableSet.copyOf(lineageDataset.getRelations(
+                            ImmutableSet.of(dataset1, dataset2), 0, 100000,
+                            x -> x.getAccess() == AccessType.READ).values()));
+    });
+  }
+
+  @Test
+  public void testCachedRelations() throws Exception {
+    DatasetId lineageDatasetId = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("testCachedRelations");
+    final LineageDataset lineageDataset = getLineageDataset(lineageDatasetId.getEntityName());
+    TransactionExecutor txnl = dsFrameworkUtil.newInMemoryTransactionExecutor((TransactionAware) lineageDataset);
+    TransactionSystemClient txClient = new InMemoryTxSystemClient(dsFrameworkUtil.getTxManager());
+    LineageStoreReader reader = new DefaultLineageStoreReader(dsFrameworkUtil.getFramework(), txClient,
+                                                              lineageDatasetId);
+
+    final long now = System.currentTimeMillis();
+    final RunId oldRunId = RunIds.generate(10000);
+    final RunId newRunId = RunIds.generate(now);
+
+    final DatasetId dataset1 = NamespaceId.DEFAULT.dataset("dataset1");
+    final DatasetId dataset2 = NamespaceId.DEFAULT.dataset("dataset2");
+    final DatasetId dataset3 = NamespaceId.DEFAULT.dataset("dataset3");
+    final ProgramId program1 = NamespaceId.DEFAULT.app("app1").worker("worker1");
+    final ProgramRunId oldRun = program1.run(oldRunId.getId());
+    final ProgramRunId newRun = program1.run(newRunId.getId());
+
+    txnl.execute(() -> {
+      lineageDataset.addAccess(oldRun, dataset1, AccessType.READ, now);
+      lineageDataset.addAccess(newRun, dataset2, AccessType.WRITE, now);
+    });
+
+    Set<Relation> expected = ImmutableSet.of(new Relation(dataset1, program1, AccessType.READ, oldRunId),
+                                             new Relation(dataset2, program1, AccessType.WRITE, newRunId));
+    Assert.assertEquals(expected, reader.getRelations(ImmutableSet.of(program1), 0, now + 1000, x -> true));
+    // Cached relations are still subject to the time range and filter of the query
+    Assert.assertEquals(ImmutableSet.of(new Relation(dataset1, program1, AccessType.READ, oldRunId)),
+                        reader.getRelations(ImmutableSet.of(program1), 5000, 15000, x -> true));
+    Assert.assertEquals(ImmutableSet.of(new Relation(dataset2, program1, AccessType.WRITE, newRunId)),
+                        reader.getRelations(ImmutableSet.of(program1), 0, now + 1000,
+                                            x -> x.getAccess() == AccessType.WRITE));
+
+    txnl.execute(() -> {
+      lineageDataset.addAccess(oldRun, dataset3, AccessType.WRITE, now);
+      lineageDataset.addAccess(newRun, dataset3, AccessType.WRITE, now);
+    });
+
+    // Old runs are served from the cache, while recent runs are always read from the dataset
+    Assert.assertEquals(ImmutableSet.builder().addAll(expected)
+                          .add(new Relation(dataset3, program1, AccessType.WRITE, newRunId)).build(),
+                        reader.getRelations(ImmutableSet.of(program1), 0, now + 1000, x -> true));
+    // A reader without cached relations sees all accesses
+    LineageStoreReader newReader = new DefaultLineageStoreReader(dsFrameworkUtil.getFramework(), txClient,
+                                                                 lineageDatasetId);
+    Assert.assertEquals(ImmutableSet.builder().addAll(expected)
+                          .add(new Relation(dataset3, program1, AccessType.WRITE, oldRunId))
+                          .add(new Relation(dataset3, program1, AccessType.WRITE, newRunId)).build(),
+                        newReader.getRelations(ImmutableSet.of(program1), 0, now + 1000, x -> true));
+  }
+
+  @Test
+  public void testCachedRelationsRefresh() throws Exception {
+    DatasetId lineageDatasetId = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("testCachedRelationsRefresh");
+    final LineageDataset lineageDataset = getLineageDataset(lineageDatasetId.getEntityName());
+    TransactionExecutor txnl = dsFrameworkUtil.newInMemoryTransactionExecutor((TransactionAware) lineageDataset);
+    TransactionSystemClient txClient = new InMemoryTxSystemClient(dsFrameworkUtil.getTxManager());
+    final AtomicLong nanos = new AtomicLong();
+    LineageStoreReader reader = new DefaultLineageStoreReader(dsFrameworkUtil.getFramework(), txClient,
+                                                              lineageDatasetId, new Ticker() {
+      @Override
+      public long read() {
+        return nanos.get();
+      }
+    });
+
+    // A long running program that started two days ago
+    final long now = System.currentTimeMillis();
+    final RunId runId = RunIds.generate(now - TimeUnit.DAYS.toMillis(2));
+    final DatasetId dataset1 = NamespaceId.DEFAULT.dataset("dataset1");
+    final DatasetId dataset2 = NamespaceId.DEFAULT.dataset("dataset2");
+    final ProgramId program1 = NamespaceId.DEFAULT.app("app1").worker("worker1");
+    final ProgramRunId run = program1.run(runId.getId());
+
+    txnl.execute(() -> lineageDataset.addAccess(run, dataset1, AccessType.READ, now));
+    Set<Relation> expected = ImmutableSet.of(new Relation(dataset1, program1, AccessType.READ, runId));
+    Assert.assertEquals(expected, reader.getRelations(ImmutableSet.of(program1), 0, now, x -> true));
+
+    // The run accesses another dataset, which is not visible until the cached relations expire
+    txnl.execute(() -> lineageDataset.addAccess(run, dataset2, AccessType.WRITE, now));
+    nanos.addAndGet(TimeUnit.MINUTES.toNanos(DefaultLineageStoreReader.CACHE_EXPIRY_MINUTES - 1));
+    Assert.assertEquals(expected, reader.getRelations(ImmutableSet.of(program1), 0, now, x -> true));
+
+    nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+    Assert.assertEquals(ImmutableSet.builder().addAll(expected)
+                          .add(new Relation(dataset2, program1, AccessType.WRITE, runId)).build(),
+                        reader.getRelations(ImmutableSet.of(program1), 0, now, x -> true));
+  }
+
   private static LineageDataset getLineageDataset(String instanceId) throws Exception {
     DatasetId id = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset(instanceId);
     return DatasetsUtil.getOrCreateDataset(dsFrameworkUtil.getFramework(), id,
@@ -588,6 +588,55 @@ public class FieldLineageInfoTest {
     Assert.assertEquals(expectedOperations, outgoingOperations);
   }
 
+  @Test(timeout = 30000)
+  public void testLargePipeline() {
+    // read: file -> (offset, body)
+    // split_i: (body) -> (left, right)
+    // merge_i: (split_i.left, split_i.right) -> body
+    // ...
+    // write: (read.offset, merge_n.body) -> another_file
+    // Every merge joins two paths, so the number of paths from the write back to the read doubles with each stage
+    int stages = 200;
+    List<Operation> operations = new ArrayList<>();
+    ReadOperation read = new ReadOperation("read", "some read", EndPoint.of("endpoint1"), "offset", "body");
+    operations.add(read);
+    String previous = "read";
+    for (int i = 0; i < stages; i++) {
+      operations.add(new TransformOperation("split_" + i, "splitting body",
+                                            Collections.singletonList(InputField.of(previous, "body")),
+                                            "left", "right"));
+      operations.add(new TransformOperation("merge_" + i, "merging body",
+                                            Arrays.asList(InputField.of("split_" + i, "left"),
+                                                          InputField.of("split_" + i, "right")), "body"));
+      previous = "merge_" + i;
+    }
+    EndPoint destination = EndPoint.of("myns", "another_file");
+    WriteOperation write = new WriteOperation("write", "writing data to file", destination,
+                                              Arrays.asList(InputField.of("read", "offset"),
+                                                            InputField.of(previous, "body")));
+    operations.add(write);
+
+    FieldLineageInfo info = new FieldLineageInfo(operations);
+
+    EndPoint source = EndPoint.of("endpoint1");
+    Map<EndPointField, Set<EndPointField>> incomingSummary = info.getIncomingSummary();
+    Assert.assertEquals(Collections.singleton(new EndPointField(source, "offset")),
+                        incomingSummary.get(new EndPointField(destination, "offset")));
+    Assert.assertEquals(Collections.singleton(new EndPointField(source, "body")),
+                        incomingSummary.get(new EndPointField(destination, "body")));
+    Assert.assertEquals(Collections.singleton(new EndPointField(destination, "body")),
+                        info.getOutgoingSummary().get(new EndPointField(source, "body")));
+
+    Set<Operation> allOperations = new HashSet<>(operations);
+    Assert.assertEquals(allOperations, info.getIncomingOperationsForField(new EndPointField(destination, "body")));
+    Assert.assertEquals(allOperations, info.getOutgoingOperationsForField(new EndPointField(source, "body")));
+    // traversals are memoized, so repeated calls return the same result
+    Assert.assertSame(info.getIncomingOperationsForField(new EndPointField(destination, "body")),
+                      info.getIncomingOperationsForField(new EndPointField(destination, "body")));
+    Assert.assertEquals(new HashSet<>(Arrays.asList(read, write)),
+                        info.getOutgoingOperationsForField(new EndPointField(source, "offset")));
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testCycle() {
     EndPoint readEndPoint = EndPoint.of("ns", "file1");
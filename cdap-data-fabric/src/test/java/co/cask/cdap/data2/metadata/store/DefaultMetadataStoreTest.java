@@ -24,6 +24,7 @@ import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.guice.ConfigModule;
 import co.cask.cdap.common.guice.LocationRuntimeModule;
+import co.cask.cdap.common.metadata.MetadataRecordV2;
 import co.cask.cdap.common.namespace.guice.NamespaceClientRuntimeModule;
 import co.cask.cdap.data.runtime.DataSetsModules;
 import co.cask.cdap.data.runtime.SystemDatasetRuntimeModule;
@@ -31,6 +32,7 @@ import co.cask.cdap.data2.audit.AuditModule;
 import co.cask.cdap.data2.audit.InMemoryAuditPublisher;
 import co.cask.cdap.data2.metadata.dataset.SearchRequest;
 import co.cask.cdap.data2.metadata.dataset.SortInfo;
+import co.cask.cdap.data2.metadata.writer.MetadataOperation;
 import co.cask.cdap.proto.EntityScope;
 import co.cask.cdap.proto.ProgramType;
 import co.cask.cdap.proto.audit.AuditMessage;
@@ -67,6 +69,7 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -566,6 +569,98 @@ public class DefaultMetadataStoreTest {
     );
   }
 
+  @Test
+  public void testApplyOperations() throws BadRequestException {
+    NamespaceId nsId = new NamespaceId("batch");
+    MetadataEntity dataset = nsId.dataset("dataset").toMetadataEntity();
+    MetadataEntity app = nsId.app("app").toMetadataEntity();
+    MetadataEntity flow = nsId.app("app").flow("flow").toMetadataEntity();
+    store.setProperties(MetadataScope.USER, dataset, ImmutableMap.of("a", "alpha", "b", "beta"));
+    store.addTags(MetadataScope.USER, dataset, ImmutableSet.of("red"));
+    auditPublisher.popMessages();
+
+    store.applyOperations(MetadataScope.USER, ImmutableList.of(
+      new MetadataOperation(dataset, MetadataOperation.Type.PUT,
+                            new Metadata(ImmutableMap.of("a", "alpha", "c", "gamma"), ImmutableSet.of("blue"))),
+      new MetadataOperation(dataset, MetadataOperation.Type.DELETE,
+                            new Metadata(ImmutableMap.of("b", ""), ImmutableSet.of("red"))),
+      new MetadataOperation(app, MetadataOperation.Type.PUT,
+                            new Metadata(ImmutableMap.of("k", "kappa"), Collections.emptySet())),
+      new MetadataOperation(app, MetadataOperation.Type.DELETE_ALL_TAGS, null),
+      // operations without a net change
+      new MetadataOperation(flow, MetadataOperation.Type.PUT,
+                            new Metadata(ImmutableMap.of("x", "xi"), ImmutableSet.of("green"))),
+      new MetadataOperation(flow, MetadataOperation.Type.DELETE_ALL, null)));
+
+    Assert.assertEquals(new MetadataRecordV2(dataset, MetadataScope.USER, ImmutableMap.of("a", "alpha", "c", "gamma"),
+                                             ImmutableSet.of("blue")),
+                        store.getMetadata(MetadataScope.USER, dataset));
+    Assert.assertEquals(new MetadataRecordV2(app, MetadataScope.USER, ImmutableMap.of("k", "kappa"),
+                                             Collections.emptySet()),
+                        store.getMetadata(MetadataScope.USER, app));
+    Assert.assertEquals(new MetadataRecordV2(flow, MetadataScope.USER), store.getMetadata(MetadataScope.USER, flow));
+
+    // the indexes of removed values are deleted, and the ones of new values are added
+    Assert.assertEquals(ImmutableSet.of(dataset), getEntities(search(nsId.getNamespace(), "alpha gamma blue")));
+    Assert.assertTrue(search(nsId.getNamespace(), "beta red xi green").getResults().isEmpty());
+    Assert.assertEquals(ImmutableSet.of(app), getEntities(search(nsId.getNamespace(), "kappa")));
+
+    // one audit message per changed entity
+    Map<MetadataEntity, MetadataPayload> payloads = new HashMap<>();
+    for (AuditMessage auditMessage : auditPublisher.popMessages()) {
+      Assert.assertNull(payloads.put(auditMessage.getEntity(), (MetadataPayload) auditMessage.getPayload()));
+    }
+    Assert.assertEquals(ImmutableSet.of(dataset, app), payloads.keySet());
+    Assert.assertEquals(new Metadata(ImmutableMap.of("c", "gamma"), ImmutableSet.of("blue")),
+                        payloads.get(dataset).getAdditions().get(MetadataScope.USER));
+    Assert.assertEquals(new Metadata(ImmutableMap.of("b", "beta"), ImmutableSet.of("red")),
+                        payloads.get(dataset).getDeletions().get(MetadataScope.USER));
+  }
+
+  private Set<MetadataEntity> getEntities(MetadataSearchResponseV2 response) {
+    Set<MetadataEntity> entities = new HashSet<>();
+    for (MetadataSearchResultRecordV2 result : response.getResults()) {
+      entities.add(result.getMetadataEntity());
+    }
+    return entities;
+  }
+
+  @Test
+  public void testRelevanceSearchPagination() {
+    NamespaceId nsId = new NamespaceId("relevance");
+    MetadataEntity flow = nsId.app("app").flow("flow").toMetadataEntity();
+    MetadataEntity stream = nsId.stream("stream").toMetadataEntity();
+    MetadataEntity dataset = nsId.dataset("dataset").toMetadataEntity();
+    store.addTags(MetadataScope.USER, flow, ImmutableSet.of("blue"));
+    store.addTags(MetadataScope.SYSTEM, stream, ImmutableSet.of("blue"));
+    store.addTags(MetadataScope.USER, dataset, ImmutableSet.of("blue"));
+    store.addTags(MetadataScope.SYSTEM, dataset, ImmutableSet.of("blue"));
+
+    // the scores of an entity found in both scopes are combined
+    MetadataSearchResponseV2 response = search(nsId.getNamespace(), "blue", 0, 10, 0, false, SortInfo.RELEVANCE);
+    Assert.assertEquals(3, response.getTotal());
+    Assert.assertEquals(dataset, response.getResults().iterator().next().getMetadataEntity());
+
+    // page through the results of both scopes with cursors
+    Set<MetadataEntity> entities = new HashSet<>();
+    String cursor = null;
+    do {
+      SearchRequest request =
+        new SearchRequest(nsId, "blue", EnumSet.allOf(EntityTypeSimpleName.class), SortInfo.RELEVANCE, 0, 1, 1,
+                          cursor, false, EnumSet.allOf(EntityScope.class));
+      response = store.search(request);
+      Assert.assertEquals(1, response.getResults().size());
+      Assert.assertEquals(3, response.getTotal());
+      if (cursor == null) {
+        // the best match across both scopes is on the first page
+        Assert.assertEquals(dataset, response.getResults().iterator().next().getMetadataEntity());
+      }
+      Assert.assertTrue(entities.add(response.getResults().iterator().next().getMetadataEntity()));
+      cursor = response.getCursors().isEmpty() ? null : response.getCursors().get(0);
+    } while (cursor != null);
+    Assert.assertEquals(ImmutableSet.of(flow, stream, dataset), entities);
+  }
+
   @AfterClass
   public static void teardown() {
     txManager.stopAndWait();
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.internal.dataset;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.DataSetException;
+import co.cask.cdap.api.dataset.table.Aggregation;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Tests for {@link TableAggregator}.
+ */
+public class TableAggregatorTest {
+
+  private static final byte[] C1 = Bytes.toBytes("c1");
+  private static final byte[] C2 = Bytes.toBytes("c2");
+  private static final List<Aggregation> AGGREGATIONS = ImmutableList.of(
+    Aggregation.count(), Aggregation.count(C2), Aggregation.sum(C1), Aggregation.min(C1), Aggregation.max(C1));
+
+  @Test
+  public void testSpecification() throws Exception {
+    TableAggregator aggregator = new TableAggregator(3, AGGREGATIONS);
+    TableAggregator copy = TableAggregator.fromSpecification(aggregator.getSpecification());
+    Assert.assertEquals(AGGREGATIONS, copy.getAggregations());
+    Assert.assertArrayEquals(aggregator.getSpecification(), copy.getSpecification());
+  }
+
+  @Test
+  public void testMergePartial() throws Exception {
+    // aggregate the same rows in one aggregator, and split between two aggregators that are merged
+    TableAggregator all = new TableAggregator(1, AGGREGATIONS);
+    TableAggregator first = new TableAggregator(1, AGGREGATIONS);
+    TableAggregator second = new TableAggregator(1, AGGREGATIONS);
+    for (int i = 0; i < 10; i++) {
+      byte[] row = Bytes.toBytes((i % 3 == 0 ? "a" : "b") + i);
+      Map<byte[], byte[]> values = columns(C1, Bytes.toBytes((long) i - 5));
+      if (i % 2 == 0) {
+        values.put(C2, Bytes.toBytes("x"));
+      }
+      all.add(row, values);
+      (i < 5 ? first : second).add(row, values);
+    }
+    // a row with only the counted column
+    all.add(Bytes.toBytes("c"), columns(C2, Bytes.toBytes("y")));
+    second.add(Bytes.toBytes("c"), columns(C2, Bytes.toBytes("y")));
+
+    TableAggregator merged = new TableAggregator(1, AGGREGATIONS);
+    merged.mergePartial(first.drainPartial());
+    merged.mergePartial(second.drainPartial());
+    Assert.assertTrue(first.isEmpty());
+    Assert.assertTrue(second.isEmpty());
+
+    NavigableMap<byte[], List<Long>> expected = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    expected.put(Bytes.toBytes("a"), Arrays.asList(4L, 2L, -2L, -5L, 4L));
+    expected.put(Bytes.toBytes("b"), Arrays.asList(6L, 3L, -3L, -4L, 3L));
+    expected.put(Bytes.toBytes("c"), Arrays.asList(1L, 1L, 0L, null, null));
+    Assert.assertEquals(expected, all.getResults());
+    Assert.assertEquals(expected, merged.getResults());
+  }
+
+  @Test
+  public void testEmpty() {
+    TableAggregator aggregator = new TableAggregator(0, AGGREGATIONS);
+    aggregator.add(Bytes.toBytes("r"), ImmutableSortedMap.<byte[], byte[]>orderedBy(Bytes.BYTES_COMPARATOR).build());
+    Assert.assertTrue(aggregator.isEmpty());
+    Assert.assertEquals(Arrays.asList(0L, 0L, 0L, null, null), aggregator.getResult());
+  }
+
+  @Test(expected = DataSetException.class)
+  public void testNotLong() {
+    new TableAggregator(0, AGGREGATIONS).add(Bytes.toBytes("r"), columns(C1, Bytes.toBytes(1)));
+  }
+
+  private static Map<byte[], byte[]> columns(byte[] column, byte[] value) {
+    Map<byte[], byte[]> columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    columns.put(column, value);
+    return columns;
+  }
+}
@@ -56,6 +56,7 @@ import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -199,6 +200,21 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
     return Futures.transform(futureResults, Functions.<Void>constant(null));
   }
 
+  @Override
+  public ListenableFuture<Void> addPartitions(final DatasetId datasetInstance,
+                                              final DatasetSpecification spec,
+                                              final Map<PartitionKey, String> partitions) {
+    ListenableFuture<ExploreExecutionResult> futureResults = getResultsFuture(new HandleProducer() {
+      @Override
+      public QueryHandle getHandle() throws ExploreException, SQLException {
+        return doAddPartitions(datasetInstance, spec, partitions);
+      }
+    });
+
+    // Exceptions will be thrown in case of an error in the futureHandle
+    return Futures.transform(futureResults, Functions.<Void>constant(null));
+  }
+
   @Override
   public ListenableFuture<Void> dropPartition(final DatasetId datasetInstance,
                                               final DatasetSpecification spec,
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.explore.client;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents the body of an HTTP request to add multiple partitions to a dataset in Explore.
+ */
+public class AddPartitionsParameters {
+
+  private final Map<String, String> properties;
+  private final List<Map<String, String>> partitions;
+
+  /**
+   * @param properties the dataset properties relevant to the operation, such as the Explore table name
+   * @param partitions for each partition, the output partition key arguments and the path of the partition
+   */
+  public AddPartitionsParameters(Map<String, String> properties, List<Map<String, String>> partitions) {
+    this.properties = properties;
+    this.partitions = partitions;
+  }
+
+  public Map<String, String> getProperties() {
+    return properties;
+  }
+
+  public List<Map<String, String>> getPartitions() {
+    return partitions;
+  }
+}
@@ -31,6 +31,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.Closeable;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
@@ -137,6 +138,18 @@ public interface ExploreClient extends Closeable {
   ListenableFuture<Void> addPartition(DatasetId datasetInstance,
                                       DatasetSpecification spec, PartitionKey key, String path);
 
+  /**
+   * Add multiple partitions to a dataset's table in a single operation.
+   *
+   * @param datasetInstance instance of the dataset
+   * @param spec the dataset specification
+   * @param partitions map from partition key to the file system path of the partition
+   * @return a {@code Future} object that can either successfully complete, or enters a failed state, depending on
+   *         the success of the operation
+   */
+  ListenableFuture<Void> addPartitions(DatasetId datasetInstance,
+                                       DatasetSpecification spec, Map<PartitionKey, String> partitions);
+
   /**
    * Drop a partition from a dataset's table.
    *
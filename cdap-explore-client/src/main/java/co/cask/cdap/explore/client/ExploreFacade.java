@@ -35,6 +35,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.SQLException;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -59,6 +60,13 @@ public class ExploreFacade {
     this.httpTimeout = cConf.getInt(Constants.Explore.HTTP_TIMEOUT);
   }
 
+  /**
+   * Returns whether Explore is enabled. If not, all calls of this facade are no-ops.
+   */
+  public boolean isExploreEnabled() {
+    return exploreEnabled;
+  }
+
   /**
    * Enables ad-hoc exploration of the given stream.
    *
@@ -181,6 +189,16 @@ public class ExploreFacade {
     handleExploreFuture(futureSuccess, "add", "partition", datasetInstance.getDataset());
   }
 
+  public void addPartitions(DatasetId datasetInstance, DatasetSpecification spec,
+                            Map<PartitionKey, String> locations) throws ExploreException, SQLException {
+    if (!exploreEnabled || locations.isEmpty()) {
+      return;
+    }
+
+    ListenableFuture<Void> futureSuccess = exploreClient.addPartitions(datasetInstance, spec, locations);
+    handleExploreFuture(futureSuccess, "add", "partitions", datasetInstance.getDataset());
+  }
+
   public void dropPartition(DatasetId datasetInstance, DatasetSpecification spec,
                             PartitionKey key) throws ExploreException, SQLException {
     if (!exploreEnabled) {
@@ -69,6 +69,7 @@ import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.URL;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -162,6 +163,34 @@ abstract class ExploreHttpClient implements Explore {
                                 Collections.singletonMap("path", path));
   }
 
+  protected QueryHandle doAddPartitions(DatasetId datasetId, DatasetSpecification spec,
+                                        Map<PartitionKey, String> partitions) throws ExploreException {
+    Map<String, String> properties = new HashMap<>();
+    String tableName = ExploreProperties.getExploreTableName(spec.getProperties());
+    String databaseName = ExploreProperties.getExploreDatabaseName(spec.getProperties());
+    if (tableName != null) {
+      properties.put(ExploreProperties.PROPERTY_EXPLORE_TABLE_NAME, tableName);
+    }
+    if (databaseName != null) {
+      properties.put(ExploreProperties.PROPERTY_EXPLORE_DATABASE_NAME, databaseName);
+    }
+    List<Map<String, String>> partitionArgs = new ArrayList<>(partitions.size());
+    for (Map.Entry<PartitionKey, String> entry : partitions.entrySet()) {
+      Map<String, String> args = new HashMap<>();
+      PartitionedFileSetArguments.setOutputPartitionKey(args, entry.getKey());
+      args.put("path", entry.getValue());
+      partitionArgs.add(args);
+    }
+    HttpResponse response = doPost(String.format("namespaces/%s/data/explore/datasets/%s/addPartitions",
+                                                 datasetId.getNamespace(), datasetId.getEntityName()),
+                                   GSON.toJson(new AddPartitionsParameters(properties, partitionArgs)), null);
+    if (response.getResponseCode() == HttpURLConnection.HTTP_OK) {
+      return QueryHandle.fromId(parseResponseAsMap(response, "handle"));
+    }
+    throw new ExploreException(String.format("Cannot add %d partitions in dataset %s. Reason: %s",
+                                             partitions.size(), datasetId.toString(), response));
+  }
+
   protected QueryHandle doDropPartition(DatasetId datasetInstance, DatasetSpecification spec, PartitionKey key)
     throws ExploreException {
     return doPartitionOperation(datasetInstance, spec, key, "deletePartition", "drop");
@@ -110,6 +110,12 @@ public class MockExploreClient extends AbstractIdleService implements ExploreCli
     return null;
   }
 
+  @Override
+  public ListenableFuture<Void> addPartitions(DatasetId datasetInstance, DatasetSpecification spec,
+                                              Map<PartitionKey, String> partitions) {
+    return null;
+  }
+
   @Override
   public ListenableFuture<Void> dropPartition(DatasetId datasetInstance, DatasetSpecification spec, PartitionKey key) {
     return null;
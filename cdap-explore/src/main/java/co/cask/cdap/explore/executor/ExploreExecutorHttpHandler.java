@@ -34,6 +34,7 @@ import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
 import co.cask.cdap.data.dataset.SystemDatasetInstantiatorFactory;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.data2.transaction.stream.StreamAdmin;
+import co.cask.cdap.explore.client.AddPartitionsParameters;
 import co.cask.cdap.explore.client.DisableExploreParameters;
 import co.cask.cdap.explore.client.EnableExploreParameters;
 import co.cask.cdap.explore.client.UpdateExploreParameters;
@@ -70,6 +71,8 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import javax.annotation.Nullable;
@@ -381,6 +384,81 @@ public class ExploreExecutorHttpHandler extends AbstractHttpHandler {
     });
   }
 
+  @POST
+  @Path("datasets/{dataset}/addPartitions")
+  public void addPartitions(final FullHttpRequest request, final HttpResponder responder,
+                            @PathParam("namespace-id") String namespace,
+                            @PathParam("dataset") String datasetName,
+                            @HeaderParam(Constants.Security.Headers.PROGRAM_ID) String programId) throws Exception {
+    final DatasetId datasetId = new DatasetId(namespace, datasetName);
+    propagateUserId(request);
+    impersonator.doAs(getEntityToImpersonate(datasetId, programId), new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        doAddPartitions(request, responder, datasetId);
+        return null;
+      }
+    });
+  }
+
+  private void doAddPartitions(FullHttpRequest request, HttpResponder responder, DatasetId datasetId) {
+    try (SystemDatasetInstantiator datasetInstantiator = datasetInstantiatorFactory.create()) {
+      Dataset dataset;
+      try {
+        dataset = datasetInstantiator.getDataset(datasetId);
+      } catch (Exception e) {
+        LOG.error("Exception instantiating dataset {}.", datasetId, e);
+        responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR, "Exception instantiating dataset " + datasetId);
+        return;
+      }
+      try {
+        if (!(dataset instanceof PartitionedFileSet)) {
+          responder.sendString(HttpResponseStatus.BAD_REQUEST, "not a partitioned dataset.");
+          return;
+        }
+        Partitioning partitioning = ((PartitionedFileSet) dataset).getPartitioning();
+
+        Reader reader = new InputStreamReader(new ByteBufInputStream(request.content()));
+        AddPartitionsParameters params = GSON.fromJson(reader, AddPartitionsParameters.class);
+        if (params == null || params.getPartitions() == null || params.getPartitions().isEmpty()) {
+          responder.sendString(HttpResponseStatus.BAD_REQUEST, "no partitions were given.");
+          return;
+        }
+        Map<String, String> properties = params.getProperties() == null
+          ? Collections.<String, String>emptyMap() : params.getProperties();
+        Map<PartitionKey, String> partitions = new LinkedHashMap<>();
+        for (Map<String, String> partitionArgs : params.getPartitions()) {
+          PartitionKey partitionKey;
+          try {
+            partitionKey = PartitionedFileSetArguments.getOutputPartitionKey(partitionArgs, partitioning);
+          } catch (Exception e) {
+            responder.sendString(HttpResponseStatus.BAD_REQUEST, "invalid partition key: " + e.getMessage());
+            return;
+          }
+          if (partitionKey == null) {
+            responder.sendString(HttpResponseStatus.BAD_REQUEST, "no partition key was given.");
+            return;
+          }
+          String fsPath = partitionArgs.get("path");
+          if (fsPath == null) {
+            responder.sendString(HttpResponseStatus.BAD_REQUEST, "path was not specified for " + partitionKey);
+            return;
+          }
+          partitions.put(partitionKey, fsPath);
+        }
+        QueryHandle handle = exploreTableManager.addPartitions(datasetId, properties, partitions);
+        JsonObject json = new JsonObject();
+        json.addProperty("handle", handle.getHandle());
+        responder.sendJson(HttpResponseStatus.OK, json.toString());
+      } finally {
+        Closeables.closeQuietly(dataset);
+      }
+    } catch (Throwable e) {
+      LOG.error("Got exception:", e);
+      responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+    }
+  }
+
   abstract static class PartitionOperation {
     // returns null if no operation was submitted, such as if the properties are not sufficient
     @Nullable
@@ -356,6 +356,32 @@ public class ExploreTableManager {
     return exploreService.execute(datasetId.getParent(), addPartitionStatement);
   }
 
+  /**
+   * Adds multiple partitions to the Hive table for the given dataset. The partitions are added with statements of
+   * at most {@link AlterPartitionStatementBuilder#MAX_PARTITIONS_PER_STATEMENT} partitions each, which are executed
+   * in sequence.
+   *
+   * @param datasetId the ID of the dataset to add the partitions to
+   * @param properties additional dataset properties relevant to this operation
+   * @param partitions map from partition key to the path of the partition
+   * @return the query handle for adding the partitions to the dataset
+   * @throws ExploreException if there was an exception adding the partitions
+   * @throws SQLException if there was a problem with the add partitions statement
+   */
+  public QueryHandle addPartitions(DatasetId datasetId, Map<String, String> properties,
+                                   Map<PartitionKey, String> partitions) throws ExploreException, SQLException {
+    List<String> addPartitionsStatements =
+      new AlterPartitionStatementBuilder(ExploreProperties.getExploreDatabaseName(properties),
+                                         tableNaming.getTableName(datasetId, properties), shouldEscapeColumns)
+        .buildAddStatements(partitions);
+
+    LOG.debug("Add {} partitions for dataset {} with {} statements",
+              partitions.size(), datasetId, addPartitionsStatements.size());
+
+    return exploreService.execute(datasetId.getParent(),
+                                  addPartitionsStatements.toArray(new String[addPartitionsStatements.size()]));
+  }
+
   /**
    * Drop a partition from the Hive table for the given dataset.
    *
@@ -17,7 +17,10 @@
 package co.cask.cdap.explore.table;
 
 import co.cask.cdap.api.dataset.lib.PartitionKey;
+import com.google.common.annotations.VisibleForTesting;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 
@@ -26,19 +29,32 @@ import javax.annotation.Nullable;
  */
 public class AlterPartitionStatementBuilder {
 
+  // maximum number of partitions added by one statement, to bound the size of the statement
+  public static final int MAX_PARTITIONS_PER_STATEMENT = 200;
+
   private final String databaseName;
   private final String tableName;
+  @Nullable
   private final PartitionKey partitionKey;
   private final boolean shouldEscapeColumns;
 
   public AlterPartitionStatementBuilder(@Nullable String databaseName, String tableName,
-                                        PartitionKey partitionKey, boolean shouldEscapeColumns) {
+                                        @Nullable PartitionKey partitionKey, boolean shouldEscapeColumns) {
     this.databaseName = databaseName;
     this.tableName = tableName;
     this.partitionKey = partitionKey;
     this.shouldEscapeColumns = shouldEscapeColumns;
   }
 
+  /**
+   * Creates a builder for statements that operate on multiple partitions, such as
+   * {@link #buildAddStatements(Map)}.
+   */
+  public AlterPartitionStatementBuilder(@Nullable String databaseName, String tableName,
+                                        boolean shouldEscapeColumns) {
+    this(databaseName, tableName, null, shouldEscapeColumns);
+  }
+
   /**
    * Builds ADD PARTITION statement. For example:
    *   ALTER TABLE dataset_tpfs ADD PARTITION (year=2012) LOCATION '<uri>'
@@ -53,6 +69,44 @@ public class AlterPartitionStatementBuilder {
       .toString();
   }
 
+  /**
+   * Builds ADD PARTITION statements for multiple partitions, with at most {@link #MAX_PARTITIONS_PER_STATEMENT}
+   * partitions each, so that the size of a statement stays bounded. For example:
+   *   ALTER TABLE dataset_tpfs ADD PARTITION (year=2012) LOCATION '<uri1>' PARTITION (year=2013) LOCATION '<uri2>'
+   *
+   * @param partitions map from partition key to the location of the partition
+   */
+  public List<String> buildAddStatements(Map<PartitionKey, String> partitions) {
+    return buildAddStatements(partitions, MAX_PARTITIONS_PER_STATEMENT);
+  }
+
+  @VisibleForTesting
+  List<String> buildAddStatements(Map<PartitionKey, String> partitions, int maxPartitionsPerStatement) {
+    List<String> statements = new ArrayList<>();
+    StringBuilder str = null;
+    int count = 0;
+    for (Map.Entry<PartitionKey, String> entry : partitions.entrySet()) {
+      if (count == maxPartitionsPerStatement) {
+        statements.add(str.toString());
+        str = null;
+        count = 0;
+      }
+      if (str == null) {
+        str = buildCommon().append(" ADD");
+      }
+      str.append(" PARTITION ")
+        .append(generateHivePartitionKey(entry.getKey()))
+        .append(" LOCATION '")
+        .append(entry.getValue())
+        .append("'");
+      count++;
+    }
+    if (str != null) {
+      statements.add(str.toString());
+    }
+    return statements;
+  }
+
   /**
    * Builds DROP PARTITION statement. For example:
    *   ALTER TABLE dataset_tpfs DROP PARTITION (year=2012)
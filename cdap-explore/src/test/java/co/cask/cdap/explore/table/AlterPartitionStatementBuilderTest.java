@@ -17,9 +17,13 @@
 package co.cask.cdap.explore.table;
 
 import co.cask.cdap.api.dataset.lib.PartitionKey;
+import com.google.common.collect.ImmutableList;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
@@ -51,6 +55,28 @@ public class AlterPartitionStatementBuilderTest {
 
   }
 
+  @Test
+  public void testMultiplePartitions() {
+    Map<PartitionKey, String> partitions = new LinkedHashMap<>();
+    partitions.put(key, location);
+    partitions.put(PartitionKey.builder().addIntField("year", 2013).build(), "/my/other/path");
+    AlterPartitionStatementBuilder builder = new AlterPartitionStatementBuilder("dbName", "tblName", false);
+    Assert.assertEquals(ImmutableList.of("ALTER TABLE dbName.tblName ADD PARTITION (year=2012) LOCATION '/my/path'" +
+                                           " PARTITION (year=2013) LOCATION '/my/other/path'"),
+                        builder.buildAddStatements(partitions));
+
+    // the partitions are split into statements of bounded size
+    partitions.put(PartitionKey.builder().addIntField("year", 2014).build(), "/my/third/path");
+    Assert.assertEquals(ImmutableList.of("ALTER TABLE dbName.tblName ADD PARTITION (year=2012) LOCATION '/my/path'" +
+                                           " PARTITION (year=2013) LOCATION '/my/other/path'",
+                                         "ALTER TABLE dbName.tblName ADD PARTITION (year=2014)" +
+                                           " LOCATION '/my/third/path'"),
+                        builder.buildAddStatements(partitions, 2));
+    Assert.assertEquals(3, builder.buildAddStatements(partitions, 1).size());
+    Assert.assertEquals(1, builder.buildAddStatements(partitions, 3).size());
+    Assert.assertTrue(builder.buildAddStatements(Collections.<PartitionKey, String>emptyMap(), 2).isEmpty());
+  }
+
   private AlterPartitionStatementBuilder createStatementBuilder(@Nullable String databaseName) {
     return new AlterPartitionStatementBuilder(databaseName, "tblName", key, false);
   }
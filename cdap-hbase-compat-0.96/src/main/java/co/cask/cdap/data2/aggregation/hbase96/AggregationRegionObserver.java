@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.aggregation.hbase96;
+
+import co.cask.cdap.data2.dataset2.lib.table.hbase.HBaseTable;
+import co.cask.cdap.internal.dataset.TableAggregator;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.coprocessor.BaseRegionObserver;
+import org.apache.hadoop.hbase.coprocessor.ObserverContext;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+
+import java.io.IOException;
+
+/**
+ * Computes aggregations over the rows of a scan in the region server, if the scan requests it with the
+ * {@link HBaseTable#AGGREGATION} attribute. Such a scan returns the partial aggregations of the scanned rows instead
+ * of the rows themselves. This coprocessor must be loaded after all coprocessors that transform the scanned rows.
+ */
+public class AggregationRegionObserver extends BaseRegionObserver {
+
+  @Override
+  public RegionScanner postScannerOpen(ObserverContext<RegionCoprocessorEnvironment> ctx, Scan scan,
+                                       RegionScanner scanner) throws IOException {
+    byte[] specification = scan.getAttribute(HBaseTable.AGGREGATION);
+    if (specification == null) {
+      return scanner;
+    }
+    return new AggregatingRegionScanner(scanner, TableAggregator.fromSpecification(specification));
+  }
+}
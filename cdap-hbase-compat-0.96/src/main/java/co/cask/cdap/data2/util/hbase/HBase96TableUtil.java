@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data2.util.hbase;
 
+import co.cask.cdap.data2.aggregation.hbase96.AggregationRegionObserver;
 import co.cask.cdap.data2.increment.hbase96.IncrementHandler;
 import co.cask.cdap.data2.transaction.coprocessor.hbase96.DefaultTransactionProcessor;
 import co.cask.cdap.data2.transaction.messaging.coprocessor.hbase96.MessageTableRegionObserver;
@@ -244,4 +245,9 @@ public class HBase96TableUtil extends HBaseTableUtil {
   public Class<? extends Coprocessor> getPayloadTableRegionObserverClassForVersion() {
     return PayloadTableRegionObserver.class;
   }
+
+  @Override
+  public Class<? extends Coprocessor> getAggregationRegionObserverClassForVersion() {
+    return AggregationRegionObserver.class;
+  }
 }
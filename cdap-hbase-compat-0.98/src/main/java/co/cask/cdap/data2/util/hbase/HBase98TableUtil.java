@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data2.util.hbase;
 
+import co.cask.cdap.data2.aggregation.hbase98.AggregationRegionObserver;
 import co.cask.cdap.data2.increment.hbase98.IncrementHandler;
 import co.cask.cdap.data2.transaction.coprocessor.hbase98.DefaultTransactionProcessor;
 import co.cask.cdap.data2.transaction.messaging.coprocessor.hbase98.MessageTableRegionObserver;
@@ -244,4 +245,9 @@ public class HBase98TableUtil extends HBaseTableUtil {
   public Class<? extends Coprocessor> getPayloadTableRegionObserverClassForVersion() {
     return PayloadTableRegionObserver.class;
   }
+
+  @Override
+  public Class<? extends Coprocessor> getAggregationRegionObserverClassForVersion() {
+    return AggregationRegionObserver.class;
+  }
 }
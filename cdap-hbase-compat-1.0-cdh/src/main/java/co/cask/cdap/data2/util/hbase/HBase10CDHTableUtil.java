@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data2.util.hbase;
 
+import co.cask.cdap.data2.aggregation.hbase10cdh.AggregationRegionObserver;
 import co.cask.cdap.data2.increment.hbase10cdh.IncrementHandler;
 import co.cask.cdap.data2.transaction.coprocessor.hbase10cdh.DefaultTransactionProcessor;
 import co.cask.cdap.data2.transaction.messaging.coprocessor.hbase10cdh.MessageTableRegionObserver;
@@ -260,4 +261,9 @@ public class HBase10CDHTableUtil extends HBaseTableUtil {
   public Class<? extends Coprocessor> getPayloadTableRegionObserverClassForVersion() {
     return PayloadTableRegionObserver.class;
   }
+
+  @Override
+  public Class<? extends Coprocessor> getAggregationRegionObserverClassForVersion() {
+    return AggregationRegionObserver.class;
+  }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.aggregation.hbase10cdh550;
+
+import co.cask.cdap.data2.aggregation.hbase.AbstractAggregatingRegionScanner;
+import co.cask.cdap.data2.dataset2.lib.table.hbase.HBaseTable;
+import co.cask.cdap.internal.dataset.TableAggregator;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.regionserver.ScannerContext;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Aggregates the rows of the wrapped scanner, as described in {@link AbstractAggregatingRegionScanner}.
+ */
+class AggregatingRegionScanner extends AbstractAggregatingRegionScanner implements RegionScanner {
+
+  private static final byte[] QUALIFIER = Bytes.toBytes(HBaseTable.AGGREGATION);
+
+  private final RegionScanner delegate;
+
+  AggregatingRegionScanner(RegionScanner delegate, TableAggregator aggregator) {
+    super(aggregator, QUALIFIER);
+    this.delegate = delegate;
+  }
+
+  @Override
+  protected boolean nextRow(List<Cell> cells, boolean raw) throws IOException {
+    return raw ? delegate.nextRaw(cells) : delegate.next(cells);
+  }
+
+  @Override
+  public HRegionInfo getRegionInfo() {
+    return delegate.getRegionInfo();
+  }
+
+  @Override
+  public boolean isFilterDone() throws IOException {
+    return delegate.isFilterDone();
+  }
+
+  @Override
+  public boolean reseek(byte[] row) throws IOException {
+    return delegate.reseek(row);
+  }
+
+  @Override
+  public long getMaxResultSize() {
+    return delegate.getMaxResultSize();
+  }
+
+  @Override
+  public long getMvccReadPoint() {
+    return delegate.getMvccReadPoint();
+  }
+
+  @Override
+  public int getBatch() {
+    return delegate.getBatch();
+  }
+
+  @Override
+  public boolean nextRaw(List<Cell> result) throws IOException {
+    return aggregate(result, true);
+  }
+
+  @Override
+  public boolean nextRaw(List<Cell> result, ScannerContext scannerContext) throws IOException {
+    return aggregate(result, true);
+  }
+
+  @Override
+  public boolean next(List<Cell> result) throws IOException {
+    return aggregate(result, false);
+  }
+
+  @Override
+  public boolean next(List<Cell> result, ScannerContext scannerContext) throws IOException {
+    return aggregate(result, false);
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+}
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data2.util.hbase;
 
+import co.cask.cdap.data2.aggregation.hbase10.AggregationRegionObserver;
 import co.cask.cdap.data2.increment.hbase10.IncrementHandler;
 import co.cask.cdap.data2.transaction.coprocessor.hbase10.DefaultTransactionProcessor;
 import co.cask.cdap.data2.transaction.messaging.coprocessor.hbase10.MessageTableRegionObserver;
@@ -309,4 +310,9 @@ public class HBase10TableUtil extends HBaseTableUtil {
   public DeleteBuilder buildDelete(Delete delete) {
     return new HBase10DeleteBuilder(delete);
   }
+
+  @Override
+  public Class<? extends Coprocessor> getAggregationRegionObserverClassForVersion() {
+    return AggregationRegionObserver.class;
+  }
 }
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data2.util.hbase;
 
+import co.cask.cdap.data2.aggregation.hbase11.AggregationRegionObserver;
 import co.cask.cdap.data2.increment.hbase11.IncrementHandler;
 import co.cask.cdap.data2.transaction.coprocessor.hbase11.DefaultTransactionProcessor;
 import co.cask.cdap.data2.transaction.messaging.coprocessor.hbase11.MessageTableRegionObserver;
@@ -309,4 +310,9 @@ public class HBase11TableUtil extends HBaseTableUtil {
   public DeleteBuilder buildDelete(Delete delete) {
     return new HBase11DeleteBuilder(delete);
   }
+
+  @Override
+  public Class<? extends Coprocessor> getAggregationRegionObserverClassForVersion() {
+    return AggregationRegionObserver.class;
+  }
 }
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data2.util.hbase;
 
+import co.cask.cdap.data2.aggregation.hbase12cdh570.AggregationRegionObserver;
 import co.cask.cdap.data2.increment.hbase12cdh570.IncrementHandler;
 import co.cask.cdap.data2.transaction.coprocessor.hbase12cdh570.DefaultTransactionProcessor;
 import co.cask.cdap.data2.transaction.messaging.coprocessor.hbase12cdh570.MessageTableRegionObserver;
@@ -309,4 +310,9 @@ public class HBase12CDH570TableUtil extends HBaseTableUtil {
   public DeleteBuilder buildDelete(Delete delete) {
     return new HBase12CDH570DeleteBuilder(delete);
   }
+
+  @Override
+  public Class<? extends Coprocessor> getAggregationRegionObserverClassForVersion() {
+    return AggregationRegionObserver.class;
+  }
 }
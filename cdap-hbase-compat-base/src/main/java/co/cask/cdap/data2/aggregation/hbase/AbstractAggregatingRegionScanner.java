@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.aggregation.hbase;
+
+import co.cask.cdap.api.dataset.DataSetException;
+import co.cask.cdap.internal.dataset.TableAggregator;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Common implementation of the HBase version-specific {@code AggregatingRegionScanner}s, which aggregate the rows of
+ * a region scanner. Every call to next returns a single cell with the serialized partial aggregations of the rows
+ * scanned by the call. The cell has the key of the last scanned row, so that a scan that is resumed by the client
+ * after a failure continues after the rows that were already aggregated. This class cannot implement the
+ * {@code RegionScanner} interface itself, as it differs between HBase versions.
+ */
+public abstract class AbstractAggregatingRegionScanner {
+
+  // bounds of the work done by a single call, so that a scan whose rows are mostly filtered out or that has
+  // wide rows does not hold the RPC handler until the scanner times out. Rows are counted whether or not
+  // they passed the filters of the scan.
+  private static final int MAX_ROWS_PER_RESULT = 10000;
+  private static final int MAX_CELLS_PER_RESULT = 100000;
+  private static final long MAX_MILLIS_PER_RESULT = 1000;
+
+  private final TableAggregator aggregator;
+  private final byte[] qualifier;
+  private final List<Cell> cells = new ArrayList<>();
+  private boolean hasMore = true;
+
+  /**
+   * @param aggregator the aggregator to add the scanned rows to
+   * @param qualifier the qualifier of the cells that hold the partial aggregations
+   */
+  protected AbstractAggregatingRegionScanner(TableAggregator aggregator, byte[] qualifier) {
+    this.aggregator = aggregator;
+    this.qualifier = qualifier;
+  }
+
+  /**
+   * Reads the cells of the next row from the region scanner that is aggregated.
+   *
+   * @param cells the list to add the cells to
+   * @param raw whether to read with {@code nextRaw} rather than {@code next}
+   * @return whether the region scanner has more rows
+   */
+  protected abstract boolean nextRow(List<Cell> cells, boolean raw) throws IOException;
+
+  /**
+   * Aggregates the next rows of the region scanner, and adds a cell with their partial aggregations to the result.
+   * A call returns after a bounded number of rows or cells was read from the region scanner, or after a bounded
+   * time, even if none of them was aggregated.
+   *
+   * @param raw whether to read with {@code nextRaw} rather than {@code next}
+   * @return whether the region scanner has more rows
+   */
+  protected boolean aggregate(List<Cell> result, boolean raw) throws IOException {
+    Cell lastRow = null;
+    int rows = 0;
+    int scannedCells = 0;
+    long deadline = System.currentTimeMillis() + MAX_MILLIS_PER_RESULT;
+    while (hasMore && rows < MAX_ROWS_PER_RESULT && scannedCells < MAX_CELLS_PER_RESULT
+      && System.currentTimeMillis() < deadline) {
+      cells.clear();
+      hasMore = nextRow(cells, raw);
+      rows++;
+      scannedCells += cells.size();
+      if (cells.isEmpty()) {
+        continue;
+      }
+      // the cells of a column are sorted by descending version, and only the first one is visible to the client
+      NavigableMap<byte[], byte[]> values = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      for (Cell cell : cells) {
+        byte[] cellQualifier = CellUtil.cloneQualifier(cell);
+        if (!values.containsKey(cellQualifier)) {
+          values.put(cellQualifier, CellUtil.cloneValue(cell));
+        }
+      }
+      // empty values are deletes
+      values.values().removeIf(value -> value.length == 0);
+      lastRow = cells.get(0);
+      try {
+        aggregator.add(CellUtil.cloneRow(lastRow), values);
+      } catch (DataSetException e) {
+        throw new DoNotRetryIOException(e.getMessage(), e);
+      }
+    }
+    if (lastRow != null && !aggregator.isEmpty()) {
+      result.add(new KeyValue(CellUtil.cloneRow(lastRow), CellUtil.cloneFamily(lastRow), qualifier,
+                              aggregator.drainPartial()));
+    }
+    return hasMore;
+  }
+}
@@ -67,7 +67,8 @@ public class CoprocessorManager {
       tableUtil.getQueueRegionObserverClassForVersion(),
       tableUtil.getDequeueScanObserverClassForVersion(),
       tableUtil.getMessageTableRegionObserverClassForVersion(),
-      tableUtil.getPayloadTableRegionObserverClassForVersion());
+      tableUtil.getPayloadTableRegionObserverClassForVersion(),
+      tableUtil.getAggregationRegionObserverClassForVersion());
   }
 
 
@@ -607,6 +607,7 @@ public abstract class HBaseTableUtil {
   public abstract Class<? extends Coprocessor> getIncrementHandlerClassForVersion();
   public abstract Class<? extends Coprocessor> getMessageTableRegionObserverClassForVersion();
   public abstract Class<? extends Coprocessor> getPayloadTableRegionObserverClassForVersion();
+  public abstract Class<? extends Coprocessor> getAggregationRegionObserverClassForVersion();
 
   /**
    * Collects HBase table stats
@@ -222,6 +222,7 @@ public class DatasetUpgrader extends AbstractUpgrader {
 
     final boolean supportsIncrement = HBaseTableAdmin.supportsReadlessIncrements(desc);
     final boolean transactional = HBaseTableAdmin.isTransactional(desc);
+    final boolean supportsAggregation = HBaseTableAdmin.supportsAggregation(desc);
     DatasetAdmin admin = new AbstractHBaseDataSetAdmin(tableId, hConf, cConf, hBaseTableUtil, locationFactory) {
       @Override
       protected CoprocessorJar createCoprocessorJar() throws IOException {
@@ -229,7 +230,8 @@ public class DatasetUpgrader extends AbstractUpgrader {
                                                             coprocessorManager,
                                                             hBaseTableUtil,
                                                             transactional,
-                                                            supportsIncrement);
+                                                            supportsIncrement,
+                                                            supportsAggregation);
       }
 
       @Override
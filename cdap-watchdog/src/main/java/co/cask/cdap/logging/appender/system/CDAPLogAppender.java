@@ -25,7 +25,9 @@ import co.cask.cdap.api.logging.AppenderContext;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Syncable;
 import co.cask.cdap.logging.clean.FileMetadataCleaner;
+import co.cask.cdap.logging.clean.FileMetadataCompactor;
 import co.cask.cdap.logging.clean.LogCleaner;
+import co.cask.cdap.logging.clean.LogCompactor;
 import co.cask.cdap.logging.meta.FileMetaDataWriter;
 import co.cask.cdap.proto.id.NamespaceId;
 import com.google.common.annotations.VisibleForTesting;
@@ -66,6 +68,9 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
   private int logCleanupIntervalMins;
   private int fileRetentionDurationDays;
   private int fileCleanupTransactionTimeout;
+  private int fileCompactionIntervalMins;
+  private int fileCompactionMinFiles;
+  private long fileCompactionSmallFileSizeBytes;
 
   public CDAPLogAppender() {
     setName(getClass().getName());
@@ -128,6 +133,27 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
     this.fileCleanupTransactionTimeout = transactionTimeout;
   }
 
+  /**
+   * Sets the log compaction interval. Log compaction is disabled if it is not set or is set to 0.
+   */
+  public void setFileCompactionIntervalMins(int fileCompactionIntervalMins) {
+    this.fileCompactionIntervalMins = fileCompactionIntervalMins;
+  }
+
+  /**
+   * Sets the minimum number of consecutive small files to be merged by log compaction.
+   */
+  public void setFileCompactionMinFiles(int fileCompactionMinFiles) {
+    this.fileCompactionMinFiles = fileCompactionMinFiles;
+  }
+
+  /**
+   * Sets the size below which a file is merged with other small files by log compaction.
+   */
+  public void setFileCompactionSmallFileSizeBytes(long fileCompactionSmallFileSizeBytes) {
+    this.fileCompactionSmallFileSizeBytes = fileCompactionSmallFileSizeBytes;
+  }
+
 
   @Override
   public void start() {
@@ -142,6 +168,11 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
     Preconditions.checkState(fileCleanupTransactionTimeout > Constants.Logging.TX_TIMEOUT_DISCOUNT_SECS,
                              String.format("Property fileCleanupTransactionTimeout must be greater than %s seconds",
                                            Constants.Logging.TX_TIMEOUT_DISCOUNT_SECS));
+    Preconditions.checkState(fileCompactionIntervalMins >= 0, "Property fileCompactionIntervalMins must be >= 0");
+    Preconditions.checkState(fileCompactionIntervalMins == 0 || fileCompactionMinFiles > 1,
+                             "Property fileCompactionMinFiles must be > 1");
+    Preconditions.checkState(fileCompactionIntervalMins == 0 || fileCompactionSmallFileSizeBytes > 0,
+                             "Property fileCompactionSmallFileSizeBytes must be > 0");
 
     if (context instanceof AppenderContext) {
       AppenderContext context = (AppenderContext) this.context;
@@ -157,6 +188,20 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
                                                TimeUnit.DAYS.toMillis(fileRetentionDurationDays),
                                                fileCleanupTransactionTimeout);
         scheduledExecutorService.scheduleAtFixedRate(logCleaner, 10, logCleanupIntervalMins, TimeUnit.MINUTES);
+
+        if (fileCompactionIntervalMins > 0) {
+          // Files are closed by the log saver shortly after the max lifetime has passed, use twice of the
+          // max lifetime to make sure only closed files are compacted.
+          FileMetadataCompactor fileMetadataCompactor = new FileMetadataCompactor(context.getDatasetManager(),
+                                                                                  context);
+          LogCompactor logCompactor = new LogCompactor(fileMetadataCompactor, context.getLocationFactory(),
+                                                       filePermissions, 2 * maxFileLifetimeMs,
+                                                       fileCompactionSmallFileSizeBytes, maxFileSizeInBytes,
+                                                       fileCompactionMinFiles, fileCleanupTransactionTimeout);
+          // Both cleanup and compaction run in the same thread, so that they don't race on the same files
+          scheduledExecutorService.scheduleAtFixedRate(logCompactor, fileCompactionIntervalMins,
+                                                       fileCompactionIntervalMins, TimeUnit.MINUTES);
+        }
       }
     } else if (!Boolean.TRUE.equals(context.getObject(Constants.Logging.PIPELINE_VALIDATION))) {
       throw new IllegalStateException("Expected logger context instance of " + AppenderContext.class.getName() +
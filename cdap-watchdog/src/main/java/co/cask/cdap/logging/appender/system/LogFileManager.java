@@ -27,7 +27,6 @@ import org.apache.twill.filesystem.LocationFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
@@ -89,15 +88,19 @@ final class LogFileManager implements Flushable, Syncable {
   }
 
   private LogFileOutputStream createOutputStream(final LogPathIdentifier identifier,
-                                                 long timestamp) throws IOException {
-    TimeStampLocation location = createLocation(identifier);
+                                                 final long timestamp) throws IOException {
+    final TimeStampLocation location = createLocation(identifier);
     LogFileOutputStream logFileOutputStream = new LogFileOutputStream(
-      location.getLocation(), filePermissions, syncIntervalBytes, location.getTimeStamp(), new Closeable() {
-      @Override
-      public void close() throws IOException {
-        outputStreamMap.remove(identifier);
-      }
-    });
+      location.getLocation(), filePermissions, syncIntervalBytes, location.getTimeStamp(),
+      new LogFileOutputStream.CloseListener() {
+        @Override
+        public void closed(long size) {
+          outputStreamMap.remove(identifier);
+          if (size >= 0) {
+            writeFileSize(identifier, timestamp, location.getTimeStamp(), size);
+          }
+        }
+      });
     logFileOutputStream.flush();
     LOG.info("Created Avro file at {}", location);
 
@@ -118,6 +121,19 @@ final class LogFileManager implements Flushable, Syncable {
   }
 
 
+  /**
+   * Records the size of a closed file in its meta data, so that log compaction does not need to get it from the file
+   * system. Failures are only logged, since the size is obtained from the file system if it is not recorded.
+   */
+  private void writeFileSize(LogPathIdentifier identifier, long eventTimestamp, long createTime, long size) {
+    try {
+      fileMetaDataWriter.writeFileSize(identifier, eventTimestamp, createTime, size);
+    } catch (Throwable e) {
+      LOG.warn("Failed to write the size of the log file created at {} for logging context {}",
+               createTime, identifier.getRowkey(), e);
+    }
+  }
+
   private TimeStampLocation createLocation(LogPathIdentifier logPathIdentifier) throws IOException {
     // if createNew fails, we retry after sleeping for a milli second as we use current timestamp for fileName.
     // this retry should succeed on any potential conflicts, though the likelihood of conflict is very small.
@@ -48,7 +48,7 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
 
   private final Location location;
   private final long createTime;
-  private final Closeable closeable;
+  private final CloseListener closeListener;
   private final LoggingEventSerializer serializer;
 
   private OutputStream outputStream;
@@ -56,9 +56,9 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
   private long fileSize;
 
   LogFileOutputStream(Location location, String filePermissions,
-                      int syncIntervalBytes, long createTime, Closeable closeable) throws IOException {
+                      int syncIntervalBytes, long createTime, CloseListener closeListener) throws IOException {
     this.location = location;
-    this.closeable = closeable;
+    this.closeListener = closeListener;
     this.serializer = new LoggingEventSerializer();
 
     Schema schema = serializer.getAvroSchema();
@@ -130,10 +130,30 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
   @Override
   public void close() throws IOException {
     LOG.trace("Closing file {}", location);
+    long closedSize = -1L;
     try {
-      dataFileWriter.close();
+      try {
+        // sync writes the pending block, hence closing the writer after it does not change the file size
+        fileSize = dataFileWriter.sync();
+      } finally {
+        dataFileWriter.close();
+      }
+      closedSize = fileSize;
     } finally {
-      closeable.close();
+      closeListener.closed(closedSize);
     }
   }
+
+  /**
+   * Listener that is called when a {@link LogFileOutputStream} is closed, regardless of whether the close succeeded.
+   */
+  interface CloseListener {
+
+    /**
+     * Called after the file was closed.
+     *
+     * @param size size of the closed file, or {@code -1} if the file was not closed successfully
+     */
+    void closed(long size) throws IOException;
+  }
 }
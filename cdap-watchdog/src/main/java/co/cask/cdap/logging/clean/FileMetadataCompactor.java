@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.clean;
+
+import co.cask.cdap.api.Transactional;
+import co.cask.cdap.api.Transactionals;
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.DatasetManager;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.api.dataset.table.Table;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.logging.meta.LoggingStoreTableUtil;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to scan and replace log file meta data for the compaction of log files.
+ */
+public class FileMetadataCompactor {
+  private static final Logger LOG = LoggerFactory.getLogger(FileMetadataCompactor.class);
+
+  private static final byte[] ROW_KEY_PREFIX = LoggingStoreTableUtil.NEW_FILE_META_ROW_KEY_PREFIX;
+  private static final byte[] ROW_KEY_PREFIX_END = Bytes.stopKeyForPrefix(ROW_KEY_PREFIX);
+
+  // cut-off time discount from actual transaction timeout
+  private static final int TX_TIMEOUT_DISCOUNT_SECS = Constants.Logging.TX_TIMEOUT_DISCOUNT_SECS;
+
+  private final Transactional transactional;
+  private final DatasetManager datasetManager;
+
+  public FileMetadataCompactor(DatasetManager datasetManager, Transactional transactional) {
+    this.transactional = transactional;
+    this.datasetManager = datasetManager;
+  }
+
+  /**
+   * Scans the meta data in new format and groups the log files by logging context.
+   * If the scan is getting close to the transaction timeout, the files scanned so far are returned.
+   *
+   * @param transactionTimeout transaction timeout to use for scanning entries
+   * @return list of file entries for each logging context, sorted by event time and then by file creation time
+   */
+  public List<List<FileEntry>> scanFiles(int transactionTimeout) {
+    // we make sure transactionTimeout is greater than TX_TIMEOUT_DISCOUNT_SECS in CDAPLogAppender check.
+    int cutOffTransactionTime = transactionTimeout - TX_TIMEOUT_DISCOUNT_SECS;
+
+    try {
+      return Transactionals.execute(transactional, transactionTimeout, context -> {
+        Table table = LoggingStoreTableUtil.getMetadataTable(context, datasetManager);
+        Stopwatch stopwatch = new Stopwatch().start();
+        List<List<FileEntry>> contextFiles = new ArrayList<>();
+        List<FileEntry> files = new ArrayList<>();
+
+        try (Scanner scanner = table.scan(ROW_KEY_PREFIX, ROW_KEY_PREFIX_END)) {
+          Row row;
+          while (stopwatch.elapsedTime(TimeUnit.SECONDS) < cutOffTransactionTime && (row = scanner.next()) != null) {
+            byte[] size = row.get(LoggingStoreTableUtil.META_TABLE_SIZE_COLUMN_KEY);
+            FileEntry entry = new FileEntry(row.getRow(),
+                                            Bytes.toString(row.get(LoggingStoreTableUtil.META_TABLE_COLUMN_KEY)),
+                                            size == null ? -1L : Bytes.toLong(size));
+            // rows are sorted by context, hence a different context means all files of the last context are scanned
+            if (!files.isEmpty() && !Arrays.equals(files.get(0).getContext(), entry.getContext())) {
+              contextFiles.add(files);
+              files = new ArrayList<>();
+            }
+            files.add(entry);
+          }
+        }
+        // the last context may not be completely scanned, which is fine since files are sorted in each context
+        if (!files.isEmpty()) {
+          contextFiles.add(files);
+        }
+        return contextFiles;
+      });
+    } catch (Exception e) {
+      LOG.warn("Got Exception while scanning metadata table", e);
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * Atomically replaces the meta data of the given files with the meta data of a file that contains all their
+   * log events. The new file has the event time of the first file and the creation time of the last file, so that
+   * it is ordered at the same position and expires at the same time as the files being replaced.
+   *
+   * @param files the files being replaced, sorted by event time and all belonging to the same logging context
+   * @param path path of the file replacing all the given files
+   * @param size size of the file replacing all the given files
+   * @param transactionTimeout transaction timeout to use for updating entries
+   * @return {@code true} if the meta data is replaced; {@code false} if any of the files no longer exists
+   *         in the meta data, in which case nothing is changed
+   */
+  public boolean replaceFiles(List<FileEntry> files, String path, long size, int transactionTimeout) {
+    Preconditions.checkArgument(!files.isEmpty(), "Files to replace cannot be empty");
+    FileEntry first = files.get(0);
+    FileEntry last = files.get(files.size() - 1);
+    byte[] newRowKey = Bytes.concat(ROW_KEY_PREFIX, first.getContext(),
+                                    Bytes.toBytes(first.getEventTime()), Bytes.toBytes(last.getCreationTime()));
+
+    return Transactionals.execute(transactional, transactionTimeout, context -> {
+      Table table = LoggingStoreTableUtil.getMetadataTable(context, datasetManager);
+      for (FileEntry file : files) {
+        // the file might have been removed by the log cleanup
+        if (table.get(file.getRowKey(), LoggingStoreTableUtil.META_TABLE_COLUMN_KEY) == null) {
+          return false;
+        }
+      }
+      // delete before writing, since the new row key can be the same as the row key of the last file
+      for (FileEntry file : files) {
+        table.delete(file.getRowKey());
+      }
+      table.put(newRowKey, new byte[][] { LoggingStoreTableUtil.META_TABLE_COLUMN_KEY,
+                                          LoggingStoreTableUtil.META_TABLE_SIZE_COLUMN_KEY },
+                new byte[][] { Bytes.toBytes(path), Bytes.toBytes(size) });
+      return true;
+    });
+  }
+
+  /**
+   * Represents a log file in the meta data.
+   */
+  static final class FileEntry {
+    private final byte[] rowKey;
+    private final String path;
+    private final long size;
+
+    private FileEntry(byte[] rowKey, String path, long size) {
+      // rowkey : <prefix-bytes>:context:event-ts(8):creation-time(8)
+      Preconditions.checkState(rowKey.length > ROW_KEY_PREFIX.length + 2 * Bytes.SIZEOF_LONG,
+                               "Invalid row-key with length %s", rowKey.length);
+      this.rowKey = rowKey;
+      this.path = path;
+      this.size = size;
+    }
+
+    byte[] getRowKey() {
+      return rowKey;
+    }
+
+    /**
+     * logging context part of the row key
+     */
+    byte[] getContext() {
+      return Arrays.copyOfRange(rowKey, ROW_KEY_PREFIX.length, rowKey.length - 2 * Bytes.SIZEOF_LONG);
+    }
+
+    long getEventTime() {
+      return Bytes.toLong(rowKey, rowKey.length - 2 * Bytes.SIZEOF_LONG, Bytes.SIZEOF_LONG);
+    }
+
+    long getCreationTime() {
+      return Bytes.toLong(rowKey, rowKey.length - Bytes.SIZEOF_LONG, Bytes.SIZEOF_LONG);
+    }
+
+    String getPath() {
+      return path;
+    }
+
+    /**
+     * size of the file recorded in the meta data when the file was closed, or {@code -1} if it was not recorded
+     */
+    long getSize() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.clean;
+
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.logging.serialize.LogSchema;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.twill.filesystem.Location;
+import org.apache.twill.filesystem.LocationFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compacts small log files of the same logging context into larger files.
+ *
+ * Only closed files, which are the files created more than the maximum file lifetime ago, are compacted.
+ * Consecutive small files of a logging context are concatenated in event time order into a new file, then the
+ * meta data of the files are atomically replaced by the meta data of the new file before the files are deleted.
+ */
+public class LogCompactor implements Runnable {
+  private static final Logger LOG = LoggerFactory.getLogger(LogCompactor.class);
+  private static final Schema SCHEMA = LogSchema.LoggingEvent.SCHEMA;
+
+  private final FileMetadataCompactor fileMetadataCompactor;
+  private final LocationFactory locationFactory;
+  private final String filePermissions;
+  private final long closedFileAgeMs;
+  private final long smallFileSizeBytes;
+  private final long maxFileSizeBytes;
+  private final int minFiles;
+  private final int transactionTimeout;
+
+  public LogCompactor(FileMetadataCompactor fileMetadataCompactor, LocationFactory locationFactory,
+                      String filePermissions, long closedFileAgeMs, long smallFileSizeBytes, long maxFileSizeBytes,
+                      int minFiles, int fileCompactionTransactionTimeout) {
+    this.fileMetadataCompactor = fileMetadataCompactor;
+    this.locationFactory = locationFactory;
+    this.filePermissions = filePermissions;
+    this.closedFileAgeMs = closedFileAgeMs;
+    this.smallFileSizeBytes = smallFileSizeBytes;
+    this.maxFileSizeBytes = maxFileSizeBytes;
+    this.minFiles = minFiles;
+    this.transactionTimeout = fileCompactionTransactionTimeout;
+    LOG.debug("Log compaction small file size = {} bytes, minimum files = {}", smallFileSizeBytes, minFiles);
+  }
+
+  @Override
+  public void run() {
+    LOG.info("Starting log compaction");
+    long startTime = System.currentTimeMillis();
+    long closedTime = startTime - closedFileAgeMs;
+
+    int compactedCount = 0;
+    int createdCount = 0;
+    int failureCount = 0;
+    for (List<FileMetadataCompactor.FileEntry> files : fileMetadataCompactor.scanFiles(transactionTimeout)) {
+      for (List<FileMetadataCompactor.FileEntry> run : getCompactionRuns(files, closedTime)) {
+        int deleteFailures = compact(run);
+        if (deleteFailures >= 0) {
+          compactedCount += run.size();
+          createdCount++;
+          failureCount += deleteFailures;
+        }
+      }
+    }
+    long completionTime = System.currentTimeMillis();
+    LOG.info("Log compaction completed, Files compacted - {}. Files created - {}. Failed file deletes - {}. " +
+               "Log compaction took {} ms", compactedCount, createdCount, failureCount, (completionTime - startTime));
+  }
+
+  /**
+   * Splits the files of a logging context into runs of consecutive closed small files to compact. Each run has at
+   * least {@code minFiles} files and a total size not exceeding the maximum file size.
+   */
+  private List<List<FileMetadataCompactor.FileEntry>> getCompactionRuns(List<FileMetadataCompactor.FileEntry> files,
+                                                                          long closedTime) {
+    List<List<FileMetadataCompactor.FileEntry>> runs = new ArrayList<>();
+    List<FileMetadataCompactor.FileEntry> run = new ArrayList<>();
+    long runSize = 0;
+
+    for (FileMetadataCompactor.FileEntry file : files) {
+      long size = file.getCreationTime() <= closedTime ? getFileSize(file) : -1L;
+      boolean small = size >= 0 && size < smallFileSizeBytes;
+
+      if (!small || runSize + size > maxFileSizeBytes) {
+        if (run.size() >= minFiles) {
+          runs.add(run);
+        }
+        run = new ArrayList<>();
+        runSize = 0;
+      }
+      if (small) {
+        run.add(file);
+        runSize += size;
+      }
+    }
+    if (run.size() >= minFiles) {
+      runs.add(run);
+    }
+    return runs;
+  }
+
+  /**
+   * Returns the size of the given file or {@code -1} if failed to get the size. The size recorded in the meta data
+   * when the file was closed is used if present, so that only files closed without recording it are looked up in the
+   * file system.
+   */
+  private long getFileSize(FileMetadataCompactor.FileEntry file) {
+    if (file.getSize() >= 0) {
+      return file.getSize();
+    }
+    try {
+      Location location = Locations.getLocationFromAbsolutePath(locationFactory, file.getPath());
+      return location.exists() ? location.length() : -1L;
+    } catch (IOException e) {
+      LOG.debug("Failed to get the size of file {}", file.getPath(), e);
+      return -1L;
+    }
+  }
+
+  /**
+   * Compacts the given files into a new file in the directory of the first file.
+   *
+   * @return number of files that failed to be deleted after compaction, or {@code -1} if the compaction failed
+   */
+  private int compact(List<FileMetadataCompactor.FileEntry> files) {
+    Location target;
+    try {
+      target = createLocation(Locations.getParent(
+        Locations.getLocationFromAbsolutePath(locationFactory, files.get(0).getPath())));
+    } catch (IOException e) {
+      LOG.warn("Failed to create file for compacting {} files starting from {}",
+               files.size(), files.get(0).getPath(), e);
+      return -1;
+    }
+
+    try {
+      long size = write(files, target);
+      if (!fileMetadataCompactor.replaceFiles(files, target.toURI().getPath(), size, transactionTimeout)) {
+        LOG.debug("Files starting from {} were removed during compaction. Skipping them.", files.get(0).getPath());
+        Locations.deleteQuietly(target);
+        return -1;
+      }
+    } catch (Exception e) {
+      LOG.warn("Exception while compacting {} files starting from {}", files.size(), files.get(0).getPath(), e);
+      Locations.deleteQuietly(target);
+      return -1;
+    }
+    LOG.trace("Compacted {} files starting from {} into {}", files.size(), files.get(0).getPath(), target);
+
+    // The meta data no longer refers to the files, hence they can be deleted
+    int failureCount = 0;
+    for (FileMetadataCompactor.FileEntry file : files) {
+      try {
+        if (!Locations.getLocationFromAbsolutePath(locationFactory, file.getPath()).delete()) {
+          failureCount++;
+          LOG.warn("File {} delete failed", file.getPath());
+        }
+      } catch (IOException e) {
+        failureCount++;
+        LOG.warn("Exception while deleting file {}", file.getPath(), e);
+      }
+    }
+    return failureCount;
+  }
+
+  /**
+   * Writes the log events of all the given files to the target location, in the order of the files. The encoded
+   * blocks are copied without decoding the log events.
+   *
+   * @return size of the target file
+   */
+  private long write(List<FileMetadataCompactor.FileEntry> files, Location target) throws IOException {
+    try (
+      OutputStream os = filePermissions.isEmpty() ? target.getOutputStream() : target.getOutputStream(filePermissions);
+      DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(SCHEMA))
+    ) {
+      writer.create(SCHEMA, os);
+      for (FileMetadataCompactor.FileEntry file : files) {
+        Location location = Locations.getLocationFromAbsolutePath(locationFactory, file.getPath());
+        try (
+          InputStream is = location.getInputStream();
+          DataFileStream<GenericRecord> reader = new DataFileStream<>(is, new GenericDatumReader<GenericRecord>())
+        ) {
+          writer.appendAllFrom(reader, false);
+        }
+      }
+      // sync writes the pending block, hence closing the writer after it does not change the file size
+      return writer.sync();
+    }
+  }
+
+  /**
+   * Creates a new file in the given directory, named by the current time similar to the files created by the
+   * log appender.
+   */
+  private Location createLocation(Location dir) throws IOException {
+    Location location = dir.append(String.format("%s.avro", System.currentTimeMillis()));
+    while (!(filePermissions.isEmpty() ? location.createNew() : location.createNew(filePermissions))) {
+      Uninterruptibles.sleepUninterruptibly(1L, TimeUnit.MILLISECONDS);
+      location = dir.append(String.format("%s.avro", System.currentTimeMillis()));
+    }
+    return location;
+  }
+}
@@ -94,7 +94,8 @@ public class DistributedLogFramework extends ResourceBalancerService {
         topic, partitions, bufferSize,
         cConf.getLong(Constants.Logging.PIPELINE_EVENT_DELAY_MS),
         cConf.getInt(Constants.Logging.PIPELINE_KAFKA_FETCH_SIZE),
-        cConf.getLong(Constants.Logging.PIPELINE_CHECKPOINT_INTERVAL_MS)
+        cConf.getLong(Constants.Logging.PIPELINE_CHECKPOINT_INTERVAL_MS),
+        cConf.getBoolean(Constants.Logging.PIPELINE_PARALLEL_DECODE)
       );
 
       RetryStrategy retryStrategy = RetryStrategies.fromConfiguration(cConf, "system.log.process.");
@@ -20,17 +20,24 @@ import co.cask.cdap.api.dataset.lib.CloseableIterator;
 import co.cask.cdap.logging.read.LogEvent;
 import co.cask.http.BodyProducer;
 import com.google.common.collect.Multimap;
+import com.google.common.io.Closeables;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpHeaders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
 import javax.annotation.Nullable;
 
 /**
  * LogReader BodyProducer class that delegates to subclasses for how to encode log events.
+ * If gzip is enabled, the encoded log events are compressed chunk by chunk while the response is being sent,
+ * so that only one chunk is buffered in memory at any time.
  */
 public abstract class AbstractChunkedLogProducer extends BodyProducer {
   private static final Logger LOG = LoggerFactory.getLogger(AbstractChunkedLogProducer.class);
@@ -38,12 +45,18 @@ public abstract class AbstractChunkedLogProducer extends BodyProducer {
   protected static final int BUFFER_BYTES = 8192;
 
   private final CloseableIterator<LogEvent> logEventIter;
+  private final boolean gzip;
+  private final ChunkOutputStream chunkOutput;
 
+  private GZIPOutputStream gzipOutput;
   private boolean hasStarted = false;
   private boolean hasFinished = false;
+  private boolean hasCompressed = false;
 
-  AbstractChunkedLogProducer(CloseableIterator<LogEvent> logEventIter) {
+  AbstractChunkedLogProducer(CloseableIterator<LogEvent> logEventIter, boolean gzip) {
     this.logEventIter = logEventIter;
+    this.gzip = gzip;
+    this.chunkOutput = new ChunkOutputStream();
   }
 
   /**
@@ -55,12 +68,60 @@ public abstract class AbstractChunkedLogProducer extends BodyProducer {
   protected abstract ByteBuf writeLogEvents(CloseableIterator<LogEvent> logEvent) throws IOException;
   protected abstract ByteBuf onWriteFinish() throws IOException;
 
+  /**
+   * Returns the HTTP response headers, with the content encoding set if gzip is enabled.
+   */
+  HttpHeaders getHeaders() {
+    HttpHeaders headers = getResponseHeaders();
+    return gzip ? headers.set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP) : headers;
+  }
+
   public void close() {
-    logEventIter.close();
+    try {
+      // Discard anything written by the gzip stream on close, since the response is already ended or aborted
+      chunkOutput.setBuffer(null);
+      Closeables.closeQuietly(gzipOutput);
+    } finally {
+      logEventIter.close();
+    }
   }
 
   @Override
   public ByteBuf nextChunk() throws Exception {
+    if (!gzip) {
+      return nextEncodedChunk();
+    }
+    if (hasCompressed) {
+      return Unpooled.EMPTY_BUFFER;
+    }
+
+    ByteBuf chunk = Unpooled.buffer(BUFFER_BYTES);
+    chunkOutput.setBuffer(chunk);
+    if (gzipOutput == null) {
+      gzipOutput = new GZIPOutputStream(chunkOutput, BUFFER_BYTES);
+    }
+
+    // Keep compressing until there is some compressed output, since an empty chunk means the end of the response
+    while (!chunk.isReadable()) {
+      ByteBuf encoded = nextEncodedChunk();
+      try {
+        if (!encoded.isReadable()) {
+          gzipOutput.finish();
+          hasCompressed = true;
+          break;
+        }
+        encoded.readBytes(gzipOutput, encoded.readableBytes());
+      } finally {
+        encoded.release();
+      }
+    }
+    return chunk;
+  }
+
+  /**
+   * Returns the next chunk of encoded log events before compression.
+   */
+  private ByteBuf nextEncodedChunk() throws IOException {
     ByteBuf startBuffer = Unpooled.EMPTY_BUFFER;
     if (!hasStarted) {
       hasStarted = true;
@@ -93,4 +154,30 @@ public abstract class AbstractChunkedLogProducer extends BodyProducer {
     close();
   }
 
+  /**
+   * An {@link OutputStream} that writes to the current chunk buffer.
+   */
+  private static final class ChunkOutputStream extends OutputStream {
+
+    private ByteBuf buffer;
+
+    void setBuffer(@Nullable ByteBuf buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+      if (buffer != null) {
+        buffer.writeByte(b);
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      if (buffer != null) {
+        buffer.writeBytes(b, off, len);
+      }
+    }
+  }
+
 }
@@ -41,8 +41,8 @@ public abstract class AbstractJSONLogProducer extends AbstractChunkedLogProducer
   private final ByteBuf channelBuffer;
   private final JsonWriter jsonWriter;
 
-  AbstractJSONLogProducer(CloseableIterator<LogEvent> logEventIter) {
-    super(logEventIter);
+  AbstractJSONLogProducer(CloseableIterator<LogEvent> logEventIter, boolean gzip) {
+    super(logEventIter, gzip);
     this.channelBuffer = Unpooled.buffer(BUFFER_BYTES);
     this.jsonWriter = new JsonWriter(new OutputStreamWriter(new ByteBufOutputStream(channelBuffer),
                                                             StandardCharsets.UTF_8));
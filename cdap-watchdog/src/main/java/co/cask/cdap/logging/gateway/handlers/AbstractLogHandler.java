@@ -56,6 +56,17 @@ public class AbstractLogHandler extends AbstractHttpHandler {
   protected void doGetLogs(HttpResponder responder, LoggingContext loggingContext,
                            long fromTimeSecsParam, long toTimeSecsParam, boolean escape, String filterStr,
                            @Nullable RunRecordMeta runRecord, String format, List<String> fieldsToSuppress) {
+    doGetLogs(responder, loggingContext, fromTimeSecsParam, toTimeSecsParam, escape, filterStr, runRecord, format,
+              fieldsToSuppress, false);
+  }
+
+  /**
+   * Streams the logs in the given time range as a chunked response, optionally gzip compressed.
+   */
+  protected void doGetLogs(HttpResponder responder, LoggingContext loggingContext,
+                           long fromTimeSecsParam, long toTimeSecsParam, boolean escape, String filterStr,
+                           @Nullable RunRecordMeta runRecord, String format, List<String> fieldsToSuppress,
+                           boolean gzip) {
 
     try {
       TimeRange timeRange = parseTime(fromTimeSecsParam, toTimeSecsParam, responder);
@@ -73,7 +84,7 @@ public class AbstractLogHandler extends AbstractHttpHandler {
         // the iterator is closed by the BodyProducer passed to the HttpResponder
         CloseableIterator<LogEvent> logIter = logReader.getLog(loggingContext, readRange.getFromMillis(),
                                                                readRange.getToMillis(), filter);
-        logsProducer = getFullLogsProducer(format, logIter, fieldsToSuppress, escape);
+        logsProducer = getFullLogsProducer(format, logIter, fieldsToSuppress, escape, gzip);
       } catch (Exception ex) {
         LOG.debug("Exception while reading logs for logging context {}", loggingContext, ex);
         if (logsProducer != null) {
@@ -82,7 +93,7 @@ public class AbstractLogHandler extends AbstractHttpHandler {
         responder.sendStatus(HttpResponseStatus.INTERNAL_SERVER_ERROR);
         return;
       }
-      responder.sendContent(HttpResponseStatus.OK, logsProducer, logsProducer.getResponseHeaders());
+      responder.sendContent(HttpResponseStatus.OK, logsProducer, logsProducer.getHeaders());
     } catch (SecurityException e) {
       responder.sendStatus(HttpResponseStatus.UNAUTHORIZED);
     } catch (IllegalArgumentException e) {
@@ -187,13 +198,13 @@ public class AbstractLogHandler extends AbstractHttpHandler {
   }
 
   private AbstractChunkedLogProducer getFullLogsProducer(String format, CloseableIterator<LogEvent> logEventIter,
-                                                         List<String> suppress, boolean escape) {
+                                                         List<String> suppress, boolean escape, boolean gzip) {
     LogFormatType formatType = getFormatType(format);
     switch (formatType) {
       case JSON:
-        return new LogDataOffsetProducer(logEventIter, suppress);
+        return new LogDataOffsetProducer(logEventIter, suppress, gzip);
       default:
-        return new TextChunkedLogProducer(logEventIter, logPattern, escape);
+        return new TextChunkedLogProducer(logEventIter, logPattern, escape, gzip);
     }
   }
 
@@ -31,8 +31,8 @@ import java.util.List;
 public class LogDataOffsetProducer extends AbstractJSONLogProducer {
   private final List<String> fieldsToSuppress;
 
-  LogDataOffsetProducer(CloseableIterator<LogEvent> logEventIter, List<String> fieldsToSuppress) {
-    super(logEventIter);
+  LogDataOffsetProducer(CloseableIterator<LogEvent> logEventIter, List<String> fieldsToSuppress, boolean gzip) {
+    super(logEventIter, gzip);
     this.fieldsToSuppress = fieldsToSuppress;
     validate();
   }
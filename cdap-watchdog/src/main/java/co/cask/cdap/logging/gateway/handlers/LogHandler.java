@@ -31,6 +31,8 @@ import co.cask.http.HttpHandler;
 import co.cask.http.HttpResponder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpRequest;
 
 import java.util.Collections;
@@ -70,7 +72,8 @@ public class LogHandler extends AbstractLogHandler {
     LoggingContext loggingContext =
       LoggingContextHelper.getLoggingContext(namespaceId, appId, programId,
                                              ProgramType.valueOfCategoryName(programType));
-    doGetLogs(responder, loggingContext, fromTimeSecsParam, toTimeSecsParam, escape, filterStr, null, format, suppress);
+    doGetLogs(responder, loggingContext, fromTimeSecsParam, toTimeSecsParam, escape, filterStr, null, format, suppress,
+              acceptsGzip(request));
   }
 
   @GET
@@ -91,7 +94,7 @@ public class LogHandler extends AbstractLogHandler {
                                                                                     runRecord.getSystemArgs());
 
     doGetLogs(responder, loggingContext, fromTimeSecsParam, toTimeSecsParam, escape, filterStr, runRecord, format,
-              suppress);
+              suppress, acceptsGzip(request));
   }
 
   @GET
@@ -178,7 +181,8 @@ public class LogHandler extends AbstractLogHandler {
                       @QueryParam("suppress") List<String> suppress) {
     LoggingContext loggingContext = LoggingContextHelper.getLoggingContext(Id.Namespace.SYSTEM.getId(), componentId,
                                                                            serviceId);
-    doGetLogs(responder, loggingContext, fromTimeSecsParam, toTimeSecsParam, escape, filterStr, null, format, suppress);
+    doGetLogs(responder, loggingContext, fromTimeSecsParam, toTimeSecsParam, escape, filterStr, null, format, suppress,
+              acceptsGzip(request));
   }
 
   @GET
@@ -216,4 +220,12 @@ public class LogHandler extends AbstractLogHandler {
     }
     return runRecord;
   }
+
+  /**
+   * Returns whether the client accepts a gzip compressed response.
+   */
+  private static boolean acceptsGzip(HttpRequest request) {
+    String acceptEncoding = request.headers().get(HttpHeaderNames.ACCEPT_ENCODING);
+    return acceptEncoding != null && acceptEncoding.toLowerCase().contains(HttpHeaderValues.GZIP);
+  }
 }
@@ -18,6 +18,9 @@ package co.cask.cdap.logging.gateway.handlers;
 
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.pattern.EnsureExceptionHandling;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.pattern.Converter;
 import co.cask.cdap.api.dataset.lib.CloseableIterator;
 import co.cask.cdap.logging.read.LogEvent;
 import io.netty.buffer.ByteBuf;
@@ -34,14 +37,31 @@ import java.nio.charset.StandardCharsets;
 
 /**
  * LogReader BodyProducer to encode log events, as text.
+ * Log events are formatted into a reusable buffer and written directly into the response chunks,
+ * without creating intermediate strings.
  */
 class TextChunkedLogProducer extends AbstractChunkedLogProducer {
+  // Formatter buffers grown beyond this size by very large log events are not kept for reuse
+  private static final int MAX_RETAINED_CHARS = 64 * 1024;
+  // HTML escaped form of characters below 0x2800, which covers all the named HTML 4.0 entities
+  private static final String[] ESCAPED_CHARS = new String[0x2800];
+
+  static {
+    for (char c = 0; c < ESCAPED_CHARS.length; c++) {
+      String escaped = StringEscapeUtils.escapeHtml(String.valueOf(c));
+      ESCAPED_CHARS[c] = escaped.length() == 1 ? null : escaped;
+    }
+  }
+
   private final PatternLayout patternLayout;
   private final boolean escape;
+  private Converter<ILoggingEvent> converterHead;
+  private StringBuilder formatBuffer;
 
-  TextChunkedLogProducer(CloseableIterator<LogEvent> logEventIter, String logPattern, boolean escape) {
-    super(logEventIter);
+  TextChunkedLogProducer(CloseableIterator<LogEvent> logEventIter, String logPattern, boolean escape, boolean gzip) {
+    super(logEventIter, gzip);
     this.escape = escape;
+    this.formatBuffer = new StringBuilder(256);
 
     ch.qos.logback.classic.Logger rootLogger =
       (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
@@ -50,6 +70,11 @@ class TextChunkedLogProducer extends AbstractChunkedLogProducer {
     patternLayout = new PatternLayout();
     patternLayout.setContext(loggerContext);
     patternLayout.setPattern(logPattern);
+    // Capture the head of the compiled converter chain so that events can be formatted into the reusable buffer
+    patternLayout.setPostCompileProcessor(head -> {
+      new EnsureExceptionHandling().process(head);
+      converterHead = head;
+    });
     patternLayout.start();
   }
 
@@ -64,13 +89,54 @@ class TextChunkedLogProducer extends AbstractChunkedLogProducer {
 
     while (logEventIter.hasNext() && buffer.readableBytes() < BUFFER_BYTES) {
       LogEvent logEvent = logEventIter.next();
-      String logLine = patternLayout.doLayout(logEvent.getLoggingEvent());
-      logLine = escape ? StringEscapeUtils.escapeHtml(logLine) : logLine;
-      buffer.writeCharSequence(logLine, StandardCharsets.UTF_8);
+      StringBuilder logLine = format(logEvent.getLoggingEvent());
+      if (escape) {
+        writeEscaped(logLine, buffer);
+      } else {
+        buffer.writeCharSequence(logLine, StandardCharsets.UTF_8);
+      }
     }
     return buffer;
   }
 
+  /**
+   * Formats the given event into the reusable format buffer, same as {@link PatternLayout#doLayout(ILoggingEvent)}.
+   */
+  private StringBuilder format(ILoggingEvent event) {
+    if (formatBuffer.capacity() > MAX_RETAINED_CHARS) {
+      formatBuffer = new StringBuilder(256);
+    }
+    formatBuffer.setLength(0);
+    if (converterHead == null) {
+      // The layout failed to start or compile the pattern
+      return formatBuffer.append(patternLayout.doLayout(event));
+    }
+    for (Converter<ILoggingEvent> c = converterHead; c != null; c = c.getNext()) {
+      c.write(formatBuffer, event);
+    }
+    return formatBuffer;
+  }
+
+  /**
+   * Writes the given characters as HTML escaped ASCII text, same as
+   * {@link StringEscapeUtils#escapeHtml(String)} encoded in UTF-8.
+   */
+  private static void writeEscaped(CharSequence chars, ByteBuf buffer) {
+    int length = chars.length();
+    for (int i = 0; i < length; i++) {
+      char c = chars.charAt(i);
+      if (c < ESCAPED_CHARS.length && ESCAPED_CHARS[c] != null) {
+        buffer.writeCharSequence(ESCAPED_CHARS[c], StandardCharsets.US_ASCII);
+      } else if (c > 0x7F) {
+        buffer.writeByte('&').writeByte('#');
+        buffer.writeCharSequence(Integer.toString(c), StandardCharsets.US_ASCII);
+        buffer.writeByte(';');
+      } else {
+        buffer.writeByte(c);
+      }
+    }
+  }
+
   @Override
   protected ByteBuf onWriteStart() throws IOException {
     return Unpooled.EMPTY_BUFFER;
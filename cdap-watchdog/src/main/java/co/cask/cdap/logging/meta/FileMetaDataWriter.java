@@ -69,6 +69,31 @@ public class FileMetaDataWriter {
     }, Exception.class);
   }
 
+  /**
+   * Records the size of a log file after it was closed. Nothing is written if the meta data of the file
+   * no longer exists, such as if it was removed by the log cleanup.
+   *
+   * @param identifier logging context identifier.
+   * @param eventTimeMs start log time associated with the file.
+   * @param currentTimeMs time of the file creation.
+   * @param size size of the closed log file in bytes.
+   */
+  public void writeFileSize(final LogPathIdentifier identifier,
+                            final long eventTimeMs,
+                            final long currentTimeMs,
+                            final long size) throws Exception {
+    Transactionals.execute(transactional, new TxRunnable() {
+      @Override
+      public void run(DatasetContext context) throws Exception {
+        Table table = LoggingStoreTableUtil.getMetadataTable(context, datasetManager);
+        byte[] rowKey = getRowKey(identifier, eventTimeMs, currentTimeMs);
+        if (table.get(rowKey, LoggingStoreTableUtil.META_TABLE_COLUMN_KEY) != null) {
+          table.put(rowKey, LoggingStoreTableUtil.META_TABLE_SIZE_COLUMN_KEY, Bytes.toBytes(size));
+        }
+      }
+    }, Exception.class);
+  }
+
   private byte[] getRowKey(LogPathIdentifier identifier, long eventTime, long currentTime) {
     return Bytes.concat(LoggingStoreTableUtil.NEW_FILE_META_ROW_KEY_PREFIX,
                         identifier.getRowkey().getBytes(StandardCharsets.UTF_8),
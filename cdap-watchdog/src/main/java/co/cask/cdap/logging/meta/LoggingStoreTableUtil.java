@@ -41,6 +41,8 @@ public final class LoggingStoreTableUtil {
   public static final byte[] OLD_FILE_META_ROW_KEY_PREFIX = Bytes.toBytes(200);
   public static final byte[] NEW_FILE_META_ROW_KEY_PREFIX = Bytes.toBytes(300);
   public static final byte[] META_TABLE_COLUMN_KEY = Bytes.toBytes("file");
+  // The column that stores the size of a closed log file, absent for files that are open or closed before it existed.
+  public static final byte[] META_TABLE_SIZE_COLUMN_KEY = Bytes.toBytes("size");
   private static final DatasetId META_TABLE_DATASET_ID = NamespaceId.SYSTEM.dataset(Constants.Logging.META_TABLE);
 
   /**
@@ -16,80 +16,136 @@
 
 package co.cask.cdap.logging.pipeline;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectArrayMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
 import javax.annotation.concurrent.NotThreadSafe;
 
 /**
  * A queue for storing time based events with offsets association.
  *
+ * Events are buffered per partition in primitive arrays sorted by event time and offset, together with a primitive
+ * offset index for finding the smallest offset of a partition. Iteration over the whole queue is done through a k-way
+ * heap merge across partitions, so that no per event object is allocated other than the event itself.
+ *
  * @param <Event> Type of event stored in the queue.
- * @param <Offset> Type of event offset associated with the event.
  */
 @NotThreadSafe
-public final class TimeEventQueue<Event, Offset extends Comparable<Offset>> implements Iterable<Event> {
+public final class TimeEventQueue<Event> implements Iterable<Event> {
+
+  /**
+   * Number of bytes used by the queue to keep track of each event, in addition to the event size provided
+   * when the event was added. It is the timestamp, offset, size and reference slots in the time ordered arrays,
+   * plus the offset and timestamp slots in the offset index. References are assumed to be 8 bytes.
+   */
+  static final int EVENT_OVERHEAD = Long.BYTES * 2 + Integer.BYTES + 8 + Long.BYTES * 2;
 
-  private final SortedSet<TimeEvent<Event, Offset>> events;
-  private final Int2ObjectMap<SortedSet<Offset>> partitionOffsets;
+  private final int[] partitionIds;
+  private final Int2IntMap partitionIndices;
+  private final SortedSlots<Event>[] timeSlots;
+  private final SortedSlots<Event>[] offsetSlots;
+  private int size;
   private long totalSize;
 
+  @SuppressWarnings("unchecked")
   public TimeEventQueue(Iterable<Integer> partitions) {
-    this.events = new TreeSet<>();
-    this.partitionOffsets = new Int2ObjectArrayMap<>();
+    this.partitionIndices = new Int2IntOpenHashMap();
+    this.partitionIndices.defaultReturnValue(-1);
 
     for (int partition : partitions) {
-      partitionOffsets.put(partition, new TreeSet<Offset>());
+      if (!partitionIndices.containsKey(partition)) {
+        partitionIndices.put(partition, partitionIndices.size());
+      }
     }
-  }
 
-  public void add(Event event, long eventTimestamp, int eventSize, int partition, Offset offset) {
-    SortedSet<Offset> offsets = getOffsets(partition);
-    TimeEvent<Event, Offset> timeEvent = new TimeEvent<>(eventTimestamp, partition, offset, event, eventSize);
-    if (events.add(timeEvent)) {
-      if (!offsets.add(offset)) {
-        events.remove(timeEvent);
-        throw new IllegalArgumentException("Adding different event with the same offset "
-                                             + offset + ", " + event);
-      }
+    int partitionCount = partitionIndices.size();
+    this.partitionIds = new int[partitionCount];
+    this.timeSlots = new SortedSlots[partitionCount];
+    this.offsetSlots = new SortedSlots[partitionCount];
+    for (Int2IntMap.Entry entry : partitionIndices.int2IntEntrySet()) {
+      int idx = entry.getIntValue();
+      partitionIds[idx] = entry.getIntKey();
+      timeSlots[idx] = new SortedSlots<>(true);
+      offsetSlots[idx] = new SortedSlots<>(false);
+    }
+  }
 
-      totalSize += eventSize;
+  /**
+   * Adds an event to the queue. Adding an event with the same timestamp and offset of an existing event in the
+   * same partition is a no-op.
+   *
+   * @throws IllegalArgumentException if the partition is not one of the partitions that the queue was created with,
+   *                                  or if there is already an event with a different timestamp in the same
+   *                                  partition with the same offset.
+   */
+  public void add(Event event, long eventTimestamp, int eventSize, int partition, long offset) {
+    int idx = getPartitionIndex(partition);
+    SortedSlots<Event> offsets = offsetSlots[idx];
+
+    int offsetPos = offsets.search(offset, eventTimestamp);
+    if (offsetPos >= 0) {
+      // Same offset and same timestamp means the same event was added before
+      return;
     }
+    offsetPos = -(offsetPos + 1);
+    if ((offsetPos > 0 && offsets.getFirstKey(offsetPos - 1) == offset)
+      || (offsetPos < offsets.size() && offsets.getFirstKey(offsetPos) == offset)) {
+      throw new IllegalArgumentException("Adding different event with the same offset " + offset + ", " + event);
+    }
+
+    offsets.insert(offsetPos, offset, eventTimestamp, 0, null);
+
+    SortedSlots<Event> events = timeSlots[idx];
+    events.insert(-(events.search(eventTimestamp, offset) + 1), eventTimestamp, offset, eventSize, event);
+
+    size++;
+    totalSize += eventSize + EVENT_OVERHEAD;
   }
 
   /**
    * Returns the event in the queue with the smallest timestamp.
+   *
+   * @throws NoSuchElementException if the queue is empty
    */
   public Event first() {
-    return events.first().getEvent();
+    int minIdx = -1;
+    for (int i = 0; i < timeSlots.length; i++) {
+      if (timeSlots[i].size() > 0 && (minIdx < 0 || compareHeads(i, 0, minIdx, 0) < 0)) {
+        minIdx = i;
+      }
+    }
+    if (minIdx < 0) {
+      throw new NoSuchElementException("Queue is empty");
+    }
+    return timeSlots[minIdx].getEvent(0);
   }
 
   /**
    * Returns {@code true} if there is no event in the queue.
    */
   public boolean isEmpty() {
-    return events.isEmpty();
+    return size == 0;
   }
 
   /**
    * Returns {@code true} if there is no event for the given partition in the queue.
    */
   public boolean isEmpty(int partition) {
-    return getOffsets(partition).isEmpty();
+    return timeSlots[getPartitionIndex(partition)].size() == 0;
   }
 
   /**
    * Returns the number of events in the queue.
    */
   public int size() {
-    return events.size();
+    return size;
   }
 
   /**
-   * Returns the size of all events in the queue.
+   * Returns the size of all events in the queue, including the memory used by the queue for tracking each event.
    */
   public long getEventSize() {
     return totalSize;
@@ -98,82 +154,169 @@ public final class TimeEventQueue<Event, Offset extends Comparable<Offset>> impl
   /**
    * Returns the smallest offset stored for the given partition.
    */
-  public Offset getSmallestOffset(int partition) {
-    SortedSet<Offset> offsets = getOffsets(partition);
-    if (offsets.isEmpty()) {
-      throw new IllegalStateException("Queue is empty");
-    }
-    return offsets.first();
+  public long getSmallestOffset(int partition) {
+    return getOffsetIndex(partition).getFirstKey(0);
   }
 
-  @Override
-  public EventIterator<Event, Offset> iterator() {
-    final Iterator<TimeEvent<Event, Offset>> iterator = events.iterator();
-    return new EventIterator<Event, Offset>() {
+  /**
+   * Returns the timestamp of the event that has the smallest offset stored for the given partition.
+   */
+  public long getSmallestOffsetTimestamp(int partition) {
+    return getOffsetIndex(partition).getSecondKey(0);
+  }
 
-      private TimeEvent<Event, Offset> currentEvent;
+  @Override
+  public EventIterator<Event> iterator() {
+    return new EventIterator<Event>() {
+
+      // Position of the next element to return for each partition
+      private final int[] cursors = new int[timeSlots.length];
+      // Min heap of partition indices, ordered by the element at the cursor of each partition
+      private final int[] heap = new int[timeSlots.length];
+      private int heapSize;
+      private int currentIdx = -1;
+
+      {
+        for (int i = 0; i < timeSlots.length; i++) {
+          if (timeSlots[i].size() > 0) {
+            heap[heapSize++] = i;
+          }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+          siftDown(i);
+        }
+      }
 
       @Override
       public boolean hasNext() {
-        return iterator.hasNext();
+        return heapSize > 0;
       }
 
       @Override
       public Event next() {
-        currentEvent = iterator.next();
-        return currentEvent.getEvent();
+        if (heapSize == 0) {
+          throw new NoSuchElementException();
+        }
+        currentIdx = heap[0];
+        int pos = cursors[currentIdx]++;
+
+        // Replace the heap top if the partition is exhausted, otherwise the top just have a larger element
+        if (cursors[currentIdx] >= timeSlots[currentIdx].size()) {
+          heap[0] = heap[--heapSize];
+        }
+        if (heapSize > 0) {
+          siftDown(0);
+        }
+        return timeSlots[currentIdx].getEvent(pos);
       }
 
       @Override
       public void remove() {
-        if (currentEvent == null) {
-          throw new IllegalStateException("The next() method must be called first.");
-        }
-        iterator.remove();
-        partitionOffsets.get(currentEvent.getPartition()).remove(currentEvent.getOffset());
-        totalSize -= currentEvent.getEventSize();
-        currentEvent = null;
+        checkCurrent();
+        int pos = --cursors[currentIdx];
+        SortedSlots<Event> events = timeSlots[currentIdx];
+        long timestamp = events.getFirstKey(pos);
+        long offset = events.getSecondKey(pos);
+
+        size--;
+        totalSize -= events.getSize(pos) + EVENT_OVERHEAD;
+        events.remove(pos);
+
+        SortedSlots<Event> offsets = offsetSlots[currentIdx];
+        offsets.remove(offsets.search(offset, timestamp));
+
+        // Removing the element in front of the cursor doesn't change the element that the cursor points to,
+        // hence the heap ordering is unaffected.
+        currentIdx = -1;
       }
 
       @Override
-      public Offset getOffset() {
-        if (currentEvent == null) {
-          throw new IllegalStateException("The next() method must be called first.");
-        }
-        return currentEvent.getOffset();
+      public long getOffset() {
+        checkCurrent();
+        return timeSlots[currentIdx].getSecondKey(cursors[currentIdx] - 1);
       }
 
       @Override
       public int getPartition() {
-        if (currentEvent == null) {
+        checkCurrent();
+        return partitionIds[currentIdx];
+      }
+
+      private void checkCurrent() {
+        if (currentIdx < 0) {
           throw new IllegalStateException("The next() method must be called first.");
         }
-        return currentEvent.getPartition();
+      }
+
+      private void siftDown(int i) {
+        int idx = heap[i];
+        while (true) {
+          int child = 2 * i + 1;
+          if (child >= heapSize) {
+            break;
+          }
+          if (child + 1 < heapSize && compareCursors(heap[child + 1], heap[child]) < 0) {
+            child++;
+          }
+          if (compareCursors(heap[child], idx) >= 0) {
+            break;
+          }
+          heap[i] = heap[child];
+          i = child;
+        }
+        heap[i] = idx;
+      }
+
+      private int compareCursors(int idx1, int idx2) {
+        return compareHeads(idx1, cursors[idx1], idx2, cursors[idx2]);
       }
     };
   }
 
-  private SortedSet<Offset> getOffsets(int partition) {
-    SortedSet<Offset> offsets = partitionOffsets.get(partition);
-    if (offsets == null) {
-      throw new IllegalArgumentException("Partition " + partition +
-                                           " is not in allowed partitions " + partitionOffsets.keySet());
+  /**
+   * Compares the event at the given position of one partition with the event at the given position of another
+   * partition by event time, then by partition, then by offset.
+   */
+  private int compareHeads(int idx1, int pos1, int idx2, int pos2) {
+    int cmp = Long.compare(timeSlots[idx1].getFirstKey(pos1), timeSlots[idx2].getFirstKey(pos2));
+    if (cmp != 0) {
+      return cmp;
+    }
+    cmp = Integer.compare(partitionIds[idx1], partitionIds[idx2]);
+    if (cmp != 0) {
+      return cmp;
+    }
+    return Long.compare(timeSlots[idx1].getSecondKey(pos1), timeSlots[idx2].getSecondKey(pos2));
+  }
+
+  private SortedSlots<Event> getOffsetIndex(int partition) {
+    SortedSlots<Event> offsets = offsetSlots[getPartitionIndex(partition)];
+    if (offsets.size() == 0) {
+      throw new IllegalStateException("Queue is empty");
     }
     return offsets;
   }
 
+  private int getPartitionIndex(int partition) {
+    int idx = partitionIndices.get(partition);
+    if (idx < 0) {
+      throw new IllegalArgumentException("Partition " + partition +
+                                           " is not in allowed partitions " + partitionIndices.keySet());
+    }
+    return idx;
+  }
+
   /**
    * An {@link Iterator} for iterating over events inserted to the {@link TimeEventQueue}.
    *
    * @param <Event> type of element
-   * @param <Offset> Type of event offset associated with the event.
    */
-  public interface EventIterator<Event, Offset> extends Iterator<Event> {
+  public interface EventIterator<Event> extends Iterator<Event> {
 
     /**
      * Returns the offset provided at the insertion time of the last element returned by this iterator.
      */
-    Offset getOffset();
+    long getOffset();
 
     /**
      * Returns the partition provided at the insertion time of the last element returned by this iterator.
@@ -182,58 +325,176 @@ public final class TimeEventQueue<Event, Offset extends Comparable<Offset>> impl
   }
 
   /**
-   * This class represent an event stored in the event set.
+   * A list of slots stored in primitive arrays, sorted by a pair of long keys. Elements are kept in the
+   * {@code [head, tail)} range of the arrays, so that removing from either end is done in constant time.
+   * Insertions and removals in the middle shift whichever side of the range is shorter.
+   *
+   * @param <Event> type of the event optionally stored in each slot
    */
-  private static final class TimeEvent<Event, Offset extends Comparable<Offset>>
-                        implements Comparable<TimeEvent<Event, Offset>> {
-    private final long eventTime;
-    private final int partition;
-    private final Offset offset;
-    private final Event event;
-    private final int eventSize;
+  private static final class SortedSlots<Event> {
 
-    TimeEvent(long eventTime, int partition, Offset offset, Event event, int eventSize) {
-      this.eventTime = eventTime;
-      this.partition = partition;
-      this.offset = offset;
-      this.event = event;
-      this.eventSize = eventSize;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final boolean withPayload;
+    private long[] firstKeys;
+    private long[] secondKeys;
+    private int[] sizes;
+    private Object[] events;
+    private int head;
+    private int tail;
+
+    SortedSlots(boolean withPayload) {
+      this.withPayload = withPayload;
+      allocate(INITIAL_CAPACITY);
     }
 
-    long getEventTime() {
-      return eventTime;
+    int size() {
+      return tail - head;
     }
 
-    int getPartition() {
-      return partition;
+    long getFirstKey(int pos) {
+      return firstKeys[head + pos];
     }
 
-    Offset getOffset() {
-      return offset;
+    long getSecondKey(int pos) {
+      return secondKeys[head + pos];
     }
 
-    Event getEvent() {
-      return event;
+    int getSize(int pos) {
+      return sizes[head + pos];
     }
 
-    int getEventSize() {
-      return eventSize;
+    @SuppressWarnings("unchecked")
+    Event getEvent(int pos) {
+      return (Event) events[head + pos];
     }
 
-    @Override
-    public int compareTo(TimeEvent<Event, Offset> other) {
-      // Compare by event time, then by partition, then by offset
-      // Combination of them are guaranteed to be unique.
+    /**
+     * Searches for the given keys. Since events mostly arrive in order, the last slot is checked first.
+     *
+     * @return the position of the keys if found; otherwise, {@code (-(insertion point) - 1)}
+     */
+    int search(long firstKey, long secondKey) {
+      if (head == tail || compare(tail - 1, firstKey, secondKey) < 0) {
+        return -(size() + 1);
+      }
+      int low = head;
+      int high = tail - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int cmp = compare(mid, firstKey, secondKey);
+        if (cmp < 0) {
+          low = mid + 1;
+        } else if (cmp > 0) {
+          high = mid - 1;
+        } else {
+          return mid - head;
+        }
+      }
+      return -(low - head + 1);
+    }
 
-      int cmp = Long.compare(eventTime, other.getEventTime());
-      if (cmp != 0) {
-        return cmp;
+    void insert(int pos, long firstKey, long secondKey, int size, Event event) {
+      if (pos < size() - pos && head > 0) {
+        // Shift the front part to the left
+        head--;
+        move(head + 1, head, pos);
+      } else {
+        if (tail == firstKeys.length) {
+          ensureCapacity();
+        }
+        move(head + pos, head + pos + 1, tail - head - pos);
+        tail++;
       }
-      cmp = Integer.compare(partition, other.getPartition());
-      if (cmp != 0) {
-        return cmp;
+      int idx = head + pos;
+      firstKeys[idx] = firstKey;
+      secondKeys[idx] = secondKey;
+      if (withPayload) {
+        sizes[idx] = size;
+        events[idx] = event;
+      }
+    }
+
+    void remove(int pos) {
+      if (pos < size() - pos - 1) {
+        // Shift the front part to the right
+        move(head, head + 1, pos);
+        clear(head);
+        head++;
+      } else {
+        move(head + pos + 1, head + pos, tail - head - pos - 1);
+        tail--;
+        clear(tail);
+      }
+
+      // Release the memory if the slots are mostly unused
+      if (head == tail) {
+        head = tail = 0;
+        if (firstKeys.length > INITIAL_CAPACITY * 4) {
+          allocate(INITIAL_CAPACITY);
+        }
+      }
+    }
+
+    private int compare(int idx, long firstKey, long secondKey) {
+      int cmp = Long.compare(firstKeys[idx], firstKey);
+      return cmp == 0 ? Long.compare(secondKeys[idx], secondKey) : cmp;
+    }
+
+    private void move(int from, int to, int length) {
+      if (length <= 0) {
+        return;
+      }
+      System.arraycopy(firstKeys, from, firstKeys, to, length);
+      System.arraycopy(secondKeys, from, secondKeys, to, length);
+      if (withPayload) {
+        System.arraycopy(sizes, from, sizes, to, length);
+        System.arraycopy(events, from, events, to, length);
+      }
+    }
+
+    private void clear(int idx) {
+      if (withPayload) {
+        // Release the reference to the event
+        events[idx] = null;
+      }
+    }
+
+    /**
+     * Makes room at the tail, either by compacting the slots to the beginning of the arrays if at least half of the
+     * arrays are unused, or by doubling the arrays size.
+     */
+    private void ensureCapacity() {
+      int size = size();
+      int capacity = size * 2 <= firstKeys.length ? firstKeys.length : firstKeys.length * 2;
+
+      long[] newFirstKeys = new long[capacity];
+      long[] newSecondKeys = new long[capacity];
+      System.arraycopy(firstKeys, head, newFirstKeys, 0, size);
+      System.arraycopy(secondKeys, head, newSecondKeys, 0, size);
+      firstKeys = newFirstKeys;
+      secondKeys = newSecondKeys;
+
+      if (withPayload) {
+        int[] newSizes = new int[capacity];
+        Object[] newEvents = new Object[capacity];
+        System.arraycopy(sizes, head, newSizes, 0, size);
+        System.arraycopy(events, head, newEvents, 0, size);
+        sizes = newSizes;
+        events = newEvents;
+      }
+
+      head = 0;
+      tail = size;
+    }
+
+    private void allocate(int capacity) {
+      firstKeys = new long[capacity];
+      secondKeys = new long[capacity];
+      if (withPayload) {
+        sizes = new int[capacity];
+        events = new Object[capacity];
       }
-      return offset.compareTo(other.getOffset());
     }
   }
 }
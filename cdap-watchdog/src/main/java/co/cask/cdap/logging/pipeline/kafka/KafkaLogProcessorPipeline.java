@@ -26,6 +26,7 @@ import co.cask.cdap.logging.meta.CheckpointManager;
 import co.cask.cdap.logging.pipeline.LogProcessorPipelineContext;
 import co.cask.cdap.logging.pipeline.TimeEventQueue;
 import co.cask.cdap.logging.serialize.LoggingEventSerializer;
+import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import it.unimi.dsi.fastutil.ints.Int2LongMap;
 import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
@@ -48,11 +49,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -62,6 +66,9 @@ import javax.annotation.Nullable;
 
 /**
  * A log processing pipeline that reads from Kafka and writes to configured logger context.
+ * Messages from all partitions are fetched concurrently. If parallel decoding is enabled in the
+ * {@link KafkaPipelineConfig}, each fetcher thread also decodes the messages of its own partition, leaving only
+ * the time ordered merge and the appending of events to the pipeline thread.
  */
 public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadService {
 
@@ -80,8 +87,9 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
   private final Int2LongMap offsets;
   private final Int2ObjectMap<MutableCheckpoint> checkpoints;
   private final LoggingEventSerializer serializer;
+  private final Int2ObjectMap<LoggingEventSerializer> partitionSerializers;
   private final KafkaPipelineConfig config;
-  private final TimeEventQueue<ILoggingEvent, OffsetTime> eventQueue;
+  private final TimeEventQueue<ILoggingEvent> eventQueue;
   private final Map<BrokerInfo, KafkaSimpleConsumer> kafkaConsumers;
   private final MetricsContext metricsContext;
   private final KafkaOffsetResolver offsetResolver;
@@ -104,7 +112,9 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
     this.checkpoints = new Int2ObjectOpenHashMap<>();
     this.eventQueue = new TimeEventQueue<>(config.getPartitions());
     this.serializer = new LoggingEventSerializer();
-    this.kafkaConsumers = new HashMap<>();
+    this.partitionSerializers = new Int2ObjectOpenHashMap<>();
+    // Consumers are shared between the fetcher threads, hence need to be a concurrent map
+    this.kafkaConsumers = new ConcurrentHashMap<>();
     this.metricsContext = context;
     this.offsetResolver = new KafkaOffsetResolver(brokerService, config);
   }
@@ -123,6 +133,14 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
       }
     }
 
+    // The serializer is not thread safe, hence each partition needs its own one when decoding in the fetcher threads.
+    // Since there is at most one outstanding fetch per partition, the same serializer is never used concurrently.
+    if (config.isParallelDecode()) {
+      for (int partition : partitions) {
+        partitionSerializers.put(partition, new LoggingEventSerializer());
+      }
+    }
+
     context.start();
 
     fetchExecutor = Executors.newFixedThreadPool(
@@ -142,7 +160,7 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
       initializeOffsets();
       LOG.info("Kafka offsets initialize for pipeline {} as {}", name, offsets);
 
-      Map<Integer, Future<Iterable<MessageAndOffset>>> futures = new HashMap<>();
+      Map<Integer, Future<Iterable<DecodedMessage>>> futures = new HashMap<>();
       String topic = config.getTopic();
 
       lastCheckpointTime = System.currentTimeMillis();
@@ -150,7 +168,7 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
       while (!stopped) {
         boolean hasMessageProcessed = false;
 
-        for (Map.Entry<Integer, Future<Iterable<MessageAndOffset>>> entry : fetchAll(offsets, futures).entrySet()) {
+        for (Map.Entry<Integer, Future<Iterable<DecodedMessage>>> entry : fetchAll(offsets, futures).entrySet()) {
           int partition = entry.getKey();
           try {
             if (processMessages(topic, partition, entry.getValue())) {
@@ -266,9 +284,9 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
    * Process messages fetched from a given partition.
    */
   private boolean processMessages(String topic, int partition,
-                                  Future<Iterable<MessageAndOffset>> future) throws InterruptedException,
-                                                                                    KafkaException, IOException {
-    Iterable<MessageAndOffset> messages;
+                                  Future<Iterable<DecodedMessage>> future) throws InterruptedException,
+                                                                                  KafkaException, IOException {
+    Iterable<DecodedMessage> messages;
     try {
       messages = future.get();
     } catch (ExecutionException e) {
@@ -289,7 +307,7 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
     }
 
     boolean processed = false;
-    for (MessageAndOffset message : messages) {
+    for (DecodedMessage message : messages) {
       if (eventQueue.getEventSize() >= config.getMaxBufferSize()) {
         // Log a message. If this happen too often, it indicates that more memory is needed for the log processing
         OUTAGE_LOG.info("Maximum queue size {} reached for pipeline {}.", config.getMaxBufferSize(), name);
@@ -302,40 +320,74 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
         unSyncedEvents += eventsAppended;
       }
 
-      try {
-        metricsContext.increment("kafka.bytes.read", message.message().payloadSize());
-        ILoggingEvent loggingEvent = serializer.fromBytes(message.message().payload());
+      metricsContext.increment("kafka.bytes.read", message.getPayloadSize());
+      ILoggingEvent loggingEvent = message.getEvent();
+      // A null event means the message cannot be decoded, which is already logged. Just skip it.
+      if (loggingEvent != null) {
         // Use the message payload size as the size estimate of the logging event
         // Although it's not the same as the in memory object size, it should be just a constant factor, hence
         // it is proportional to the actual object size.
-        eventQueue.add(loggingEvent, loggingEvent.getTimeStamp(), message.message().payloadSize(), partition,
-                       new OffsetTime(message.nextOffset(), loggingEvent.getTimeStamp()));
-      } catch (IOException e) {
-        // This shouldn't happen. In case it happens (e.g. someone published some garbage), just skip the message.
-        LOG.trace("Fail to decode logging event from {}:{} at offset {}. Skipping it.",
-                  topic, partition, message.offset(), e);
+        eventQueue.add(loggingEvent, loggingEvent.getTimeStamp(), message.getPayloadSize(), partition,
+                       message.getNextOffset());
       }
       processed = true;
-      offsets.put(partition, message.nextOffset());
+      offsets.put(partition, message.getNextOffset());
     }
 
     return processed;
   }
 
   /**
-   * Fetches messages from Kafka across all partitions simultaneously.
+   * Fetches messages from Kafka across all partitions simultaneously. If parallel decoding is enabled,
+   * messages are also decoded in the fetcher threads. Otherwise, messages are decoded lazily when the
+   * returned {@link Iterable} is being iterated.
    */
-  private <T extends Map<Integer, Future<Iterable<MessageAndOffset>>>> T fetchAll(Int2LongMap offsets,
-                                                                                  T fetchFutures) {
+  private <T extends Map<Integer, Future<Iterable<DecodedMessage>>>> T fetchAll(Int2LongMap offsets,
+                                                                                T fetchFutures) {
     for (final int partition : config.getPartitions()) {
       final long offset = offsets.get(partition);
 
-      fetchFutures.put(partition, fetchExecutor.submit(() -> fetchMessages(partition, offset)));
+      if (config.isParallelDecode()) {
+        LoggingEventSerializer partitionSerializer = partitionSerializers.get(partition);
+        fetchFutures.put(partition, fetchExecutor.submit(
+          () -> decodeMessages(partition, fetchMessages(partition, offset), partitionSerializer)));
+      } else {
+        fetchFutures.put(partition, fetchExecutor.submit(
+          () -> Iterables.transform(fetchMessages(partition, offset),
+                                    message -> decodeMessage(partition, message, serializer))));
+      }
     }
 
     return fetchFutures;
   }
 
+  /**
+   * Decodes all the given messages fetched from the given partition using the given serializer.
+   */
+  private Iterable<DecodedMessage> decodeMessages(int partition, Iterable<MessageAndOffset> messages,
+                                                  LoggingEventSerializer serializer) {
+    List<DecodedMessage> decoded = new ArrayList<>();
+    for (MessageAndOffset message : messages) {
+      decoded.add(decodeMessage(partition, message, serializer));
+    }
+    return decoded;
+  }
+
+  /**
+   * Decodes a message fetched from the given partition to a {@link DecodedMessage}.
+   */
+  private DecodedMessage decodeMessage(int partition, MessageAndOffset message, LoggingEventSerializer serializer) {
+    ILoggingEvent loggingEvent = null;
+    try {
+      loggingEvent = serializer.fromBytes(message.message().payload());
+    } catch (IOException e) {
+      // This shouldn't happen. In case it happens (e.g. someone published some garbage), just skip the message.
+      LOG.trace("Fail to decode logging event from {}:{} at offset {}. Skipping it.",
+                config.getTopic(), partition, message.offset(), e);
+    }
+    return new DecodedMessage(loggingEvent, message.nextOffset(), message.message().payloadSize());
+  }
+
   /**
    * Appends buffered events to appender. If the {@code force} parameter is {@code false}, buffered events
    * that are older than the buffer milliseconds will be appended and removed from the buffer.
@@ -348,7 +400,7 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
     long minEventTime = currentTimeMillis - config.getEventDelayMillis();
     long maxRetainSize = forced ? (long) (config.getMaxBufferSize() * MIN_FREE_FACTOR) : Long.MAX_VALUE;
 
-    TimeEventQueue.EventIterator<ILoggingEvent, OffsetTime> iterator = eventQueue.iterator();
+    TimeEventQueue.EventIterator<ILoggingEvent> iterator = eventQueue.iterator();
 
     int eventsAppended = 0;
     long minDelay = Long.MAX_VALUE;
@@ -383,14 +435,15 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
       int partition = iterator.getPartition();
       MutableCheckpoint checkpoint = checkpoints.get(partition);
       // Get the smallest offset and corresponding timestamp from the event queue
-      OffsetTime offsetTime = eventQueue.getSmallestOffset(partition);
+      long nextOffset = eventQueue.getSmallestOffset(partition);
+      long nextEventTime = eventQueue.getSmallestOffsetTimestamp(partition);
       if (checkpoint == null) {
-        checkpoint = new MutableCheckpoint(offsetTime.getOffset(), offsetTime.getEventTime(), event.getTimeStamp());
+        checkpoint = new MutableCheckpoint(nextOffset, nextEventTime, event.getTimeStamp());
         checkpoints.put(partition, checkpoint);
       } else {
         checkpoint
-          .setNextOffset(offsetTime.getOffset())
-          .setNextEvenTime(offsetTime.getEventTime())
+          .setNextOffset(nextOffset)
+          .setNextEvenTime(nextEventTime)
           .setMaxEventTime(event.getTimeStamp());
       }
 
@@ -489,7 +542,12 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
 
     consumer = new KafkaSimpleConsumer(leader, KAFKA_SO_TIMEOUT, config.getKafkaFetchBufferSize(),
                                        "client-" + name + "-" + partition);
-    kafkaConsumers.put(leader, consumer);
+    KafkaSimpleConsumer existing = kafkaConsumers.putIfAbsent(leader, consumer);
+    if (existing != null) {
+      // Another fetcher thread created the consumer for the same broker concurrently
+      consumer.close();
+      return existing;
+    }
     return consumer;
   }
 
@@ -580,31 +638,38 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
     metricsContext.gauge("event.delay.millis", config.getEventDelayMillis());
     metricsContext.gauge("kafka.fetch.buffer.size", config.getKafkaFetchBufferSize());
     metricsContext.gauge("checkpoint.interval.millis", config.getCheckpointIntervalMillis());
+    metricsContext.gauge("parallel.decode", config.isParallelDecode() ? 1 : 0);
   }
 
   /**
-   * A class that stores a message's next offset and log event time. Implements {@link Comparable} by comparing offsets.
+   * A class that holds a logging event decoded from a Kafka message, together with the message information
+   * needed for updating offsets and metrics.
    */
-  private static final class OffsetTime implements Comparable<OffsetTime> {
-    private final long offset;
-    private final long eventTime;
+  private static final class DecodedMessage {
+    private final ILoggingEvent event;
+    private final long nextOffset;
+    private final int payloadSize;
 
-    OffsetTime(long offset, long eventTime) {
-      this.offset = offset;
-      this.eventTime = eventTime;
+    DecodedMessage(@Nullable ILoggingEvent event, long nextOffset, int payloadSize) {
+      this.event = event;
+      this.nextOffset = nextOffset;
+      this.payloadSize = payloadSize;
     }
 
-    @Override
-    public int compareTo(OffsetTime o) {
-      return Long.compare(this.offset, o.offset);
+    /**
+     * Returns the decoded event or {@code null} if the message failed to decode.
+     */
+    @Nullable
+    ILoggingEvent getEvent() {
+      return event;
     }
 
-    long getOffset() {
-      return offset;
+    long getNextOffset() {
+      return nextOffset;
     }
 
-    long getEventTime() {
-      return eventTime;
+    int getPayloadSize() {
+      return payloadSize;
     }
   }
 
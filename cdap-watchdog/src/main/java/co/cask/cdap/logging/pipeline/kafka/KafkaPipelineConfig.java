@@ -31,15 +31,23 @@ public final class KafkaPipelineConfig {
   private final long eventDelayMillis;
   private final int kafkaFetchBufferSize;
   private final long checkpointIntervalMillis;
+  private final boolean parallelDecode;
 
   public KafkaPipelineConfig(String topic, Set<Integer> partitions, long maxBufferSize,
                              long eventDelayMillis, int kafkaFetchBufferSize, long checkpointIntervalMillis) {
+    this(topic, partitions, maxBufferSize, eventDelayMillis, kafkaFetchBufferSize, checkpointIntervalMillis, false);
+  }
+
+  public KafkaPipelineConfig(String topic, Set<Integer> partitions, long maxBufferSize,
+                             long eventDelayMillis, int kafkaFetchBufferSize, long checkpointIntervalMillis,
+                             boolean parallelDecode) {
     this.topic = topic;
     this.partitions = ImmutableSet.copyOf(partitions);
     this.maxBufferSize = maxBufferSize;
     this.eventDelayMillis = eventDelayMillis;
     this.kafkaFetchBufferSize = kafkaFetchBufferSize;
     this.checkpointIntervalMillis = checkpointIntervalMillis;
+    this.parallelDecode = parallelDecode;
   }
 
   String getTopic() {
@@ -66,6 +74,13 @@ public final class KafkaPipelineConfig {
     return checkpointIntervalMillis;
   }
 
+  /**
+   * Returns {@code true} if messages should be decoded by the per partition fetcher threads.
+   */
+  boolean isParallelDecode() {
+    return parallelDecode;
+  }
+
   @Override
   public String toString() {
     return "KafkaPipelineConfig{" +
@@ -75,6 +90,7 @@ public final class KafkaPipelineConfig {
       ", eventDelayMillis=" + eventDelayMillis +
       ", kafkaFetchBufferSize=" + kafkaFetchBufferSize +
       ", checkpointIntervalMillis=" + checkpointIntervalMillis +
+      ", parallelDecode=" + parallelDecode +
       '}';
   }
 }
@@ -20,7 +20,12 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.LoggingEvent;
 import co.cask.cdap.api.Transactional;
+import co.cask.cdap.api.Transactionals;
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DatasetManager;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
@@ -39,6 +44,7 @@ import co.cask.cdap.data2.transaction.Transactions;
 import co.cask.cdap.logging.LoggingConfiguration;
 import co.cask.cdap.logging.guice.LoggingModules;
 import co.cask.cdap.logging.meta.FileMetaDataWriter;
+import co.cask.cdap.logging.meta.LoggingStoreTableUtil;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.security.auth.context.AuthenticationContextModules;
 import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
@@ -57,6 +63,7 @@ import org.apache.tephra.RetryStrategies;
 import org.apache.tephra.TransactionManager;
 import org.apache.tephra.TransactionSystemClient;
 import org.apache.tephra.runtime.TransactionModules;
+import org.apache.twill.filesystem.Location;
 import org.apache.twill.filesystem.LocationFactory;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -67,6 +74,7 @@ import org.junit.rules.TemporaryFolder;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 public class LogFileManagerTest {
   @ClassRule
@@ -147,11 +155,32 @@ public class LogFileManagerTest {
     logFileManager.flush();
     // should be closed on flush, should return null
     Assert.assertNull((logFileManager.getActiveOutputStream(logPathIdentifier)));
+    // the size of the closed file should be recorded in its meta data
+    Assert.assertEquals(Long.valueOf(outputStream.getLocation().length()),
+                        getRecordedFileSize(datasetManager, transactional, outputStream.getLocation()));
     LogFileOutputStream newLogOutStream = logFileManager.getLogFileOutputStream(logPathIdentifier, timestamp);
     // make sure the new location we got is different
     Assert.assertNotEquals(outputStream.getLocation(), newLogOutStream.getLocation());
   }
 
+  @Nullable
+  private Long getRecordedFileSize(DatasetManager datasetManager, Transactional transactional, Location location) {
+    String path = location.toURI().getPath();
+    return Transactionals.execute(transactional, context -> {
+      Table table = LoggingStoreTableUtil.getMetadataTable(context, datasetManager);
+      try (Scanner scanner = table.scan(LoggingStoreTableUtil.NEW_FILE_META_ROW_KEY_PREFIX,
+                                        Bytes.stopKeyForPrefix(LoggingStoreTableUtil.NEW_FILE_META_ROW_KEY_PREFIX))) {
+        Row row;
+        while ((row = scanner.next()) != null) {
+          if (path.equals(row.getString(LoggingStoreTableUtil.META_TABLE_COLUMN_KEY))) {
+            return row.getLong(LoggingStoreTableUtil.META_TABLE_SIZE_COLUMN_KEY);
+          }
+        }
+      }
+      return null;
+    });
+  }
+
   private LoggingEvent getLoggingEvent(String fqcn, Logger logger, Level level, String message) {
     return new LoggingEvent(fqcn, logger, level, message, null, null);
   }
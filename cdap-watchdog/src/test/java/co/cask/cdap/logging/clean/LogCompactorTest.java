@@ -0,0 +1,231 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.clean;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import co.cask.cdap.api.Transactional;
+import co.cask.cdap.api.dataset.DatasetManager;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.guice.ConfigModule;
+import co.cask.cdap.common.guice.NonCustomLocationUnitTestModule;
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
+import co.cask.cdap.common.namespace.NamespaceQueryAdmin;
+import co.cask.cdap.common.namespace.SimpleNamespaceQueryAdmin;
+import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
+import co.cask.cdap.data.runtime.DataSetsModules;
+import co.cask.cdap.data.runtime.SystemDatasetRuntimeModule;
+import co.cask.cdap.data2.datafabric.dataset.DefaultDatasetManager;
+import co.cask.cdap.data2.dataset2.DatasetFramework;
+import co.cask.cdap.data2.dataset2.MultiThreadDatasetCache;
+import co.cask.cdap.data2.transaction.Transactions;
+import co.cask.cdap.logging.LoggingConfiguration;
+import co.cask.cdap.logging.appender.system.CDAPLogAppender;
+import co.cask.cdap.logging.appender.system.LogPathIdentifier;
+import co.cask.cdap.logging.filter.Filter;
+import co.cask.cdap.logging.guice.LoggingModules;
+import co.cask.cdap.logging.meta.FileMetaDataReader;
+import co.cask.cdap.logging.meta.FileMetaDataWriter;
+import co.cask.cdap.logging.read.LogEvent;
+import co.cask.cdap.logging.serialize.LoggingEventSerializer;
+import co.cask.cdap.logging.write.LogLocation;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.security.auth.context.AuthenticationContextModules;
+import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
+import co.cask.cdap.security.authorization.AuthorizationTestModule;
+import co.cask.cdap.security.impersonation.DefaultOwnerAdmin;
+import co.cask.cdap.security.impersonation.OwnerAdmin;
+import co.cask.cdap.security.impersonation.UGIProvider;
+import co.cask.cdap.security.impersonation.UnsupportedUGIProvider;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.tephra.RetryStrategies;
+import org.apache.tephra.TransactionManager;
+import org.apache.tephra.TransactionSystemClient;
+import org.apache.tephra.runtime.TransactionModules;
+import org.apache.twill.filesystem.Location;
+import org.apache.twill.filesystem.LocationFactory;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit test for {@link LogCompactor}.
+ */
+public class LogCompactorTest {
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static Injector injector;
+  private static TransactionManager txManager;
+
+  @BeforeClass
+  public static void setUpContext() throws Exception {
+    Configuration hConf = HBaseConfiguration.create();
+    final CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, TMP_FOLDER.newFolder().getAbsolutePath());
+    String logBaseDir = cConf.get(LoggingConfiguration.LOG_BASE_DIR) + "/" + CDAPLogAppender.class.getSimpleName();
+    cConf.set(LoggingConfiguration.LOG_BASE_DIR, logBaseDir);
+
+    injector = Guice.createInjector(
+      new ConfigModule(cConf, hConf),
+      new NonCustomLocationUnitTestModule().getModule(),
+      new TransactionModules().getInMemoryModules(),
+      new LoggingModules().getInMemoryModules(),
+      new DataSetsModules().getInMemoryModules(),
+      new SystemDatasetRuntimeModule().getInMemoryModules(),
+      new AuthorizationTestModule(),
+      new AuthorizationEnforcementModule().getInMemoryModules(),
+      new AuthenticationContextModules().getNoOpModule(),
+      new AbstractModule() {
+        @Override
+        protected void configure() {
+          bind(MetricsCollectionService.class).to(NoOpMetricsCollectionService.class);
+          bind(UGIProvider.class).to(UnsupportedUGIProvider.class);
+          bind(OwnerAdmin.class).to(DefaultOwnerAdmin.class);
+          bind(NamespaceQueryAdmin.class).to(SimpleNamespaceQueryAdmin.class);
+        }
+      }
+    );
+
+    txManager = injector.getInstance(TransactionManager.class);
+    txManager.startAndWait();
+  }
+
+  @AfterClass
+  public static void cleanUp() throws Exception {
+    txManager.stopAndWait();
+  }
+
+  @Test
+  public void testLogCompaction() throws Exception {
+    DatasetFramework datasetFramework = injector.getInstance(DatasetFramework.class);
+    DatasetManager datasetManager = new DefaultDatasetManager(datasetFramework, NamespaceId.SYSTEM,
+                                                              co.cask.cdap.common.service.RetryStrategies.noRetry(),
+                                                              null);
+    Transactional transactional = Transactions.createTransactionalWithRetry(
+      Transactions.createTransactional(new MultiThreadDatasetCache(
+        new SystemDatasetInstantiator(datasetFramework), injector.getInstance(TransactionSystemClient.class),
+        NamespaceId.SYSTEM, ImmutableMap.<String, String>of(), null, null)),
+      RetryStrategies.retryOnConflict(20, 100)
+    );
+    LocationFactory locationFactory = injector.getInstance(LocationFactory.class);
+    LogPathIdentifier logPathIdentifier = new LogPathIdentifier("testNs", "testApp", "testCompaction");
+    FileMetaDataWriter fileMetaDataWriter = new FileMetaDataWriter(datasetManager, transactional);
+    LoggingEventSerializer serializer = new LoggingEventSerializer();
+
+    long startTime = System.currentTimeMillis() - 100000;
+    Location dirLocation = locationFactory.create("logs").append("compaction");
+    dirLocation.mkdirs();
+
+    // create 10 small files, each with 5 events
+    for (int i = 0; i < 10; i++) {
+      Location location = dirLocation.append("test" + i);
+      try (
+        OutputStream os = location.getOutputStream();
+        DataFileWriter<GenericRecord> writer =
+          new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(serializer.getAvroSchema()))
+      ) {
+        writer.create(serializer.getAvroSchema(), os);
+        for (int j = 0; j < 5; j++) {
+          LoggingEvent event = new LoggingEvent();
+          event.setLevel(Level.INFO);
+          event.setLoggerName("test.logger");
+          event.setMessage("event " + (i * 5 + j));
+          event.setTimeStamp(startTime + i * 100 + j);
+          writer.append(serializer.toGenericRecord(event));
+        }
+      }
+      fileMetaDataWriter.writeMetaData(logPathIdentifier, startTime + i * 100, startTime + i * 100, location);
+      // record the size of half of the files, the size of the other files is obtained from the file system
+      if (i % 2 == 0) {
+        fileMetaDataWriter.writeFileSize(logPathIdentifier, startTime + i * 100, startTime + i * 100,
+                                         location.length());
+      }
+    }
+    Assert.assertEquals(10, dirLocation.list().size());
+    // the size is not recorded for files without meta data
+    fileMetaDataWriter.writeFileSize(logPathIdentifier, startTime + 1000, startTime + 1000, 1L);
+    FileMetadataCompactor fileMetadataCompactor = new FileMetadataCompactor(datasetManager, transactional);
+    List<List<FileMetadataCompactor.FileEntry>> scanned = fileMetadataCompactor.scanFiles(60);
+    Assert.assertEquals(1, scanned.size());
+    Assert.assertEquals(10, scanned.get(0).size());
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(i % 2 == 0 ? dirLocation.append("test" + i).length() : -1L,
+                          scanned.get(0).get(i).getSize());
+    }
+
+    // compact at least 2 files at a time, with the total size no larger than 5 files
+    long fileSize = dirLocation.append("test9").length();
+    LogCompactor logCompactor = new LogCompactor(fileMetadataCompactor, locationFactory,
+                                                 "", 0L, fileSize + 1, fileSize * 5, 2, 60);
+    logCompactor.run();
+
+    // all files should be replaced by two files
+    FileMetaDataReader fileMetaDataReader = injector.getInstance(FileMetaDataReader.class);
+    List<LogLocation> files = fileMetaDataReader.listFiles(logPathIdentifier, 0, System.currentTimeMillis());
+    Assert.assertEquals(2, files.size());
+    Assert.assertEquals(2, dirLocation.list().size());
+    Assert.assertEquals(startTime, files.get(0).getEventTimeMs());
+    Assert.assertEquals(startTime + 400, files.get(0).getFileCreationTimeMs());
+    Assert.assertEquals(startTime + 500, files.get(1).getEventTimeMs());
+    Assert.assertEquals(startTime + 900, files.get(1).getFileCreationTimeMs());
+
+    // the sizes of the compacted files should be recorded in the meta data
+    for (FileMetadataCompactor.FileEntry file : fileMetadataCompactor.scanFiles(60).get(0)) {
+      Assert.assertEquals(Locations.getLocationFromAbsolutePath(locationFactory, file.getPath()).length(),
+                          file.getSize());
+    }
+
+    // all events should be read in order
+    List<String> messages = new ArrayList<>();
+    for (LogLocation file : files) {
+      try (CloseableIterator<LogEvent> iterator = file.readLog(Filter.EMPTY_FILTER, 0, Long.MAX_VALUE,
+                                                               Integer.MAX_VALUE)) {
+        while (iterator.hasNext()) {
+          messages.add(iterator.next().getLoggingEvent().getFormattedMessage());
+        }
+      }
+    }
+    Assert.assertEquals(50, messages.size());
+    for (int i = 0; i < 50; i++) {
+      Assert.assertEquals("event " + i, messages.get(i));
+    }
+
+    // running it again shouldn't compact the files that are no longer small
+    logCompactor.run();
+    Assert.assertEquals(2, fileMetaDataReader.listFiles(logPathIdentifier, 0, System.currentTimeMillis()).size());
+  }
+}
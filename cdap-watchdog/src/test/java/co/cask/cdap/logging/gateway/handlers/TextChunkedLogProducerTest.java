@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.gateway.handlers;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import co.cask.cdap.api.dataset.lib.AbstractCloseableIterator;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.logging.read.LogEvent;
+import co.cask.cdap.logging.read.LogOffset;
+import com.google.common.io.ByteStreams;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Tests for {@link TextChunkedLogProducer}.
+ */
+public class TextChunkedLogProducerTest {
+
+  private static final String LOGGER_NAME = "co.cask.cdap.logging.gateway.handlers.Test";
+  private static final String PATTERN = "%-5level %logger - %msg%n";
+  private static final String MESSAGE = "<tag attr=\"value\"> & été 日本";
+
+  @Test
+  public void testText() throws Exception {
+    byte[] content = produce(createProducer(1000, false, false));
+    String expected = createExpected(1000, false);
+    Assert.assertEquals(expected, new String(content, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testEscape() throws Exception {
+    byte[] content = produce(createProducer(1000, true, false));
+    String expected = createExpected(1000, true);
+    Assert.assertEquals(expected, new String(content, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testGzip() throws Exception {
+    TextChunkedLogProducer producer = createProducer(10000, true, true);
+    Assert.assertEquals("gzip", producer.getHeaders().get(HttpHeaderNames.CONTENT_ENCODING));
+    byte[] compressed = produce(producer);
+    byte[] content = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+
+    String expected = createExpected(10000, true);
+    Assert.assertEquals(expected, new String(content, StandardCharsets.UTF_8));
+    Assert.assertTrue(compressed.length < content.length);
+  }
+
+  @Test
+  public void testGzipEmpty() throws Exception {
+    byte[] compressed = produce(createProducer(0, false, true));
+    byte[] content = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+    Assert.assertEquals(0, content.length);
+  }
+
+  /**
+   * Reads all chunks from the given producer until an empty chunk is returned.
+   */
+  private byte[] produce(AbstractChunkedLogProducer producer) throws Exception {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    try {
+      ByteBuf chunk = producer.nextChunk();
+      while (chunk.isReadable()) {
+        chunk.readBytes(os, chunk.readableBytes());
+        chunk.release();
+        chunk = producer.nextChunk();
+      }
+    } finally {
+      producer.close();
+    }
+    return os.toByteArray();
+  }
+
+  private String createExpected(int count, boolean escape) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      String line = String.format("%-5s %s - %s%n", "INFO", LOGGER_NAME, MESSAGE + " " + i);
+      builder.append(escape ? StringEscapeUtils.escapeHtml(line) : line);
+    }
+    return builder.toString();
+  }
+
+  private TextChunkedLogProducer createProducer(int count, boolean escape, boolean gzip) {
+    LoggerContext loggerContext = new LoggerContext();
+    Logger logger = loggerContext.getLogger(LOGGER_NAME);
+    List<LogEvent> events = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      LoggingEvent event = new LoggingEvent("fqcn", logger, Level.INFO, MESSAGE + " " + i, null, null);
+      events.add(new LogEvent(event, new LogOffset(i, i)));
+    }
+    return new TextChunkedLogProducer(createIterator(events.iterator()), PATTERN, escape, gzip);
+  }
+
+  private CloseableIterator<LogEvent> createIterator(final Iterator<LogEvent> iterator) {
+    return new AbstractCloseableIterator<LogEvent>() {
+      @Override
+      protected LogEvent computeNext() {
+        return iterator.hasNext() ? iterator.next() : endOfData();
+      }
+
+      @Override
+      public void close() {
+        // no-op
+      }
+    };
+  }
+}
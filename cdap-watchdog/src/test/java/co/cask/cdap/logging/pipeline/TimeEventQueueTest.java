@@ -34,7 +34,7 @@ public class TimeEventQueueTest {
 
   @Test
   public void testOrdering() {
-    TimeEventQueue<TimestampedEvent, Integer> eventQueue = new TimeEventQueue<>(ImmutableSet.of(1, 3));
+    TimeEventQueue<TimestampedEvent> eventQueue = new TimeEventQueue<>(ImmutableSet.of(1, 3));
     List<TimestampedEvent> expected = new ArrayList<>();
 
     // Put 10 events to partition 1, with both increasing timestamps and offsets
@@ -64,8 +64,8 @@ public class TimeEventQueueTest {
     // Should have 20 events
     Assert.assertEquals(20, eventQueue.size());
 
-    // Total size should be 20 * 10
-    Assert.assertEquals(200, eventQueue.getEventSize());
+    // Total size should be 20 * 10, plus the overhead of each event
+    Assert.assertEquals(20 * (10 + TimeEventQueue.EVENT_OVERHEAD), eventQueue.getEventSize());
 
     // When iterating the queue, it should gives event in timestamp order,
     // followed by partition order, followed by Kafka offset.
@@ -78,7 +78,7 @@ public class TimeEventQueueTest {
 
   @Test
   public void testKafkaOffset() {
-    TimeEventQueue<String, Integer> eventQueue = new TimeEventQueue<>(ImmutableSet.of(1, 2));
+    TimeEventQueue<String> eventQueue = new TimeEventQueue<>(ImmutableSet.of(1, 2));
 
     // Insert 6 events, with timestamps going back and forth
     eventQueue.add("m7", 7L, 10, 1, 0);
@@ -88,54 +88,54 @@ public class TimeEventQueueTest {
     eventQueue.add("m2", 2L, 10, 1, 4);
     eventQueue.add("m8", 8L, 10, 2, 5);
 
-    // Have 6 events of size 10, so total size should be 60
-    Assert.assertEquals(60, eventQueue.getEventSize());
+    // Have 6 events of size 10, so total size should be 60 plus the overhead of each event
+    Assert.assertEquals(6 * (10 + TimeEventQueue.EVENT_OVERHEAD), eventQueue.getEventSize());
 
     // Events should be time ordered when getting from iterator
-    TimeEventQueue.EventIterator<String, Integer> iterator = eventQueue.iterator();
+    TimeEventQueue.EventIterator<String> iterator = eventQueue.iterator();
 
     Assert.assertEquals("m2", iterator.next());
     Assert.assertEquals(1, iterator.getPartition());
-    Assert.assertEquals(4, iterator.getOffset().intValue());
+    Assert.assertEquals(4, iterator.getOffset());
     iterator.remove();
-    Assert.assertEquals(50, eventQueue.getEventSize());
-    Assert.assertEquals(0, eventQueue.getSmallestOffset(1).intValue());
-    Assert.assertEquals(1, eventQueue.getSmallestOffset(2).intValue());
+    Assert.assertEquals(5 * (10 + TimeEventQueue.EVENT_OVERHEAD), eventQueue.getEventSize());
+    Assert.assertEquals(0, eventQueue.getSmallestOffset(1));
+    Assert.assertEquals(1, eventQueue.getSmallestOffset(2));
 
     Assert.assertEquals("m5", iterator.next());
     Assert.assertEquals(2, iterator.getPartition());
-    Assert.assertEquals(1, iterator.getOffset().intValue());
+    Assert.assertEquals(1, iterator.getOffset());
     iterator.remove();
-    Assert.assertEquals(40, eventQueue.getEventSize());
-    Assert.assertEquals(0, eventQueue.getSmallestOffset(1).intValue());
-    Assert.assertEquals(3, eventQueue.getSmallestOffset(2).intValue());
+    Assert.assertEquals(4 * (10 + TimeEventQueue.EVENT_OVERHEAD), eventQueue.getEventSize());
+    Assert.assertEquals(0, eventQueue.getSmallestOffset(1));
+    Assert.assertEquals(3, eventQueue.getSmallestOffset(2));
 
     Assert.assertEquals("m7", iterator.next());
     Assert.assertEquals(1, iterator.getPartition());
-    Assert.assertEquals(0, iterator.getOffset().intValue());
+    Assert.assertEquals(0, iterator.getOffset());
     iterator.remove();
-    Assert.assertEquals(30, eventQueue.getEventSize());
-    Assert.assertEquals(2, eventQueue.getSmallestOffset(1).intValue());
-    Assert.assertEquals(3, eventQueue.getSmallestOffset(2).intValue());
+    Assert.assertEquals(3 * (10 + TimeEventQueue.EVENT_OVERHEAD), eventQueue.getEventSize());
+    Assert.assertEquals(2, eventQueue.getSmallestOffset(1));
+    Assert.assertEquals(3, eventQueue.getSmallestOffset(2));
 
     Assert.assertEquals("m8", iterator.next());
     Assert.assertEquals(2, iterator.getPartition());
-    Assert.assertEquals(5, iterator.getOffset().intValue());
+    Assert.assertEquals(5, iterator.getOffset());
     iterator.remove();
-    Assert.assertEquals(20, eventQueue.getEventSize());
-    Assert.assertEquals(2, eventQueue.getSmallestOffset(1).intValue());
-    Assert.assertEquals(3, eventQueue.getSmallestOffset(2).intValue());
+    Assert.assertEquals(2 * (10 + TimeEventQueue.EVENT_OVERHEAD), eventQueue.getEventSize());
+    Assert.assertEquals(2, eventQueue.getSmallestOffset(1));
+    Assert.assertEquals(3, eventQueue.getSmallestOffset(2));
 
     Assert.assertEquals("m10", iterator.next());
     Assert.assertEquals(1, iterator.getPartition());
-    Assert.assertEquals(2, iterator.getOffset().intValue());
+    Assert.assertEquals(2, iterator.getOffset());
     iterator.remove();
-    Assert.assertEquals(10, eventQueue.getEventSize());
+    Assert.assertEquals(10 + TimeEventQueue.EVENT_OVERHEAD, eventQueue.getEventSize());
     Assert.assertTrue(eventQueue.isEmpty(1));
 
     Assert.assertEquals("m11", iterator.next());
     Assert.assertEquals(2, iterator.getPartition());
-    Assert.assertEquals(3, iterator.getOffset().intValue());
+    Assert.assertEquals(3, iterator.getOffset());
     iterator.remove();
     Assert.assertEquals(0, eventQueue.getEventSize());
     Assert.assertTrue(eventQueue.isEmpty(2));
@@ -143,15 +143,66 @@ public class TimeEventQueueTest {
     Assert.assertTrue(eventQueue.isEmpty());
   }
 
+  @Test
+  public void testOutOfOrderInsert() {
+    TimeEventQueue<String> eventQueue = new TimeEventQueue<>(ImmutableSet.of(1, 2));
+
+    // Insert enough events to grow the internal buffers, with timestamps decreasing and offsets increasing
+    for (int i = 0; i < 100; i++) {
+      eventQueue.add("p1-" + i, 1000L - i, 10, 1, i);
+      eventQueue.add("p2-" + i, 1000L - i, 10, 2, i);
+    }
+    // Adding the same event again should be ignored
+    eventQueue.add("p1-0", 1000L, 10, 1, 0);
+    Assert.assertEquals(200, eventQueue.size());
+    Assert.assertEquals("p1-99", eventQueue.first());
+    Assert.assertEquals(0L, eventQueue.getSmallestOffset(1));
+    Assert.assertEquals(1000L, eventQueue.getSmallestOffsetTimestamp(1));
+
+    // Iterate without removal, events should be ordered by timestamp, then by partition
+    TimeEventQueue.EventIterator<String> iterator = eventQueue.iterator();
+    for (int i = 99; i >= 0; i--) {
+      Assert.assertEquals("p1-" + i, iterator.next());
+      Assert.assertEquals(i, iterator.getOffset());
+      Assert.assertEquals("p2-" + i, iterator.next());
+      Assert.assertEquals(2, iterator.getPartition());
+    }
+    Assert.assertFalse(iterator.hasNext());
+
+    // Remove every events from partition 2 and half of the events from partition 1
+    iterator = eventQueue.iterator();
+    for (int i = 99; i >= 0; i--) {
+      iterator.next();
+      if (i < 50) {
+        iterator.remove();
+      }
+      iterator.next();
+      iterator.remove();
+    }
+    Assert.assertTrue(eventQueue.isEmpty(2));
+    Assert.assertEquals(50, eventQueue.size());
+    Assert.assertEquals(50 * (10 + TimeEventQueue.EVENT_OVERHEAD), eventQueue.getEventSize());
+    Assert.assertEquals(50L, eventQueue.getSmallestOffset(1));
+    Assert.assertEquals(950L, eventQueue.getSmallestOffsetTimestamp(1));
+    Assert.assertEquals("p1-99", eventQueue.first());
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testDuplicateOffset() {
+    TimeEventQueue<String> eventQueue = new TimeEventQueue<>(Collections.singleton(1));
+    eventQueue.add("test", 1L, 10, 1, 0);
+    eventQueue.add("test2", 2L, 10, 1, 0);
+  }
+
   @Test (expected = IllegalArgumentException.class)
   public void testInvalidPartition() {
-    TimeEventQueue<String, Integer> eventQueue = new TimeEventQueue<>(Collections.singleton(1));
+    TimeEventQueue<String> eventQueue = new TimeEventQueue<>(Collections.singleton(1));
     eventQueue.add("test", 1L, 10, 2, 0);
   }
 
   @Test (expected = IllegalStateException.class)
   public void testIllegalRemove() {
-    TimeEventQueue<String, Integer> eventQueue = new TimeEventQueue<>(Collections.singleton(1));
+    TimeEventQueue<String> eventQueue = new TimeEventQueue<>(Collections.singleton(1));
     eventQueue.add("test", 1L, 10, 1, 0);
     Iterator<String> iterator = eventQueue.iterator();
     iterator.next();
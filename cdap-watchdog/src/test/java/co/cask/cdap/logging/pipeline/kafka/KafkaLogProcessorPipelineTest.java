@@ -64,6 +64,7 @@ import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
 import co.cask.cdap.security.authorization.AuthorizationTestModule;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.inject.AbstractModule;
 import com.google.inject.Injector;
@@ -213,6 +214,53 @@ public class KafkaLogProcessorPipelineTest {
     Assert.assertNull(appender.getEvents());
   }
 
+  @Test
+  public void testParallelDecodeSort() throws Exception {
+    String topic = "testParallelDecode";
+    LoggerContext loggerContext = createLoggerContext("WARN", ImmutableMap.of("test.logger", "INFO"),
+                                                      TestAppender.class.getName());
+    final TestAppender appender = getAppender(loggerContext.getLogger(Logger.ROOT_LOGGER_NAME),
+                                              "Test", TestAppender.class);
+    TestCheckpointManager checkpointManager = new TestCheckpointManager();
+    KafkaPipelineConfig config = new KafkaPipelineConfig(topic, ImmutableSet.of(0, 1), 1024L, 300L,
+                                                         1048576, 500L, true);
+    KAFKA_TESTER.createTopic(topic, 2);
+
+    loggerContext.start();
+    KafkaLogProcessorPipeline pipeline = new KafkaLogProcessorPipeline(
+      new LogProcessorPipelineContext(CConfiguration.create(), "test", loggerContext, NO_OP_METRICS_CONTEXT, 0),
+      checkpointManager,
+      KAFKA_TESTER.getBrokerService(), config);
+
+    pipeline.startAndWait();
+
+    // Publish log messages with interleaving timestamps through two different logging contexts,
+    // which are decoded by different fetcher threads if they are hashed to different partitions.
+    long now = System.currentTimeMillis();
+    publishLog(topic, ImmutableList.of(
+      createLoggingEvent("test.logger", Level.INFO, "0", now - 1000),
+      createLoggingEvent("test.logger", Level.INFO, "2", now - 800),
+      createLoggingEvent("test.logger", Level.INFO, "4", now - 600)),
+               new GenericLoggingContext(NamespaceId.DEFAULT.getNamespace(), "app1", "entity"));
+    publishLog(topic, ImmutableList.of(
+      createLoggingEvent("test.logger", Level.INFO, "1", now - 900),
+      createLoggingEvent("test.logger", Level.DEBUG, "hidden", now - 700),
+      createLoggingEvent("test.logger", Level.INFO, "3", now - 650)),
+               new GenericLoggingContext(NamespaceId.DEFAULT.getNamespace(), "app2", "entity"));
+
+    // The events should be merged across partitions by event timestamp
+    Tasks.waitFor(5, () -> appender.getEvents().size(), 5, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
+
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals(Integer.toString(i), appender.getEvents().poll().getMessage());
+    }
+
+    pipeline.stopAndWait();
+    loggerContext.stop();
+
+    Assert.assertNull(appender.getEvents());
+  }
+
   @Test
   public void testRegularFlush() throws Exception {
     String topic = "testFlush";
@@ -0,0 +1,367 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.pipeline.kafka;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Appender;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.guice.NonCustomLocationUnitTestModule;
+import co.cask.cdap.common.io.Syncable;
+import co.cask.cdap.common.logging.LoggingContext;
+import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
+import co.cask.cdap.common.utils.Tasks;
+import co.cask.cdap.data.runtime.DataSetsModules;
+import co.cask.cdap.data.runtime.SystemDatasetRuntimeModule;
+import co.cask.cdap.data2.dataset2.DatasetFramework;
+import co.cask.cdap.kafka.KafkaTester;
+import co.cask.cdap.logging.appender.ForwardingAppender;
+import co.cask.cdap.logging.appender.LogMessage;
+import co.cask.cdap.logging.context.GenericLoggingContext;
+import co.cask.cdap.logging.framework.LocalAppenderContext;
+import co.cask.cdap.logging.meta.Checkpoint;
+import co.cask.cdap.logging.meta.CheckpointManager;
+import co.cask.cdap.logging.pipeline.LogPipelineConfigurator;
+import co.cask.cdap.logging.pipeline.LogProcessorPipelineContext;
+import co.cask.cdap.logging.serialize.LoggingEventSerializer;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.security.auth.context.AuthenticationContextModules;
+import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
+import co.cask.cdap.security.authorization.AuthorizationTestModule;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import org.apache.tephra.TransactionManager;
+import org.apache.tephra.TransactionSystemClient;
+import org.apache.tephra.runtime.TransactionModules;
+import org.apache.twill.filesystem.LocationFactory;
+import org.apache.twill.kafka.client.Compression;
+import org.apache.twill.kafka.client.KafkaPublisher;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for the log saver throughput. Synthetic log events are published to Kafka at a configurable rate and
+ * processed by a {@link KafkaLogProcessorPipeline} configured with the log saver pipeline, which writes the events
+ * through {@link co.cask.cdap.logging.appender.system.CDAPLogAppender} to the local file system.
+ *
+ * The benchmark is not run as part of the unit tests. To run it:
+ * <pre>
+ *   mvn test -pl cdap-watchdog -Dtest=LogSaverBenchmark -Dlog.saver.benchmark.events=1000000 \
+ *     -Dlog.saver.benchmark.rate=50000 -Dlog.saver.benchmark.contexts=100
+ * </pre>
+ * Other system properties with the {@code log.} prefix, such as {@code log.process.pipeline.buffer.size} and
+ * {@code log.pipeline.cdap.file.sync.interval.bytes}, override the log saver configurations.
+ */
+public class LogSaverBenchmark {
+
+  private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(LogSaverBenchmark.class);
+
+  private static final String PROPERTY_PREFIX = "log.saver.benchmark.";
+  private static final String TOPIC = "logSaverBenchmark";
+  private static final int PUBLISH_BATCH_SIZE = 500;
+
+  private static final int PARTITIONS = Integer.getInteger(PROPERTY_PREFIX + "partitions", 1);
+
+  @ClassRule
+  public static final KafkaTester KAFKA_TESTER =
+    new KafkaTester(ImmutableMap.<String, String>of(),
+                    ImmutableList.of(
+                      new NonCustomLocationUnitTestModule().getModule(),
+                      new DataSetsModules().getInMemoryModules(),
+                      new TransactionModules().getInMemoryModules(),
+                      new SystemDatasetRuntimeModule().getInMemoryModules(),
+                      new AuthorizationTestModule(),
+                      new AuthorizationEnforcementModule().getInMemoryModules(),
+                      new AuthenticationContextModules().getNoOpModule(),
+                      new AbstractModule() {
+                        @Override
+                        protected void configure() {
+                          bind(MetricsCollectionService.class).to(NoOpMetricsCollectionService.class);
+                        }
+                      }),
+                    PARTITIONS);
+
+  @Test
+  public void benchmark() throws Exception {
+    int events = Integer.getInteger(PROPERTY_PREFIX + "events", 100000);
+    int rate = Integer.getInteger(PROPERTY_PREFIX + "rate", 0);
+    int contexts = Integer.getInteger(PROPERTY_PREFIX + "contexts", 10);
+    int messageSize = Integer.getInteger(PROPERTY_PREFIX + "message.size", 200);
+
+    CConfiguration cConf = CConfiguration.create();
+    for (Map.Entry<Object, Object> entry : System.getProperties().entrySet()) {
+      String key = entry.getKey().toString();
+      if (key.startsWith("log.") && !key.startsWith(PROPERTY_PREFIX)) {
+        cConf.set(key, entry.getValue().toString());
+      }
+    }
+
+    Injector injector = KAFKA_TESTER.getInjector();
+    TransactionManager txManager = injector.getInstance(TransactionManager.class);
+    txManager.startAndWait();
+
+    LoggerContext loggerContext = new LocalAppenderContext(injector.getInstance(DatasetFramework.class),
+                                                           injector.getInstance(TransactionSystemClient.class),
+                                                           injector.getInstance(LocationFactory.class),
+                                                           injector.getInstance(MetricsCollectionService.class));
+    LogPipelineConfigurator configurator = new LogPipelineConfigurator(cConf);
+    configurator.setContext(loggerContext);
+    URL configURL = getClass().getClassLoader().getResource("cdap-log-pipeline.xml");
+    Assert.assertNotNull(configURL);
+    configurator.doConfigure(configURL);
+
+    // Wrap the appender that writes to the file system to measure the time when events are written
+    Logger rootLogger = loggerContext.getLogger(Logger.ROOT_LOGGER_NAME);
+    Appender<ILoggingEvent> fileAppender = rootLogger.getAppender("CDAP");
+    Assert.assertNotNull(fileAppender);
+    DelayTrackingAppender delayAppender = new DelayTrackingAppender(fileAppender);
+    rootLogger.detachAppender(fileAppender);
+    rootLogger.addAppender(delayAppender);
+
+    Set<Integer> partitions = new HashSet<>();
+    for (int i = 0; i < PARTITIONS; i++) {
+      partitions.add(i);
+    }
+    KafkaPipelineConfig config = new KafkaPipelineConfig(
+      TOPIC, partitions, getBufferSize(cConf),
+      cConf.getLong(Constants.Logging.PIPELINE_EVENT_DELAY_MS),
+      cConf.getInt(Constants.Logging.PIPELINE_KAFKA_FETCH_SIZE),
+      cConf.getLong(Constants.Logging.PIPELINE_CHECKPOINT_INTERVAL_MS),
+      cConf.getBoolean(Constants.Logging.PIPELINE_PARALLEL_DECODE));
+    KAFKA_TESTER.createTopic(TOPIC, PARTITIONS);
+
+    loggerContext.start();
+    KafkaLogProcessorPipeline pipeline = new KafkaLogProcessorPipeline(
+      new LogProcessorPipelineContext(cConf, "benchmark", loggerContext, new NoOpMetricsCollectionService()
+        .getContext(Collections.<String, String>emptyMap()), 0),
+      new NoOpCheckpointManager(), KAFKA_TESTER.getBrokerService(), config);
+
+    long gcTimeBefore = getGCTime();
+    long startTime = System.currentTimeMillis();
+    pipeline.startAndWait();
+    try {
+      publish(events, rate, contexts, messageSize);
+      long publishEndTime = System.currentTimeMillis();
+
+      // Wait until all events are written. Allow at least the time it took to publish, plus a fixed delay.
+      Tasks.waitFor(events, delayAppender::getEventCount,
+                    Math.max(publishEndTime - startTime, 0) + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS,
+                    100, TimeUnit.MILLISECONDS);
+    } finally {
+      pipeline.stopAndWait();
+      loggerContext.stop();
+      txManager.stopAndWait();
+    }
+
+    long elapsed = delayAppender.getLastWriteTime() - startTime;
+    long gcTime = getGCTime() - gcTimeBefore;
+    long[] delays = delayAppender.getDelays();
+    Arrays.sort(delays);
+
+    LOG.info("Log saver benchmark: events={}, rate={}, contexts={}, partitions={}, message.size={}",
+             events, rate == 0 ? "unlimited" : rate, contexts, PARTITIONS, messageSize);
+    LOG.info("Throughput: {} events/sec, elapsed {} ms", elapsed <= 0 ? events : events * 1000L / elapsed, elapsed);
+    LOG.info("End-to-end delay (ms): min={}, p50={}, p90={}, p99={}, max={}",
+             percentile(delays, 0), percentile(delays, 50), percentile(delays, 90),
+             percentile(delays, 99), percentile(delays, 100));
+    LOG.info("GC time: {} ms ({}% of elapsed time)", gcTime, elapsed <= 0 ? 0 : gcTime * 100 / elapsed);
+  }
+
+  /**
+   * Publishes log events to Kafka, paced to the given rate in events per second, or as fast as possible if the
+   * rate is zero. The events are evenly distributed across the given number of logging contexts, and are
+   * timestamped with the publish time so that the end-to-end delay can be measured.
+   */
+  private void publish(int events, int rate, int contexts, int messageSize) {
+    KafkaPublisher publisher = KAFKA_TESTER.getKafkaClient().getPublisher(KafkaPublisher.Ack.LEADER_RECEIVED,
+                                                                          Compression.NONE);
+    LoggingContext[] loggingContexts = new LoggingContext[contexts];
+    for (int i = 0; i < contexts; i++) {
+      loggingContexts[i] = new GenericLoggingContext(NamespaceId.DEFAULT.getNamespace(), "app" + i, "entity");
+    }
+    LoggingEventSerializer serializer = new LoggingEventSerializer();
+    String message = Strings.repeat("x", messageSize);
+
+    long startNanos = System.nanoTime();
+    int published = 0;
+    while (published < events) {
+      if (rate > 0) {
+        long waitNanos = startNanos + TimeUnit.SECONDS.toNanos(published) / rate - System.nanoTime();
+        if (waitNanos > 0) {
+          Uninterruptibles.sleepUninterruptibly(waitNanos, TimeUnit.NANOSECONDS);
+        }
+      }
+
+      KafkaPublisher.Preparer preparer = publisher.prepare(TOPIC);
+      int batchEnd = Math.min(events, published + PUBLISH_BATCH_SIZE);
+      long timestamp = System.currentTimeMillis();
+      for (int i = published; i < batchEnd; i++) {
+        LoggingContext context = loggingContexts[i % contexts];
+        LoggingEvent event = new LoggingEvent();
+        event.setLevel(Level.INFO);
+        event.setLoggerName("co.cask.cdap.logging.benchmark");
+        event.setThreadName("benchmark");
+        event.setMessage(message);
+        event.setTimeStamp(timestamp);
+        preparer.add(ByteBuffer.wrap(serializer.toBytes(new LogMessage(event, context))), context.getLogPartition());
+      }
+      preparer.send();
+      published = batchEnd;
+    }
+  }
+
+  /**
+   * Returns the pipeline buffer size, derived from the heap size the same way as the log saver if not set.
+   */
+  private static long getBufferSize(CConfiguration cConf) {
+    long bufferSize = cConf.getLong(Constants.Logging.PIPELINE_BUFFER_SIZE);
+    if (bufferSize > 0) {
+      return bufferSize;
+    }
+    double bufferRatio = cConf.getDouble(Constants.Logging.PIPELINE_AUTO_BUFFER_RATIO);
+    int kafkaFetchSize = cConf.getInt(Constants.Logging.PIPELINE_KAFKA_FETCH_SIZE) * PARTITIONS;
+    return Math.max(1L, (long) (Runtime.getRuntime().maxMemory() * bufferRatio - kafkaFetchSize));
+  }
+
+  private static long getGCTime() {
+    long time = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      time += Math.max(0, bean.getCollectionTime());
+    }
+    return time;
+  }
+
+  private static long percentile(long[] sorted, int percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    return sorted[Math.max(0, (int) Math.ceil(sorted.length * percentile / 100.0) - 1)];
+  }
+
+  /**
+   * An {@link Appender} that records the delay between the event timestamp and the time when the event is
+   * flushed to the file system by the delegating appender.
+   */
+  private static final class DelayTrackingAppender extends ForwardingAppender<ILoggingEvent>
+    implements Flushable, Syncable {
+
+    private final LongList pendingTimestamps = new LongArrayList();
+    private final LongList delays = new LongArrayList();
+    private volatile int eventCount;
+    private volatile long lastWriteTime;
+
+    DelayTrackingAppender(Appender<ILoggingEvent> delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public void doAppend(ILoggingEvent event) {
+      super.doAppend(event);
+      pendingTimestamps.add(event.getTimeStamp());
+    }
+
+    @Override
+    public void flush() throws IOException {
+      Appender<ILoggingEvent> delegate = getDelegate();
+      if (delegate instanceof Flushable) {
+        ((Flushable) delegate).flush();
+      }
+      if (pendingTimestamps.isEmpty()) {
+        return;
+      }
+      long now = System.currentTimeMillis();
+      synchronized (delays) {
+        for (int i = 0; i < pendingTimestamps.size(); i++) {
+          delays.add(now - pendingTimestamps.getLong(i));
+        }
+      }
+      lastWriteTime = now;
+      eventCount += pendingTimestamps.size();
+      pendingTimestamps.clear();
+    }
+
+    @Override
+    public void sync() throws IOException {
+      flush();
+      Appender<ILoggingEvent> delegate = getDelegate();
+      if (delegate instanceof Syncable) {
+        ((Syncable) delegate).sync();
+      }
+    }
+
+    int getEventCount() {
+      return eventCount;
+    }
+
+    long getLastWriteTime() {
+      return lastWriteTime;
+    }
+
+    long[] getDelays() {
+      synchronized (delays) {
+        return delays.toLongArray();
+      }
+    }
+  }
+
+  /**
+   * A {@link CheckpointManager} that always starts from the beginning and does not persist checkpoints.
+   */
+  private static final class NoOpCheckpointManager implements CheckpointManager {
+
+    @Override
+    public void saveCheckpoints(Map<Integer, ? extends Checkpoint> checkpoints) {
+      // no-op
+    }
+
+    @Override
+    public Map<Integer, Checkpoint> getCheckpoint(Set<Integer> partitions) {
+      return Collections.emptyMap();
+    }
+
+    @Override
+    public Checkpoint getCheckpoint(int partition) {
+      return new Checkpoint(-1, -1, -1);
+    }
+  }
+}